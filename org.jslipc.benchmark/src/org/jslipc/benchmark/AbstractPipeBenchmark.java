@@ -0,0 +1,110 @@
+package org.jslipc.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jslipc.JslipcRole;
+import org.jslipc.util.FileUtil;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Common base class of the pipe benchmarks. Each trial creates the
+ * {@link JslipcRole#Yin yin} end of the pipe and starts the {@link Peer}
+ * serving the other end in a separate process, so the measurements include
+ * the real inter-process behavior.<br/>
+ * <br/>
+ * The {@link #pipeType} is the name of a {@link PipeType}. The buffer size
+ * only affects the {@link PipeType#SharedMemoryPipe}, so it is given as a
+ * suffix of that type, e.g. <code>SharedMemoryPipe:32768</code> for a queue
+ * capacity of 32k per direction, and the file based pipes are not measured
+ * once per buffer size. Without a suffix the default size of the pipe is
+ * used.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractPipeBenchmark {
+
+	private static final long PEER_EXIT_TIMEOUT = 10000;
+
+	private static final char BUFFER_SIZE_SEPARATOR = ':';
+
+	@Param({ "FilePipe", "ChunkFilePipe", "SharedMemoryPipe:32768",
+			"SharedMemoryPipe:524288" })
+	public String pipeType;
+
+	@Param({ "64", "4096", "65536" })
+	public int messageSize;
+
+	@Param({ "Sleep", "SpinYield", "Backoff", "BusySpin" })
+	public WaitStrategyType waitStrategy;
+
+	protected PipeEndpoint endpoint;
+	private PipeType type;
+	private int bufferSize;
+	private File directory;
+	private Process peer;
+
+	/**
+	 * @return the {@link Peer} mode.
+	 */
+	protected abstract String getPeerMode();
+
+	/**
+	 * @return the number of messages the peer acknowledges at once.
+	 */
+	protected int getBatchSize() {
+		return 1;
+	}
+
+	@Setup
+	public void setUp() throws IOException {
+		parsePipeType();
+		File parent = new File(System.getProperty("java.io.tmpdir"));
+		directory = FileUtil.createDirectory(parent);
+		File location = type.createLocation(directory);
+		endpoint = new PipeEndpoint(type, location, bufferSize,
+				waitStrategy, JslipcRole.Yin);
+		peer = startPeer(location);
+	}
+
+	private void parsePipeType() {
+		int separator = pipeType.indexOf(BUFFER_SIZE_SEPARATOR);
+		if (separator < 0) {
+			type = PipeType.valueOf(pipeType);
+			bufferSize = 0;
+			return;
+		}
+		type = PipeType.valueOf(pipeType.substring(0, separator));
+		if (type != PipeType.SharedMemoryPipe) {
+			throw new IllegalArgumentException(type
+					+ " does not support a buffer size: " + pipeType);
+		}
+		bufferSize = Integer.parseInt(pipeType.substring(separator + 1));
+	}
+
+	private Process startPeer(final File location) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+				System.getProperty("java.class.path"), Peer.class.getName(),
+				getPeerMode(), type.name(), location.getAbsolutePath(),
+				Integer.toString(bufferSize), waitStrategy.name(),
+				Integer.toString(messageSize), Integer.toString(getBatchSize()));
+		builder.inheritIO();
+		return builder.start();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		endpoint.close();
+		if (!peer.waitFor(PEER_EXIT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+			peer.destroy();
+		}
+		FileUtil.delete(directory, true);
+	}
+
+}
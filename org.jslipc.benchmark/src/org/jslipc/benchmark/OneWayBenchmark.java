@@ -0,0 +1,56 @@
+package org.jslipc.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the one-way throughput in messages per second. The benchmark sends
+ * a batch of messages, and waits for the peer to acknowledge that it has
+ * consumed all of them, so only delivered messages are counted.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OneWayBenchmark extends AbstractPipeBenchmark {
+
+	public static final int BATCH_SIZE = 100;
+
+	private byte[] message;
+
+	@Override
+	protected String getPeerMode() {
+		return Peer.MODE_SINK;
+	}
+
+	@Override
+	protected int getBatchSize() {
+		return BATCH_SIZE;
+	}
+
+	@Setup
+	public void createMessage() {
+		message = new byte[messageSize];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int send() throws IOException {
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			endpoint.send(message);
+		}
+		return endpoint.receive();
+	}
+
+}
@@ -0,0 +1,78 @@
+package org.jslipc.benchmark;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+import org.jslipc.JslipcRole;
+
+/**
+ * The peer of a benchmark, running in a process of its own. It serves the
+ * {@link JslipcRole#Yang yang} end of the pipe until the benchmark closes the
+ * pipe:
+ * <ul>
+ * <li>{@link #MODE_ECHO}: sends every message back.</li>
+ * <li>{@link #MODE_SINK}: consumes the messages and acknowledges every batch
+ * with a single byte.</li>
+ * </ul>
+ */
+public class Peer {
+
+	public static final String MODE_ECHO = "echo";
+	public static final String MODE_SINK = "sink";
+
+	/**
+	 * Arguments: <code>mode pipeType location bufferSize waitStrategy
+	 * messageSize batchSize</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 7) {
+			System.err.println("usage: " + Peer.class.getName()
+					+ " mode pipeType location bufferSize waitStrategy"
+					+ " messageSize batchSize");
+			System.exit(1);
+		}
+		String mode = args[0];
+		PipeEndpoint endpoint = new PipeEndpoint(PipeType.valueOf(args[1]),
+				new File(args[2]), Integer.parseInt(args[3]),
+				WaitStrategyType.valueOf(args[4]), JslipcRole.Yang);
+		int messageSize = Integer.parseInt(args[5]);
+		int batchSize = Integer.parseInt(args[6]);
+		try {
+			if (MODE_ECHO.equals(mode)) {
+				echo(endpoint, messageSize);
+			} else if (MODE_SINK.equals(mode)) {
+				sink(endpoint, messageSize, batchSize);
+			} else {
+				throw new IllegalArgumentException("unknown mode '" + mode
+						+ "'");
+			}
+		} catch (EOFException e) {
+			// benchmark has closed the pipe
+		} finally {
+			endpoint.close();
+		}
+	}
+
+	private static void echo(final PipeEndpoint endpoint, final int messageSize)
+			throws IOException {
+		byte[] message = new byte[messageSize];
+		while (true) {
+			endpoint.receive(message);
+			endpoint.send(message);
+		}
+	}
+
+	private static void sink(final PipeEndpoint endpoint,
+			final int messageSize, final int batchSize) throws IOException {
+		byte[] message = new byte[messageSize];
+		byte[] ack = new byte[1];
+		while (true) {
+			for (int i = 0; i < batchSize; i++) {
+				endpoint.receive(message);
+			}
+			endpoint.send(ack);
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+package org.jslipc.benchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import org.jslipc.JslipcPipe;
+import org.jslipc.JslipcRole;
+import org.jslipc.channel.JslipcChannelInputStream;
+import org.jslipc.channel.JslipcChannelOutputStream;
+import org.jslipc.util.FileUtil;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
+
+/**
+ * One end of a benchmarked pipe, used by both the benchmark and the
+ * {@link Peer} process.
+ */
+public class PipeEndpoint implements Closeable {
+
+	private final JslipcPipe pipe;
+	private final WaitStrategy waitStrategy;
+	private final JslipcChannelOutputStream out;
+	private final JslipcChannelInputStream in;
+
+	/**
+	 * Creates the given end of the pipe.
+	 * 
+	 * @param type
+	 * @param location
+	 * @param bufferSize
+	 * @param waitStrategy
+	 * @param role
+	 * @throws IOException
+	 */
+	public PipeEndpoint(final PipeType type, final File location,
+			final int bufferSize, final WaitStrategyType waitStrategy,
+			final JslipcRole role) throws IOException {
+		this.pipe = type.create(location, bufferSize, role);
+		this.waitStrategy = waitStrategy.create();
+		if (pipe instanceof WaitStrategyAware) {
+			((WaitStrategyAware) pipe).setWaitStrategy(this.waitStrategy);
+		}
+		setWaitStrategy(pipe.sink());
+		setWaitStrategy(pipe.source());
+		this.out = new JslipcChannelOutputStream(pipe.sink());
+		this.out.setWaitStrategy(this.waitStrategy);
+		this.in = new JslipcChannelInputStream(pipe.source());
+		this.in.setWaitStrategy(this.waitStrategy);
+	}
+
+	private void setWaitStrategy(final Object channel) {
+		if (channel instanceof WaitStrategyAware) {
+			((WaitStrategyAware) channel).setWaitStrategy(waitStrategy);
+		}
+	}
+
+	/**
+	 * Writes the complete message.
+	 * 
+	 * @param message
+	 * @throws IOException
+	 */
+	public void send(final byte[] message) throws IOException {
+		out.write(message);
+	}
+
+	/**
+	 * Reads exactly <code>message.length</code> bytes.
+	 * 
+	 * @param message
+	 * @throws IOException
+	 */
+	public void receive(final byte[] message) throws IOException {
+		in.readFully(message, 0, message.length);
+	}
+
+	/**
+	 * @return the next byte, or <code>-1</code> if the peer has closed the
+	 *         pipe.
+	 * @throws IOException
+	 */
+	public int receive() throws IOException {
+		return in.read();
+	}
+
+	@Override
+	public void close() throws IOException {
+		FileUtil.closeSilent(in);
+		FileUtil.closeSilent(out);
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.jslipc.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jslipc.JslipcPipe;
+import org.jslipc.JslipcRole;
+import org.jslipc.ipc.pipe.file.ChunkFilePipe;
+import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
+import org.jslipc.util.FileUtil;
+
+/**
+ * The pipe types under benchmark. Both ends of a pipe are created on the same
+ * location, which is a directory for the file based pipes and the mapped
+ * file for the {@link SharedMemoryPipe}.
+ */
+public enum PipeType {
+
+	FilePipe {
+		@Override
+		public JslipcPipe create(File location, int bufferSize, JslipcRole role)
+				throws IOException {
+			return new FilePipe(location, role);
+		}
+	},
+	ChunkFilePipe {
+		@Override
+		public JslipcPipe create(File location, int bufferSize, JslipcRole role)
+				throws IOException {
+			return new ChunkFilePipe(location, role);
+		}
+	},
+	SharedMemoryPipe {
+		@Override
+		public JslipcPipe create(File location, int bufferSize, JslipcRole role)
+				throws IOException {
+			if (bufferSize <= 0) {
+				return new SharedMemoryPipe(location, role);
+			}
+			int size = org.jslipc.ipc.pipe.shm.SharedMemoryPipe
+					.getFileSize(bufferSize);
+			return new SharedMemoryPipe(location, size, role);
+		}
+
+		@Override
+		public File createLocation(File parent) throws IOException {
+			return File.createTempFile("shm", ".mem", parent);
+		}
+	};
+
+	/**
+	 * Creates one end of the pipe.
+	 * 
+	 * @param location
+	 *            the location created by {@link #createLocation(File)}.
+	 * @param bufferSize
+	 *            the capacity of the shared memory queues per direction,
+	 *            <code>0</code> for the default size. Ignored by the file
+	 *            based pipes.
+	 * @param role
+	 *            the role of the end.
+	 * @return the pipe.
+	 * @throws IOException
+	 */
+	public abstract JslipcPipe create(File location, int bufferSize,
+			JslipcRole role) throws IOException;
+
+	/**
+	 * Creates the location both ends of the pipe are created on.
+	 * 
+	 * @param parent
+	 *            the directory to create the location in.
+	 * @return the location.
+	 * @throws IOException
+	 */
+	public File createLocation(File parent) throws IOException {
+		return FileUtil.createDirectory(parent);
+	}
+
+}
@@ -0,0 +1,48 @@
+package org.jslipc.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the ping-pong latency: the benchmark sends a message, and waits
+ * until the peer has sent it back. The sample mode reports the latency
+ * percentiles.
+ */
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RoundTripBenchmark extends AbstractPipeBenchmark {
+
+	private byte[] message;
+	private byte[] reply;
+
+	@Override
+	protected String getPeerMode() {
+		return Peer.MODE_ECHO;
+	}
+
+	@Setup
+	public void createMessage() {
+		message = new byte[messageSize];
+		reply = new byte[messageSize];
+	}
+
+	@Benchmark
+	public byte[] pingPong() throws IOException {
+		endpoint.send(message);
+		endpoint.receive(reply);
+		return reply;
+	}
+
+}
@@ -0,0 +1,44 @@
+package org.jslipc.benchmark;
+
+import org.jslipc.wait.BackoffWaitStrategy;
+import org.jslipc.wait.BusySpinWaitStrategy;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.SpinYieldWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+
+/**
+ * The wait strategies under benchmark, used by both ends of the pipe.
+ */
+public enum WaitStrategyType {
+
+	Sleep {
+		@Override
+		public WaitStrategy create() {
+			return SleepWaitStrategy.DEFAULT;
+		}
+	},
+	SpinYield {
+		@Override
+		public WaitStrategy create() {
+			return new SpinYieldWaitStrategy();
+		}
+	},
+	Backoff {
+		@Override
+		public WaitStrategy create() {
+			return new BackoffWaitStrategy();
+		}
+	},
+	BusySpin {
+		@Override
+		public WaitStrategy create() {
+			return BusySpinWaitStrategy.INSTANCE;
+		}
+	};
+
+	/**
+	 * @return the wait strategy.
+	 */
+	public abstract WaitStrategy create();
+
+}
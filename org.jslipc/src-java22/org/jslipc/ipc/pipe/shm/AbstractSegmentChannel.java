@@ -0,0 +1,114 @@
+package org.jslipc.ipc.pipe.shm;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+
+import org.jslipc.channel.ChannelMetrics;
+import org.jslipc.channel.JslipcChannel;
+import org.jslipc.channel.MetricsAware;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
+
+/**
+ * Common base class for the channels of a {@link SegmentMemoryPipe}. The
+ * channels do not block, but carry the {@link WaitStrategy} that is inherited
+ * by the streams created on them.
+ */
+abstract class AbstractSegmentChannel implements JslipcChannel,
+		WaitStrategyAware, MetricsAware {
+
+	protected final SegmentRing ring;
+	protected final ChannelMetrics metrics = new ChannelMetrics();
+	private volatile boolean closed;
+	private volatile WaitStrategy waitStrategy = SleepWaitStrategy.DEFAULT;
+
+	AbstractSegmentChannel(final SegmentRing ring) {
+		this.ring = ring;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (ring.isInitialized()) {
+				ring.close();
+			}
+		} catch (IllegalStateException e) {
+			if (ring.isAlive()) {
+				throw e;
+			}
+			// the pipe has been closed already
+		}
+	}
+
+	@Override
+	public JslipcChannelState getState() {
+		if (!isOpen()) {
+			return JslipcChannelState.Closed;
+		}
+		try {
+			if (ring.isInitialized() && ring.isClosed()) {
+				return JslipcChannelState.ClosedByPeer;
+			}
+			return JslipcChannelState.Open;
+		} catch (IllegalStateException e) {
+			if (ring.isAlive()) {
+				throw e;
+			}
+			return JslipcChannelState.Closed;
+		}
+	}
+
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
+	@Override
+	public ChannelMetrics getMetrics() {
+		return metrics;
+	}
+
+	protected void checkClosed() throws ClosedChannelException {
+		if (!isOpen()) {
+			throw new ClosedChannelException();
+		}
+	}
+
+	/**
+	 * Translates the exception thrown by an access to the ring. If the pipe
+	 * has been closed concurrently, the arena of the segment is closed, which
+	 * is reported as {@link ClosedChannelException}.
+	 * 
+	 * @param e
+	 *            the exception thrown by the ring.
+	 * @return the exception to throw.
+	 */
+	protected IOException translate(final IllegalStateException e) {
+		if (ring.isAlive()) {
+			return new IOException(e.getMessage(), e);
+		}
+		ClosedChannelException closed = new ClosedChannelException();
+		closed.initCause(e);
+		return closed;
+	}
+
+}
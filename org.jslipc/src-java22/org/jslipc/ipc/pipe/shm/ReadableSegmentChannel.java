@@ -0,0 +1,63 @@
+package org.jslipc.ipc.pipe.shm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.channel.ReadableJslipcByteChannel;
+
+/**
+ * Reads the data from a {@link SegmentRing}. Returns <code>0</code> if the
+ * ring is empty or not yet initialized, and <code>-1</code> if the ring is
+ * empty and has been closed by the peer.
+ */
+class ReadableSegmentChannel extends AbstractSegmentChannel implements
+		ReadableJslipcByteChannel {
+
+	ReadableSegmentChannel(final SegmentRing ring) {
+		super(ring);
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		checkClosed();
+		try {
+			if (!ring.isInitialized()) {
+				return metrics.read(0);
+			}
+			int count = ring.get(dst);
+			if (count == 0 && dst.hasRemaining() && ring.isClosed()) {
+				// the peer may have written data right before closing the ring
+				count = ring.get(dst);
+				if (count == 0) {
+					return metrics.read(-1); // end of stream
+				}
+			}
+			return metrics.read(count);
+		} catch (IllegalStateException e) {
+			throw translate(e);
+		}
+	}
+
+	/**
+	 * Reports {@link JslipcChannelState#ClosedByPeer} only if the ring is
+	 * also empty, so a reader does not miss data written right before the
+	 * peer closed the ring.
+	 */
+	@Override
+	public JslipcChannelState getState() {
+		JslipcChannelState state = super.getState();
+		try {
+			if (state == JslipcChannelState.ClosedByPeer && ring.size() > 0) {
+				return JslipcChannelState.Open;
+			}
+		} catch (IllegalStateException e) {
+			if (ring.isAlive()) {
+				throw e;
+			}
+			return JslipcChannelState.Closed;
+		}
+		return state;
+	}
+
+}
@@ -0,0 +1,209 @@
+package org.jslipc.ipc.pipe.shm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+import org.jslipc.JslipcBinman;
+import org.jslipc.JslipcPipe;
+import org.jslipc.JslipcRole;
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.channel.ReadableJslipcByteChannel;
+import org.jslipc.channel.WritableJslipcByteChannel;
+import org.jslipc.util.FileUtil;
+import org.jslipc.util.StringUtil;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Java 22 implementation of the pipe, see the base version for the
+ * documentation. The file is mapped into a shared {@link Arena}, which is
+ * closed on {@link #close()}, so the memory is unmapped right away. The
+ * mapping is split into halves like the one of the {@link SharedMemoryPipe},
+ * each holding a {@link SegmentRing}.
+ */
+public class SegmentMemoryPipe implements JslipcPipe, JslipcBinman,
+		WaitStrategyAware {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(SegmentMemoryPipe.class);
+
+	private static final long DEFAULT_SIZE = SharedMemoryPipe
+			.getFileSize(32 * 1024);
+	/** both halves have to hold the padded queue layout */
+	private static final long MIN_SIZE = 2 * SegmentRing.MIN_LENGTH;
+	private final File file;
+	private final long size;
+	private final RandomAccessFile mappedFile;
+	private final Arena arena;
+	private final SegmentRing inRing;
+	private final SegmentRing outRing;
+	private ReadableSegmentChannel source;
+	private WritableSegmentChannel sink;
+	private FileLock lock;
+	private boolean cleanUpOnClose;
+	private boolean closed;
+	private WaitStrategy waitStrategy = SleepWaitStrategy.DEFAULT;
+
+	/**
+	 * @return <code>true</code>, since this is the Java 22 implementation.
+	 */
+	public static boolean isSegmentBacked() {
+		return true;
+	}
+
+	public SegmentMemoryPipe(final File file, final JslipcRole role)
+			throws IOException {
+		this(file, DEFAULT_SIZE, role);
+	}
+
+	public SegmentMemoryPipe(final File file, final long size,
+			final JslipcRole role) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException(
+					"parameter file must not be null");
+		}
+		if (role == null) {
+			throw new IllegalArgumentException(
+					"parameter role must not be null");
+		}
+		if (size < MIN_SIZE || size % 8 != 0) {
+			throw new IllegalArgumentException(
+					"size must be a multiple of 8 >= " + MIN_SIZE + ": "
+							+ size);
+		}
+		long ringSize = size / 2;
+		this.file = file;
+		this.size = size;
+		mappedFile = new RandomAccessFile(file, "rw");
+		FileChannel fileChannel = mappedFile.getChannel();
+		try {
+			lock = fileChannel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			// already locked
+		}
+		arena = Arena.ofShared();
+		MemorySegment segment;
+		try {
+			segment = fileChannel.map(MapMode.READ_WRITE, 0, size, arena);
+		} catch (IOException e) {
+			arena.close();
+			FileUtil.closeSilent(mappedFile);
+			throw e;
+		}
+		SegmentRing first = new SegmentRing(segment, 0, ringSize);
+		SegmentRing second = new SegmentRing(segment, ringSize, ringSize);
+		inRing = role == JslipcRole.Yin ? first : second;
+		outRing = role == JslipcRole.Yin ? second : first;
+		if (lock != null) {
+			inRing.init();
+			outRing.init();
+		}
+
+		LOGGER.info(
+				"created SegmentMemoryPipe on file {} with role {} and size {}",
+				file, role, size);
+	}
+
+	/**
+	 * @return the size of the mapped file.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public synchronized ReadableJslipcByteChannel source() {
+		if (source == null) {
+			source = new ReadableSegmentChannel(inRing);
+			source.setWaitStrategy(waitStrategy);
+		}
+		return source;
+	}
+
+	@Override
+	public synchronized WritableJslipcByteChannel sink() {
+		if (sink == null) {
+			sink = new WritableSegmentChannel(outRing);
+			sink.setWaitStrategy(waitStrategy);
+		}
+		return sink;
+	}
+
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public synchronized void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.waitStrategy = waitStrategy;
+		if (source != null) {
+			source.setWaitStrategy(waitStrategy);
+		}
+		if (sink != null) {
+			sink.setWaitStrategy(waitStrategy);
+		}
+	}
+
+	@Override
+	public void cleanUpOnClose() {
+		cleanUpOnClose = true;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		// force source() and sink(), so channels requested later on are
+		// closed instead of accessing the unmapped segment
+		source();
+		sink();
+		boolean sourceClosedByPeer = false;
+		boolean sinkClosedByPeer = false;
+		if (source != null) {
+			sourceClosedByPeer = source.getState() == JslipcChannelState.ClosedByPeer;
+			source.close();
+		}
+		if (sink != null) {
+			sinkClosedByPeer = sink.getState() == JslipcChannelState.ClosedByPeer;
+			sink.close();
+		}
+		if (lock != null) {
+			lock.release();
+			lock = null;
+		}
+		mappedFile.close();
+		// unmaps the file, threads still accessing it get an exception
+		arena.close();
+
+		if (cleanUpOnClose && sourceClosedByPeer && sinkClosedByPeer) {
+			FileUtil.delete(file);
+			LOGGER.debug("deleting pipe file {}", file);
+		}
+
+		LOGGER.info("closed SegmentMemoryPipe on file {}", file);
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("file", file).add("size", size)
+				.toString();
+	}
+
+}
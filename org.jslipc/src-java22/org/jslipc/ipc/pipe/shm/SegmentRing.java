@@ -0,0 +1,221 @@
+package org.jslipc.ipc.pipe.shm;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A single-producer/single-consumer ring buffer on a region of a
+ * {@link MemorySegment}, using the padded layout of the
+ * {@link org.jslipc.channel.buffer.ByteBufferQueue ByteBufferQueue}, so a ring
+ * and a queue on the same region of a file interoperate. Head and tail are
+ * free-running 64 bit counters, the capacity is the largest power of two
+ * that fits behind the header. Only the producer writes the tail, only the
+ * consumer writes the head. The counters are published with release stores
+ * after the data has been copied, and read with acquire loads before the data
+ * is accessed. Each side caches the last seen counter of the opposite side
+ * and re-reads it only if the cached value indicates that the ring is full
+ * resp. empty.<br/>
+ * <br/>
+ * The offsets and constants of the header must match the ones of the
+ * ByteBufferQueue: the init flag holding the layout, the closed flag, the
+ * waiter flag, the magic number and the layout version, the latter two in
+ * big endian byte order. Head and tail are placed on cache lines of their
+ * own, aligned relative to the start of the segment, the data follows.
+ */
+final class SegmentRing {
+
+	static final byte TRUE = 0x01;
+	static final byte FALSE = 0x00;
+	static final byte LAYOUT_PADDED = 0x04;
+	static final int MAGIC = 0x4A534C51; // JSLQ
+	static final long INIT_OFFSET = 0;
+	static final long CLOSED_OFFSET = 1;
+	static final long WAITER_OFFSET = 4;
+	static final long MAGIC_OFFSET = 8;
+	static final long VERSION_OFFSET = 12;
+	static final long CONTROL_SIZE = 16;
+	static final long CACHE_LINE_SIZE = 128;
+	static final long MIN_LENGTH = 8 * CACHE_LINE_SIZE;
+
+	/** magic number and version are written in big endian byte order */
+	private static final ValueLayout HEADER_LAYOUT = ValueLayout.JAVA_INT
+			.withOrder(ByteOrder.BIG_ENDIAN);
+	private static final VarHandle BYTE = ValueLayout.JAVA_BYTE.varHandle();
+	private static final VarHandle INT = ValueLayout.JAVA_INT.varHandle();
+	private static final VarHandle HEADER_INT = HEADER_LAYOUT.varHandle();
+	private static final VarHandle LONG = ValueLayout.JAVA_LONG.varHandle();
+
+	private final MemorySegment segment;
+	private final long start;
+	private final long headOffset;
+	private final long tailOffset;
+	private final long dataOffset;
+	private final long capacity;
+	private final long mask;
+	/** the last head seen by the producer */
+	private long cachedHead;
+	/** the last tail seen by the consumer */
+	private long cachedTail;
+
+	/**
+	 * Creates a ring on the given region of the segment. The offset has to be
+	 * aligned to 8 bytes.
+	 *
+	 * @param segment
+	 * @param offset
+	 * @param length
+	 */
+	SegmentRing(final MemorySegment segment, final long offset,
+			final long length) {
+		if (length < MIN_LENGTH) {
+			throw new IllegalArgumentException("ring length must be >= "
+					+ MIN_LENGTH + ": " + length);
+		}
+		this.segment = segment;
+		this.start = offset;
+		this.headOffset = align(offset + CONTROL_SIZE, CACHE_LINE_SIZE);
+		this.tailOffset = headOffset + CACHE_LINE_SIZE;
+		this.dataOffset = tailOffset + CACHE_LINE_SIZE;
+		this.capacity = Long.highestOneBit(offset + length - dataOffset);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * @return the given offset rounded up to a multiple of the given power of
+	 *         two.
+	 */
+	private static long align(final long offset, final long alignment) {
+		return (offset + alignment - 1) & ~(alignment - 1);
+	}
+
+	/**
+	 * Resets head, tail and the flags, unless the ring has already been
+	 * initialized. The init flag is written last, so the peer sees a
+	 * consistent ring once it is {@link #isInitialized() initialized}.
+	 */
+	void init() {
+		if (isInitialized()) {
+			return;
+		}
+		HEADER_INT.set(segment, start + MAGIC_OFFSET, MAGIC);
+		HEADER_INT.set(segment, start + VERSION_OFFSET, (int) LAYOUT_PADDED);
+		LONG.setRelease(segment, headOffset, 0L);
+		LONG.setRelease(segment, tailOffset, 0L);
+		BYTE.set(segment, start + CLOSED_OFFSET, FALSE);
+		INT.set(segment, start + WAITER_OFFSET, 0);
+		BYTE.setVolatile(segment, start + INIT_OFFSET, LAYOUT_PADDED);
+	}
+
+	/**
+	 * @return <code>true</code> if the ring has been initialized.
+	 * @throws IllegalStateException
+	 *             if the ring has been initialized with another layout.
+	 */
+	boolean isInitialized() {
+		byte layout = (byte) BYTE.getVolatile(segment, start + INIT_OFFSET);
+		if (layout == FALSE) {
+			return false;
+		}
+		int magic = (int) HEADER_INT.get(segment, start + MAGIC_OFFSET);
+		int version = (int) HEADER_INT.get(segment, start + VERSION_OFFSET);
+		if (layout != LAYOUT_PADDED || magic != MAGIC
+				|| version != LAYOUT_PADDED) {
+			throw new IllegalStateException("incompatible ring header: layout "
+					+ layout + ", magic " + Integer.toHexString(magic)
+					+ ", version " + version);
+		}
+		return true;
+	}
+
+	void close() {
+		BYTE.setVolatile(segment, start + CLOSED_OFFSET, TRUE);
+	}
+
+	/**
+	 * @return <code>false</code> if the arena of the segment has been closed,
+	 *         any access then throws an {@link IllegalStateException}.
+	 */
+	boolean isAlive() {
+		return segment.scope().isAlive();
+	}
+
+	boolean isClosed() {
+		return (byte) BYTE.getVolatile(segment, start + CLOSED_OFFSET) == TRUE;
+	}
+
+	long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of bytes in the ring.
+	 */
+	long size() {
+		long head = (long) LONG.getAcquire(segment, headOffset);
+		long tail = (long) LONG.getAcquire(segment, tailOffset);
+		return tail - head;
+	}
+
+	/**
+	 * Copies as many bytes as fit into the ring, called by the producer.
+	 *
+	 * @param src
+	 * @return the number of bytes copied.
+	 */
+	int put(final ByteBuffer src) {
+		long tail = (long) LONG.getOpaque(segment, tailOffset);
+		int wanted = src.remaining();
+		if (capacity - (tail - cachedHead) < wanted) {
+			cachedHead = (long) LONG.getAcquire(segment, headOffset);
+		}
+		int count = (int) Math.min(wanted, capacity - (tail - cachedHead));
+		if (count == 0) {
+			return 0;
+		}
+		MemorySegment source = MemorySegment.ofBuffer(src);
+		long index = tail & mask;
+		long first = Math.min(count, capacity - index);
+		MemorySegment.copy(source, 0, segment, dataOffset + index, first);
+		if (first < count) {
+			MemorySegment.copy(source, first, segment, dataOffset, count
+					- first);
+		}
+		src.position(src.position() + count);
+		LONG.setRelease(segment, tailOffset, tail + count);
+		return count;
+	}
+
+	/**
+	 * Copies as many bytes as available into the given buffer, called by the
+	 * consumer.
+	 *
+	 * @param dst
+	 * @return the number of bytes copied.
+	 */
+	int get(final ByteBuffer dst) {
+		long head = (long) LONG.getOpaque(segment, headOffset);
+		int wanted = dst.remaining();
+		if (cachedTail - head < wanted) {
+			cachedTail = (long) LONG.getAcquire(segment, tailOffset);
+		}
+		int count = (int) Math.min(wanted, cachedTail - head);
+		if (count == 0) {
+			return 0;
+		}
+		MemorySegment target = MemorySegment.ofBuffer(dst);
+		long index = head & mask;
+		long first = Math.min(count, capacity - index);
+		MemorySegment.copy(segment, dataOffset + index, target, 0, first);
+		if (first < count) {
+			MemorySegment.copy(segment, dataOffset, target, first, count
+					- first);
+		}
+		dst.position(dst.position() + count);
+		LONG.setRelease(segment, headOffset, head + count);
+		return count;
+	}
+
+}
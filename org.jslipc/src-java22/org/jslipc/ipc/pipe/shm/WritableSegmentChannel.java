@@ -0,0 +1,32 @@
+package org.jslipc.ipc.pipe.shm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jslipc.channel.WritableJslipcByteChannel;
+
+/**
+ * Writes the data to a {@link SegmentRing}. Returns <code>0</code> if the
+ * ring is full or not yet initialized.
+ */
+class WritableSegmentChannel extends AbstractSegmentChannel implements
+		WritableJslipcByteChannel {
+
+	WritableSegmentChannel(final SegmentRing ring) {
+		super(ring);
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		checkClosed();
+		try {
+			if (!ring.isInitialized()) {
+				return metrics.written(0);
+			}
+			return metrics.written(ring.put(src));
+		} catch (IllegalStateException e) {
+			throw translate(e);
+		}
+	}
+
+}
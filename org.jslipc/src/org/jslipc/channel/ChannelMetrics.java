@@ -0,0 +1,260 @@
+package org.jslipc.channel;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.jslipc.util.StringUtil;
+
+/**
+ * Counts what a channel is doing: the bytes and calls of reads and writes,
+ * reads finding no data (empty) resp. writes finding no space (full), the
+ * rounds and time spent waiting for the channel, and for chunk file channels
+ * the chunks created and consumed.<br/>
+ * <br/>
+ * Every channel owns its own instance, and a channel is used by a single
+ * thread at a time, so every counter has a single writer. The counters are
+ * therefore updated with ordered writes instead of atomic read-modify-write
+ * operations; they may be read by any thread, e.g. for JMX, but updates of
+ * a channel shared by concurrent threads may get lost. Recording neither
+ * allocates nor synchronizes, so the metrics are always on. All values are
+ * cumulative until {@link #reset()}.
+ * 
+ * @see MetricsAware
+ */
+public final class ChannelMetrics {
+
+	private static final AtomicLongFieldUpdater<ChannelMetrics> BYTES_READ = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "bytesRead");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> READ_CALLS = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "readCalls");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> EMPTY_READS = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "emptyReads");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> BYTES_WRITTEN = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "bytesWritten");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> WRITE_CALLS = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "writeCalls");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> FULL_WRITES = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "fullWrites");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> WAITS = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "waits");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> WAIT_NANOS = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "waitNanos");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> CHUNKS_CREATED = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "chunksCreated");
+	private static final AtomicLongFieldUpdater<ChannelMetrics> CHUNKS_CONSUMED = AtomicLongFieldUpdater
+			.newUpdater(ChannelMetrics.class, "chunksConsumed");
+
+	private volatile long bytesRead;
+	private volatile long readCalls;
+	private volatile long emptyReads;
+	private volatile long bytesWritten;
+	private volatile long writeCalls;
+	private volatile long fullWrites;
+	private volatile long waits;
+	private volatile long waitNanos;
+	private volatile long chunksCreated;
+	private volatile long chunksConsumed;
+
+	/**
+	 * Records a read call.
+	 * 
+	 * @param count
+	 *            the result of the read, <code>0</code> if no data was
+	 *            available, <code>-1</code> on end of stream.
+	 * @return the given count.
+	 */
+	public int read(final int count) {
+		add(READ_CALLS, 1);
+		if (count > 0) {
+			add(BYTES_READ, count);
+		} else if (count == 0) {
+			add(EMPTY_READS, 1);
+		}
+		return count;
+	}
+
+	/**
+	 * Records a write call.
+	 * 
+	 * @param count
+	 *            the number of bytes written, <code>0</code> if no space was
+	 *            available.
+	 * @return the given count.
+	 */
+	public long written(final long count) {
+		add(WRITE_CALLS, 1);
+		if (count > 0) {
+			add(BYTES_WRITTEN, count);
+		} else {
+			add(FULL_WRITES, 1);
+		}
+		return count;
+	}
+
+	/**
+	 * Same as {@link #written(long)} for int counts.
+	 */
+	public int written(final int count) {
+		written((long) count);
+		return count;
+	}
+
+	/**
+	 * Records a wait round.
+	 * 
+	 * @param nanos
+	 *            the time spent waiting.
+	 */
+	public void waited(final long nanos) {
+		waited(1, nanos);
+	}
+
+	/**
+	 * Records the wait of a blocking operation.
+	 * 
+	 * @param rounds
+	 *            the number of rounds the operation waited.
+	 * @param nanos
+	 *            the time spent waiting.
+	 */
+	public void waited(final long rounds, final long nanos) {
+		add(WAITS, rounds);
+		add(WAIT_NANOS, nanos);
+	}
+
+	/**
+	 * Records the wait of a blocking operation that started waiting at the
+	 * given time. The time is taken once for the whole operation instead of
+	 * for every round, so waiting with a busy spin stays cheap.
+	 * 
+	 * @param metrics
+	 *            the metrics to record, may be <code>null</code>.
+	 * @param rounds
+	 *            the number of rounds the operation waited, nothing is
+	 *            recorded if <code>0</code>.
+	 * @param startNanos
+	 *            the {@link System#nanoTime()} the operation started to wait.
+	 */
+	public static void recordWait(final ChannelMetrics metrics,
+			final int rounds, final long startNanos) {
+		if (metrics != null && rounds > 0) {
+			metrics.waited(rounds, System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * Records a created chunk file.
+	 */
+	public void chunkCreated() {
+		add(CHUNKS_CREATED, 1);
+	}
+
+	/**
+	 * Records a consumed chunk file.
+	 */
+	public void chunkConsumed() {
+		add(CHUNKS_CONSUMED, 1);
+	}
+
+	private void add(final AtomicLongFieldUpdater<ChannelMetrics> counter,
+			final long delta) {
+		// single writer, see class comment
+		counter.lazySet(this, counter.get(this) + delta);
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public long getReadCalls() {
+		return readCalls;
+	}
+
+	/**
+	 * @return the number of reads that found no data.
+	 */
+	public long getEmptyReads() {
+		return emptyReads;
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	public long getWriteCalls() {
+		return writeCalls;
+	}
+
+	/**
+	 * @return the number of writes that found no space.
+	 */
+	public long getFullWrites() {
+		return fullWrites;
+	}
+
+	/**
+	 * @return the number of rounds spent waiting.
+	 */
+	public long getWaits() {
+		return waits;
+	}
+
+	/**
+	 * @return the time spent waiting in ns.
+	 */
+	public long getWaitNanos() {
+		return waitNanos;
+	}
+
+	public long getChunksCreated() {
+		return chunksCreated;
+	}
+
+	public long getChunksConsumed() {
+		return chunksConsumed;
+	}
+
+	/**
+	 * Resets all counters to <code>0</code>. Updates recorded concurrently by
+	 * the channel may survive the reset.
+	 */
+	public void reset() {
+		BYTES_READ.set(this, 0);
+		READ_CALLS.set(this, 0);
+		EMPTY_READS.set(this, 0);
+		BYTES_WRITTEN.set(this, 0);
+		WRITE_CALLS.set(this, 0);
+		FULL_WRITES.set(this, 0);
+		WAITS.set(this, 0);
+		WAIT_NANOS.set(this, 0);
+		CHUNKS_CREATED.set(this, 0);
+		CHUNKS_CONSUMED.set(this, 0);
+	}
+
+	/**
+	 * Returns the metrics of the given channel.
+	 * 
+	 * @param channel
+	 * @return the metrics, or <code>null</code> if the channel is not
+	 *         {@link MetricsAware}.
+	 */
+	public static ChannelMetrics of(final Object channel) {
+		if (channel instanceof MetricsAware) {
+			return ((MetricsAware) channel).getMetrics();
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("bytesRead", getBytesRead())
+				.add("readCalls", getReadCalls())
+				.add("emptyReads", getEmptyReads())
+				.add("bytesWritten", getBytesWritten())
+				.add("writeCalls", getWriteCalls())
+				.add("fullWrites", getFullWrites()).add("waits", getWaits())
+				.add("waitNanos", getWaitNanos())
+				.add("chunksCreated", getChunksCreated())
+				.add("chunksConsumed", getChunksConsumed()).toString();
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.jslipc.channel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a body written by a {@link FramedOutputStream} from the underlying
+ * stream. The stream ends with the terminating frame, so the underlying
+ * stream may carry further bodies afterwards. The underlying stream is never
+ * read beyond the current frame.<br/>
+ * <br/>
+ * If the underlying stream ends before the first frame of the body, e.g.
+ * because the peer has closed the pipe between two bodies, this stream ends
+ * as well and {@link #isEndOfStream()} returns <code>true</code>. Closing this
+ * stream skips the rest of the body, but does not close the underlying
+ * stream.
+ */
+public class FramedInputStream extends InputStream {
+
+	private static final int HEADER_SIZE = 4;
+
+	private final InputStream in;
+	private final byte[] header = new byte[HEADER_SIZE];
+	private int remaining;
+	private boolean started;
+	private boolean terminated;
+	private boolean endOfStream;
+	private boolean closed;
+
+	/**
+	 * Creates a stream reading the next body from the given stream.
+	 * 
+	 * @param in
+	 *            the underlying stream.
+	 */
+	public FramedInputStream(final InputStream in) {
+		if (in == null) {
+			throw new IllegalArgumentException("parameter in must not be null");
+		}
+		this.in = in;
+	}
+
+	/**
+	 * Waits for the body to start.
+	 * 
+	 * @return <code>false</code> if the underlying stream has ended instead.
+	 * @throws IOException
+	 */
+	public boolean awaitBody() throws IOException {
+		if (remaining == 0 && !terminated && !endOfStream) {
+			readHeader();
+		}
+		return !endOfStream;
+	}
+
+	/**
+	 * @return <code>true</code> if the underlying stream has ended before the
+	 *         body.
+	 */
+	public boolean isEndOfStream() {
+		return endOfStream;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		int count = read(b, 0, 1);
+		if (count == -1) {
+			return -1;
+		}
+		return b[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int count = in.read(b, off, Math.min(len, remaining));
+		if (count == -1) {
+			throw new EOFException("unexpected end of frame");
+		}
+		remaining -= count;
+		return count;
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (closed) {
+			return 0;
+		}
+		return Math.min(remaining, in.available());
+	}
+
+	/**
+	 * Skips the rest of the body. The underlying stream is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		byte[] skip = new byte[4096];
+		while (read(skip, 0, skip.length) != -1) {
+			// skip
+		}
+		closed = true;
+	}
+
+	private boolean fill() throws IOException {
+		if (closed) {
+			throw new IOException("stream is closed");
+		}
+		while (remaining == 0) {
+			if (terminated || endOfStream) {
+				return false;
+			}
+			readHeader();
+		}
+		return true;
+	}
+
+	private void readHeader() throws IOException {
+		int count = 0;
+		while (count < HEADER_SIZE) {
+			int read = in.read(header, count, HEADER_SIZE - count);
+			if (read == -1) {
+				if (count == 0 && !started) {
+					endOfStream = true;
+					return;
+				}
+				throw new EOFException("unexpected end of frame header");
+			}
+			count += read;
+		}
+		int length = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16)
+				| ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+		if (length < 0) {
+			throw new IOException("invalid frame length: " + length);
+		}
+		started = true;
+		if (length == 0) {
+			terminated = true;
+		}
+		remaining = length;
+	}
+
+}
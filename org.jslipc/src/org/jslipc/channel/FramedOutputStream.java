@@ -0,0 +1,140 @@
+package org.jslipc.channel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a body of unknown length as a sequence of frames into the underlying
+ * stream, so multiple bodies may be sent one after another over the same
+ * stream, see {@link FramedInputStream}. Each frame consists of its length as
+ * a 4 byte big endian integer followed by the data, and a frame of length
+ * <code>0</code> terminates the body.<br/>
+ * <br/>
+ * The data is collected until the frame is full or the stream is
+ * {@link #flush() flushed}. {@link #close() Closing} the stream terminates
+ * the body, but does not close the underlying stream.
+ */
+public class FramedOutputStream extends OutputStream {
+
+	/**
+	 * The default maximum size of a frame.
+	 */
+	public static final int DEFAULT_FRAME_SIZE = 8192;
+
+	private static final int HEADER_SIZE = 4;
+
+	private final OutputStream out;
+	private final byte[] buffer;
+	private int count = HEADER_SIZE;
+	private boolean closed;
+
+	/**
+	 * Creates a stream with the {@link #DEFAULT_FRAME_SIZE default frame
+	 * size}.
+	 * 
+	 * @param out
+	 *            the underlying stream.
+	 */
+	public FramedOutputStream(final OutputStream out) {
+		this(out, DEFAULT_FRAME_SIZE);
+	}
+
+	/**
+	 * Creates a stream with the given frame size.
+	 * 
+	 * @param out
+	 *            the underlying stream.
+	 * @param frameSize
+	 *            the maximum size of a frame's data, must be > 0.
+	 */
+	public FramedOutputStream(final OutputStream out, final int frameSize) {
+		if (out == null) {
+			throw new IllegalArgumentException("parameter out must not be null");
+		}
+		if (frameSize <= 0) {
+			throw new IllegalArgumentException("frame size must be > 0: "
+					+ frameSize);
+		}
+		this.out = out;
+		this.buffer = new byte[HEADER_SIZE + frameSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkClosed();
+		if (count == buffer.length) {
+			writeFrame();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		checkClosed();
+		if (off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			if (count == buffer.length) {
+				writeFrame();
+			}
+			int n = Math.min(len, buffer.length - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Writes the collected data as a frame and flushes the underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkClosed();
+		writeFrame();
+		out.flush();
+	}
+
+	/**
+	 * Writes the collected data and the terminating frame. The underlying
+	 * stream is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		writeFrame();
+		// terminating frame
+		count = HEADER_SIZE;
+		writeHeader(0);
+		out.write(buffer, 0, HEADER_SIZE);
+		out.flush();
+		closed = true;
+	}
+
+	private void writeFrame() throws IOException {
+		int length = count - HEADER_SIZE;
+		if (length == 0) {
+			return;
+		}
+		writeHeader(length);
+		out.write(buffer, 0, count);
+		count = HEADER_SIZE;
+	}
+
+	private void writeHeader(final int length) {
+		buffer[0] = (byte) (length >>> 24);
+		buffer[1] = (byte) (length >>> 16);
+		buffer[2] = (byte) (length >>> 8);
+		buffer[3] = (byte) length;
+	}
+
+	private void checkClosed() throws IOException {
+		if (closed) {
+			throw new IOException("stream is closed");
+		}
+	}
+
+}
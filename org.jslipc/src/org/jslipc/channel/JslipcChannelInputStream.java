@@ -1,25 +1,37 @@
 package org.jslipc.channel;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.jslipc.TimeoutAware;
 import org.jslipc.channel.JslipcChannel.JslipcChannelState;
-import org.jslipc.util.TimeUtil;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
 
 /**
  * This class wraps a {@link ReadableJslipcByteChannel} in order to provide a blocking InputStream.
  */
-public class JslipcChannelInputStream extends InputStream implements TimeoutAware {
+public class JslipcChannelInputStream extends InputStream implements TimeoutAware,
+		WaitStrategyAware {
+
+	private static final int INITIAL_READ_ALL_SIZE = 4096;
 
 	private ReadableJslipcByteChannel channel;
+	private final ChannelMetrics metrics;
 	private ByteBuffer oneByteBuffer = ByteBuffer.wrap(new byte[1]);
 	private int timeout = 0;
+	private WaitStrategy waitStrategy = SleepWaitStrategy.DEFAULT;
 
 	/**
-	 * Creates a JslipcChannelInputStream based on the underlying channel.
+	 * Creates a JslipcChannelInputStream based on the underlying channel. If the
+	 * channel is {@link WaitStrategyAware}, the stream inherits the channel's
+	 * wait strategy.
 	 * @param channel
 	 */
 	public JslipcChannelInputStream(ReadableJslipcByteChannel channel) {
@@ -27,6 +39,10 @@ public class JslipcChannelInputStream extends InputStream implements TimeoutAwar
 			throw new IllegalArgumentException("parameter channel must not be null");
 		}
 		this.channel = channel;
+		this.metrics = ChannelMetrics.of(channel);
+		if (channel instanceof WaitStrategyAware) {
+			this.waitStrategy = ((WaitStrategyAware) channel).getWaitStrategy();
+		}
 	}
 	
 	@Override
@@ -43,7 +59,7 @@ public class JslipcChannelInputStream extends InputStream implements TimeoutAwar
 			return -1;
 		}
 		if (count == 1) {
-			return (int) oneByteBuffer.get(0);
+			return oneByteBuffer.get(0) & 0xFF;
 		}
 		throw new IllegalStateException("expected read count of either 1 or -1");
 	}
@@ -53,17 +69,98 @@ public class JslipcChannelInputStream extends InputStream implements TimeoutAwar
 		return readBlocking(ByteBuffer.wrap(b, off, len));
 	}
 
+	/**
+	 * Reads exactly <code>len</code> bytes, blocking until they are
+	 * available.
+	 * 
+	 * @param b
+	 *            the buffer to read into.
+	 * @param off
+	 *            the offset in the buffer.
+	 * @param len
+	 *            the number of bytes to read.
+	 * @throws EOFException
+	 *             if the stream ends before all bytes have been read.
+	 * @throws IOException
+	 */
+	public void readFully(byte[] b, int off, int len) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+		while (buffer.hasRemaining()) {
+			if (readBlocking(buffer) == -1) {
+				throw new EOFException("end of stream after "
+						+ (buffer.position() - off) + " of " + len + " bytes");
+			}
+		}
+	}
+
+	/**
+	 * Reads all bytes until the end of the stream, i.e. until the peer has
+	 * closed the channel. The data is read directly into a growing buffer, so
+	 * this takes only a few channel reads even for larger messages.
+	 * 
+	 * @return the bytes read.
+	 * @throws IOException
+	 */
+	public byte[] readAll() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(INITIAL_READ_ALL_SIZE);
+		while (true) {
+			if (!buffer.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+			if (readBlocking(buffer) == -1) {
+				return Arrays.copyOf(buffer.array(), buffer.position());
+			}
+		}
+	}
+
+	/**
+	 * Reads all bytes until the end of the given stream using bulk reads, see
+	 * {@link #readAll()}.
+	 * 
+	 * @param in
+	 *            the stream to read.
+	 * @return the bytes read.
+	 * @throws IOException
+	 */
+	public static byte[] readAll(final InputStream in) throws IOException {
+		if (in instanceof JslipcChannelInputStream) {
+			return ((JslipcChannelInputStream) in).readAll();
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(
+				INITIAL_READ_ALL_SIZE);
+		byte[] buffer = new byte[INITIAL_READ_ALL_SIZE];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			baos.write(buffer, 0, count);
+		}
+		return baos.toByteArray();
+	}
+
 	protected int readBlocking(ByteBuffer buffer) throws IOException,
 			InterruptedIOException {
 		long waitingSince = System.currentTimeMillis();
+		long waitStart = 0;
+		int round = 0;
 		int bytesRead = 0;
-		while ((bytesRead = channel.read(buffer)) == 0) {
-			if (channel.getState() == JslipcChannelState.ClosedByPeer) {
-				return -1;
+		try {
+			while ((bytesRead = channel.read(buffer)) == 0) {
+				if (channel.getState() == JslipcChannelState.ClosedByPeer) {
+					// the peer may have written data right before closing
+					bytesRead = channel.read(buffer);
+					return bytesRead > 0 ? bytesRead : -1;
+				}
+				if (round == 0) {
+					waitStart = System.nanoTime();
+				}
+				idle(round++, waitingSince);
 			}
-			sleep(waitingSince);
+			return bytesRead;
+		} finally {
+			ChannelMetrics.recordWait(metrics, round, waitStart);
 		}
-		return bytesRead;
 	}
 
 	@Override
@@ -79,14 +176,30 @@ public class JslipcChannelInputStream extends InputStream implements TimeoutAwar
 		this.timeout = timeout;
 	}
 
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
 	/**
-	 * Sleeps for the default time and watches for timeouts.
+	 * Waits according to the {@link #getWaitStrategy() wait strategy} and
+	 * watches for timeouts.
+	 * @param round the number of rounds the operation has already waited.
 	 * @param waitingSince the timestamp when the operation started to block.
 	 * @throws InterruptedIOException
 	 */
-	protected void sleep(long waitingSince) throws InterruptedIOException {
+	protected void idle(int round, long waitingSince) throws InterruptedIOException {
 		try {
-			TimeUtil.sleep(getTimeout(), waitingSince);
+			getWaitStrategy().idle(round, getTimeout(), waitingSince);
 		} catch (InterruptedException e) {
 			throw new InterruptedIOException("interrupted by timeout");
 		}
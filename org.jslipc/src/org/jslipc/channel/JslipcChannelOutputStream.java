@@ -1,5 +1,6 @@
 package org.jslipc.channel;
 
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
@@ -8,19 +9,26 @@ import java.nio.channels.ClosedChannelException;
 
 import org.jslipc.TimeoutAware;
 import org.jslipc.channel.JslipcChannel.JslipcChannelState;
-import org.jslipc.util.TimeUtil;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
 
 /**
  * This class wraps a {@link WritableJslipcByteChannel} in order to provide a blocking OutputStream.
  */
-public class JslipcChannelOutputStream extends OutputStream implements TimeoutAware {
+public class JslipcChannelOutputStream extends OutputStream implements TimeoutAware,
+		WaitStrategyAware {
 
 	private WritableJslipcByteChannel channel;
+	private final ChannelMetrics metrics;
 	private ByteBuffer oneByteBuffer = ByteBuffer.wrap(new byte[1]);
 	private int timeout = 0;
+	private WaitStrategy waitStrategy = SleepWaitStrategy.DEFAULT;
 
 	/**
-	 * Creates a JslipcChannelOutputStream based on the underlying channel.
+	 * Creates a JslipcChannelOutputStream based on the underlying channel. If the
+	 * channel is {@link WaitStrategyAware}, the stream inherits the channel's
+	 * wait strategy.
 	 * @param channel
 	 */
 	public JslipcChannelOutputStream(final WritableJslipcByteChannel channel) {
@@ -29,8 +37,23 @@ public class JslipcChannelOutputStream extends OutputStream implements TimeoutAw
 					"parameter 'channel' must not be  null");
 		}
 		this.channel = channel;
+		this.metrics = ChannelMetrics.of(channel);
+		if (channel instanceof WaitStrategyAware) {
+			this.waitStrategy = ((WaitStrategyAware) channel).getWaitStrategy();
+		}
 	}
 	
+	/**
+	 * If the underlying channel is {@link Flushable}, e.g. a chunk file
+	 * channel coalescing writes, it is flushed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (channel instanceof Flushable) {
+			((Flushable) channel).flush();
+		}
+	}
+
 	@Override
 	public void close() throws IOException {
 		super.close();
@@ -53,15 +76,27 @@ public class JslipcChannelOutputStream extends OutputStream implements TimeoutAw
 
 	protected void writeBlocking(ByteBuffer buffer) throws IOException,
 			InterruptedIOException, ClosedChannelException {
-		long waitingSince = System.currentTimeMillis();
-		int count = 0;
-		while ((count = channel.write(buffer)) == 0
-				&& channel.getState() != JslipcChannelState.ClosedByPeer) {
-			sleep(waitingSince);
-		}
-		if (count == 0) {
-			throw new ClosedChannelException();
-		}
+		do {
+			long waitingSince = System.currentTimeMillis();
+			long waitStart = 0;
+			int round = 0;
+			int count = 0;
+			try {
+				while ((count = channel.write(buffer)) == 0
+						&& channel.getState() != JslipcChannelState.ClosedByPeer) {
+					if (round == 0) {
+						waitStart = System.nanoTime();
+					}
+					idle(round++, waitingSince);
+				}
+			} finally {
+				ChannelMetrics.recordWait(metrics, round, waitStart);
+			}
+			if (count == 0) {
+				throw new ClosedChannelException();
+			}
+			// channels with a bounded capacity may write only a part
+		} while (buffer.hasRemaining());
 	}
 
 
@@ -78,14 +113,30 @@ public class JslipcChannelOutputStream extends OutputStream implements TimeoutAw
 		this.timeout = timeout;
 	}
 
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
 	/**
-	 * Sleeps for the default time and watches for timeouts.
+	 * Waits according to the {@link #getWaitStrategy() wait strategy} and
+	 * watches for timeouts.
+	 * @param round the number of rounds the operation has already waited.
 	 * @param waitingSince the timestamp when the operation started to block.
 	 * @throws InterruptedIOException
 	 */
-	protected void sleep(long waitingSince) throws InterruptedIOException {
+	protected void idle(int round, long waitingSince) throws InterruptedIOException {
 		try {
-			TimeUtil.sleep(getTimeout(), waitingSince);
+			getWaitStrategy().idle(round, getTimeout(), waitingSince);
 		} catch (InterruptedException e) {
 			throw new InterruptedIOException("interrupted by timeout");
 		}
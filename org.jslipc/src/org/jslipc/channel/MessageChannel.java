@@ -0,0 +1,49 @@
+package org.jslipc.channel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jslipc.TimeoutAware;
+import org.jslipc.wait.WaitStrategyAware;
+
+/**
+ * A bidirectional channel that transfers whole messages instead of a raw byte
+ * stream. Each message is written as a record with a compact length header,
+ * and read back in one call, so the receiver needs not search for message
+ * boundaries. Both ends of a pipe have to use a message channel.
+ */
+public interface MessageChannel extends Closeable, TimeoutAware,
+		WaitStrategyAware {
+
+	/**
+	 * Sends the remaining bytes of the given buffer as one message, blocks
+	 * until the message is completely written. The position of the buffer is
+	 * moved to its limit.
+	 * 
+	 * @param message
+	 * @throws IOException
+	 */
+	void send(ByteBuffer message) throws IOException;
+
+	/**
+	 * Sends the remaining bytes of each given buffer as one message, blocks
+	 * until all messages are completely written. Implementations may write the
+	 * batch at once, which is more efficient than sending the messages one by
+	 * one.
+	 * 
+	 * @param messages
+	 * @throws IOException
+	 */
+	void send(ByteBuffer[] messages) throws IOException;
+
+	/**
+	 * Receives the next message, blocks until the message is completely read.
+	 * 
+	 * @return a buffer containing the message, or <code>null</code> if the
+	 *         end of stream has been reached.
+	 * @throws IOException
+	 */
+	ByteBuffer receive() throws IOException;
+
+}
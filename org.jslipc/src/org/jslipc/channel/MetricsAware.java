@@ -0,0 +1,13 @@
+package org.jslipc.channel;
+
+/**
+ * Implemented by channels recording {@link ChannelMetrics}.
+ */
+public interface MetricsAware {
+
+	/**
+	 * @return the metrics of this channel, never <code>null</code>.
+	 */
+	ChannelMetrics getMetrics();
+
+}
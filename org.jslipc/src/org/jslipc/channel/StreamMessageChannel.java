@@ -0,0 +1,362 @@
+package org.jslipc.channel;
+
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.util.StringUtil;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
+
+/**
+ * A {@link MessageChannel} on top of any pair of byte channels. Each message
+ * is written as a 4 byte length header (big endian) followed by the message
+ * bytes. Header and messages are transferred in bulk, and if the sink is a
+ * {@link GatheringByteChannel}, a whole batch of messages is written with one
+ * call.
+ */
+public class StreamMessageChannel implements MessageChannel {
+
+	/**
+	 * The size of the record header.
+	 */
+	public static final int HEADER_SIZE = 4;
+
+	/**
+	 * The default for the {@link #getMaxMessageSize() maximum message size}.
+	 */
+	public static final int DEFAULT_MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+	private final ReadableJslipcByteChannel source;
+	private final WritableJslipcByteChannel sink;
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+	private int timeout = 0;
+	private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+	private WaitStrategy sourceWaitStrategy = SleepWaitStrategy.DEFAULT;
+	private WaitStrategy sinkWaitStrategy = SleepWaitStrategy.DEFAULT;
+
+	/**
+	 * Creates a message channel reading from the given source and writing to
+	 * the given sink. If the channels are {@link WaitStrategyAware}, their wait
+	 * strategies are inherited.
+	 * 
+	 * @param source
+	 * @param sink
+	 */
+	public StreamMessageChannel(final ReadableJslipcByteChannel source,
+			final WritableJslipcByteChannel sink) {
+		if (source == null) {
+			throw new IllegalArgumentException(
+					"parameter source must not be null");
+		}
+		if (sink == null) {
+			throw new IllegalArgumentException("parameter sink must not be null");
+		}
+		this.source = source;
+		this.sink = sink;
+		if (source instanceof WaitStrategyAware) {
+			sourceWaitStrategy = ((WaitStrategyAware) source).getWaitStrategy();
+		}
+		if (sink instanceof WaitStrategyAware) {
+			sinkWaitStrategy = ((WaitStrategyAware) sink).getWaitStrategy();
+		}
+	}
+
+	protected ReadableJslipcByteChannel getSource() {
+		return source;
+	}
+
+	protected WritableJslipcByteChannel getSink() {
+		return sink;
+	}
+
+	@Override
+	public void send(final ByteBuffer message) throws IOException {
+		send(new ByteBuffer[] { message });
+	}
+
+	@Override
+	public void send(final ByteBuffer[] messages) throws IOException {
+		checkMessages(messages);
+		ByteBuffer[] records = new ByteBuffer[2 * messages.length];
+		for (int i = 0; i < messages.length; i++) {
+			records[2 * i] = createHeader(messages[i].remaining());
+			records[2 * i + 1] = messages[i];
+		}
+		writeFully(records, System.currentTimeMillis());
+		if (sink instanceof Flushable) {
+			// publish the messages even if the sink coalesces writes
+			((Flushable) sink).flush();
+		}
+	}
+
+	@Override
+	public ByteBuffer receive() throws IOException {
+		long waitingSince = System.currentTimeMillis();
+		header.clear();
+		if (!readFully(header, true, waitingSince)) {
+			return null;
+		}
+		int length = header.getInt(0);
+		checkLength(length);
+		ByteBuffer message = ByteBuffer.allocate(length);
+		readFully(message, false, waitingSince);
+		message.flip();
+		return message;
+	}
+
+	protected void checkMessages(final ByteBuffer[] messages) {
+		if (messages == null) {
+			throw new IllegalArgumentException(
+					"parameter messages must not be null");
+		}
+		for (ByteBuffer message : messages) {
+			if (message == null) {
+				throw new IllegalArgumentException(
+						"parameter messages must not contain null");
+			}
+			if (message.remaining() > maxMessageSize) {
+				throw new IllegalArgumentException("message size "
+						+ message.remaining() + " exceeds maximum of "
+						+ maxMessageSize);
+			}
+		}
+	}
+
+	/**
+	 * Checks the length read from a record header.
+	 * 
+	 * @param length
+	 * @throws IOException
+	 *             if the length is negative or exceeds the maximum.
+	 */
+	protected void checkLength(final int length) throws IOException {
+		if (length < 0 || length > maxMessageSize) {
+			throw new IOException("invalid message length " + length
+					+ ", maximum is " + maxMessageSize);
+		}
+	}
+
+	protected static ByteBuffer createHeader(final int length) {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(0, length);
+		return header;
+	}
+
+	/**
+	 * Writes all given buffers, using a gathering write if possible.
+	 * 
+	 * @param srcs
+	 * @param waitingSince
+	 *            the timestamp when the operation started to block.
+	 * @throws IOException
+	 */
+	protected void writeFully(final ByteBuffer[] srcs, final long waitingSince)
+			throws IOException {
+		if (!(sink instanceof GatheringByteChannel)) {
+			for (ByteBuffer src : srcs) {
+				writeFully(src, waitingSince);
+			}
+			return;
+		}
+		GatheringByteChannel gathering = (GatheringByteChannel) sink;
+		int offset = 0;
+		long waitStart = 0;
+		int round = 0;
+		try {
+			while (offset < srcs.length) {
+				if (!srcs[offset].hasRemaining()) {
+					++offset;
+					continue;
+				}
+				long count = gathering.write(srcs, offset, srcs.length
+						- offset);
+				if (count == 0) {
+					checkClosedByPeer();
+					if (round == 0) {
+						waitStart = System.nanoTime();
+					}
+					idleWriting(round++, waitingSince);
+				}
+			}
+		} finally {
+			ChannelMetrics.recordWait(ChannelMetrics.of(sink), round,
+					waitStart);
+		}
+	}
+
+	/**
+	 * Writes the given buffer completely.
+	 * 
+	 * @param src
+	 * @param waitingSince
+	 *            the timestamp when the operation started to block.
+	 * @throws IOException
+	 */
+	protected void writeFully(final ByteBuffer src, final long waitingSince)
+			throws IOException {
+		long waitStart = 0;
+		int round = 0;
+		try {
+			while (src.hasRemaining()) {
+				if (sink.write(src) == 0) {
+					checkClosedByPeer();
+					if (round == 0) {
+						waitStart = System.nanoTime();
+					}
+					idleWriting(round++, waitingSince);
+				}
+			}
+		} finally {
+			ChannelMetrics.recordWait(ChannelMetrics.of(sink), round,
+					waitStart);
+		}
+	}
+
+	/**
+	 * Reads until the given buffer is full.
+	 * 
+	 * @param dst
+	 * @param endOfStreamAllowed
+	 *            whether the end of stream may be reached before the first
+	 *            byte has been read.
+	 * @param waitingSince
+	 *            the timestamp when the operation started to block.
+	 * @return <code>false</code> if the end of stream was reached before the
+	 *         first byte.
+	 * @throws IOException
+	 * @throws EOFException
+	 *             if the end of stream was reached after the first byte.
+	 */
+	protected boolean readFully(final ByteBuffer dst,
+			final boolean endOfStreamAllowed, final long waitingSince)
+			throws IOException {
+		int start = dst.position();
+		long waitStart = 0;
+		int round = 0;
+		try {
+			while (dst.hasRemaining()) {
+				int count = source.read(dst);
+				if (count < 0) {
+					if (endOfStreamAllowed && dst.position() == start) {
+						return false;
+					}
+					throw new EOFException("end of stream within message");
+				}
+				if (count == 0) {
+					if (round == 0) {
+						waitStart = System.nanoTime();
+					}
+					idleReading(round++, waitingSince);
+				}
+			}
+			return true;
+		} finally {
+			ChannelMetrics.recordWait(ChannelMetrics.of(source), round,
+					waitStart);
+		}
+	}
+
+	/**
+	 * @throws ClosedChannelException
+	 *             if the peer has closed its end, so no more data is read.
+	 */
+	protected void checkClosedByPeer() throws ClosedChannelException {
+		if (sink.getState() == JslipcChannelState.ClosedByPeer) {
+			throw new ClosedChannelException();
+		}
+	}
+
+	protected void idleReading(final int round, final long waitingSince)
+			throws InterruptedIOException {
+		idle(sourceWaitStrategy, round, waitingSince);
+	}
+
+	protected void idleWriting(final int round, final long waitingSince)
+			throws InterruptedIOException {
+		idle(sinkWaitStrategy, round, waitingSince);
+	}
+
+	private void idle(final WaitStrategy strategy, final int round,
+			final long waitingSince) throws InterruptedIOException {
+		try {
+			strategy.idle(round, getTimeout(), waitingSince);
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted by timeout");
+		}
+	}
+
+	/**
+	 * @return the maximum size of a message. Larger messages are rejected on
+	 *         sending, and reading a larger length from a header is treated as
+	 *         a corrupt stream.
+	 */
+	public int getMaxMessageSize() {
+		return maxMessageSize;
+	}
+
+	public void setMaxMessageSize(int maxMessageSize) {
+		if (maxMessageSize < 0) {
+			throw new IllegalArgumentException(
+					"parameter maxMessageSize must be >= 0: " + maxMessageSize);
+		}
+		this.maxMessageSize = maxMessageSize;
+	}
+
+	@Override
+	public int getTimeout() {
+		return timeout;
+	}
+
+	@Override
+	public void setTimeout(int timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("parameter timeout must be > 0: " + timeout);
+		}
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @return the strategy used to wait for incoming messages.
+	 */
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return sourceWaitStrategy;
+	}
+
+	/**
+	 * Sets the strategy used to wait for both incoming messages and space to
+	 * send messages.
+	 */
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.sourceWaitStrategy = waitStrategy;
+		this.sinkWaitStrategy = waitStrategy;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			source.close();
+		} finally {
+			sink.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("source", source).add("sink", sink)
+				.toString();
+	}
+
+}
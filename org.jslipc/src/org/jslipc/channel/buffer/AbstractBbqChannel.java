@@ -6,17 +6,33 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.InterruptibleChannel;
 
 import org.jslipc.TimeoutAware;
+import org.jslipc.channel.ChannelMetrics;
 import org.jslipc.channel.JslipcChannel;
-import org.jslipc.util.TimeUtil;
+import org.jslipc.channel.MetricsAware;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
 
 /**
- * Common base class for {@link ByteBufferQueue} based channels.
+ * Common base class for {@link ByteBufferQueue} based channels. Blocking
+ * operations wait using the configured {@link WaitStrategy}, which is also
+ * inherited by streams created on top of the channel. The channel records
+ * its {@link ChannelMetrics}.<br/>
+ * <br/>
+ * Each operation {@link ByteBufferQueue#enter() enters} the queue, so the
+ * pipe owning the buffer may release it safely once the queue is detached.
+ * A region handed out for zero-copy access keeps the queue entered until it
+ * is given back.
  */
-public abstract class AbstractBbqChannel implements JslipcChannel, InterruptibleChannel, TimeoutAware {
+public abstract class AbstractBbqChannel implements JslipcChannel, InterruptibleChannel, TimeoutAware, WaitStrategyAware, MetricsAware {
 
 	protected volatile ByteBufferQueue queue;
 	protected volatile boolean closed;
 	private int timeout = 0;
+	private volatile WaitStrategy waitStrategy = SleepWaitStrategy.DEFAULT;
+	protected final ChannelMetrics metrics = new ChannelMetrics();
+	/** a handed out region keeps the queue entered, see {@link #leave(boolean)} */
+	private boolean holding;
 
 
 	public AbstractBbqChannel(final ByteBufferQueue queue) {
@@ -35,20 +51,31 @@ public abstract class AbstractBbqChannel implements JslipcChannel, Interruptible
 	@Override
 	public void close() throws IOException {
 		this.closed = true;
-		if (queue.isInitialized()) {
-			queue.close();
+		if (!queue.enter()) {
+			return; // the buffer has been released already
+		}
+		try {
+			if (queue.isInitialized()) {
+				queue.close();
+			}
+		} finally {
+			queue.leave();
 		}
 	}
 
 	@Override
 	public JslipcChannelState getState() {
-		if (!isOpen()) {
+		if (!isOpen() || !queue.enter()) {
 			return JslipcChannelState.Closed;
 		}
-		if (queue.isInitialized() && queue.isClosed()) {
-			return JslipcChannelState.ClosedByPeer;
+		try {
+			if (queue.isInitialized() && queue.isClosed()) {
+				return JslipcChannelState.ClosedByPeer;
+			}
+			return JslipcChannelState.Open;
+		} finally {
+			queue.leave();
 		}
-		return JslipcChannelState.Open;
 	}
 
 
@@ -57,6 +84,52 @@ public abstract class AbstractBbqChannel implements JslipcChannel, Interruptible
 			throw new ClosedChannelException();
 		}
 	}
+
+	/**
+	 * Enters an operation on the queue, which has to be finished by
+	 * {@link #leave(boolean)}.
+	 * 
+	 * @throws ClosedChannelException
+	 *             if the channel or the queue has been closed.
+	 */
+	protected void enter() throws ClosedChannelException {
+		checkClosed();
+		if (!queue.enter()) {
+			throw new ClosedChannelException();
+		}
+	}
+
+	/**
+	 * Enters an operation giving back resp. replacing a handed out region,
+	 * which still holds the queue entered, otherwise like {@link #enter()}.
+	 * The caller has to check whether the channel is closed.
+	 * 
+	 * @throws ClosedChannelException
+	 *             if no region is handed out and the channel or the queue
+	 *             has been closed.
+	 */
+	protected void enterHolding() throws ClosedChannelException {
+		if (holding) {
+			holding = false;
+			return;
+		}
+		enter();
+	}
+
+	/**
+	 * Leaves the operation entered last.
+	 * 
+	 * @param hold
+	 *            <code>true</code> if the operation hands out a region, the
+	 *            queue then stays entered until the region is given back.
+	 */
+	protected void leave(final boolean hold) {
+		if (hold) {
+			holding = true;
+		} else {
+			queue.leave();
+		}
+	}
 	
 
 	@Override
@@ -72,37 +145,88 @@ public abstract class AbstractBbqChannel implements JslipcChannel, Interruptible
 		this.timeout = timeout;
 	}
 
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
+	@Override
+	public ChannelMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
-	 * Sleeps for the default time and watches for timeouts.
+	 * Waits according to the {@link #getWaitStrategy() wait strategy} and
+	 * watches for timeouts.
+	 * @param round the number of rounds the operation has already waited.
 	 * @param waitingSince the timestamp when the operation started to block.
 	 * @throws InterruptedIOException
 	 */
-	protected void sleep(long waitingSince) throws InterruptedIOException {
+	protected void idle(int round, long waitingSince) throws InterruptedIOException {
 		try {
-			TimeUtil.sleep(getTimeout(), waitingSince);
+			getWaitStrategy().idle(round, getTimeout(), waitingSince);
 		} catch (InterruptedException e) {
 			throw new InterruptedIOException("interrupted by timeout");
 		}
 	}
 	
-	protected void waitForInitialization() throws InterruptedIOException {
+	protected void waitForInitialization() throws IOException {
 		long waitingSince = System.currentTimeMillis();
-		while (!queue.isInitialized()) {
-			sleep(waitingSince);
+		long waitStart = 0;
+		int round = 0;
+		try {
+			while (!queue.isInitialized()) {
+				checkClosed();
+				if (round == 0) {
+					waitStart = System.nanoTime();
+				}
+				idle(round++, waitingSince);
+			}
+		} finally {
+			ChannelMetrics.recordWait(metrics, round, waitStart);
 		}
 	}
 
-	protected void waitForNonEmpty() throws InterruptedIOException {
+	protected void waitForNonEmpty() throws IOException {
 		long waitingSince = System.currentTimeMillis();
-		while (queue.isEmpty()) {
-			sleep(waitingSince);
+		long waitStart = 0;
+		int round = 0;
+		try {
+			while (queue.isEmpty()) {
+				checkClosed();
+				if (round == 0) {
+					waitStart = System.nanoTime();
+				}
+				idle(round++, waitingSince);
+			}
+		} finally {
+			ChannelMetrics.recordWait(metrics, round, waitStart);
 		}
 	}
 
-	protected void waitForNonFull() throws InterruptedIOException {
+	protected void waitForNonFull() throws IOException {
 		long waitingSince = System.currentTimeMillis();
-		while (queue.isFull()) {
-			sleep(waitingSince);
+		long waitStart = 0;
+		int round = 0;
+		try {
+			while (queue.isFull()) {
+				checkClosed();
+				if (round == 0) {
+					waitStart = System.nanoTime();
+				}
+				idle(round++, waitingSince);
+			}
+		} finally {
+			ChannelMetrics.recordWait(metrics, round, waitStart);
 		}
 	}
 
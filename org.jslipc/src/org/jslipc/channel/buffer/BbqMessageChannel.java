@@ -0,0 +1,222 @@
+package org.jslipc.channel.buffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jslipc.channel.MessageChannel;
+import org.jslipc.channel.StreamMessageChannel;
+
+/**
+ * A {@link MessageChannel} on top of {@link ByteBufferQueue} based channels
+ * that never lets a record straddle the wrap point of the queue. If a record
+ * does not fit between the tail and the end of the queue region, the rest of
+ * the region is skipped using a padding record (or, if even the header does
+ * not fit, silently), and the record is written at the start of the queue
+ * region. Records are so written with a single {@link WritableBbqChannel#claim(int)
+ * claim} and read in place using {@link ReadableBbqChannel#acquire(int)
+ * acquire}, see {@link #acquireMessage()}.<br/>
+ * <br/>
+ * Messages larger than the capacity of the queue cannot be contiguous, they
+ * are streamed like in {@link StreamMessageChannel}.
+ */
+public class BbqMessageChannel extends StreamMessageChannel {
+
+	/**
+	 * The length marking a padding record.
+	 */
+	protected static final int PADDING = -1;
+
+	private final ReadableBbqChannel source;
+	private final WritableBbqChannel sink;
+	private int acquired;
+
+	public BbqMessageChannel(final ReadableBbqChannel source,
+			final WritableBbqChannel sink) {
+		super(source, sink);
+		this.source = source;
+		this.sink = sink;
+	}
+
+	@Override
+	public void send(final ByteBuffer[] messages) throws IOException {
+		checkMessages(messages);
+		sink.enter();
+		try {
+			sink.waitForInitialization();
+			long waitingSince = System.currentTimeMillis();
+			for (ByteBuffer message : messages) {
+				send(message, waitingSince);
+			}
+		} finally {
+			sink.leave(false);
+		}
+	}
+
+	private void send(final ByteBuffer message, final long waitingSince)
+			throws IOException {
+		ByteBufferQueue queue = sink.queue;
+		int length = message.remaining();
+		int needed = HEADER_SIZE + length;
+		boolean contiguous = needed <= queue.getCapacity();
+		int round = 0;
+		while (true) {
+			int toWrap = queue.getTailToWrap();
+			if (toWrap < HEADER_SIZE || (contiguous && toWrap < needed)) {
+				if (!pad(toWrap)) {
+					checkClosedByPeer();
+					idleWriting(round++, waitingSince);
+				}
+				continue;
+			}
+			if (!contiguous) {
+				// the header is contiguous at least
+				writeFully(createHeader(length), waitingSince);
+				writeFully(message, waitingSince);
+				return;
+			}
+			ByteBuffer region = sink.claim(needed);
+			if (region.remaining() == needed) {
+				region.putInt(length);
+				region.put(message);
+				sink.commit(needed);
+				return;
+			}
+			sink.commit(0);
+			checkClosedByPeer();
+			idleWriting(round++, waitingSince);
+		}
+	}
+
+	/**
+	 * Skips the bytes up to the wrap point.
+	 * 
+	 * @return <code>false</code> if there is not enough free space yet.
+	 */
+	private boolean pad(final int toWrap) throws IOException {
+		ByteBuffer region = sink.claim(toWrap);
+		if (region.remaining() < toWrap) {
+			sink.commit(0);
+			return false;
+		}
+		if (toWrap >= HEADER_SIZE) {
+			region.putInt(PADDING);
+		}
+		sink.commit(toWrap);
+		return true;
+	}
+
+	@Override
+	public ByteBuffer receive() throws IOException {
+		ByteBuffer region = acquireMessage();
+		if (region == null) {
+			return null;
+		}
+		ByteBuffer message = ByteBuffer.allocate(region.remaining());
+		message.put(region);
+		message.flip();
+		releaseMessage();
+		return message;
+	}
+
+	/**
+	 * Receives the next message without copying it: the returned buffer is a
+	 * read-only view of the message in the queue, and stays valid until
+	 * {@link #releaseMessage()} is called. Messages larger than the queue
+	 * capacity are returned in a buffer of their own.
+	 * 
+	 * @return a buffer containing the message, or <code>null</code> if the
+	 *         end of stream has been reached.
+	 * @throws IOException
+	 */
+	public ByteBuffer acquireMessage() throws IOException {
+		if (acquired > 0) {
+			throw new IllegalStateException(
+					"the previous message must be released first");
+		}
+		source.enter();
+		try {
+			source.waitForInitialization();
+			ByteBufferQueue queue = source.queue;
+			long waitingSince = System.currentTimeMillis();
+			int round = 0;
+			while (true) {
+				int toWrap = queue.getHeadToWrap();
+				ByteBuffer region = source.acquire(Math.min(toWrap,
+						HEADER_SIZE));
+				if (region == null) {
+					return null; // end of stream
+				}
+				if (toWrap < HEADER_SIZE) {
+					// silent padding
+					if (!skip(region, toWrap)) {
+						idleReading(round++, waitingSince);
+					}
+					continue;
+				}
+				if (region.remaining() < HEADER_SIZE) {
+					source.release(0);
+					if (region.hasRemaining() && queue.isClosed()
+							&& queue.size() == region.remaining()) {
+						throw new EOFException("end of stream within message");
+					}
+					idleReading(round++, waitingSince);
+					continue;
+				}
+
+				int length = region.getInt(0);
+				if (length == PADDING) {
+					if (!skip(source.acquire(toWrap), toWrap)) {
+						idleReading(round++, waitingSince);
+					}
+					continue;
+				}
+				checkLength(length);
+				int needed = HEADER_SIZE + length;
+				if (needed > queue.getCapacity()) {
+					source.release(HEADER_SIZE);
+					ByteBuffer message = ByteBuffer.allocate(length);
+					readFully(message, false, waitingSince);
+					message.flip();
+					return message.asReadOnlyBuffer();
+				}
+
+				// the record is committed at once, so it is complete
+				region = source.acquire(needed);
+				if (region == null || region.remaining() < needed) {
+					source.release(0);
+					throw new IOException("incomplete record of length "
+							+ length);
+				}
+				region.position(HEADER_SIZE);
+				acquired = needed;
+				return region.slice();
+			}
+		} finally {
+			source.leave(false);
+		}
+	}
+
+	/**
+	 * Releases the message returned by the last {@link #acquireMessage()}, it
+	 * must not be accessed afterwards.
+	 * 
+	 * @throws IOException
+	 */
+	public void releaseMessage() throws IOException {
+		int count = acquired;
+		acquired = 0;
+		source.release(count);
+	}
+
+	private boolean skip(final ByteBuffer region, final int toWrap)
+			throws IOException {
+		if (region == null || region.remaining() < toWrap) {
+			source.release(0);
+			return false;
+		}
+		source.release(toWrap, false);
+		return true;
+	}
+
+}
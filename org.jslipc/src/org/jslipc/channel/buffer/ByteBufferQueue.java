@@ -4,29 +4,109 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.AbstractQueue;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jslipc.util.BufferUtil;
 
 /**
  * A queue implementation that uses (a part of) a buffer for storing the queue elements and pointers.
- * It is dedicated to be used with shared memory.
+ * It is dedicated to be used with shared memory.<br/>
+ * <br/>
+ * The queue follows a single-producer/single-consumer protocol: only the
+ * producer writes the tail, only the consumer writes the head. The pointers are
+ * published with ordered (release) stores after the data has been copied, and
+ * read with acquire loads before accessing the data, so no locking is needed,
+ * neither within one process nor between processes sharing the buffer. Each
+ * side caches the last seen pointer of the opposite side and re-reads it only
+ * if the cached value indicates that the queue is full respectively empty.<br/>
+ * <br/>
+ * Head and tail are 64 bit sequence counters that only ever increase, the
+ * number of bytes in the queue is just their difference. The capacity is the
+ * largest power of two that fits into the region behind the header, so the
+ * position of a counter in the queue data is computed by masking, and a full
+ * queue can be told from an empty one without sacrificing a byte.<br/>
+ * <br/>
+ * The header of the queue comes in two layouts, the side that
+ * {@link #init() initializes} the queue chooses one and records it in the
+ * init flag, the other side adopts the recorded layout:
+ * <ul>
+ * <li><em>compact</em>: init and closed flag, followed by head and tail
+ * aligned to 8 bytes, take at most the first 25 bytes of the region. This
+ * layout is used for small queues.</li>
+ * <li><em>padded</em>: the first {@link #CACHE_LINE_SIZE cache line} holds the
+ * init and the closed flag, a magic number and the layout version. Head and
+ * tail are placed on separate (aligned) cache lines, so producer and consumer
+ * do not false-share a line on every transfer. This layout is used if the
+ * region has at least {@link #MIN_PADDED_LENGTH} bytes.</li>
+ * </ul>
+ * The padded layout additionally provides a waiter flag, a consumer
+ * about to block on an empty queue may {@link #setWaiting(boolean) register}
+ * there, so the producer knows it has to wake the consumer, see
+ * {@link Doorbell}.<br/>
+ * <br/>
+ * Queues initialized by a previous version, which used 32 bit buffer indexes
+ * as head and tail, are rejected with an {@link IllegalStateException}.<br/>
+ * <br/>
+ * Users sharing the queue between threads {@link #enter() enter} each
+ * operation on it and {@link #leave() leave} it afterwards. The owner of the
+ * buffer {@link #detach(long) detaches} the queue before it releases the
+ * buffer, which waits for the operations in progress, so no thread accesses
+ * an unmapped buffer.
  */
 public class ByteBufferQueue extends AbstractQueue<Byte> {
 
 	protected static final byte TRUE = (byte) 0x01;
 	protected static final byte FALSE = 0x00;
-	protected static final int POINTER_SIZE = 4;
-	protected static final int HEAD_OFFSET = 0;
-	protected static final int TAIL_OFFSET = HEAD_OFFSET + POINTER_SIZE;
-	protected static final int INIT_OFFSET = TAIL_OFFSET + POINTER_SIZE;
+	protected static final int POINTER_SIZE = 8;
+	protected static final int INIT_OFFSET = 0;
 	protected static final int CLOSED_OFFSET = INIT_OFFSET + 1;
-	protected static final int QUEUE_OFFSET = CLOSED_OFFSET + 1;
+	/** the offset of the data in the compact layout if the start index is aligned */
+	protected static final int QUEUE_OFFSET = 3 * POINTER_SIZE;
+	/** the minimum length of a region, so the compact layout holds at least one byte */
+	protected static final int MIN_LENGTH = CLOSED_OFFSET + POINTER_SIZE + 2
+			* POINTER_SIZE + 1;
+
+	protected static final byte LAYOUT_COMPACT = 0x03;
+	protected static final byte LAYOUT_PADDED = 0x04;
+	/** the compact layout of previous versions using 32 bit indexes */
+	protected static final byte LEGACY_LAYOUT_COMPACT = TRUE;
+	/** the padded layout of previous versions using 32 bit indexes */
+	protected static final byte LEGACY_LAYOUT_PADDED = 0x02;
+	protected static final int MAGIC = 0x4A534C51; // JSLQ
+	protected static final int WAITER_OFFSET = CLOSED_OFFSET + 3;
+	protected static final int MAGIC_OFFSET = WAITER_OFFSET + 4;
+	protected static final int VERSION_OFFSET = MAGIC_OFFSET + 4;
+	protected static final int CONTROL_SIZE = 16;
+	protected static final int CACHE_LINE_SIZE = 128;
+	protected static final int MIN_PADDED_LENGTH = 8 * CACHE_LINE_SIZE;
 
 	private int startIndex;
 	private int length;
 	private ByteBuffer buffer;
+	private int headIndex = -1;
+	private int tailIndex = -1;
+	private int queueStartIndex = -1;
+	private int capacity;
+	private int mask;
+	/** the last head seen by the producer, <code>-1</code> if unknown */
+	private long cachedHead = -1;
+	/** the last tail seen by the consumer, <code>-1</code> if unknown */
+	private long cachedTail = -1;
+	/** the number of bytes claimed by the producer but not yet committed */
+	private int claimed;
+	/** the number of bytes acquired by the consumer but not yet released */
+	private int acquired;
+	/** the number of operations in progress, see {@link #enter()} */
+	private final AtomicInteger users = new AtomicInteger();
+	private volatile boolean detached;
 
 	public ByteBufferQueue(final ByteBuffer buffer, final int startIndex,
 			final int length) {
 
+		if (buffer != null && length < MIN_LENGTH) {
+			throw new IllegalArgumentException("length must be >= "
+					+ MIN_LENGTH + ": " + length);
+		}
 		this.buffer = buffer;
 		this.startIndex = startIndex;
 		this.length = length;
@@ -36,32 +116,200 @@ public class ByteBufferQueue extends AbstractQueue<Byte> {
 		if (isInitialized()) {
 			return;
 		}
-		setHead(getQueueStartIndex());
-		setTail(getQueueStartIndex());
+		byte layout = LAYOUT_COMPACT;
+		if (length >= MIN_PADDED_LENGTH) {
+			layout = LAYOUT_PADDED;
+			buffer.putInt(getStartIndex() + MAGIC_OFFSET, MAGIC);
+			buffer.putInt(getStartIndex() + VERSION_OFFSET, layout);
+		}
+		resolveLayout(layout);
+		setHead(0);
+		setTail(0);
 		buffer.put(getStartIndex() + CLOSED_OFFSET, FALSE);
-		buffer.put(getStartIndex() + INIT_OFFSET, TRUE);
+		if (layout == LAYOUT_PADDED) {
+			buffer.putInt(getStartIndex() + WAITER_OFFSET, FALSE);
+		}
+		// publish the init flag last
+		BufferUtil.putByteVolatile(buffer, getStartIndex() + INIT_OFFSET, layout);
 	}
 
+	/**
+	 * @return <code>true</code> if the queue has been initialized.
+	 * @throws IllegalStateException
+	 *             if the queue has been initialized by a previous version.
+	 */
 	public boolean isInitialized() {
-		return buffer == null
-				|| buffer.get(getStartIndex() + INIT_OFFSET) == TRUE;
+		if (buffer == null) {
+			return true;
+		}
+		byte layout = getLayout();
+		if (layout == LEGACY_LAYOUT_COMPACT || layout == LEGACY_LAYOUT_PADDED) {
+			throw new IllegalStateException(
+					"queue has been initialized by a previous version with layout "
+							+ layout);
+		}
+		return layout == LAYOUT_COMPACT || layout == LAYOUT_PADDED;
+	}
+
+	private byte getLayout() {
+		return BufferUtil.getByteVolatile(buffer, getStartIndex() + INIT_OFFSET);
 	}
 
 	private void checkInitialized() {
 		if (!isInitialized()) {
 			throw new IllegalStateException("queue must be initialized first");
 		}
+		if (queueStartIndex < 0) {
+			resolveLayout(getLayout());
+		}
+	}
+
+	/**
+	 * Calculates the indexes of head, tail and the queue data according to
+	 * the given layout, and the capacity.
+	 * 
+	 * @param layout
+	 *            either {@link #LAYOUT_COMPACT} or {@link #LAYOUT_PADDED}.
+	 * @throws IllegalStateException
+	 *             if the header does not match the layout.
+	 */
+	protected void resolveLayout(final byte layout) {
+		if (layout == LAYOUT_PADDED) {
+			int magic = buffer.getInt(getStartIndex() + MAGIC_OFFSET);
+			int version = buffer.getInt(getStartIndex() + VERSION_OFFSET);
+			if (magic != MAGIC || version != LAYOUT_PADDED) {
+				throw new IllegalStateException("incompatible queue header: magic "
+						+ Integer.toHexString(magic) + ", version " + version);
+			}
+			headIndex = align(getStartIndex() + CONTROL_SIZE, CACHE_LINE_SIZE);
+			tailIndex = headIndex + CACHE_LINE_SIZE;
+			queueStartIndex = tailIndex + CACHE_LINE_SIZE;
+		} else {
+			headIndex = align(getStartIndex() + CLOSED_OFFSET + 1, POINTER_SIZE);
+			tailIndex = headIndex + POINTER_SIZE;
+			queueStartIndex = tailIndex + POINTER_SIZE;
+		}
+		capacity = Integer.highestOneBit(getEndIndex() + 1 - queueStartIndex);
+		mask = capacity - 1;
+	}
+
+	/**
+	 * @return the given index rounded up to a multiple of the given power of
+	 *         two.
+	 */
+	private static int align(final int index, final int alignment) {
+		return (index + alignment - 1) & ~(alignment - 1);
+	}
+
+	/**
+	 * @return the index of the given sequence in the underlying buffer.
+	 */
+	private int indexOf(final long sequence) {
+		return getQueueStartIndex() + (int) (sequence & mask);
+	}
+
+	/**
+	 * @return the number of bytes between the given sequence and the end of
+	 *         the queue data.
+	 */
+	private int toWrap(final long sequence) {
+		return capacity - (int) (sequence & mask);
+	}
+
+	/**
+	 * @return <code>true</code> if the queue uses the padded header layout.
+	 */
+	protected boolean isPadded() {
+		checkInitialized();
+		return getLayout() == LAYOUT_PADDED;
 	}
 	
+	/**
+	 * @return <code>true</code> if the queue is initialized and its layout
+	 *         provides a waiter flag.
+	 */
+	public boolean isWaiterSupported() {
+		return buffer != null && isInitialized() && isPadded();
+	}
+
+	/**
+	 * Registers or unregisters the consumer as waiting for data. The flag is
+	 * written with volatile semantics, so a subsequent check of the queue
+	 * state is not reordered before the registration.
+	 * 
+	 * @param waiting
+	 * @throws IllegalStateException
+	 *             if the layout provides no waiter flag.
+	 */
+	public void setWaiting(final boolean waiting) {
+		checkWaiterSupported();
+		BufferUtil.putIntVolatile(buffer, getStartIndex() + WAITER_OFFSET,
+				waiting ? TRUE : FALSE);
+	}
+
+	/**
+	 * @return <code>true</code> if the consumer is registered as waiting for
+	 *         data.
+	 * @throws IllegalStateException
+	 *             if the layout provides no waiter flag.
+	 */
+	public boolean isWaiting() {
+		checkWaiterSupported();
+		return BufferUtil.getIntVolatile(buffer, getStartIndex()
+				+ WAITER_OFFSET) != FALSE;
+	}
+
+	private void checkWaiterSupported() {
+		if (!isWaiterSupported()) {
+			throw new IllegalStateException(
+					"queue layout does not provide a waiter flag");
+		}
+	}
+
 	@Override
 	public int size() {
 		checkInitialized();
-		int tail = getTail();
-		int head = getHead();
-		if (tail >= head) {
-			return tail - head;
+		long tail = getTail();
+		long head = getHead();
+		return (int) (tail - head);
+	}
+
+	/**
+	 * Returns the number of bytes the producer may write. The cached head is
+	 * used as long as it indicates at least the wanted number of free bytes,
+	 * otherwise the head is re-read. Since the head only moves forward, a
+	 * stale head just underestimates the free space.
+	 * 
+	 * @param tail
+	 *            the current tail.
+	 * @param wanted
+	 *            the number of bytes the producer wants to write.
+	 * @return the number of free bytes.
+	 */
+	private int getWritable(final long tail, final int wanted) {
+		if (cachedHead < 0 || capacity - (tail - cachedHead) < wanted) {
+			cachedHead = getHead();
 		}
-		return tail - getQueueStartIndex() + getEndIndex() - head+1;
+		return capacity - (int) (tail - cachedHead);
+	}
+
+	/**
+	 * Returns the number of bytes the consumer may read. The cached tail is
+	 * used as long as it indicates at least the wanted number of bytes,
+	 * otherwise the tail is re-read. Since the tail only moves forward, a
+	 * stale tail just underestimates the available bytes.
+	 * 
+	 * @param head
+	 *            the current head.
+	 * @param wanted
+	 *            the number of bytes the consumer wants to read.
+	 * @return the number of available bytes.
+	 */
+	private int getReadable(final long head, final int wanted) {
+		if (cachedTail < 0 || cachedTail - head < wanted) {
+			cachedTail = getTail();
+		}
+		return (int) (cachedTail - head);
 	}
 
 	@Override
@@ -70,8 +318,7 @@ public class ByteBufferQueue extends AbstractQueue<Byte> {
 		if (isEmpty()) {
 			return null;
 		}
-		int head = getHead();
-		byte date = buffer.get(head);
+		byte date = buffer.get(indexOf(getHead()));
 		return date;
 	}
 	
@@ -80,46 +327,259 @@ public class ByteBufferQueue extends AbstractQueue<Byte> {
 	}
 
 	protected byte read() {
-		int head = getHead();
-		byte date = buffer.get(head);
-		setHead(increment(head));
+		long head = getHead();
+		byte date = buffer.get(indexOf(head));
+		setHead(head + 1);
 		return date;
 	}
 
 	protected void write(byte date) {
-		int tail = getTail();
-		buffer.put(tail, date);
-		tail = increment(tail);
-		setTail(tail);
+		long tail = getTail();
+		buffer.put(indexOf(tail), date);
+		setTail(tail + 1);
+	}
+
+	/**
+	 * Transfers as many bytes as possible from the given buffer into the
+	 * queue. The data is copied as (at most two) contiguous regions, and the
+	 * tail is updated once after all data has been copied.
+	 * 
+	 * @param src
+	 *            the buffer to read the data from.
+	 * @return the number of bytes transferred, which is <code>0</code> if the
+	 *         queue is full.
+	 */
+	public int put(final ByteBuffer src) {
+		checkInitialized();
+		long tail = getTail();
+		int count = Math.min(src.remaining(),
+				getWritable(tail, src.remaining()));
+		if (count <= 0) {
+			return 0;
+		}
+		int first = Math.min(count, toWrap(tail));
+		copyIn(src, indexOf(tail), first);
+		if (first < count) {
+			copyIn(src, getQueueStartIndex(), count - first);
+		}
+		setTail(tail + count);
+		return count;
+	}
+
+	/**
+	 * Transfers as many bytes as possible from the queue into the given
+	 * buffer. The data is copied as (at most two) contiguous regions, and the
+	 * head is updated once after all data has been copied.
+	 * 
+	 * @param dst
+	 *            the buffer to write the data to.
+	 * @return the number of bytes transferred, which is <code>0</code> if the
+	 *         queue is empty.
+	 */
+	public int get(final ByteBuffer dst) {
+		checkInitialized();
+		long head = getHead();
+		int count = Math.min(dst.remaining(),
+				getReadable(head, dst.remaining()));
+		if (count <= 0) {
+			return 0;
+		}
+		int first = Math.min(count, toWrap(head));
+		copyOut(dst, indexOf(head), first);
+		if (first < count) {
+			copyOut(dst, getQueueStartIndex(), count - first);
+		}
+		setHead(head + count);
+		return count;
 	}
 
-	protected int increment(int index) {
-		int result = index + 1;
-		if (result > getEndIndex()) {
-			result = result - getEndIndex() + getQueueStartIndex() -1;
+	/**
+	 * Claims a contiguous region of at most the given size at the tail of the
+	 * queue, so the producer can fill it directly without copying. The claimed
+	 * bytes are published by {@link #commit(int)}. The region ends at the end
+	 * of the queue region at the latest, so it may be smaller than requested
+	 * even if there is enough free space; claim again after committing to get
+	 * the remainder at the start of the queue region.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of bytes to claim, must be >= 0.
+	 * @return a buffer backed by the queue region, whose remaining bytes are
+	 *         the claimed ones. It has no remaining bytes if the queue is full.
+	 */
+	public ByteBuffer claim(final int maxSize) {
+		checkInitialized();
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("parameter maxSize must be >= 0: "
+					+ maxSize);
+		}
+		long tail = getTail();
+		int count = Math.min(maxSize, getWritable(tail, maxSize));
+		count = Math.max(0, Math.min(count, toWrap(tail)));
+		claimed = count;
+		return region(indexOf(tail), count);
+	}
+
+	/**
+	 * Publishes the given number of bytes of the last {@link #claim(int)
+	 * claimed} region to the consumer.
+	 * 
+	 * @param count
+	 *            the number of bytes to publish, must not exceed the claimed
+	 *            size.
+	 */
+	public void commit(final int count) {
+		checkInitialized();
+		if (count < 0 || count > claimed) {
+			throw new IllegalArgumentException("parameter count must be in [0,"
+					+ claimed + "]: " + count);
+		}
+		claimed = 0;
+		if (count > 0) {
+			setTail(getTail() + count);
 		}
-		return result;
+	}
+
+	/**
+	 * Acquires a read-only view of a contiguous region of at most the given
+	 * size at the head of the queue, so the consumer can read the data in
+	 * place without copying. The region stays valid until it is given back by
+	 * {@link #release(int)}, after that it may be overwritten by the producer.
+	 * Like {@link #claim(int)}, the region ends at the end of the queue region
+	 * at the latest.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of bytes to acquire, must be >= 0.
+	 * @return a read-only buffer backed by the queue region, whose remaining
+	 *         bytes are the acquired ones. It has no remaining bytes if the
+	 *         queue is empty.
+	 */
+	public ByteBuffer acquire(final int maxSize) {
+		checkInitialized();
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("parameter maxSize must be >= 0: "
+					+ maxSize);
+		}
+		long head = getHead();
+		int count = Math.min(maxSize, getReadable(head, maxSize));
+		count = Math.max(0, Math.min(count, toWrap(head)));
+		acquired = count;
+		return region(indexOf(head), count).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gives the given number of bytes of the last {@link #acquire(int)
+	 * acquired} region back to the producer.
+	 * 
+	 * @param count
+	 *            the number of bytes to release, must not exceed the acquired
+	 *            size.
+	 */
+	public void release(final int count) {
+		checkInitialized();
+		if (count < 0 || count > acquired) {
+			throw new IllegalArgumentException("parameter count must be in [0,"
+					+ acquired + "]: " + count);
+		}
+		acquired = 0;
+		if (count > 0) {
+			setHead(getHead() + count);
+		}
+	}
+
+	/**
+	 * @return the number of bytes between the tail and the end of the queue
+	 *         region. A {@link #claim(int) claim} of more bytes is cut off
+	 *         there. Only meaningful for the producer.
+	 */
+	protected int getTailToWrap() {
+		checkInitialized();
+		return toWrap(getTail());
+	}
+
+	/**
+	 * @return the number of bytes between the head and the end of the queue
+	 *         region. An {@link #acquire(int) acquire} of more bytes is cut
+	 *         off there. Only meaningful for the consumer.
+	 */
+	protected int getHeadToWrap() {
+		checkInitialized();
+		return toWrap(getHead());
+	}
+
+	/**
+	 * @return a buffer sharing the given region of the underlying buffer.
+	 */
+	private ByteBuffer region(final int index, final int count) {
+		ByteBuffer region = buffer.duplicate();
+		region.limit(index + count);
+		region.position(index);
+		return region.slice().order(buffer.order());
+	}
+
+	private void copyIn(final ByteBuffer src, final int index, final int count) {
+		ByteBuffer region = buffer.duplicate();
+		region.position(index);
+		int limit = src.limit();
+		src.limit(src.position() + count);
+		region.put(src);
+		src.limit(limit);
+	}
+
+	private void copyOut(final ByteBuffer dst, final int index, final int count) {
+		ByteBuffer region = buffer.duplicate();
+		region.limit(index + count);
+		region.position(index);
+		dst.put(region);
 	}
 
 	public boolean isEmpty() {
 		checkInitialized();
 		return size() == 0;
-//		int tail = getTail();
-//		int head = getHead();
+//		long tail = getTail();
+//		long head = getHead();
 //		return head == tail;
 	}
 
 	public boolean isFull() {
 		checkInitialized();
 		return size() == getCapacity();
-//		int tail = getTail();
-//		int head = getHead();
-//		return increment(tail) == head;
 	}
 
+	/**
+	 * Calculates the length of a region providing exactly the given capacity,
+	 * so no space behind the header is wasted. The start index of the region
+	 * has to be a multiple of the {@link #CACHE_LINE_SIZE cache line size},
+	 * resp. of the {@link #POINTER_SIZE pointer size} for the compact layout.
+	 * 
+	 * @param capacity
+	 *            the capacity, which has to be a power of two, at least the
+	 *            pointer size.
+	 * @return the length of the region.
+	 */
+	public static int getLength(final int capacity) {
+		if (capacity < POINTER_SIZE || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException(
+					"capacity must be a power of two >= " + POINTER_SIZE
+							+ ": " + capacity);
+		}
+		if (QUEUE_OFFSET + capacity < MIN_PADDED_LENGTH) {
+			return QUEUE_OFFSET + capacity;
+		}
+		int header = 3 * CACHE_LINE_SIZE;
+		if (capacity > Integer.MAX_VALUE - header) {
+			throw new IllegalArgumentException("capacity too large: "
+					+ capacity);
+		}
+		return header + capacity;
+	}
+
+	/**
+	 * @return the capacity, which is the largest power of two that fits into
+	 *         the region behind the header.
+	 */
 	public int getCapacity() {
 		checkInitialized();
-		return length-QUEUE_OFFSET-1;
+		return capacity;
 	}
 
 	public int getStartIndex() {
@@ -131,40 +591,114 @@ public class ByteBufferQueue extends AbstractQueue<Byte> {
 	}
 
 	protected int getQueueStartIndex() {
-		return getStartIndex() + QUEUE_OFFSET;
+		return queueStartIndex;
 	}
 
-	protected synchronized int getHead() {
-		return buffer.getInt(getStartIndex() + HEAD_OFFSET);
+	/**
+	 * Reads the head sequence with acquire semantics.
+	 */
+	protected long getHead() {
+		return BufferUtil.getLongVolatile(buffer, headIndex);
 	}
 
-	protected synchronized void setHead(final int newHead) {
-		buffer.putInt(getStartIndex() + HEAD_OFFSET, newHead);
+	/**
+	 * Writes the head sequence with release semantics, so the producer will
+	 * not see the new head before the consumer has finished reading the data.
+	 */
+	protected void setHead(final long newHead) {
+		BufferUtil.putLongOrdered(buffer, headIndex, newHead);
 	}
 
-	protected synchronized int getTail() {
-		return buffer.getInt(getStartIndex() + TAIL_OFFSET);
+	/**
+	 * Reads the tail sequence with acquire semantics.
+	 */
+	protected long getTail() {
+		return BufferUtil.getLongVolatile(buffer, tailIndex);
 	}
 
-	protected synchronized void setTail(final int newTail) {
-		buffer.putInt(getStartIndex() + TAIL_OFFSET, newTail);
+	/**
+	 * Writes the tail sequence with release semantics, so the consumer will
+	 * not see the new tail before the producer has finished writing the data.
+	 */
+	protected void setTail(final long newTail) {
+		BufferUtil.putLongOrdered(buffer, tailIndex, newTail);
+	}
+
+	/**
+	 * Enters an operation on the queue, which has to be finished by
+	 * {@link #leave()}. Entering is reentrant, and cheap as long as the queue
+	 * is not detached.
+	 * 
+	 * @return <code>false</code> if the queue has been {@link #detach(long)
+	 *         detached}, the buffer must not be accessed then.
+	 */
+	public boolean enter() {
+		users.incrementAndGet();
+		if (detached) {
+			users.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Leaves an operation {@link #enter() entered} before.
+	 */
+	public void leave() {
+		users.decrementAndGet();
+	}
+
+	/**
+	 * Detaches the queue from its buffer, so no operation can be
+	 * {@link #enter() entered} anymore, and waits for the operations in
+	 * progress to {@link #leave() leave}.
+	 * 
+	 * @param timeout
+	 *            the maximum time to wait in ms.
+	 * @return <code>true</code> if no operation is in progress anymore, so the
+	 *         buffer may be released.
+	 */
+	public boolean detach(final long timeout) {
+		detached = true;
+		long deadline = System.currentTimeMillis() + timeout;
+		while (users.get() > 0) {
+			if (System.currentTimeMillis() >= deadline) {
+				return false;
+			}
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return users.get() == 0;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the queue has been {@link #detach(long)
+	 *         detached}.
+	 */
+	public boolean isDetached() {
+		return detached;
 	}
 
 	public void close() throws IOException {
 		checkInitialized();
-		buffer.put(getStartIndex() + CLOSED_OFFSET, TRUE);
+		BufferUtil.putByteVolatile(buffer, getStartIndex() + CLOSED_OFFSET, TRUE);
 	}
 
 	public boolean isClosed() {
 		checkInitialized();
 		return buffer == null
-				|| buffer.get(getStartIndex() + CLOSED_OFFSET) == TRUE;
+				|| BufferUtil.getByteVolatile(buffer, getStartIndex()
+						+ CLOSED_OFFSET) == TRUE;
 	}
 
 	@Override
 	public boolean offer(Byte e) {
 		checkInitialized();
-		if (isFull()) {
+		if (getWritable(getTail(), 1) == 0) {
 			return false;
 		}
 		write(e);
@@ -174,7 +708,7 @@ public class ByteBufferQueue extends AbstractQueue<Byte> {
 	@Override
 	public Byte poll() {
 		checkInitialized();
-		if (isEmpty()) {
+		if (getReadable(getHead(), 1) == 0) {
 			return null;
 		}
 		return read();
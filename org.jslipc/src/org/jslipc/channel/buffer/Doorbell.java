@@ -0,0 +1,37 @@
+package org.jslipc.channel.buffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A wake channel between the producer and the consumer of a
+ * {@link ByteBufferQueue} that may live in different processes. A consumer
+ * finding the queue empty {@link ByteBufferQueue#setWaiting(boolean)
+ * registers} as waiter, re-checks the queue and {@link #await(long) blocks} on
+ * the doorbell. The producer {@link #ring() rings} after publishing data, but
+ * only if a waiter is registered, so the doorbell costs nothing as long as
+ * the consumer keeps up.<br/>
+ * <br/>
+ * A doorbell may wake up spuriously, so the consumer always has to re-check
+ * the queue after waking up.
+ */
+public interface Doorbell extends Closeable {
+
+	/**
+	 * Wakes up the consumer blocked in {@link #await(long)}, or lets its next
+	 * call return immediately.
+	 * 
+	 * @throws IOException
+	 */
+	void ring() throws IOException;
+
+	/**
+	 * Blocks until the doorbell has been rung, or the given time has elapsed.
+	 * 
+	 * @param maxWait
+	 *            the maximum time to block in ms, must be > 0.
+	 * @throws IOException
+	 */
+	void await(long maxWait) throws IOException;
+
+}
@@ -0,0 +1,141 @@
+package org.jslipc.channel.buffer;
+
+import java.io.IOException;
+
+import org.jslipc.util.StringUtil;
+import org.jslipc.util.TimeUtil;
+import org.jslipc.wait.SpinYieldWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+
+/**
+ * Waits for data in a {@link ByteBufferQueue} by blocking on a
+ * {@link Doorbell}: after spinning for a few rounds, the consumer registers as
+ * waiter in the queue, re-checks the queue, and blocks until the producer
+ * rings. The consumer so sleeps at zero CPU, but wakes up right after a write.<br/>
+ * <br/>
+ * A single block is limited to the given maximum time, so the consumer
+ * notices timeouts, interrupts, and producers that do not ring (e.g. since
+ * they have no doorbell configured) at the latest after that time. If the
+ * queue layout provides no waiter flag, the strategy degrades to sleeping the
+ * maximum block time.
+ */
+public class DoorbellWaitStrategy implements WaitStrategy {
+
+	public static final int DEFAULT_SPINS = 100;
+
+	private final ByteBufferQueue queue;
+	private final Doorbell doorbell;
+	private final SpinYieldWaitStrategy spinning;
+	private final int spins;
+	private final long maxBlockTime;
+
+	/**
+	 * Creates a strategy spinning {@link #DEFAULT_SPINS} rounds and blocking
+	 * at most {@link TimeUtil#DEFAULT_SLEEP_TIME} ms at once.
+	 * 
+	 * @param queue
+	 *            the queue to wait for.
+	 * @param doorbell
+	 *            the doorbell rung by the producer of the queue.
+	 */
+	public DoorbellWaitStrategy(final ByteBufferQueue queue,
+			final Doorbell doorbell) {
+		this(queue, doorbell, DEFAULT_SPINS, TimeUtil.DEFAULT_SLEEP_TIME);
+	}
+
+	/**
+	 * Creates a strategy with the given parameters.
+	 * 
+	 * @param queue
+	 *            the queue to wait for.
+	 * @param doorbell
+	 *            the doorbell rung by the producer of the queue.
+	 * @param spins
+	 *            the number of rounds to spin before blocking, must be >= 0.
+	 * @param maxBlockTime
+	 *            the maximum time to block at once in ms, must be > 0.
+	 */
+	public DoorbellWaitStrategy(final ByteBufferQueue queue,
+			final Doorbell doorbell, final int spins, final long maxBlockTime) {
+		if (queue == null) {
+			throw new IllegalArgumentException(
+					"parameter queue must not be null");
+		}
+		if (doorbell == null) {
+			throw new IllegalArgumentException(
+					"parameter doorbell must not be null");
+		}
+		if (maxBlockTime <= 0) {
+			throw new IllegalArgumentException(
+					"parameter maxBlockTime must be > 0: " + maxBlockTime);
+		}
+		this.queue = queue;
+		this.doorbell = doorbell;
+		this.spinning = new SpinYieldWaitStrategy(spins);
+		this.spins = spins;
+		this.maxBlockTime = maxBlockTime;
+	}
+
+	@Override
+	public void idle(final int round, final int timeout,
+			final long waitingSince) throws InterruptedException {
+		if (round < spins) {
+			spinning.idle(round, timeout, waitingSince);
+			return;
+		}
+		TimeUtil.checkForTimeout(timeout, waitingSince);
+		long toBlock = TimeUtil.getTimeToSleep(maxBlockTime, timeout,
+				waitingSince);
+		if (toBlock > 0) {
+			block(toBlock);
+		}
+		if (Thread.interrupted()) {
+			throw new InterruptedException("interrupted");
+		}
+		TimeUtil.checkForTimeout(timeout, waitingSince);
+	}
+
+	private void block(final long toBlock) throws InterruptedException {
+		if (!queue.enter()) {
+			return; // the buffer has been released
+		}
+		boolean waiter = false;
+		boolean await = true;
+		try {
+			waiter = queue.isWaiterSupported();
+			if (waiter) {
+				queue.setWaiting(true);
+				// re-check after registration, the producer may have
+				// published data before it could see us waiting
+				await = queue.isEmpty() && !queue.isClosed();
+			}
+		} finally {
+			queue.leave();
+		}
+		try {
+			// the queue is not entered while blocking, so closing the pipe
+			// does not have to wait for the doorbell
+			if (await) {
+				doorbell.await(toBlock);
+			}
+		} catch (IOException e) {
+			// the doorbell is broken, fall back to sleeping
+			Thread.sleep(toBlock);
+		} finally {
+			if (waiter && queue.enter()) {
+				try {
+					queue.setWaiting(false);
+				} finally {
+					queue.leave();
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("spins", spins)
+				.add("maxBlockTime", maxBlockTime).toString();
+	}
+
+}
@@ -21,19 +21,89 @@ public class ReadableBbqChannel extends AbstractBbqChannel implements
 
 	@Override
 	public int read(ByteBuffer dst) throws IOException {
-		checkClosed();
-		waitForInitialization();
-		int count = 0;
-		while (dst.hasRemaining() && queue.peek() != null) {
+		enter();
+		try {
+			waitForInitialization();
+			int count = queue.get(dst);
+			if (count == 0 && queue.isClosed()) {
+				// the peer may have written data right before closing the queue
+				count = queue.get(dst);
+				if (count == 0) {
+					return metrics.read(-1); // end of stream
+				}
+			}
+			return metrics.read(count);
+		} finally {
+			leave(false);
+		}
+	}
+
+	/**
+	 * Acquires a read-only view of at most the given number of bytes in the
+	 * queue, which can be read in place and has to be given back by
+	 * {@link #release(int)}. This avoids copying the data into an intermediate
+	 * buffer, see {@link ByteBufferQueue#acquire(int)}. The read is recorded
+	 * in the metrics on release, with the number of bytes actually consumed.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of bytes to acquire.
+	 * @return the acquired region, which has no remaining bytes if the queue
+	 *         is empty, or <code>null</code> if the end of stream has been
+	 *         reached.
+	 * @throws IOException
+	 */
+	public ByteBuffer acquire(int maxSize) throws IOException {
+		enterHolding();
+		ByteBuffer region = null;
+		try {
 			checkClosed();
-			Byte date = queue.poll();
-			dst.put(date);
-			++count;
+			waitForInitialization();
+			region = queue.acquire(maxSize);
+			if (!region.hasRemaining() && maxSize > 0 && queue.isClosed()) {
+				// the peer may have written data right before closing the queue
+				region = queue.acquire(maxSize);
+				if (!region.hasRemaining()) {
+					metrics.read(-1);
+					region = null;
+					return null; // end of stream
+				}
+			}
+			if (!region.hasRemaining()) {
+				metrics.read(0);
+			}
+			return region;
+		} finally {
+			leave(region != null && region.hasRemaining());
 		}
-		if (count == 0 && queue.isClosed()) {
-			return -1; // end of stream
+	}
+
+	/**
+	 * Releases the given number of bytes of the last acquired region, which
+	 * must not be accessed afterwards.
+	 * 
+	 * @param count
+	 * @throws IOException
+	 */
+	public void release(int count) throws IOException {
+		release(count, true);
+	}
+
+	/**
+	 * Releases the given number of bytes like {@link #release(int)}, but
+	 * records them in the metrics only if requested, so framing like padding
+	 * is not counted as read.
+	 */
+	void release(final int count, final boolean record) throws IOException {
+		enterHolding();
+		try {
+			checkClosed();
+			queue.release(count);
+			if (record && count > 0) {
+				metrics.read(count);
+			}
+		} finally {
+			leave(false);
 		}
-		return count;
 	}
 
 	public InputStream newInputStream() {
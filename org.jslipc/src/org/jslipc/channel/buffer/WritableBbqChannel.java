@@ -6,29 +6,125 @@ import java.nio.ByteBuffer;
 
 import org.jslipc.channel.JslipcChannelOutputStream;
 import org.jslipc.channel.WritableJslipcByteChannel;
+import org.jslipc.util.BufferUtil;
 
 /**
  * A {@link WritableBbqChannel} implementation that writes the data to an underlying
- * {@link ByteBufferQueue}.
+ * {@link ByteBufferQueue}. If a {@link Doorbell} is set, the channel rings it
+ * after writing or closing whenever the consumer is registered as waiter.
  */
 public class WritableBbqChannel extends AbstractBbqChannel implements
 		WritableJslipcByteChannel {
 
+	private volatile Doorbell doorbell;
+
 	public WritableBbqChannel(final ByteBufferQueue queue) {
 		super(queue);
 	}
 
 	@Override
 	public int write(ByteBuffer src) throws IOException {
-		checkClosed();
-		waitForInitialization();
-		int count = 0;
-		while (!queue.isFull() && src.hasRemaining()) {
+		enter();
+		try {
+			waitForInitialization();
+			int count = queue.put(src);
+			if (count > 0) {
+				ringIfWaiting();
+			}
+			return metrics.written(count);
+		} finally {
+			leave(false);
+		}
+	}
+
+	/**
+	 * Claims a region of at most the given size in the queue, which can be
+	 * filled directly and published by {@link #commit(int)}. This avoids
+	 * copying the data from an intermediate buffer, see
+	 * {@link ByteBufferQueue#claim(int)}.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of bytes to claim.
+	 * @return the claimed region, which has no remaining bytes if the queue is
+	 *         full.
+	 * @throws IOException
+	 */
+	public ByteBuffer claim(int maxSize) throws IOException {
+		enterHolding();
+		ByteBuffer region = null;
+		try {
 			checkClosed();
-			queue.offer(src.get());
-			++count;
+			waitForInitialization();
+			region = queue.claim(maxSize);
+			if (!region.hasRemaining()) {
+				// a successful claim is recorded on commit
+				metrics.written(0);
+			}
+			return region;
+		} finally {
+			leave(region != null && region.hasRemaining());
+		}
+	}
+
+	/**
+	 * Publishes the given number of bytes of the last claimed region.
+	 * 
+	 * @param count
+	 * @throws IOException
+	 */
+	public void commit(int count) throws IOException {
+		enterHolding();
+		try {
+			checkClosed();
+			queue.commit(count);
+			if (count > 0) {
+				metrics.written(count);
+				ringIfWaiting();
+			}
+		} finally {
+			leave(false);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		if (!queue.enter()) {
+			return; // the buffer has been released already
+		}
+		try {
+			if (queue.isInitialized()) {
+				ringIfWaiting();
+			}
+		} finally {
+			queue.leave();
+		}
+	}
+
+	public Doorbell getDoorbell() {
+		return doorbell;
+	}
+
+	/**
+	 * Sets the doorbell to ring if the consumer is waiting for data, may be
+	 * <code>null</code>.
+	 * 
+	 * @param doorbell
+	 */
+	public void setDoorbell(Doorbell doorbell) {
+		this.doorbell = doorbell;
+	}
+
+	private void ringIfWaiting() throws IOException {
+		Doorbell doorbell = this.doorbell;
+		if (doorbell == null || !queue.isWaiterSupported()) {
+			return;
+		}
+		// the published tail must be visible before we check for a waiter
+		BufferUtil.fullFence();
+		if (queue.isWaiting()) {
+			doorbell.ring();
 		}
-		return count;
 	}
 
 	public OutputStream newOutputStream() {
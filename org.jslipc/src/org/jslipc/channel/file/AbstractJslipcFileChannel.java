@@ -1,19 +1,28 @@
 package org.jslipc.channel.file;
 
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 
 import org.jslipc.JslipcBinman;
+import org.jslipc.channel.ChannelMetrics;
 import org.jslipc.channel.JslipcChannel;
+import org.jslipc.channel.MetricsAware;
 import org.jslipc.util.FileUtil;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
 
 /**
- * Common base class for file based {@link JslipcChannel}s.
+ * Common base class for file based {@link JslipcChannel}s. The channels
+ * themselves do not block, but carry the {@link WaitStrategy} that is
+ * inherited by the streams created on them, and record their
+ * {@link ChannelMetrics}.
  */
-public abstract class AbstractJslipcFileChannel implements JslipcChannel, JslipcBinman  {
+public abstract class AbstractJslipcFileChannel implements JslipcChannel, JslipcBinman, WaitStrategyAware, MetricsAware  {
 
 	protected FileChannel fileChannel;
 	private RandomAccessFile randomAccessFile;
@@ -21,9 +30,13 @@ public abstract class AbstractJslipcFileChannel implements JslipcChannel, Jslipc
 	private boolean closed;
 	private boolean deleteFilesOnClose;
 	private File file;
+	private final String mode;
+	private volatile WaitStrategy waitStrategy = SleepWaitStrategy.DEFAULT;
+	private final ChannelMetrics metrics = new ChannelMetrics();
 
 	public AbstractJslipcFileChannel(File file, String mode) throws IOException {
 		this.file = file;
+		this.mode = mode;
 		this.randomAccessFile = new RandomAccessFile(file, mode);
 		this.closeMarker = new File(file.getAbsolutePath() + ".closed");
 		fileChannel = this.randomAccessFile.getChannel();
@@ -34,10 +47,50 @@ public abstract class AbstractJslipcFileChannel implements JslipcChannel, Jslipc
 		deleteFilesOnClose = true;
 	}
 
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
+	@Override
+	public ChannelMetrics getMetrics() {
+		return metrics;
+	}
+
 	protected FileChannel getFileChannel() {
 		return fileChannel;
 	}
 
+	/**
+	 * @return the file this channel has been created with.
+	 */
+	protected File getFile() {
+		return file;
+	}
+
+	/**
+	 * Closes the current file channel and opens the given file instead, using
+	 * the same mode.
+	 * 
+	 * @param next
+	 * @throws IOException
+	 */
+	protected void switchFile(final File next) throws IOException {
+		fileChannel.close();
+		randomAccessFile.close();
+		randomAccessFile = new RandomAccessFile(next, mode);
+		fileChannel = randomAccessFile.getChannel();
+	}
+
 	@Override
 	public JslipcChannelState getState() {
 
@@ -68,8 +121,53 @@ public abstract class AbstractJslipcFileChannel implements JslipcChannel, Jslipc
 		boolean closedByPeer = !getCloseMarker().createNewFile();
 		if (closedByPeer) {
 			if (deleteFilesOnClose) {
-				FileUtil.delete(file);
-				FileUtil.delete(getCloseMarker());
+				deleteFiles();
+			}
+		}
+	}
+
+	/**
+	 * Called on {@link #close()} in order to delete the files if
+	 * {@link #cleanUpOnClose()} has been called and the peer has already
+	 * closed its end.
+	 */
+	protected void deleteFiles() {
+		FileUtil.delete(file);
+		FileUtil.delete(getCloseMarker());
+	}
+
+	/**
+	 * Returns the segment file with the given index, see
+	 * {@link WritableSegmentedFileChannel}.
+	 * 
+	 * @param file
+	 * @param index
+	 * @return <code>&lt;file&gt;.&lt;index&gt;</code>
+	 */
+	protected static File getSegmentFile(final File file, final long index) {
+		return new File(file.getAbsolutePath() + "." + index);
+	}
+
+	/**
+	 * Deletes all segment files that belong to the given file.
+	 * 
+	 * @param file
+	 */
+	protected static void deleteSegmentFiles(final File file) {
+		final String prefix = file.getName() + ".";
+		File[] segments = file.getAbsoluteFile().getParentFile()
+				.listFiles(new FilenameFilter() {
+
+					@Override
+					public boolean accept(File dir, String name) {
+						return name.startsWith(prefix)
+								&& name.substring(prefix.length()).matches(
+										"\\d+");
+					}
+				});
+		if (segments != null) {
+			for (File segment : segments) {
+				FileUtil.delete(segment);
 			}
 		}
 	}
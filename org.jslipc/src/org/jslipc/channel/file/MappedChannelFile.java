@@ -0,0 +1,244 @@
+package org.jslipc.channel.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jslipc.util.BufferUtil;
+import org.jslipc.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memory maps the file of a {@link ReadableMappedFileChannel} resp.
+ * {@link WritableMappedFileChannel}. The file starts with a header of
+ * {@link #HEADER_SIZE} bytes:
+ * <table border="1">
+ * <tr>
+ * <th>offset</th>
+ * <th>type</th>
+ * <th>content</th>
+ * </tr>
+ * <tr>
+ * <td>0</td>
+ * <td>long</td>
+ * <td>the committed length, means the number of data bytes the reader may
+ * consume</td>
+ * </tr>
+ * <tr>
+ * <td>8</td>
+ * <td>int</td>
+ * <td>writer closed flag</td>
+ * </tr>
+ * <tr>
+ * <td>12</td>
+ * <td>int</td>
+ * <td>reader closed flag</td>
+ * </tr>
+ * </table>
+ * The data following the header is mapped in windows of a fixed size, which
+ * are mapped on demand as the data grows. If segmented, each window is a
+ * segment file of its own instead, see
+ * {@link AbstractJslipcFileChannel#getSegmentFile(File, long)}, and the reader
+ * deletes each segment as soon as it moves on to the next one.<br/>
+ * <br/>
+ * The channels {@link #enter() enter} each access to the mapped buffers, so
+ * {@link #release()} unmaps them only once no other thread uses them
+ * anymore.
+ */
+class MappedChannelFile {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(MappedChannelFile.class);
+
+	/**
+	 * The size of the header, it occupies a complete cache line.
+	 */
+	static final int HEADER_SIZE = 64;
+	static final int COMMITTED_OFFSET = 0;
+	static final int WRITER_CLOSED_OFFSET = 8;
+	static final int READER_CLOSED_OFFSET = 12;
+	/** the time to wait for accesses in progress on release, in ms */
+	static final long RELEASE_TIMEOUT = 1000;
+
+	private final FileChannel fileChannel;
+	private final File file;
+	private final MapMode mode;
+	private final int windowSize;
+	private final boolean segmented;
+	private MappedByteBuffer header;
+	private MappedByteBuffer window;
+	private long windowStart;
+	/** the number of accesses in progress, see {@link #enter()} */
+	private final AtomicInteger users = new AtomicInteger();
+	private volatile boolean released;
+
+	/**
+	 * Maps the header of the given file.
+	 * 
+	 * @param fileChannel
+	 *            the channel to map, it must be opened for writing.
+	 * @param file
+	 *            the file of the channel.
+	 * @param mode
+	 *            the mode to map the data windows with.
+	 * @param windowSize
+	 *            the size of the data windows.
+	 * @param segmented
+	 *            whether each window is a segment file of its own.
+	 * @throws IOException
+	 */
+	MappedChannelFile(final FileChannel fileChannel, final File file,
+			final MapMode mode, final int windowSize, final boolean segmented)
+			throws IOException {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("window size must be > 0: "
+					+ windowSize);
+		}
+		this.fileChannel = fileChannel;
+		this.file = file;
+		this.mode = mode;
+		this.windowSize = windowSize;
+		this.segmented = segmented;
+		this.header = fileChannel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+	}
+
+	int getWindowSize() {
+		return windowSize;
+	}
+
+	boolean isSegmented() {
+		return segmented;
+	}
+
+	long getCommitted() {
+		return BufferUtil.getLongVolatile(header, COMMITTED_OFFSET);
+	}
+
+	void setCommitted(final long committed) {
+		BufferUtil.putLongOrdered(header, COMMITTED_OFFSET, committed);
+	}
+
+	boolean isClosed(final int flagOffset) {
+		return BufferUtil.getIntVolatile(header, flagOffset) != 0;
+	}
+
+	void setClosed(final int flagOffset) {
+		BufferUtil.putIntOrdered(header, flagOffset, 1);
+	}
+
+	/**
+	 * Returns the window containing the data at the given position. The
+	 * window is positioned at the given position, and its limit is the end of
+	 * the window.
+	 * 
+	 * @param position
+	 *            the position relative to the start of the data.
+	 * @return the window
+	 * @throws IOException
+	 */
+	ByteBuffer window(final long position) throws IOException {
+		long start = position - position % windowSize;
+		if (window == null || start != windowStart) {
+			if (segmented) {
+				switchSegment(start);
+			} else {
+				MappedByteBuffer previous = window;
+				window = fileChannel.map(mode, HEADER_SIZE + start, windowSize);
+				// windows are not handed out beyond a read resp. write, so
+				// the previous one can be unmapped right away
+				BufferUtil.releaseBufferSilently(previous);
+			}
+			windowStart = start;
+		}
+		window.limit(windowSize);
+		window.position((int) (position - start));
+		return window;
+	}
+
+	private void switchSegment(final long start) throws IOException {
+		MappedByteBuffer previous = window;
+		long previousStart = windowStart;
+
+		File segment = AbstractJslipcFileChannel.getSegmentFile(file, start
+				/ windowSize);
+		RandomAccessFile segmentFile = new RandomAccessFile(segment,
+				mode == MapMode.READ_ONLY ? "r" : "rw");
+		try {
+			window = segmentFile.getChannel().map(mode, 0, windowSize);
+		} finally {
+			segmentFile.close();
+		}
+
+		if (previous != null) {
+			// the segment must be unmapped before it can be deleted
+			BufferUtil.releaseBufferSilently(previous);
+			if (mode == MapMode.READ_ONLY) {
+				FileUtil.delete(AbstractJslipcFileChannel.getSegmentFile(file,
+						previousStart / windowSize));
+			}
+		}
+	}
+
+	/**
+	 * Enters an access to the mapped buffers, which has to be finished by
+	 * {@link #leave()}.
+	 * 
+	 * @return <code>false</code> if the file has been {@link #release()
+	 *         released}, the buffers must not be accessed then.
+	 */
+	boolean enter() {
+		users.incrementAndGet();
+		if (released) {
+			users.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Leaves an access {@link #enter() entered} before.
+	 */
+	void leave() {
+		users.decrementAndGet();
+	}
+
+	/**
+	 * Unmaps the header and the current window, after the accesses in
+	 * progress have left. If they do not finish within
+	 * {@link #RELEASE_TIMEOUT}, the buffers are left to the garbage collector,
+	 * since unmapping them would crash the VM.
+	 */
+	synchronized void release() {
+		if (released) {
+			return;
+		}
+		released = true;
+		long deadline = System.currentTimeMillis() + RELEASE_TIMEOUT;
+		boolean interrupted = false;
+		while (users.get() > 0 && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (users.get() == 0) {
+			BufferUtil.releaseBufferSilently(window);
+			BufferUtil.releaseBufferSilently(header);
+		} else {
+			LOGGER.warn("{} still in use, not unmapping it", file);
+		}
+		window = null;
+		header = null;
+	}
+
+}
@@ -23,15 +23,46 @@ public class ReadableJslipcFileChannel extends AbstractJslipcFileChannel impleme
 	 * @throws IOException
 	 */
 	public ReadableJslipcFileChannel(File file) throws IOException {
-		super(file, "r");
+		this(file, "r");
+	}
+
+	/**
+	 * Creates ReadableJslipcFileChannel based on the given file using the
+	 * given access mode, see {@link java.io.RandomAccessFile}.
+	 * 
+	 * @param file
+	 * @param mode
+	 * @throws IOException
+	 */
+	protected ReadableJslipcFileChannel(File file, String mode)
+			throws IOException {
+		super(file, mode);
 	}
 
 	@Override
 	public int read(ByteBuffer dst) throws IOException {
+		return getMetrics().read(doRead(dst));
+	}
+
+	/**
+	 * Does the actual read, which is recorded in the {@link #getMetrics()
+	 * metrics} by {@link #read(ByteBuffer)}. Subclasses override this method
+	 * instead of <code>read()</code>.
+	 * 
+	 * @param dst
+	 * @return the number of bytes read, <code>0</code> if no data is
+	 *         available, or <code>-1</code> on end of stream.
+	 * @throws IOException
+	 */
+	protected int doRead(ByteBuffer dst) throws IOException {
 		checkClosed();
 		int count = getFileChannel().read(dst);
-		if (count == -1 && getState() != JslipcChannelState.ClosedByPeer) {
-			return 0;
+		if (count == -1) {
+			if (getState() != JslipcChannelState.ClosedByPeer) {
+				return 0;
+			}
+			// the writer may have written right before closing
+			count = getFileChannel().read(dst);
 		}
 		return count;
 	}
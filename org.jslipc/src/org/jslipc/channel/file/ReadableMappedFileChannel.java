@@ -0,0 +1,144 @@
+package org.jslipc.channel.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A {@link ReadableJslipcFileChannel} that memory maps the file written by a
+ * {@link WritableMappedFileChannel}. Instead of issuing a read on the file,
+ * it checks the committed length in the header of the file for new data,
+ * which is then copied from the mapped window. See {@link MappedChannelFile}
+ * for the file layout.
+ */
+public class ReadableMappedFileChannel extends ReadableJslipcFileChannel {
+
+	private final MappedChannelFile mappedFile;
+	private long position;
+
+	/**
+	 * Creates ReadableMappedFileChannel based on the given file using the
+	 * {@link WritableMappedFileChannel#DEFAULT_WINDOW_SIZE default window
+	 * size}.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public ReadableMappedFileChannel(File file) throws IOException {
+		this(file, WritableMappedFileChannel.DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Creates ReadableMappedFileChannel based on the given file.
+	 * 
+	 * @param file
+	 * @param windowSize
+	 *            the size of the mapped windows, must be the same as the one
+	 *            of the writer.
+	 * @throws IOException
+	 */
+	public ReadableMappedFileChannel(File file, int windowSize)
+			throws IOException {
+		this(file, windowSize, false);
+	}
+
+	/**
+	 * Creates ReadableMappedFileChannel based on the given file.
+	 * 
+	 * @param file
+	 * @param windowSize
+	 *            the size of the mapped windows, must be the same as the one
+	 *            of the writer.
+	 * @param segmented
+	 *            if <code>true</code>, each window is a segment file of its
+	 *            own, which is deleted by the reader as soon as it has been
+	 *            consumed.
+	 * @throws IOException
+	 */
+	public ReadableMappedFileChannel(File file, int windowSize,
+			boolean segmented) throws IOException {
+		// the header is mapped read-write in order to set the closed flag
+		super(file, "rw");
+		mappedFile = new MappedChannelFile(getFileChannel(), file,
+				MapMode.READ_ONLY, windowSize, segmented);
+	}
+
+	@Override
+	protected int doRead(ByteBuffer dst) throws IOException {
+		checkClosed();
+		if (!mappedFile.enter()) {
+			throw new ClosedChannelException();
+		}
+		try {
+			long committed = mappedFile.getCommitted();
+			if (committed <= position) {
+				if (!mappedFile
+						.isClosed(MappedChannelFile.WRITER_CLOSED_OFFSET)) {
+					return 0;
+				}
+				// the writer may have committed right before closing
+				committed = mappedFile.getCommitted();
+				if (committed <= position) {
+					return -1;
+				}
+			}
+
+			int count = 0;
+			while (dst.hasRemaining() && position < committed) {
+				ByteBuffer window = mappedFile.window(position);
+				int chunk = (int) Math.min(
+						Math.min(dst.remaining(), window.remaining()),
+						committed - position);
+				window.limit(window.position() + chunk);
+				dst.put(window);
+				position += chunk;
+				count += chunk;
+			}
+			return count;
+		} finally {
+			mappedFile.leave();
+		}
+	}
+
+	@Override
+	public JslipcChannelState getState() {
+		if (!isOpen() || !mappedFile.enter()) {
+			return JslipcChannelState.Closed;
+		}
+		try {
+			if (mappedFile.isClosed(MappedChannelFile.WRITER_CLOSED_OFFSET)) {
+				return JslipcChannelState.ClosedByPeer;
+			}
+			return JslipcChannelState.Open;
+		} finally {
+			mappedFile.leave();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!isOpen()) {
+			return;
+		}
+		if (mappedFile.enter()) {
+			try {
+				mappedFile.setClosed(MappedChannelFile.READER_CLOSED_OFFSET);
+			} finally {
+				mappedFile.leave();
+			}
+		}
+		mappedFile.release();
+		super.close();
+	}
+
+	@Override
+	protected void deleteFiles() {
+		super.deleteFiles();
+		if (mappedFile.isSegmented()) {
+			deleteSegmentFiles(getFile());
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+package org.jslipc.channel.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jslipc.util.FileUtil;
+
+/**
+ * A {@link ReadableJslipcFileChannel} that reads the segment files written by
+ * a {@link WritableSegmentedFileChannel}. Each segment is deleted as soon as
+ * it has been consumed completely. The segments are opened read-only, so the
+ * reader cannot corrupt the writer's data. A segment the writer has not
+ * created yet is opened as soon as it exists.
+ */
+public class ReadableSegmentedFileChannel extends ReadableJslipcFileChannel {
+
+	private final int segmentSize;
+	private long segment;
+	private int segmentPosition;
+	/** whether the file of the current segment has been opened */
+	private boolean opened;
+
+	/**
+	 * Creates ReadableSegmentedFileChannel based on the given file using the
+	 * {@link WritableSegmentedFileChannel#DEFAULT_SEGMENT_SIZE default segment
+	 * size}.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public ReadableSegmentedFileChannel(File file) throws IOException {
+		this(file, WritableSegmentedFileChannel.DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates ReadableSegmentedFileChannel based on the given file.
+	 * 
+	 * @param file
+	 * @param segmentSize
+	 *            the size of the segments, must be the same as the one of the
+	 *            writer.
+	 * @throws IOException
+	 */
+	public ReadableSegmentedFileChannel(File file, int segmentSize)
+			throws IOException {
+		super(file);
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("segment size must be > 0: "
+					+ segmentSize);
+		}
+		this.segmentSize = segmentSize;
+		File first = getSegmentFile(file, segment);
+		if (first.exists()) {
+			switchFile(first);
+			opened = true;
+		}
+	}
+
+	/**
+	 * @return the size of the segments.
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	@Override
+	protected int doRead(ByteBuffer dst) throws IOException {
+		checkClosed();
+		if (!opened || segmentPosition == segmentSize) {
+			// check the state first, so a segment created right before the
+			// writer closed is not missed
+			boolean closedByPeer = getState() == JslipcChannelState.ClosedByPeer;
+			long next = opened ? segment + 1 : segment;
+			File nextFile = getSegmentFile(getFile(), next);
+			if (!nextFile.exists()) {
+				return closedByPeer ? -1 : 0;
+			}
+			File consumed = opened ? getSegmentFile(getFile(), segment) : null;
+			switchFile(nextFile);
+			segment = next;
+			segmentPosition = 0;
+			opened = true;
+			if (consumed != null) {
+				FileUtil.delete(consumed);
+			}
+		}
+
+		int count = readSegment(dst);
+		if (count == -1) {
+			if (getState() != JslipcChannelState.ClosedByPeer) {
+				return 0;
+			}
+			// the writer may have written right before closing
+			count = readSegment(dst);
+		}
+		return count;
+	}
+
+	private int readSegment(final ByteBuffer dst) throws IOException {
+		int limit = dst.limit();
+		int left = segmentSize - segmentPosition;
+		if (dst.remaining() > left) {
+			dst.limit(dst.position() + left);
+		}
+		int count = 0;
+		try {
+			count = getFileChannel().read(dst);
+		} finally {
+			dst.limit(limit);
+		}
+		if (count > 0) {
+			segmentPosition += count;
+		}
+		return count;
+	}
+
+	@Override
+	protected void deleteFiles() {
+		super.deleteFiles();
+		deleteSegmentFiles(getFile());
+	}
+
+}
@@ -27,6 +27,19 @@ public class WritableJslipcFileChannel extends AbstractJslipcFileChannel impleme
 
 	@Override
 	public int write(ByteBuffer src) throws IOException {
+		return getMetrics().written(doWrite(src));
+	}
+
+	/**
+	 * Does the actual write, which is recorded in the {@link #getMetrics()
+	 * metrics} by {@link #write(ByteBuffer)}. Subclasses override this method
+	 * instead of <code>write()</code>.
+	 * 
+	 * @param src
+	 * @return the number of bytes written.
+	 * @throws IOException
+	 */
+	protected int doWrite(ByteBuffer src) throws IOException {
 		checkClosed();
 		if (getState() == JslipcChannelState.ClosedByPeer) {
 			return 0;
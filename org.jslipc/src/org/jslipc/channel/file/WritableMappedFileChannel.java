@@ -0,0 +1,140 @@
+package org.jslipc.channel.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A {@link WritableJslipcFileChannel} that memory maps the underlying file in
+ * windows of a fixed size. Data is written using plain memory stores, and
+ * afterwards published by updating the committed length in the header of
+ * the file. The file grows by one window at a time. See
+ * {@link MappedChannelFile} for the file layout, a
+ * {@link ReadableMappedFileChannel} is needed to read it.
+ */
+public class WritableMappedFileChannel extends WritableJslipcFileChannel {
+
+	/**
+	 * The default size of the mapped windows: 1 MB.
+	 */
+	public final static int DEFAULT_WINDOW_SIZE = 1024 * 1024;
+
+	private final MappedChannelFile mappedFile;
+	private long position;
+
+	/**
+	 * Creates WritableMappedFileChannel based on the given file using the
+	 * {@link #DEFAULT_WINDOW_SIZE default window size}.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public WritableMappedFileChannel(File file) throws IOException {
+		this(file, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Creates WritableMappedFileChannel based on the given file.
+	 * 
+	 * @param file
+	 * @param windowSize
+	 *            the size of the mapped windows.
+	 * @throws IOException
+	 */
+	public WritableMappedFileChannel(File file, int windowSize)
+			throws IOException {
+		this(file, windowSize, false);
+	}
+
+	/**
+	 * Creates WritableMappedFileChannel based on the given file.
+	 * 
+	 * @param file
+	 * @param windowSize
+	 *            the size of the mapped windows, must be the same as the one
+	 *            of the reader.
+	 * @param segmented
+	 *            if <code>true</code>, each window is a segment file of its
+	 *            own, which is deleted by the reader as soon as it has been
+	 *            consumed.
+	 * @throws IOException
+	 */
+	public WritableMappedFileChannel(File file, int windowSize,
+			boolean segmented) throws IOException {
+		super(file);
+		mappedFile = new MappedChannelFile(getFileChannel(), file,
+				MapMode.READ_WRITE, windowSize, segmented);
+		mappedFile.setCommitted(0);
+	}
+
+	@Override
+	protected int doWrite(ByteBuffer src) throws IOException {
+		checkClosed();
+		if (!mappedFile.enter()) {
+			throw new ClosedChannelException();
+		}
+		try {
+			if (mappedFile.isClosed(MappedChannelFile.READER_CLOSED_OFFSET)) {
+				return 0;
+			}
+
+			int count = 0;
+			while (src.hasRemaining()) {
+				ByteBuffer window = mappedFile.window(position);
+				int chunk = Math.min(src.remaining(), window.remaining());
+				ByteBuffer part = src.duplicate();
+				part.limit(part.position() + chunk);
+				window.put(part);
+				src.position(src.position() + chunk);
+				position += chunk;
+				count += chunk;
+			}
+			mappedFile.setCommitted(position);
+			return count;
+		} finally {
+			mappedFile.leave();
+		}
+	}
+
+	@Override
+	public JslipcChannelState getState() {
+		if (!isOpen() || !mappedFile.enter()) {
+			return JslipcChannelState.Closed;
+		}
+		try {
+			if (mappedFile.isClosed(MappedChannelFile.READER_CLOSED_OFFSET)) {
+				return JslipcChannelState.ClosedByPeer;
+			}
+			return JslipcChannelState.Open;
+		} finally {
+			mappedFile.leave();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!isOpen()) {
+			return;
+		}
+		if (mappedFile.enter()) {
+			try {
+				mappedFile.setClosed(MappedChannelFile.WRITER_CLOSED_OFFSET);
+			} finally {
+				mappedFile.leave();
+			}
+		}
+		mappedFile.release();
+		super.close();
+	}
+
+	@Override
+	protected void deleteFiles() {
+		super.deleteFiles();
+		if (mappedFile.isSegmented()) {
+			deleteSegmentFiles(getFile());
+		}
+	}
+
+}
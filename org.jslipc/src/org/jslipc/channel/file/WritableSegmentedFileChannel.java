@@ -0,0 +1,102 @@
+package org.jslipc.channel.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link WritableJslipcFileChannel} that does not let the file grow without
+ * limit, but writes the data into a sequence of segment files
+ * <code>&lt;file&gt;.0</code>, <code>&lt;file&gt;.1</code>,... of a fixed
+ * size. The {@link ReadableSegmentedFileChannel} deletes each segment as soon
+ * as it has been consumed completely, so the disk and page cache footprint is
+ * bounded by the data not yet read. The file itself only serves as an anchor
+ * for the close marker.
+ */
+public class WritableSegmentedFileChannel extends WritableJslipcFileChannel {
+
+	/**
+	 * The default segment size: 16 MB.
+	 */
+	public final static int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private final int segmentSize;
+	private long segment;
+	private int segmentPosition;
+
+	/**
+	 * Creates WritableSegmentedFileChannel based on the given file using the
+	 * {@link #DEFAULT_SEGMENT_SIZE default segment size}.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public WritableSegmentedFileChannel(File file) throws IOException {
+		this(file, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates WritableSegmentedFileChannel based on the given file.
+	 * 
+	 * @param file
+	 * @param segmentSize
+	 *            the size of the segments, must be the same as the one of the
+	 *            reader.
+	 * @throws IOException
+	 */
+	public WritableSegmentedFileChannel(File file, int segmentSize)
+			throws IOException {
+		super(file);
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("segment size must be > 0: "
+					+ segmentSize);
+		}
+		this.segmentSize = segmentSize;
+		switchFile(getSegmentFile(file, segment));
+	}
+
+	/**
+	 * @return the size of the segments.
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	@Override
+	protected int doWrite(ByteBuffer src) throws IOException {
+		checkClosed();
+		if (getState() == JslipcChannelState.ClosedByPeer) {
+			return 0;
+		}
+
+		int count = 0;
+		while (src.hasRemaining()) {
+			int limit = src.limit();
+			int left = segmentSize - segmentPosition;
+			if (src.remaining() > left) {
+				src.limit(src.position() + left);
+			}
+			int written = 0;
+			try {
+				written = getFileChannel().write(src);
+			} finally {
+				src.limit(limit);
+			}
+			segmentPosition += written;
+			count += written;
+			if (segmentPosition == segmentSize) {
+				// roll over eagerly, so the reader may delete the segment
+				switchFile(getSegmentFile(getFile(), ++segment));
+				segmentPosition = 0;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	protected void deleteFiles() {
+		super.deleteFiles();
+		deleteSegmentFiles(getFile());
+	}
+
+}
@@ -1,42 +1,93 @@
 package org.jslipc.channel.file.chunk;
 
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.InterruptibleChannel;
-import java.util.regex.Pattern;
 
 import org.jslipc.JslipcBinman;
+import org.jslipc.channel.ChannelMetrics;
 import org.jslipc.channel.JslipcChannel;
+import org.jslipc.channel.MetricsAware;
 import org.jslipc.util.FileUtil;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
 
 /**
- * Common base class for chunk file based {@link JslipcChannel}s.
+ * Common base class for chunk file based {@link JslipcChannel}s. Chunks are
+ * named <code>.chunk_xx</code> with strictly sequential indexes, so the reader
+ * finds the next chunk without listing the directory. If the writer has to
+ * leave out an index, it publishes a gap-skip record <code>.skip_xx</code>
+ * containing the index to continue with.<br/>
+ * <br/>
+ * The channels themselves do not block, but carry the {@link WaitStrategy}
+ * that is inherited by the streams created on them, and record their
+ * {@link ChannelMetrics}.
  */
 public abstract class AbstractChunkFileChannel implements JslipcChannel,
-		InterruptibleChannel, JslipcBinman {
+		InterruptibleChannel, JslipcBinman, WaitStrategyAware, MetricsAware {
 
 	protected static final String CHUNK_FILE_NAME = ".chunk";
+	protected static final String SKIP_FILE_NAME = ".skip";
 	
 	private File directory;
 	private boolean deleteFilesOnClose;
 	private boolean closed;
 	private File closeMarker;
-	private ChunkFilenameFilter filenameFilter;
+	private volatile WaitStrategy waitStrategy = SleepWaitStrategy.DEFAULT;
+	private final ChannelMetrics metrics = new ChannelMetrics();
 
 	public AbstractChunkFileChannel(final File directory) {
 		this.directory = directory;
 		closeMarker = new File(directory, ".closed");
-		filenameFilter = new ChunkFilenameFilter();
+	}
+
+	@Override
+	public ChannelMetrics getMetrics() {
+		return metrics;
 	}
 
 	protected File getDirectory() {
 		return directory;
 	}
 
-	protected ChunkFilenameFilter getFilenameFilter() {
-		return filenameFilter;
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * @param index
+	 * @return the chunk file with the given index.
+	 */
+	protected File getChunkFile(final int index) {
+		return new File(directory, getFileName(CHUNK_FILE_NAME, index));
+	}
+
+	/**
+	 * @param index
+	 * @return the gap-skip record for the given index.
+	 */
+	protected File getSkipFile(final int index) {
+		return new File(directory, getFileName(SKIP_FILE_NAME, index));
+	}
+
+	private static String getFileName(final String filePrefix, final int index) {
+		StringBuilder bob = new StringBuilder(filePrefix.length() + 11);
+		bob.append(filePrefix);
+		bob.append("_");
+		bob.append(Integer.toString(index));
+		return bob.toString();
 	}
 	
 	protected void checkClosed() throws ClosedChannelException {
@@ -89,16 +140,4 @@ public abstract class AbstractChunkFileChannel implements JslipcChannel,
 		deleteFilesOnClose = true;
 	}
 
-	private static class ChunkFilenameFilter implements FilenameFilter {
-
-		private Pattern pattern = Pattern.compile(".*_\\d");
-
-		@Override
-		public boolean accept(File dir, String name) {
-			return pattern.matcher(name).matches();
-		}
-
-	}
-
-
 }
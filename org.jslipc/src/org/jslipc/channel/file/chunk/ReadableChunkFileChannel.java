@@ -53,53 +53,41 @@ public class ReadableChunkFileChannel extends AbstractChunkFileChannel
 		}
 		if (currentChunkFile != null) {
 			FileUtil.delete(currentChunkFile);
+			getMetrics().chunkConsumed();
 		}
 	}
 
-	protected File getNextChunk() {
-		return getNextChunk(CHUNK_FILE_NAME);
-	}
-
-	private File getNextChunk(final String filePrefix) {
-		File nextChunk = new File(getDirectory(), getFileName(filePrefix,
-				nextChunkIndex));
-		if (nextChunk.exists()) {
-			++nextChunkIndex;
-			return nextChunk;
-		}
-
-		nextChunk = null;
-		File[] list = getDirectory().listFiles(getFilenameFilter());
-		if (list == null) {
-			return null;
-		}
-		// find minimum index that is >= nextChunkIndex
-		int currentMin = Integer.MAX_VALUE;
-		for (File file : list) {
-			int current = getIndex(file);
-			if (current >= nextChunkIndex && current < currentMin) {
-				currentMin = current;
-				nextChunk = file;
+	/**
+	 * Returns the next chunk, following gap-skip records if the chunk with
+	 * the next index is missing.
+	 * 
+	 * @return the next chunk, or <code>null</code> if it has not been written
+	 *         yet.
+	 * @throws IOException
+	 */
+	protected File getNextChunk() throws IOException {
+		while (true) {
+			File nextChunk = getChunkFile(nextChunkIndex);
+			if (nextChunk.exists()) {
+				++nextChunkIndex;
+				return nextChunk;
 			}
+			File skip = getSkipFile(nextChunkIndex);
+			if (!skip.exists()) {
+				return null;
+			}
+			nextChunkIndex = readSkipRecord(skip);
+			FileUtil.delete(skip);
 		}
-		if (nextChunk != null) {
-			nextChunkIndex = currentMin + 1;
-		}
-
-		return nextChunk;
-	}
-
-	private String getFileName(String filePrefix, int index) {
-		StringBuilder bob = new StringBuilder(filePrefix.length() + 10);
-		bob.append(filePrefix);
-		bob.append("_");
-		bob.append(Integer.toString(index));
-		return bob.toString();
 	}
 
-	private int getIndex(final File file) {
-		int begin = file.getName().lastIndexOf('_');
-		return Integer.parseInt(file.getName().substring(begin + 1));
+	private int readSkipRecord(final File skip) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(skip, "r");
+		try {
+			return raf.readInt();
+		} finally {
+			raf.close();
+		}
 	}
 
 	@Override
@@ -110,9 +98,9 @@ public class ReadableChunkFileChannel extends AbstractChunkFileChannel
 			sum += count;
 		}
 		if (sum == 0) {
-			return count;
+			return getMetrics().read(count);
 		}
-		return sum;
+		return getMetrics().read(sum);
 	}
 
 	private int readInternal(ByteBuffer dst) throws IOException {
@@ -129,7 +117,7 @@ public class ReadableChunkFileChannel extends AbstractChunkFileChannel
 			return count;
 		}
 		markChunkRead();
-		return read(dst);
+		return readInternal(dst);
 	}
 
 }
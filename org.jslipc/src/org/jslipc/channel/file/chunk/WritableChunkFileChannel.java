@@ -1,12 +1,18 @@
 package org.jslipc.channel.file.chunk;
 
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import org.jslipc.channel.WritableJslipcByteChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A {@link WritableJslipcByteChannel} implementation that writes the data as
@@ -14,86 +20,274 @@ import org.jslipc.channel.WritableJslipcByteChannel;
  * the file is named <code>.chunk_xx.tmp</code>, where <code>xx</code> is the index of the chunk.
  * Once the complete buffer is written, the file is renamed to <code>.chunk_xx</code> in 
  * order to signal a consuming {@link ReadableChunkFileChannel} that is chunk is completely
- * written and may be read.
+ * written and may be read.<br/>
+ * <br/>
+ * A {@link #write(ByteBuffer[]) gathering write} puts all buffers into one
+ * chunk, so e.g. a batch of messages becomes visible to the reader at once.<br/>
+ * <br/>
+ * Since creating and renaming a file for every write is expensive, small
+ * writes may be coalesced by {@link #setBatchSize(int) setting a batch size}:
+ * the data is then collected in memory and published as a chunk once the
+ * batch is full, the {@link #setBatchDelay(int) batch delay} has elapsed, or
+ * on {@link #flush()} resp. {@link #close()}.
  */
 public class WritableChunkFileChannel extends AbstractChunkFileChannel
-		implements WritableJslipcByteChannel {
+		implements WritableJslipcByteChannel, GatheringByteChannel, Flushable {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(WritableChunkFileChannel.class);
 
 	private static final String TMP_SUFFIX = ".tmp";
 	private int nextChunkIndex = 0;
+	private int batchSize;
+	private int batchDelay;
+	private ByteBuffer batch;
+	private TimerTask publishTask;
 
 	public WritableChunkFileChannel(File directory) {
 		super(directory);
 	}
 
+	/**
+	 * @return the batch size, or <code>0</code> if writes are not coalesced.
+	 */
+	public synchronized int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the size of the in-memory batch used to coalesce writes. A write
+	 * that does not fit into the batch publishes it as a chunk. Writes that
+	 * are at least as large as the batch are published directly as a chunk
+	 * of their own, if no data is pending.
+	 * 
+	 * @param batchSize
+	 *            the batch size, or <code>0</code> to publish every write as
+	 *            a chunk of its own.
+	 * @throws IOException
+	 *             if the pending data could not be published.
+	 */
+	public synchronized void setBatchSize(final int batchSize)
+			throws IOException {
+		if (batchSize < 0) {
+			throw new IllegalArgumentException("batch size must be >= 0: "
+					+ batchSize);
+		}
+		flush();
+		this.batchSize = batchSize;
+		this.batch = batchSize > 0 ? ByteBuffer.allocate(batchSize) : null;
+	}
+
+	/**
+	 * @return the batch delay in ms.
+	 */
+	public synchronized int getBatchDelay() {
+		return batchDelay;
+	}
+
+	/**
+	 * Sets the maximum time pending data may stay in the batch before it is
+	 * published, even if no further write or flush happens.
+	 * 
+	 * @param batchDelay
+	 *            the delay in ms, or <code>0</code> to publish pending data
+	 *            only if the batch is full or on {@link #flush()}.
+	 */
+	public synchronized void setBatchDelay(final int batchDelay) {
+		if (batchDelay < 0) {
+			throw new IllegalArgumentException("batch delay must be >= 0: "
+					+ batchDelay);
+		}
+		this.batchDelay = batchDelay;
+	}
+
 	@Override
 	public int write(ByteBuffer src) throws IOException {
+		return (int) write(new ByteBuffer[] { src }, 0, 1);
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public synchronized long write(ByteBuffer[] srcs, int offset, int length)
+			throws IOException {
+		return getMetrics().written(writeBatched(srcs, offset, length));
+	}
+
+	private long writeBatched(ByteBuffer[] srcs, int offset, int length)
+			throws IOException {
 		checkClosed();
 		if (getState() == JslipcChannelState.ClosedByPeer) {
 			return 0;
 		}
+		if (batch == null) {
+			return writeChunk(srcs, offset, length);
+		}
+
+		long count = 0;
+		for (int i = offset; i < offset + length; i++) {
+			ByteBuffer src = srcs[i];
+			while (src.hasRemaining()) {
+				if (batch.position() == 0 && src.remaining() >= batchSize) {
+					count += writeChunk(new ByteBuffer[] { src }, 0, 1);
+					continue;
+				}
+				int n = Math.min(src.remaining(), batch.remaining());
+				ByteBuffer part = src.duplicate();
+				part.limit(part.position() + n);
+				batch.put(part);
+				src.position(src.position() + n);
+				count += n;
+				if (!batch.hasRemaining()) {
+					publishBatch();
+				}
+			}
+		}
+		if (batch.position() > 0) {
+			schedulePublish();
+		}
+		return count;
+	}
+
+	/**
+	 * Publishes the pending data as a chunk.
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		if (batch != null && batch.position() > 0) {
+			checkClosed();
+			publishBatch();
+		}
+	}
+
+	/**
+	 * Publishes the pending data and closes the channel.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (isOpen() && getState() != JslipcChannelState.ClosedByPeer) {
+			flush();
+		}
+		cancelPublish();
+		super.close();
+	}
+
+	private void publishBatch() throws IOException {
+		cancelPublish();
+		batch.flip();
+		try {
+			writeChunk(new ByteBuffer[] { batch }, 0, 1);
+		} finally {
+			batch.clear();
+		}
+	}
+
+	private void schedulePublish() {
+		if (batchDelay == 0 || publishTask != null) {
+			return;
+		}
+		publishTask = new TimerTask() {
+
+			@Override
+			public void run() {
+				synchronized (WritableChunkFileChannel.this) {
+					if (publishTask != this) {
+						return;
+					}
+					publishTask = null;
+					try {
+						if (isOpen()) {
+							flush();
+						}
+					} catch (IOException e) {
+						LOGGER.warn("failed to publish pending chunk", e);
+					}
+				}
+			}
+		};
+		BatchTimer.TIMER.schedule(publishTask, batchDelay);
+	}
+
+	private void cancelPublish() {
+		if (publishTask != null) {
+			publishTask.cancel();
+			publishTask = null;
+		}
+	}
 
+	private long writeChunk(ByteBuffer[] srcs, int offset, int length)
+			throws IOException {
 		File chunk = getNextChunk();
 		RandomAccessFile raf = new RandomAccessFile(chunk, "rw");
 		FileChannel channel = raf.getChannel();
-		int count = channel.write(src);
-		channel.close();
-		raf.close();
+		long count = 0;
+		try {
+			for (int i = offset; i < offset + length; i++) {
+				while (srcs[i].hasRemaining()) {
+					count += channel.write(srcs, i, offset + length - i);
+				}
+			}
+		} finally {
+			channel.close();
+			raf.close();
+		}
 		String name = chunk.getName();
 		chunk.renameTo(new File(getDirectory(), name.substring(0, name.length()
 				- TMP_SUFFIX.length())));
+		getMetrics().chunkCreated();
 		return count;
 	}
 
-	protected File getNextChunk() {
-		return getNextChunk(CHUNK_FILE_NAME);
+	/**
+	 * Holds the timer publishing pending batches, so its thread is only
+	 * started if batches are used.
+	 */
+	private static class BatchTimer {
+		static final Timer TIMER = new Timer("jslipc-chunk-batch", true);
 	}
 
-	private File getNextChunk(final String filePrefix) {
-		File nextChunk = new File(getDirectory(), getFileName(filePrefix,
-				nextChunkIndex));
-		if (!nextChunk.exists()) {
-			++nextChunkIndex;
-			return nextChunk;
-		}
-
-		nextChunk = null;
-		File[] list = getDirectory().listFiles(getFilenameFilter());
-		if (list == null) {
-			return null;
-		}
-		// find maximum index that is > nextChunkIndex
-		int currentMax = nextChunkIndex;
-		for (File file : list) {
-			int current = getIndex(file);
-			if (current > currentMax) {
-				currentMax = current;
+	/**
+	 * Returns the temporary file of the next chunk. Indexes occupied by stale
+	 * chunks, e.g. of a previous writer, are skipped. If only an incomplete
+	 * chunk occupies an index, a gap-skip record is published, since the
+	 * reader would wait for that chunk forever.
+	 * 
+	 * @return the temporary file of the next chunk.
+	 * @throws IOException
+	 */
+	protected File getNextChunk() throws IOException {
+		while (true) {
+			File chunk = getChunkFile(nextChunkIndex);
+			File tmp = getTmpFile(chunk);
+			if (!chunk.exists() && !tmp.exists()) {
+				++nextChunkIndex;
+				return tmp;
 			}
+			if (!chunk.exists()) {
+				writeSkipRecord(nextChunkIndex, nextChunkIndex + 1);
+			}
+			++nextChunkIndex;
 		}
-		nextChunkIndex = currentMax + 1;
-		nextChunk = new File(getFileName(CHUNK_FILE_NAME, nextChunkIndex));
-		nextChunkIndex++;
-
-		return nextChunk;
 	}
 
-	private String getFileName(String filePrefix, int index) {
-		StringBuilder bob = new StringBuilder(filePrefix.length() + 10);
-		bob.append(filePrefix);
-		bob.append("_");
-		bob.append(Integer.toString(index));
-		bob.append(TMP_SUFFIX);
-		return bob.toString();
+	private void writeSkipRecord(final int index, final int next)
+			throws IOException {
+		File skip = getSkipFile(index);
+		File tmp = getTmpFile(skip);
+		RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+		try {
+			raf.writeInt(next);
+		} finally {
+			raf.close();
+		}
+		tmp.renameTo(skip);
 	}
 
-	private int getIndex(final File file) {
-		String name = file.getName();
-		int begin = name.lastIndexOf('_') + 1;
-		int end = begin + 1;
-		while (end < name.length() && Character.isDigit(name.charAt(end))) {
-			++end;
-		}
-		return Integer.parseInt(name.substring(begin, end));
+	private File getTmpFile(final File file) {
+		return new File(getDirectory(), file.getName() + TMP_SUFFIX);
 	}
 
 }
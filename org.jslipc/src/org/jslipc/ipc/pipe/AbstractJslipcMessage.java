@@ -1,7 +1,14 @@
 package org.jslipc.ipc.pipe;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -10,14 +17,27 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.jslipc.JslipcPipe;
+import org.jslipc.JslipcRole;
 import org.jslipc.ipc.pipe.file.ChunkFilePipe;
 import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.ipc.pipe.shm.SegmentMemoryPipe;
 import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
 import org.jslipc.util.StringUtil;
 import org.jslipc.util.UrlUtil;
 
 /**
  * Abstract base class for both {@link JslipcRequest} and {@link JslipcResponse}.
+ * The encoding of a message is determined by its protocol version:
+ * <ul>
+ * <li>{@link #PROTOCOL_VERSION_TEXT 1.0}: UTF-8 text, a header line followed
+ * by a <code>key: value</code> line per parameter.</li>
+ * <li>{@link #PROTOCOL_VERSION_BINARY 2.0}: a compact binary form starting
+ * with a <code>0</code> byte, that can not start a text message. The
+ * well-known parameters are encoded by id, e.g. the pipe type as a single
+ * byte and the size as an int resp. a long if it exceeds the int range, all
+ * others as key/value strings.</li>
+ * </ul>
+ * {@link #AbstractJslipcMessage(byte[])} accepts both encodings.
  */
 public abstract class AbstractJslipcMessage {
 
@@ -28,23 +48,57 @@ public abstract class AbstractJslipcMessage {
 	public static final String PARAM_SIZE = "size";
 	public static final String PARAM_ACCEPT_TYPES = "accept-types";
 
+	/**
+	 * The version of the text protocol.
+	 */
+	public static final String PROTOCOL_VERSION_TEXT = "1.0";
+	/**
+	 * The version of the binary protocol.
+	 */
+	public static final String PROTOCOL_VERSION_BINARY = "2.0";
+
 	protected static final String JSLIPC_PROTOCOL_PREFIX = "JSLIPC/";
+	/**
+	 * The first byte of a binary message.
+	 */
+	protected static final byte BINARY_MARKER = 0;
+
+	// ids of the binary encoded parameters, do not change
+	private static final byte KEY_GENERIC = 0;
+	private static final byte KEY_TYPE = 1;
+	private static final byte KEY_ROLE = 2;
+	private static final byte KEY_SIZE = 3;
+	private static final byte KEY_FILE = 4;
+	private static final byte KEY_DIRECTORY = 5;
+	private static final byte KEY_ACCEPT_TYPES = 6;
+	private static final byte KEY_LONG_SIZE = 7;
+
+	/**
+	 * The supported pipes, the index is used as type id in the binary
+	 * protocol, so new types must be appended.
+	 */
 	@SuppressWarnings("unchecked")
 	protected static final List<Class<? extends JslipcPipe>> SUPPORTED_PIPES = Arrays
 			.asList((Class<? extends JslipcPipe>) FilePipe.class,
 					(Class<? extends JslipcPipe>) ChunkFilePipe.class,
-					(Class<? extends JslipcPipe>) SharedMemoryPipe.class);
+					(Class<? extends JslipcPipe>) SharedMemoryPipe.class,
+					(Class<? extends JslipcPipe>) SegmentMemoryPipe.class);
 
 	private String protocolVersion;
 	private Map<String, String> parameter = new HashMap<String, String>();
 
 	/**
-	 * Creates a message from its byte array representation.
+	 * Creates a message from its byte array representation, either text or
+	 * binary.
 	 * 
 	 * @see #toBytes()
 	 */
 	public AbstractJslipcMessage(final byte[] message) throws IOException {
-		this(new String(message, StringUtil.CHARSET_UTF_8));
+		if (message.length > 0 && message[0] == BINARY_MARKER) {
+			parseBinaryMessage(message);
+		} else {
+			parseMessage(new String(message, StringUtil.CHARSET_UTF_8));
+		}
 	}
 
 	/**
@@ -91,6 +145,206 @@ public abstract class AbstractJslipcMessage {
 	 */
 	protected abstract String parseHeader(String header) throws IOException;
 
+	/**
+	 * Parses the binary representation of a message.
+	 */
+	protected void parseBinaryMessage(final byte[] message) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				message));
+		try {
+			in.readByte();
+			protocolVersion = in.readUnsignedByte() + "."
+					+ in.readUnsignedByte();
+			if (!PROTOCOL_VERSION_BINARY.equals(protocolVersion)) {
+				throw new IOException("bad binary protocol: '"
+						+ getProtocol() + "'");
+			}
+			parseBinaryHeader(in);
+			int count = in.readUnsignedShort();
+			for (int i = 0; i < count; i++) {
+				parseBinaryParameter(in);
+			}
+		} catch (IOException e) {
+			throw new IOException("bad binary " + getMessageName() + ": "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Parses the header of a binary message.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 */
+	protected abstract void parseBinaryHeader(DataInput in) throws IOException;
+
+	/**
+	 * Writes the header of a binary message.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	protected abstract void writeBinaryHeader(DataOutput out)
+			throws IOException;
+
+	private void parseBinaryParameter(final DataInput in) throws IOException {
+		byte key = in.readByte();
+		switch (key) {
+		case KEY_GENERIC:
+			parameter.put(readString(in), readString(in));
+			break;
+		case KEY_TYPE:
+			parameter.put(PARAM_TYPE, getTypeName(readType(in)));
+			break;
+		case KEY_ROLE:
+			int role = in.readUnsignedByte();
+			if (role >= JslipcRole.values().length) {
+				throw new IOException("bad role id " + role);
+			}
+			parameter.put(PARAM_ROLE, JslipcRole.values()[role].toString());
+			break;
+		case KEY_SIZE:
+			parameter.put(PARAM_SIZE, Integer.toString(in.readInt()));
+			break;
+		case KEY_LONG_SIZE:
+			parameter.put(PARAM_SIZE, Long.toString(in.readLong()));
+			break;
+		case KEY_FILE:
+			parameter.put(PARAM_FILE, readString(in));
+			break;
+		case KEY_DIRECTORY:
+			parameter.put(PARAM_DIRECTORY, readString(in));
+			break;
+		case KEY_ACCEPT_TYPES:
+			int count = in.readUnsignedByte();
+			StringBuilder bob = new StringBuilder();
+			for (int i = 0; i < count; i++) {
+				if (i > 0) {
+					bob.append(",");
+				}
+				bob.append(getTypeName(readType(in)));
+			}
+			parameter.put(PARAM_ACCEPT_TYPES, bob.toString());
+			break;
+		default:
+			throw new IOException("bad parameter id " + key);
+		}
+	}
+
+	private void writeBinaryParameter(final DataOutput out, final String key,
+			final String value) throws IOException {
+		if (PARAM_TYPE.equals(key) && getTypeClass(value) != null) {
+			out.writeByte(KEY_TYPE);
+			out.writeByte(SUPPORTED_PIPES.indexOf(getTypeClass(value)));
+		} else if (PARAM_ROLE.equals(key) && getRole(value) != null) {
+			out.writeByte(KEY_ROLE);
+			out.writeByte(getRole(value).ordinal());
+		} else if (PARAM_SIZE.equals(key) && isInteger(value)) {
+			out.writeByte(KEY_SIZE);
+			out.writeInt(Integer.parseInt(value));
+		} else if (PARAM_SIZE.equals(key) && isLong(value)) {
+			out.writeByte(KEY_LONG_SIZE);
+			out.writeLong(Long.parseLong(value));
+		} else if (PARAM_FILE.equals(key)) {
+			out.writeByte(KEY_FILE);
+			writeString(out, value);
+		} else if (PARAM_DIRECTORY.equals(key)) {
+			out.writeByte(KEY_DIRECTORY);
+			writeString(out, value);
+		} else if (PARAM_ACCEPT_TYPES.equals(key) && getTypeIds(value) != null) {
+			byte[] ids = getTypeIds(value);
+			out.writeByte(KEY_ACCEPT_TYPES);
+			out.writeByte(ids.length);
+			out.write(ids);
+		} else {
+			out.writeByte(KEY_GENERIC);
+			writeString(out, key);
+			writeString(out, value);
+		}
+	}
+
+	private Class<? extends JslipcPipe> readType(final DataInput in)
+			throws IOException {
+		int type = in.readUnsignedByte();
+		if (type >= SUPPORTED_PIPES.size()) {
+			throw new IOException("bad type id " + type);
+		}
+		return SUPPORTED_PIPES.get(type);
+	}
+
+	private byte[] getTypeIds(final String types) {
+		List<String> split = StringUtil.split(types, ',');
+		if (split.size() > 255) {
+			return null;
+		}
+		byte[] ids = new byte[split.size()];
+		for (int i = 0; i < ids.length; i++) {
+			Class<? extends JslipcPipe> type = getTypeClass(split.get(i));
+			if (type == null) {
+				return null;
+			}
+			ids[i] = (byte) SUPPORTED_PIPES.indexOf(type);
+		}
+		return ids;
+	}
+
+	private static JslipcRole getRole(final String role) {
+		for (JslipcRole current : JslipcRole.values()) {
+			if (current.toString().equals(role)) {
+				return current;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isInteger(final String value) {
+		try {
+			return Integer.toString(Integer.parseInt(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static boolean isLong(final String value) {
+		try {
+			return Long.toString(Long.parseLong(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes a string as length prefixed UTF-8, which unlike
+	 * {@link DataOutput#writeUTF(String)} is not limited to 64k.
+	 */
+	protected static void writeString(final DataOutput out, final String text)
+			throws IOException {
+		byte[] bytes = text.getBytes(StringUtil.CHARSET_UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutput, String)}. If
+	 * the input is a stream on the message, e.g. the one passed to
+	 * {@link #parseBinaryHeader(DataInput)}, lengths exceeding the rest of
+	 * the message are rejected before the string is allocated.
+	 */
+	protected static String readString(final DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			throw new IOException("bad string length " + length);
+		}
+		if (in instanceof InputStream
+				&& length > ((InputStream) in).available()) {
+			throw new IOException("string length " + length
+					+ " exceeds message");
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StringUtil.CHARSET_UTF_8);
+	}
+
 	private void parseParameter(List<String> lines) throws IOException {
 		for (String line : lines) {
 			int index = line.indexOf(':');
@@ -191,6 +445,42 @@ public abstract class AbstractJslipcMessage {
 		}
 	}
 
+	/**
+	 * Returns the long value of the parameter, or <code>null</code> if not
+	 * found.
+	 * 
+	 * @param key
+	 * @return the long value or <code>null</code>.
+	 * @throws IOException
+	 *             if the given value is not a long.
+	 */
+	public Long getLongParameter(final String key) throws IOException {
+		String value = getParameter(key);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Long.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new IOException("expected numerical value for '" + key
+					+ "' but is '" + value + "'");
+		}
+	}
+
+	/**
+	 * Sets the given long parameter.
+	 * 
+	 * @param key
+	 * @param value
+	 */
+	public void setLongParameter(final String key, final Long value) {
+		if (value == null) {
+			setParameter(key, null);
+		} else {
+			setParameter(key, Long.toString(value));
+		}
+	}
+
 	/**
 	 * @return the value of the parameter {@link #PARAM_TYPE}.
 	 */
@@ -239,12 +529,45 @@ public abstract class AbstractJslipcMessage {
 	}
 
 	/**
-	 * @return the command of the message.
+	 * @return the protocol version of the message.
 	 */
 	public String getProtocolVersion() {
 		return protocolVersion;
 	}
 
+	/**
+	 * Sets the protocol version, which determines the encoding used by
+	 * {@link #toBytes()}.
+	 * 
+	 * @param protocolVersion
+	 *            either {@link #PROTOCOL_VERSION_TEXT} or
+	 *            {@link #PROTOCOL_VERSION_BINARY}.
+	 */
+	public void setProtocolVersion(final String protocolVersion) {
+		checkProtocolVersion(protocolVersion);
+		this.protocolVersion = protocolVersion;
+	}
+
+	/**
+	 * @param protocolVersion
+	 * @throws IllegalArgumentException
+	 *             if the given version is not supported.
+	 */
+	protected static void checkProtocolVersion(final String protocolVersion) {
+		if (!PROTOCOL_VERSION_TEXT.equals(protocolVersion)
+				&& !PROTOCOL_VERSION_BINARY.equals(protocolVersion)) {
+			throw new IllegalArgumentException(
+					"unsupported protocol version: '" + protocolVersion + "'");
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the message is encoded binary.
+	 */
+	public boolean isBinary() {
+		return PROTOCOL_VERSION_BINARY.equals(protocolVersion);
+	}
+
 	/**
 	 * @return the complete protocol identifier, e.g. <code>JSLIPC/1.0</code>.
 	 */
@@ -272,8 +595,40 @@ public abstract class AbstractJslipcMessage {
 		return bob.toString();
 	}
 
+	/**
+	 * @return the message encoded according to its
+	 *         {@link #getProtocolVersion() protocol version}.
+	 */
 	public byte[] toBytes() {
-		return toString().getBytes(StringUtil.CHARSET_UTF_8);
+		if (!isBinary()) {
+			return toString().getBytes(StringUtil.CHARSET_UTF_8);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(BINARY_MARKER);
+			int dot = protocolVersion.indexOf('.');
+			out.writeByte(Integer.parseInt(protocolVersion.substring(0, dot)));
+			out.writeByte(Integer.parseInt(protocolVersion.substring(dot + 1)));
+			writeBinaryHeader(out);
+			int count = 0;
+			for (String value : parameter.values()) {
+				if (value != null) {
+					++count;
+				}
+			}
+			out.writeShort(count);
+			for (Entry<String, String> entry : parameter.entrySet()) {
+				if (entry.getValue() != null) {
+					writeBinaryParameter(out, entry.getKey(), entry.getValue());
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			// ByteArrayOutputStream does not throw
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
 	}
 
 	@Override
@@ -0,0 +1,155 @@
+package org.jslipc.ipc.pipe;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jslipc.util.FileEventListener;
+import org.jslipc.util.PipeUtil;
+import org.jslipc.util.StringUtil;
+
+/**
+ * Tracks the request directories of a connect directory for the
+ * {@link JslipcPipeServer}. The names of all entries already seen are kept in
+ * memory, so stale directories cost neither a lookup of the
+ * <code>.served</code> marker nor a stat call. New directories are handed
+ * back in arrival order.<br/>
+ * <br/>
+ * If the queue is {@link #setWatched(boolean) watched}, new directories are
+ * reported as {@link FileEventListener file events}, and the connect
+ * directory is only listed initially and if events have been lost. Otherwise
+ * it is listed on each {@link #poll()}, where new entries are ordered by their
+ * modification time.
+ */
+class AcceptQueue implements FileEventListener {
+
+	private final File directory;
+	private final Set<String> known = new HashSet<String>();
+	private final LinkedList<File> pending = new LinkedList<File>();
+	private boolean watched;
+	private boolean rescan = true;
+
+	/**
+	 * Creates a queue on the given connect directory.
+	 * 
+	 * @param directory
+	 */
+	public AcceptQueue(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Sets whether new directories are reported as events. Enabling forces a
+	 * rescan, since directories may have been created before the watch has
+	 * been registered.
+	 * 
+	 * @param watched
+	 */
+	public synchronized void setWatched(final boolean watched) {
+		this.watched = watched;
+		this.rescan = true;
+	}
+
+	/**
+	 * Returns the next not yet served request directory, and marks it served.
+	 * 
+	 * @return the directory, or <code>null</code> if there is none.
+	 * @throws IOException
+	 */
+	public synchronized File poll() throws IOException {
+		if (rescan || !watched) {
+			rescan = false;
+			scan();
+		}
+		while (!pending.isEmpty()) {
+			File dir = pending.removeFirst();
+			if (dir.isDirectory() && !isMarkedServed(dir)) {
+				markServed(dir);
+				return dir;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return <code>true</code> if there are directories to check.
+	 */
+	public synchronized boolean hasPending() {
+		return !pending.isEmpty() || rescan;
+	}
+
+	@Override
+	public synchronized void created(final File file) {
+		if (known.add(file.getName())) {
+			pending.add(file);
+		}
+	}
+
+	@Override
+	public synchronized void deleted(final File file) {
+		known.remove(file.getName());
+	}
+
+	@Override
+	public synchronized void overflow() {
+		rescan = true;
+	}
+
+	private void scan() throws IOException {
+		String[] names = directory.list();
+		if (names == null) {
+			throw new IOException("failed to list " + directory);
+		}
+		Set<String> present = new HashSet<String>(names.length);
+		List<File> found = new ArrayList<File>();
+		for (String name : names) {
+			present.add(name);
+			if (known.add(name)) {
+				found.add(new File(directory, name));
+			}
+		}
+		known.retainAll(present);
+		if (found.size() > 1) {
+			sortByArrival(found);
+		}
+		pending.addAll(found);
+	}
+
+	private void sortByArrival(final List<File> files) {
+		final Map<File, Long> modified = new HashMap<File, Long>();
+		for (File file : files) {
+			modified.put(file, file.lastModified());
+		}
+		Collections.sort(files, new Comparator<File>() {
+
+			@Override
+			public int compare(File o1, File o2) {
+				return modified.get(o1).compareTo(modified.get(o2));
+			}
+		});
+	}
+
+	private boolean isMarkedServed(final File dir) {
+		return new File(dir, PipeUtil.SERVED_MARKER_NAME).exists();
+	}
+
+	private void markServed(final File dir) throws IOException {
+		new File(dir, PipeUtil.SERVED_MARKER_NAME).createNewFile();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return StringUtil.build(this).add("directory", directory)
+				.add("pending", pending.size()).add("watched", watched)
+				.toString();
+	}
+
+}
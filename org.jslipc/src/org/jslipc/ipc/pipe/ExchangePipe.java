@@ -0,0 +1,148 @@
+package org.jslipc.ipc.pipe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.jslipc.JslipcBinman;
+import org.jslipc.JslipcPipe;
+import org.jslipc.TimeoutAware;
+import org.jslipc.channel.FramedInputStream;
+import org.jslipc.channel.FramedOutputStream;
+import org.jslipc.channel.JslipcChannelInputStream;
+import org.jslipc.channel.JslipcChannelOutputStream;
+import org.jslipc.util.StringUtil;
+
+/**
+ * Carries multiple request/response exchanges one after another over the
+ * same pipe, like a HTTP keep-alive connection. Each body is sent
+ * {@link FramedOutputStream framed}, so closing the stream of a body ends the
+ * body, but not the pipe. Both ends of the pipe have to use an ExchangePipe:
+ * 
+ * <pre>
+ * // client
+ * OutputStream request = exchange.nextOutput();
+ * ...
+ * request.close();
+ * InputStream response = exchange.nextInput();
+ * 
+ * // server
+ * InputStream request;
+ * while ((request = exchange.nextInput()) != null) {
+ *     ...
+ *     OutputStream response = exchange.nextOutput();
+ *     ...
+ *     response.close();
+ * }
+ * </pre>
+ * 
+ * The {@link JslipcPipeURLConnection} uses an ExchangePipe if the request
+ * parameter {@link JslipcRequest#PARAM_KEEP_ALIVE} is <code>true</code>.
+ */
+public class ExchangePipe implements JslipcBinman, TimeoutAware {
+
+	private final JslipcPipe pipe;
+	private JslipcChannelInputStream in;
+	private JslipcChannelOutputStream out;
+	private int timeout = 0;
+
+	/**
+	 * Creates an ExchangePipe on top of the given pipe.
+	 * 
+	 * @param pipe
+	 */
+	public ExchangePipe(final JslipcPipe pipe) {
+		if (pipe == null) {
+			throw new IllegalArgumentException("parameter pipe must not be null");
+		}
+		this.pipe = pipe;
+	}
+
+	/**
+	 * @return the wrapped pipe.
+	 */
+	public JslipcPipe getPipe() {
+		return pipe;
+	}
+
+	/**
+	 * Returns a stream for the next body to send. The body ends when the
+	 * stream is closed.
+	 * 
+	 * @return the stream.
+	 * @throws IOException
+	 */
+	public OutputStream nextOutput() throws IOException {
+		if (out == null) {
+			out = new JslipcChannelOutputStream(pipe.sink());
+			out.setTimeout(timeout);
+		}
+		return new FramedOutputStream(out);
+	}
+
+	/**
+	 * Waits for the next body sent by the peer.
+	 * 
+	 * @return the stream to read the body from, or <code>null</code> if the
+	 *         peer has closed the pipe instead.
+	 * @throws IOException
+	 */
+	public InputStream nextInput() throws IOException {
+		if (in == null) {
+			in = new JslipcChannelInputStream(pipe.source());
+			in.setTimeout(timeout);
+		}
+		FramedInputStream body = new FramedInputStream(in);
+		if (!body.awaitBody()) {
+			return null;
+		}
+		return body;
+	}
+
+	@Override
+	public int getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Sets the timeout for reading and writing bodies.
+	 */
+	@Override
+	public void setTimeout(int timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException(
+					"parameter timeout must be > 0: " + timeout);
+		}
+		this.timeout = timeout;
+		if (in != null) {
+			in.setTimeout(timeout);
+		}
+		if (out != null) {
+			out.setTimeout(timeout);
+		}
+	}
+
+	@Override
+	public void cleanUpOnClose() {
+		if (pipe instanceof JslipcBinman) {
+			((JslipcBinman) pipe).cleanUpOnClose();
+		}
+	}
+
+	/**
+	 * Closes the wrapped pipe.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (pipe instanceof Closeable) {
+			((Closeable) pipe).close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("pipe", pipe).toString();
+	}
+
+}
@@ -35,6 +35,16 @@ public class JslipcConnection {
 	public Map<String, String> getRequestParameters() {
 		return parameter;
 	}
+
+	/**
+	 * @return <code>true</code> if the client requested a pipe carrying
+	 *         multiple exchanges, see {@link ExchangePipe}.
+	 */
+	public boolean isKeepAlive() {
+		return parameter != null
+				&& Boolean.parseBoolean(parameter
+						.get(JslipcRequest.PARAM_KEEP_ALIVE));
+	}
 	
 	
 }
@@ -0,0 +1,17 @@
+package org.jslipc.ipc.pipe;
+
+/**
+ * Callback informed about connections accepted by a
+ * {@link JslipcPipeAcceptor}.
+ */
+public interface JslipcConnectionListener {
+
+	/**
+	 * Called if a connection has been accepted. This is called by the thread
+	 * that did the handshake, so multiple calls may happen concurrently.
+	 * 
+	 * @param connection
+	 */
+	public void accepted(JslipcConnection connection);
+
+}
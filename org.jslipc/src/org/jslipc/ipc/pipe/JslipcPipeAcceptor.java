@@ -0,0 +1,353 @@
+package org.jslipc.ipc.pipe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jslipc.TimeoutAware;
+import org.jslipc.util.FileUtil;
+import org.jslipc.util.StringUtil;
+import org.jslipc.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accepts connections of a {@link JslipcPipeServer} in the background. A
+ * single thread waits for incoming requests, while the handshakes with the
+ * clients run in parallel on an executor, so a slow or stalled client does
+ * not block the others. Finished connections are either {@link #accept()
+ * taken} from a queue, or passed to a {@link #setListener(JslipcConnectionListener)
+ * listener}.<br/>
+ * <br/>
+ * By default the handshakes run on virtual threads if the runtime supports
+ * them, otherwise on a cached pool of daemon threads. Note that the
+ * {@link JslipcPipeServer#setTimeout(int) connect timeout} of the server
+ * limits how long a handshake may block its thread.<br/>
+ * <br/>
+ * If waiting for requests fails, the acceptor stops and the failure is passed
+ * to all callers of {@link #accept()}.
+ */
+public class JslipcPipeAcceptor implements Closeable, TimeoutAware {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(JslipcPipeAcceptor.class);
+
+	private final JslipcPipeServer server;
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+	/** queued to wake up the callers of {@link #accept()} on failure */
+	private final static JslipcConnection FAILED = new JslipcConnection(
+			null, null);
+
+	private final BlockingQueue<JslipcConnection> connections = new LinkedBlockingQueue<JslipcConnection>();
+	private JslipcConnectionListener listener;
+	private Thread acceptThread;
+	private volatile boolean closed;
+	private volatile IOException failure;
+	private int timeout = 0;
+
+	/**
+	 * Creates an acceptor running the handshakes on the default executor.
+	 * 
+	 * @param server
+	 */
+	public JslipcPipeAcceptor(final JslipcPipeServer server) {
+		this(server, createDefaultExecutor(), true);
+	}
+
+	/**
+	 * Creates an acceptor running the handshakes on the given executor. The
+	 * executor is not shut down on {@link #close()}.
+	 * 
+	 * @param server
+	 * @param executor
+	 */
+	public JslipcPipeAcceptor(final JslipcPipeServer server,
+			final ExecutorService executor) {
+		this(server, executor, false);
+	}
+
+	private JslipcPipeAcceptor(final JslipcPipeServer server,
+			final ExecutorService executor, final boolean ownExecutor) {
+		if (server == null) {
+			throw new IllegalArgumentException(
+					"parameter server must not be null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException(
+					"parameter executor must not be null");
+		}
+		this.server = server;
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+	}
+
+	/**
+	 * Starts accepting connections.
+	 */
+	public synchronized void start() {
+		if (closed) {
+			throw new IllegalStateException("acceptor is closed");
+		}
+		if (acceptThread != null) {
+			return;
+		}
+		acceptThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				acceptLoop();
+			}
+		}, "jslipc-acceptor");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+		LOGGER.info("started acceptor for {}", server);
+	}
+
+	/**
+	 * Sets the listener the accepted connections are passed to instead of
+	 * queuing them. Connections already queued are passed to the listener
+	 * immediately.
+	 * 
+	 * @param listener
+	 *            the listener, or <code>null</code> to queue the connections.
+	 */
+	public void setListener(final JslipcConnectionListener listener) {
+		List<JslipcConnection> queued = new ArrayList<JslipcConnection>();
+		synchronized (this) {
+			this.listener = listener;
+			if (listener != null) {
+				connections.drainTo(queued);
+				if (queued.remove(FAILED)) {
+					connections.add(FAILED);
+				}
+			}
+		}
+		for (JslipcConnection connection : queued) {
+			fireAccepted(listener, connection);
+		}
+	}
+
+	/**
+	 * @return the listener, or <code>null</code> if the connections are
+	 *         queued.
+	 */
+	public synchronized JslipcConnectionListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Takes the next accepted connection from the queue, waits if there is
+	 * none.
+	 * 
+	 * @return the connection.
+	 * @throws InterruptedIOException
+	 *             if interrupted or the {@link #getTimeout() timeout} elapsed.
+	 * @throws IOException
+	 *             if the acceptor is closed or failed to wait for requests.
+	 */
+	public JslipcConnection accept() throws IOException {
+		long waitingSince = System.currentTimeMillis();
+		JslipcConnection connection = null;
+		try {
+			while ((connection = connections.poll()) == null) {
+				if (closed) {
+					throw new IOException("acceptor is closed");
+				}
+				// wake up regularly to notice close
+				TimeUtil.checkForTimeout(getTimeout(), waitingSince);
+				long toWait = TimeUtil.getTimeToSleep(
+						TimeUtil.DEFAULT_SLEEP_TIME, getTimeout(), waitingSince);
+				connection = connections.poll(toWait, TimeUnit.MILLISECONDS);
+				if (connection != null) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted by timeout");
+		}
+		if (connection == FAILED) {
+			// leave it for the other waiters
+			connections.add(FAILED);
+			throw new IOException("acceptor failed", failure);
+		}
+		return connection;
+	}
+
+	/**
+	 * Stops accepting connections. The pipes of connections that have not
+	 * been taken are closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		Thread thread;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			thread = acceptThread;
+		}
+		if (thread != null) {
+			thread.interrupt();
+		}
+		if (ownExecutor) {
+			executor.shutdownNow();
+		}
+		List<JslipcConnection> queued = new ArrayList<JslipcConnection>();
+		connections.drainTo(queued);
+		for (JslipcConnection connection : queued) {
+			closePipe(connection);
+		}
+		LOGGER.info("closed acceptor for {}", server);
+	}
+
+	private void acceptLoop() {
+		while (!closed) {
+			final File dir;
+			try {
+				dir = server.waitForDirectory();
+			} catch (InterruptedIOException e) {
+				// accept timeout of the server, or closed
+				continue;
+			} catch (IOException e) {
+				LOGGER.error("failed to wait for requests, stop accepting", e);
+				fail(e);
+				return;
+			}
+			try {
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						handshake(dir);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				if (!closed) {
+					LOGGER.error("handshake rejected, stop accepting", e);
+					fail(new IOException("handshake rejected", e));
+				}
+				return;
+			}
+		}
+	}
+
+	private void fail(final IOException cause) {
+		failure = cause;
+		connections.add(FAILED);
+	}
+
+	private void handshake(final File dir) {
+		JslipcConnection connection = null;
+		try {
+			connection = server.handshake(dir);
+		} catch (IOException e) {
+			LOGGER.error("handshake failed for " + dir, e);
+		}
+		if (connection != null) {
+			publish(connection);
+		}
+	}
+
+	private void publish(final JslipcConnection connection) {
+		JslipcConnectionListener current;
+		synchronized (this) {
+			if (closed) {
+				closePipe(connection);
+				return;
+			}
+			current = listener;
+			if (current == null) {
+				connections.add(connection);
+				return;
+			}
+		}
+		fireAccepted(current, connection);
+	}
+
+	private void fireAccepted(final JslipcConnectionListener listener,
+			final JslipcConnection connection) {
+		try {
+			listener.accepted(connection);
+		} catch (RuntimeException e) {
+			LOGGER.error("listener failed on " + connection, e);
+		}
+	}
+
+	private void closePipe(final JslipcConnection connection) {
+		if (connection.getPipe() instanceof Closeable) {
+			FileUtil.closeSilent((Closeable) connection.getPipe());
+		}
+	}
+
+	/**
+	 * Creates an executor using virtual threads if available, otherwise a
+	 * cached pool of daemon threads.
+	 * 
+	 * @return the executor.
+	 */
+	protected static ExecutorService createDefaultExecutor() {
+		try {
+			Method method = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+			// no virtual threads before Java 21
+		}
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+
+			private int count;
+
+			@Override
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "jslipc-handshake-"
+						+ (++count));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @return the time {@link #accept()} waits for a connection.
+	 */
+	@Override
+	public int getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Sets the time {@link #accept()} waits for a connection.
+	 * 
+	 * @param timeout
+	 *            the timeout in ms.
+	 */
+	@Override
+	public void setTimeout(int timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException(
+					"parameter timeout must be > 0: " + timeout);
+		}
+		this.timeout = timeout;
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("server", server)
+				.add("queued", connections.size()).add("closed", closed)
+				.add("failure", failure).toString();
+	}
+
+}
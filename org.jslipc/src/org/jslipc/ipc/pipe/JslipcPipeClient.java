@@ -1,6 +1,5 @@
 package org.jslipc.ipc.pipe;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -16,6 +15,7 @@ import org.jslipc.ipc.pipe.JslipcRequest.JslipcCommand;
 import org.jslipc.ipc.pipe.JslipcResponse.JslipcCode;
 import org.jslipc.ipc.pipe.file.ChunkFilePipe;
 import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.ipc.pipe.shm.SegmentMemoryPipe;
 import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
 import org.jslipc.util.FileUtil;
 import org.jslipc.util.HostDir;
@@ -50,6 +50,7 @@ public class JslipcPipeClient implements TimeoutAware {
 
 	private File serverConnectDirectory;
 	private int timeout = 0;
+	private String protocolVersion = JslipcRequest.PROTOCOL_VERSION_TEXT;
 
 	/**
 	 * Returns the connect directory depending on the given type.
@@ -119,6 +120,27 @@ public class JslipcPipeClient implements TimeoutAware {
 		return serverConnectDirectory;
 	}
 
+	/**
+	 * @return the protocol version of the requests created by this client.
+	 */
+	public String getProtocolVersion() {
+		return protocolVersion;
+	}
+
+	/**
+	 * Sets the protocol version of the requests created by this client. The
+	 * server answers using the version of the request, so
+	 * {@link JslipcRequest#PROTOCOL_VERSION_BINARY} avoids parsing text on
+	 * both ends, but requires a server that supports it. Defaults to
+	 * {@link JslipcRequest#PROTOCOL_VERSION_TEXT}.
+	 * 
+	 * @param protocolVersion
+	 */
+	public void setProtocolVersion(final String protocolVersion) {
+		JslipcRequest.checkProtocolVersion(protocolVersion);
+		this.protocolVersion = protocolVersion;
+	}
+
 	/**
 	 * Requests and waits for a pipe created by the corresponding
 	 * {@link JslipcPipeServer}
@@ -195,7 +217,8 @@ public class JslipcPipeClient implements TimeoutAware {
 	 */
 	protected JslipcRequest createRequest(
 			Class<? extends JslipcPipe>... acceptedTypes) throws IOException {
-		JslipcRequest request = new JslipcRequest(JslipcCommand.CONNECT);
+		JslipcRequest request = new JslipcRequest(JslipcCommand.CONNECT,
+				getProtocolVersion());
 		request.setAcceptTypes(acceptedTypes);
 		return request;
 	}
@@ -209,14 +232,10 @@ public class JslipcPipeClient implements TimeoutAware {
 	 * @throws IOException
 	 */
 	protected JslipcPipe readResponse(final InputStream in) throws IOException {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		int date = 0;
-		while ((date = in.read()) != -1) {
-			baos.write(date);
-		}
+		byte[] bytes = JslipcChannelInputStream.readAll(in);
 		in.close();
 
-		JslipcResponse response = new JslipcResponse(baos.toByteArray());
+		JslipcResponse response = new JslipcResponse(bytes);
 		LOGGER.debug("read response {} from server {}", response,
 				serverConnectDirectory);
 
@@ -246,6 +265,15 @@ public class JslipcPipeClient implements TimeoutAware {
 			}
 			return new SharedMemoryPipe(file, role);
 		}
+		if (SegmentMemoryPipe.class.equals(type)) {
+			File file = response.getFileParameter(JslipcResponse.PARAM_FILE);
+			JslipcRole role = getRole(response);
+			Long size = response.getLongParameter(JslipcResponse.PARAM_SIZE);
+			if (size != null) {
+				return new SegmentMemoryPipe(file, size, role);
+			}
+			return new SegmentMemoryPipe(file, role);
+		}
 		throw new IOException("unknown type '" + type + "'");
 	}
 
@@ -0,0 +1,71 @@
+package org.jslipc.ipc.pipe;
+
+/**
+ * Management interface of a pipe, see {@link PipeStats}. The counters are
+ * the sums of the {@link org.jslipc.channel.ChannelMetrics metrics} of the
+ * pipe's source and sink, and are <code>0</code> until the channels have been
+ * created.
+ */
+public interface JslipcPipeMXBean {
+
+	/**
+	 * @return the simple class name of the pipe.
+	 */
+	String getType();
+
+	/**
+	 * @return the absolute path of the pipe's file resp. directory.
+	 */
+	String getPath();
+
+	long getBytesRead();
+
+	long getBytesWritten();
+
+	long getReadCalls();
+
+	long getWriteCalls();
+
+	/**
+	 * @return the number of reads that found no data.
+	 */
+	long getEmptyReads();
+
+	/**
+	 * @return the number of writes that found no space.
+	 */
+	long getFullWrites();
+
+	/**
+	 * @return the time spent waiting for data resp. space in ms.
+	 */
+	long getWaitTime();
+
+	long getChunksCreated();
+
+	long getChunksConsumed();
+
+	/**
+	 * @return the number of bytes waiting in the ring buffer of the source,
+	 *         or <code>-1</code> if the pipe has no ring buffer.
+	 */
+	int getSourceFillLevel();
+
+	/**
+	 * @return the number of bytes waiting in the ring buffer of the sink, or
+	 *         <code>-1</code> if the pipe has no ring buffer.
+	 */
+	int getSinkFillLevel();
+
+	/**
+	 * @return <code>true</code> if the peer has closed all channels this end
+	 *         has created, but this end has not been closed.
+	 */
+	boolean isAbandoned();
+
+	/**
+	 * Resets the counters of both channels.
+	 */
+	void resetMetrics();
+
+}
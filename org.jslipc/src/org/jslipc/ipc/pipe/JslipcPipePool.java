@@ -0,0 +1,404 @@
+package org.jslipc.ipc.pipe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.jslipc.JslipcPipe;
+import org.jslipc.channel.JslipcChannel;
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.util.FileUtil;
+import org.jslipc.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A client side pool of established pipes, so repeated exchanges with the same
+ * server do not need a handshake each. Pipes are pooled by the server connect
+ * directory and the connect request, e.g. the accepted pipe types:
+ * {@link #acquire(JslipcPipeClient, Class...)} returns an idle pipe if there
+ * is a healthy one, and connects a new one otherwise. Once done, the pipe is either {@link #release(JslipcPipe)
+ * released} for reuse, or {@link #invalidate(JslipcPipe) invalidated} if its
+ * state is unknown, e.g. after an error.<br/>
+ * <br/>
+ * A pipe is healthy if both of its channels are
+ * {@link JslipcChannelState#Open open}, means neither end has closed it. Idle
+ * pipes are closed if they have not been used for the
+ * {@link #setMaxIdleTime(int) maximum idle time}, which is checked on each
+ * access and by {@link #evictIdle()}.<br/>
+ * <br/>
+ * Note that pipes do not delimit messages, so reusing a pipe requires the
+ * application protocol to do so, e.g. by using a {@link MessagePipe} or an
+ * {@link ExchangePipe}.<br/>
+ * <br/>
+ * {@link #close() Closing} the pool closes all of its pipes, the idle as well
+ * as the acquired ones. It rejects any further acquire or release.
+ */
+public class JslipcPipePool implements Closeable {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(JslipcPipePool.class);
+
+	/**
+	 * The default maximum idle time in ms.
+	 */
+	public static final int DEFAULT_MAX_IDLE_TIME = 60000;
+
+	/**
+	 * The default maximum number of idle pipes per key.
+	 */
+	public static final int DEFAULT_MAX_IDLE = 8;
+
+	private final Map<PoolKey, LinkedList<IdlePipe>> idle = new HashMap<PoolKey, LinkedList<IdlePipe>>();
+	private final Map<JslipcPipe, PoolKey> leased = new IdentityHashMap<JslipcPipe, PoolKey>();
+	private int maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+	private int maxIdle = DEFAULT_MAX_IDLE;
+	private boolean closed;
+
+	/**
+	 * Returns a healthy idle pipe connected to the server of the given client,
+	 * or connects a new one.
+	 * 
+	 * @param client
+	 *            the client used to connect new pipes.
+	 * @param acceptedTypes
+	 *            the pipe types accepted by the client.
+	 * @return the pipe.
+	 * @throws IOException
+	 *             if the pool is closed or connecting fails.
+	 */
+	@SuppressWarnings("unchecked")
+	public JslipcPipe acquire(final JslipcPipeClient client,
+			final Class<? extends JslipcPipe>... acceptedTypes)
+			throws IOException {
+		if (client == null) {
+			throw new IllegalArgumentException(
+					"parameter client must not be null");
+		}
+		return acquire(client, client.createRequest(acceptedTypes));
+	}
+
+	/**
+	 * Returns a healthy idle pipe that has been connected to the server of the
+	 * given client with an equal request, or connects a new one.
+	 * 
+	 * @param client
+	 *            the client used to connect new pipes.
+	 * @param request
+	 *            the request to connect new pipes with.
+	 * @return the pipe.
+	 * @throws IOException
+	 *             if the pool is closed or connecting fails.
+	 */
+	public JslipcPipe acquire(final JslipcPipeClient client,
+			final JslipcRequest request) throws IOException {
+		if (client == null) {
+			throw new IllegalArgumentException(
+					"parameter client must not be null");
+		}
+		if (request == null) {
+			throw new IllegalArgumentException(
+					"parameter request must not be null");
+		}
+		PoolKey key = new PoolKey(client.getServerConnectDirectory(), request);
+		List<JslipcPipe> toClose = new ArrayList<JslipcPipe>();
+		try {
+			synchronized (this) {
+				checkClosed();
+				collectExpired(toClose);
+				LinkedList<IdlePipe> pipes = idle.get(key);
+				while (pipes != null && !pipes.isEmpty()) {
+					JslipcPipe pipe = pipes.removeFirst().pipe;
+					if (isHealthy(pipe)) {
+						leased.put(pipe, key);
+						LOGGER.debug("reusing pipe {}", pipe);
+						return pipe;
+					}
+					toClose.add(pipe);
+				}
+			}
+		} finally {
+			closePipes(toClose);
+		}
+
+		JslipcPipe pipe = client.connect(request);
+		synchronized (this) {
+			if (!closed) {
+				leased.put(pipe, key);
+				return pipe;
+			}
+		}
+		closePipe(pipe);
+		throw new IOException("pool is closed");
+	}
+
+	/**
+	 * Returns the given pipe to the pool. It is closed if it is not healthy,
+	 * or if there are already {@link #getMaxIdle() enough} idle pipes.
+	 * 
+	 * @param pipe
+	 *            a pipe {@link #acquire(JslipcPipeClient, Class...) acquired}
+	 *            from this pool.
+	 * @throws IllegalStateException
+	 *             if the pool is closed.
+	 */
+	public void release(final JslipcPipe pipe) {
+		List<JslipcPipe> toClose = new ArrayList<JslipcPipe>();
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("pool is closed");
+			}
+			PoolKey key = removeLeased(pipe);
+			collectExpired(toClose);
+			LinkedList<IdlePipe> pipes = idle.get(key);
+			if (pipes == null) {
+				pipes = new LinkedList<IdlePipe>();
+				idle.put(key, pipes);
+			}
+			if (pipes.size() >= maxIdle || !isHealthy(pipe)) {
+				toClose.add(pipe);
+			} else {
+				// most recently used first, so surplus pipes expire
+				pipes.addFirst(new IdlePipe(pipe));
+			}
+		}
+		closePipes(toClose);
+	}
+
+	/**
+	 * Closes the given pipe instead of returning it to the pool. This is a
+	 * no-op if the pool is closed, since it has closed the pipe already.
+	 * 
+	 * @param pipe
+	 *            a pipe {@link #acquire(JslipcPipeClient, Class...) acquired}
+	 *            from this pool.
+	 */
+	public void invalidate(final JslipcPipe pipe) {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			removeLeased(pipe);
+		}
+		closePipe(pipe);
+	}
+
+	/**
+	 * Closes all pipes that have been idle longer than the
+	 * {@link #getMaxIdleTime() maximum idle time}.
+	 */
+	public void evictIdle() {
+		List<JslipcPipe> toClose = new ArrayList<JslipcPipe>();
+		synchronized (this) {
+			collectExpired(toClose);
+		}
+		closePipes(toClose);
+	}
+
+	/**
+	 * @return the number of idle pipes.
+	 */
+	public synchronized int getIdleCount() {
+		int count = 0;
+		for (LinkedList<IdlePipe> pipes : idle.values()) {
+			count += pipes.size();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of acquired pipes not yet released.
+	 */
+	public synchronized int getLeasedCount() {
+		return leased.size();
+	}
+
+	/**
+	 * @return the time in ms a pipe may be idle before it is closed.
+	 */
+	public synchronized int getMaxIdleTime() {
+		return maxIdleTime;
+	}
+
+	/**
+	 * Sets the time a pipe may be idle before it is closed.
+	 * 
+	 * @param maxIdleTime
+	 *            the time in ms, or <code>0</code> to keep idle pipes until
+	 *            the pool is closed.
+	 */
+	public synchronized void setMaxIdleTime(final int maxIdleTime) {
+		if (maxIdleTime < 0) {
+			throw new IllegalArgumentException("max idle time must be >= 0: "
+					+ maxIdleTime);
+		}
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	/**
+	 * @return the maximum number of idle pipes per server and types.
+	 */
+	public synchronized int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/**
+	 * Sets the maximum number of idle pipes per server and types.
+	 * 
+	 * @param maxIdle
+	 */
+	public synchronized void setMaxIdle(final int maxIdle) {
+		if (maxIdle < 0) {
+			throw new IllegalArgumentException("max idle must be >= 0: "
+					+ maxIdle);
+		}
+		this.maxIdle = maxIdle;
+	}
+
+	/**
+	 * Closes all idle and acquired pipes. Any further acquire or release is
+	 * rejected.
+	 */
+	@Override
+	public void close() throws IOException {
+		List<JslipcPipe> toClose = new ArrayList<JslipcPipe>();
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			for (LinkedList<IdlePipe> pipes : idle.values()) {
+				for (IdlePipe idlePipe : pipes) {
+					toClose.add(idlePipe.pipe);
+				}
+			}
+			idle.clear();
+			toClose.addAll(leased.keySet());
+			leased.clear();
+		}
+		closePipes(toClose);
+		LOGGER.debug("closed pool, closed {} pipes", toClose.size());
+	}
+
+	private void checkClosed() throws IOException {
+		if (closed) {
+			throw new IOException("pool is closed");
+		}
+	}
+
+	private PoolKey removeLeased(final JslipcPipe pipe) {
+		PoolKey key = leased.remove(pipe);
+		if (key == null) {
+			throw new IllegalArgumentException("pipe " + pipe
+					+ " has not been acquired from this pool");
+		}
+		return key;
+	}
+
+	private void collectExpired(final List<JslipcPipe> toClose) {
+		if (maxIdleTime == 0) {
+			return;
+		}
+		long expiredBefore = System.currentTimeMillis() - maxIdleTime;
+		for (Iterator<LinkedList<IdlePipe>> iter = idle.values().iterator(); iter
+				.hasNext();) {
+			LinkedList<IdlePipe> pipes = iter.next();
+			while (!pipes.isEmpty() && pipes.getLast().since < expiredBefore) {
+				toClose.add(pipes.removeLast().pipe);
+			}
+			if (pipes.isEmpty()) {
+				iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * @param pipe
+	 * @return <code>true</code> if both channels of the pipe are open.
+	 */
+	protected boolean isHealthy(final JslipcPipe pipe) {
+		try {
+			return isOpen(pipe.source()) && isOpen(pipe.sink());
+		} catch (IOException e) {
+			LOGGER.debug("pipe {} is broken: {}", pipe, e.toString());
+			return false;
+		}
+	}
+
+	private boolean isOpen(final JslipcChannel channel) {
+		return channel.getState() == JslipcChannelState.Open;
+	}
+
+	private void closePipes(final List<JslipcPipe> pipes) {
+		for (JslipcPipe pipe : pipes) {
+			closePipe(pipe);
+		}
+	}
+
+	private void closePipe(final JslipcPipe pipe) {
+		LOGGER.debug("closing pooled pipe {}", pipe);
+		if (pipe instanceof Closeable) {
+			FileUtil.closeSilent((Closeable) pipe);
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return StringUtil.build(this).add("idle", getIdleCount())
+				.add("leased", leased.size()).add("maxIdle", maxIdle)
+				.add("maxIdleTime", maxIdleTime).add("closed", closed)
+				.toString();
+	}
+
+	/**
+	 * An idle pipe and the time it has been released.
+	 */
+	private static class IdlePipe {
+
+		private final JslipcPipe pipe;
+		private final long since = System.currentTimeMillis();
+
+		private IdlePipe(final JslipcPipe pipe) {
+			this.pipe = pipe;
+		}
+	}
+
+	/**
+	 * Pipes are pooled by the server connect directory and the request, which
+	 * contains e.g. the accepted types.
+	 */
+	private static class PoolKey {
+
+		private final File connectDirectory;
+		private final JslipcRequest request;
+
+		private PoolKey(final File connectDirectory,
+				final JslipcRequest request) {
+			this.connectDirectory = connectDirectory.getAbsoluteFile();
+			this.request = request;
+		}
+
+		@Override
+		public int hashCode() {
+			return connectDirectory.hashCode() * 31 + request.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PoolKey)) {
+				return false;
+			}
+			PoolKey other = (PoolKey) obj;
+			return connectDirectory.equals(other.connectDirectory)
+					&& request.equals(other.request);
+		}
+	}
+
+}
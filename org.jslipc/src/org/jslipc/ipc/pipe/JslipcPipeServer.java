@@ -1,13 +1,18 @@
 package org.jslipc.ipc.pipe;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
 
 import org.jslipc.JslipcBinman;
 import org.jslipc.JslipcPipe;
@@ -17,22 +22,43 @@ import org.jslipc.channel.JslipcChannelInputStream;
 import org.jslipc.channel.JslipcChannelOutputStream;
 import org.jslipc.channel.file.ReadableJslipcFileChannel;
 import org.jslipc.ipc.pipe.JslipcResponse.JslipcCode;
+import org.jslipc.ipc.pipe.PipePool.PooledPipe;
 import org.jslipc.ipc.pipe.file.ChunkFilePipe;
 import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.ipc.pipe.shm.SegmentMemoryPipe;
 import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
+import org.jslipc.util.FileEventListener;
 import org.jslipc.util.FileUtil;
 import org.jslipc.util.HostDir;
+import org.jslipc.util.JmxUtil;
 import org.jslipc.util.PipeUtil;
 import org.jslipc.util.StringUtil;
 import org.jslipc.util.TimeUtil;
+import org.jslipc.util.WatchUtil;
+import org.jslipc.wait.WaitStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This is an analogy to a ServerSocket. The method {@link #accept()} wait for
- * an incoming connection request sent by a {@link JslipcPipeClient}.
+ * an incoming connection request sent by a {@link JslipcPipeClient}.<br/>
+ * <br/>
+ * Request directories already seen are tracked in memory, and pending
+ * requests are accepted in arrival order. By default the connect directory is
+ * polled. If you {@link #enableFileWatch() enable the file watch},
+ * {@link #accept()} blocks on file system events instead and picks up
+ * requests right away, without listing the connect directory.<br/>
+ * <br/>
+ * {@link #accept()} runs the handshake with the client on the calling thread.
+ * Use a {@link JslipcPipeAcceptor} to process handshakes in parallel, so a
+ * slow client does not block the others. If you {@link #setPoolSize(int) set
+ * a pool size}, pipes are created ahead of time and handed out immediately.<br/>
+ * <br/>
+ * If you {@link #enableJmx() enable JMX}, the server is registered as a
+ * {@link JslipcPipeServerMXBean}, and every pipe it creates from then on is
+ * registered as a {@link JslipcPipeMXBean} until it is closed.
  */
-public class JslipcPipeServer implements TimeoutAware {
+public class JslipcPipeServer implements TimeoutAware, JslipcPipeServerMXBean {
 
 	private final static Logger LOGGER = LoggerFactory
 			.getLogger(JslipcPipeServer.class);
@@ -42,6 +68,15 @@ public class JslipcPipeServer implements TimeoutAware {
 	private Class<? extends JslipcPipe>[] supportedTypes;
 	private int connectTimeout = 0;
 	private int acceptTimeout = 0;
+	private volatile WaitStrategy watchStrategy;
+	private final Object watchLock = new Object();
+	private final AcceptQueue acceptQueue;
+	private volatile PipePool pipePool;
+	private volatile ObjectName objectName;
+	private final AtomicLong acceptedConnections = new AtomicLong();
+	private final AtomicLong failedHandshakes = new AtomicLong();
+	private final AtomicLong handshakeNanos = new AtomicLong();
+	private final AtomicLong maxHandshakeNanos = new AtomicLong();
 
 	/**
 	 * Creates a JslipcPipeServer supporting all pipe types.
@@ -53,7 +88,8 @@ public class JslipcPipeServer implements TimeoutAware {
 	@SuppressWarnings("unchecked")
 	public JslipcPipeServer(final HostDir hostDir) throws IOException {
 		this(PipeUtil.createConnectDir(hostDir), PipeUtil.createPipesDir(hostDir), ChunkFilePipe.class,
-				FilePipe.class, SharedMemoryPipe.class);
+				FilePipe.class, SharedMemoryPipe.class,
+				SegmentMemoryPipe.class);
 	}
 
 	/**
@@ -85,7 +121,8 @@ public class JslipcPipeServer implements TimeoutAware {
 	public JslipcPipeServer(final File connectDirectory,
 			final File pipesDirectory) throws IOException {
 		this(connectDirectory, pipesDirectory, ChunkFilePipe.class,
-				FilePipe.class, SharedMemoryPipe.class);
+				FilePipe.class, SharedMemoryPipe.class,
+				SegmentMemoryPipe.class);
 	}
 
 	/**
@@ -114,6 +151,7 @@ public class JslipcPipeServer implements TimeoutAware {
 		this.connectDirectory = connectDirectory;
 		this.pipesDirectory = pipesDirectory;
 		this.supportedTypes = supportedTypes;
+		this.acceptQueue = new AcceptQueue(connectDirectory);
 
 		LOGGER.info("created {} with connect dir {} and pipes dir {}", this
 				.getClass().getSimpleName(), connectDirectory, pipesDirectory);
@@ -149,9 +187,36 @@ public class JslipcPipeServer implements TimeoutAware {
 	 * @throws IOException
 	 */
 	public JslipcConnection accept() throws IOException {
-		File dir = waitForDirectory();
+		return handshake(waitForDirectory());
+	}
+
+	/**
+	 * Reads the request from the given request directory, creates an
+	 * appropriate pipe and sends the response. This may be called by multiple
+	 * threads, see {@link JslipcPipeAcceptor}.
+	 * 
+	 * @param dir
+	 *            the request directory.
+	 * @return the accepted connection, or <code>null</code> if the request
+	 *         failed.
+	 * @throws IOException
+	 */
+	protected JslipcConnection handshake(final File dir) throws IOException {
+		long start = System.nanoTime();
+		JslipcConnection connection = null;
+		try {
+			connection = doHandshake(dir);
+			return connection;
+		} finally {
+			recordHandshake(connection != null, System.nanoTime() - start);
+		}
+	}
+
+	private JslipcConnection doHandshake(final File dir) throws IOException {
 		FilePipe connectPipe = new FilePipe(dir, JslipcRole.Yin);
 		try {
+			// the connect pipe is polled, a watch service per handshake
+			// would cost an inotify instance and a poller thread
 			connectPipe.cleanUpOnClose();
 
 			JslipcResponse response;
@@ -169,13 +234,13 @@ public class JslipcPipeServer implements TimeoutAware {
 				return null;
 			}
 			try {
-				response = new JslipcResponse(JslipcCode.PipeCreated, "ok");
+				response = createResponse(request, JslipcCode.PipeCreated, "ok");
 				pipe = createPipe(request, response);
 				LOGGER.debug("created pipe {} for request {}", pipe, request);
 			} catch (IOException e) {
 				LOGGER.error("failed to set up pipe", e);
 				sendResponse(
-						new JslipcResponse(JslipcCode.InternalError,
+						createResponse(request, JslipcCode.InternalError,
 								e.getMessage()), out);
 				return null;
 			}
@@ -185,12 +250,28 @@ public class JslipcPipeServer implements TimeoutAware {
 			if (pipe instanceof JslipcBinman) {
 				((JslipcBinman) pipe).cleanUpOnClose();
 			}
+			if (isJmxEnabled() && pipe instanceof ManagedPipe) {
+				PipeStats.register((ManagedPipe) pipe, this);
+			}
 			return new JslipcConnection(pipe, request.getParameters());
 		} finally {
 			connectPipe.close();
 		}
 	}
 
+	private void recordHandshake(final boolean accepted, final long nanos) {
+		if (accepted) {
+			acceptedConnections.incrementAndGet();
+		} else {
+			failedHandshakes.incrementAndGet();
+		}
+		handshakeNanos.addAndGet(nanos);
+		long max = maxHandshakeNanos.get();
+		while (nanos > max && !maxHandshakeNanos.compareAndSet(max, nanos)) {
+			max = maxHandshakeNanos.get();
+		}
+	}
+
 	/**
 	 * Creates a pipe from the given request and sets up the response.
 	 * 
@@ -203,39 +284,143 @@ public class JslipcPipeServer implements TimeoutAware {
 			final JslipcResponse response) throws IOException {
 		Class<? extends JslipcPipe> type = getSuitableType(request);
 
-		if (FilePipe.class.equals(type)) {
-			File dir = FileUtil.createDirectory(getPipesDir());
+		if (FilePipe.class.equals(type) || ChunkFilePipe.class.equals(type)) {
+			PooledPipe pooled = takePooledPipe(type);
 			response.setTypeParameter(type);
-			response.setFileParameter(JslipcResponse.PARAM_DIRECTORY, dir);
+			response.setFileParameter(JslipcResponse.PARAM_DIRECTORY,
+					pooled.getFile());
 			response.setParameter(JslipcResponse.PARAM_ROLE,
 					JslipcRole.Yang.toString());
-			return new FilePipe(dir, JslipcRole.Yin);
+			return pooled.getPipe();
 		}
-		if (ChunkFilePipe.class.equals(type)) {
-			File dir = FileUtil.createDirectory(getPipesDir());
+		if (SharedMemoryPipe.class.equals(type)
+				|| SegmentMemoryPipe.class.equals(type)) {
+			Long size = null;
+			if (SegmentMemoryPipe.class.equals(type)) {
+				// only the segment memory pipe supports sizes above 2 GB
+				size = request.getLongParameter(JslipcResponse.PARAM_SIZE);
+			} else {
+				Integer intSize = request
+						.getIntParameter(JslipcResponse.PARAM_SIZE);
+				if (intSize != null) {
+					size = Long.valueOf(intSize.longValue());
+				}
+			}
+			if (size != null) {
+				File file = FileUtil.createFile(getPipesDir());
+				response.setTypeParameter(type);
+				response.setFileParameter(JslipcResponse.PARAM_FILE, file);
+				response.setParameter(JslipcResponse.PARAM_ROLE,
+						JslipcRole.Yang.toString());
+				response.setLongParameter(JslipcResponse.PARAM_SIZE, size);
+				if (SegmentMemoryPipe.class.equals(type)) {
+					return new SegmentMemoryPipe(file, size, JslipcRole.Yin);
+				}
+				return new SharedMemoryPipe(file, size.intValue(),
+						JslipcRole.Yin);
+			}
+			// only pipes of the default size are pooled
+			PooledPipe pooled = takePooledPipe(type);
 			response.setTypeParameter(type);
-			response.setFileParameter(JslipcResponse.PARAM_DIRECTORY, dir);
+			response.setFileParameter(JslipcResponse.PARAM_FILE,
+					pooled.getFile());
 			response.setParameter(JslipcResponse.PARAM_ROLE,
 					JslipcRole.Yang.toString());
-			return new ChunkFilePipe(dir, JslipcRole.Yin);
+			return pooled.getPipe();
+		}
+		throw new IOException("unknown type '" + type + "'");
+	}
+
+	private PooledPipe takePooledPipe(final Class<? extends JslipcPipe> type)
+			throws IOException {
+		PipePool pool = pipePool;
+		PooledPipe pooled = null;
+		if (pool != null) {
+			pooled = pool.take(type);
+		}
+		if (pooled == null) {
+			pooled = createPooledPipe(type);
+		}
+		return pooled;
+	}
+
+	/**
+	 * Creates a pipe of the given type and the default configuration.
+	 * 
+	 * @param type
+	 * @return the pipe and its file resp. directory.
+	 * @throws IOException
+	 */
+	PooledPipe createPooledPipe(final Class<? extends JslipcPipe> type)
+			throws IOException {
+		if (FilePipe.class.equals(type)) {
+			File dir = FileUtil.createDirectory(getPipesDir());
+			return new PooledPipe(new FilePipe(dir, JslipcRole.Yin), dir);
+		}
+		if (ChunkFilePipe.class.equals(type)) {
+			File dir = FileUtil.createDirectory(getPipesDir());
+			return new PooledPipe(new ChunkFilePipe(dir, JslipcRole.Yin), dir);
 		}
 		if (SharedMemoryPipe.class.equals(type)) {
 			File file = FileUtil.createFile(getPipesDir());
-			Integer size = request.getIntParameter(JslipcResponse.PARAM_SIZE);
-			response.setTypeParameter(type);
-			response.setFileParameter(JslipcResponse.PARAM_FILE, file);
-			response.setParameter(JslipcResponse.PARAM_ROLE,
-					JslipcRole.Yang.toString());
-
-			if (size != null) {
-				response.setIntParameter(JslipcResponse.PARAM_SIZE, size);
-				return new SharedMemoryPipe(file, size, JslipcRole.Yin);
-			}
-			return new SharedMemoryPipe(file, JslipcRole.Yin);
+			return new PooledPipe(new SharedMemoryPipe(file, JslipcRole.Yin),
+					file);
+		}
+		if (SegmentMemoryPipe.class.equals(type)) {
+			File file = FileUtil.createFile(getPipesDir());
+			return new PooledPipe(new SegmentMemoryPipe(file, JslipcRole.Yin),
+					file);
 		}
 		throw new IOException("unknown type '" + type + "'");
 	}
 
+	/**
+	 * @return the number of pipes kept ready per supported type.
+	 */
+	@Override
+	public synchronized int getPoolSize() {
+		return pipePool == null ? 0 : pipePool.getSize();
+	}
+
+	/**
+	 * Keeps the given number of pipes per supported type ready, so the files
+	 * resp. directories of a pipe are created and mapped before a client asks
+	 * for it. The pool is refilled in the background. Shared memory pipes are
+	 * only pooled with the default size, requests for a specific size are
+	 * served by a new pipe.
+	 * 
+	 * @param poolSize
+	 *            the number of pipes per type, or <code>0</code> to disable
+	 *            the pool and release all pooled pipes.
+	 */
+	@Override
+	public synchronized void setPoolSize(final int poolSize) {
+		if (poolSize < 0) {
+			throw new IllegalArgumentException("pool size must be >= 0: "
+					+ poolSize);
+		}
+		if (getPoolSize() == poolSize) {
+			return;
+		}
+		PipePool old = pipePool;
+		pipePool = null;
+		if (old != null) {
+			old.close();
+		}
+		if (poolSize > 0) {
+			pipePool = new PipePool(this, supportedTypes, poolSize);
+		}
+	}
+
+	/**
+	 * @param type
+	 * @return the number of pooled pipes of the given type ready to use.
+	 */
+	protected int getPooledPipes(final Class<? extends JslipcPipe> type) {
+		PipePool pool = pipePool;
+		return pool == null ? 0 : pool.getAvailable(type);
+	}
+
 	/**
 	 * Returns an appropriate pipe class for the request.
 	 * 
@@ -276,13 +461,28 @@ public class JslipcPipeServer implements TimeoutAware {
 	 */
 	protected JslipcRequest readRequest(final InputStream in)
 			throws IOException {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		int date = 0;
-		while ((date = in.read()) != -1) {
-			baos.write(date);
-		}
+		byte[] request = JslipcChannelInputStream.readAll(in);
 		in.close();
-		return new JslipcRequest(baos.toByteArray());
+		return new JslipcRequest(request);
+	}
+
+	/**
+	 * Creates a response using the protocol version of the request, so a
+	 * binary request is answered binary.
+	 * 
+	 * @param request
+	 * @param code
+	 * @param message
+	 * @return the response.
+	 * @throws IOException
+	 */
+	protected JslipcResponse createResponse(final JslipcRequest request,
+			final JslipcCode code, final String message) throws IOException {
+		JslipcResponse response = new JslipcResponse(code, message);
+		if (request.isBinary()) {
+			response.setProtocolVersion(request.getProtocolVersion());
+		}
+		return response;
 	}
 
 	/**
@@ -299,36 +499,95 @@ public class JslipcPipeServer implements TimeoutAware {
 	}
 
 	/**
-	 * Wait for a not yet served FilePipe directory.
+	 * Wait for a not yet served FilePipe directory. Pending directories are
+	 * handed back in arrival order, this may be called by multiple threads.
 	 * 
 	 * @return the directory.
 	 * @throws IOException
 	 */
-	protected synchronized File waitForDirectory() throws IOException {
+	protected File waitForDirectory() throws IOException {
 		File dir = null;
 		long waitingSince = System.currentTimeMillis();
-		while (dir == null) {
-			File[] files = getConnectDir().listFiles();
-			for (File file : files) {
-				if (file.isDirectory() && !isMarkedServed(file)) {
-					dir = file;
-					break;
-				}
+		int round = 0;
+		while ((dir = acceptQueue.poll()) == null) {
+			idle(round++, waitingSince, getAcceptTimeout());
+		}
+		return dir;
+	}
+
+	/**
+	 * Waits for changes in the connect directory if the file watch is
+	 * {@link #enableFileWatch() enabled}, otherwise {@link #sleep(long, int)
+	 * sleeps}.
+	 * 
+	 * @param round
+	 *            the number of rounds the operation has already waited.
+	 * @param waitingSince
+	 *            the timestamp when the operation started to block.
+	 * @throws InterruptedIOException
+	 */
+	protected void idle(int round, long waitingSince, int timeout)
+			throws InterruptedIOException {
+		WaitStrategy strategy = watchStrategy;
+		if (strategy == null) {
+			sleep(waitingSince, timeout);
+			return;
+		}
+		// only one thread blocks on the watch, the others pick up the
+		// directories it has queued
+		synchronized (watchLock) {
+			if (acceptQueue.hasPending()) {
+				return;
 			}
-			if (dir == null) {
-				sleep(waitingSince, getAcceptTimeout());
+			try {
+				strategy.idle(round, timeout, waitingSince);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("interrupted by timeout");
 			}
 		}
-		markServed(dir);
-		return dir;
 	}
 
-	private boolean isMarkedServed(final File dir) {
-		return new File(dir, ".served").exists();
+	/**
+	 * Lets {@link #accept()} block on file system events of the connect
+	 * directory instead of polling it, see
+	 * {@link WatchUtil#createWaitStrategy(File, FileEventListener)}. New
+	 * request directories are then taken from the events, so the connect
+	 * directory is not listed anymore. The pipes used to read the requests
+	 * are still polled, the request has usually been written by the time its
+	 * directory is accepted.
+	 * 
+	 * @return <code>true</code> if the file watch has been enabled,
+	 *         <code>false</code> if the server keeps polling.
+	 */
+	public boolean enableFileWatch() {
+		if (watchStrategy == null) {
+			watchStrategy = WatchUtil.createWaitStrategy(getConnectDir(),
+					acceptQueue);
+			if (watchStrategy != null) {
+				acceptQueue.setWatched(true);
+			}
+		}
+		return watchStrategy != null;
 	}
 
-	private void markServed(final File dir) throws IOException {
-		new File(dir, ".served").createNewFile();
+	/**
+	 * Releases the resources of the file watch, the server falls back to
+	 * polling.
+	 */
+	public void disableFileWatch() {
+		WaitStrategy strategy = watchStrategy;
+		watchStrategy = null;
+		acceptQueue.setWatched(false);
+		WatchUtil.closeSilent(strategy);
+	}
+
+	/**
+	 * @return <code>true</code> if the file watch has been
+	 *         {@link #enableFileWatch() enabled}.
+	 */
+	@Override
+	public boolean isFileWatchEnabled() {
+		return watchStrategy != null;
 	}
 
 	/**
@@ -350,6 +609,7 @@ public class JslipcPipeServer implements TimeoutAware {
 	/**
 	 * @return the {@link #accept()} timeout.
 	 */
+	@Override
 	public int getAcceptTimeout() {
 		return acceptTimeout;
 	}
@@ -393,6 +653,121 @@ public class JslipcPipeServer implements TimeoutAware {
 		this.connectTimeout = timeout;
 	}
 
+	/**
+	 * Registers this server at the platform MBean server as
+	 * <code>org.jslipc:type=JslipcPipeServer,name=&lt;connect dir&gt;</code>.
+	 * Pipes created by {@link #accept()} are registered from then on, see
+	 * {@link PipeStats}.
+	 * 
+	 * @return <code>true</code> if the MBean has been registered.
+	 */
+	public synchronized boolean enableJmx() {
+		if (objectName == null) {
+			ObjectName name = JmxUtil.createName("JslipcPipeServer",
+					getConnectPath());
+			if (JmxUtil.register(this, name)) {
+				objectName = name;
+			}
+		}
+		return objectName != null;
+	}
+
+	/**
+	 * Unregisters the MBean of this server. New pipes are not registered
+	 * anymore, already registered pipes stay registered until they are
+	 * closed.
+	 */
+	public synchronized void disableJmx() {
+		JmxUtil.unregister(objectName);
+		objectName = null;
+	}
+
+	/**
+	 * @return <code>true</code> if the server has been
+	 *         {@link #enableJmx() registered}.
+	 */
+	public boolean isJmxEnabled() {
+		return objectName != null;
+	}
+
+	@Override
+	public String getConnectPath() {
+		return getConnectDir().getAbsolutePath();
+	}
+
+	@Override
+	public String getPipesPath() {
+		return getPipesDir().getAbsolutePath();
+	}
+
+	@Override
+	public long getAcceptedConnections() {
+		return acceptedConnections.get();
+	}
+
+	@Override
+	public long getFailedHandshakes() {
+		return failedHandshakes.get();
+	}
+
+	@Override
+	public double getAverageHandshakeTime() {
+		long count = acceptedConnections.get() + failedHandshakes.get();
+		if (count == 0) {
+			return 0;
+		}
+		return handshakeNanos.get() / 1000000d / count;
+	}
+
+	@Override
+	public double getMaxHandshakeTime() {
+		return maxHandshakeNanos.get() / 1000000d;
+	}
+
+	@Override
+	public int getPendingRequests() {
+		return PipeUtil.countPendingRequests(getConnectDir());
+	}
+
+	@Override
+	public Map<String, Integer> getLivePipes() {
+		Map<String, Integer> result = new TreeMap<String, Integer>();
+		for (Class<? extends JslipcPipe> type : supportedTypes) {
+			result.put(type.getSimpleName(), 0);
+		}
+		for (PipeStats stats : PipeStats.getRegistered(this)) {
+			Integer count = result.get(stats.getType());
+			result.put(stats.getType(), count == null ? 1 : count + 1);
+		}
+		return result;
+	}
+
+	@Override
+	public List<String> getAbandonedPipes() {
+		List<String> result = new ArrayList<String>();
+		for (PipeStats stats : PipeStats.getAbandoned(this)) {
+			result.add(stats.getPath());
+		}
+		return result;
+	}
+
+	@Override
+	public int closeAbandonedPipes() {
+		int count = PipeStats.closeAbandoned(this);
+		if (count > 0) {
+			LOGGER.info("closed {} abandoned pipes", count);
+		}
+		return count;
+	}
+
+	@Override
+	public void resetStatistics() {
+		acceptedConnections.set(0);
+		failedHandshakes.set(0);
+		handshakeNanos.set(0);
+		maxHandshakeNanos.set(0);
+	}
+
 	@Override
 	public String toString() {
 		return StringUtil.build(this).add("connectDirectory", getConnectDir())
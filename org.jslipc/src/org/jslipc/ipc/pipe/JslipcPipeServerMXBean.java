@@ -0,0 +1,86 @@
+package org.jslipc.ipc.pipe;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface of a {@link JslipcPipeServer}, see
+ * {@link JslipcPipeServer#enableJmx()}.
+ */
+public interface JslipcPipeServerMXBean {
+
+	/**
+	 * @return the absolute path of the connect directory.
+	 */
+	String getConnectPath();
+
+	/**
+	 * @return the absolute path of the pipes directory.
+	 */
+	String getPipesPath();
+
+	/**
+	 * @return the number of connections accepted.
+	 */
+	long getAcceptedConnections();
+
+	/**
+	 * @return the number of handshakes that failed.
+	 */
+	long getFailedHandshakes();
+
+	/**
+	 * @return the average duration of a handshake in ms.
+	 */
+	double getAverageHandshakeTime();
+
+	/**
+	 * @return the maximum duration of a handshake in ms.
+	 */
+	double getMaxHandshakeTime();
+
+	/**
+	 * @return the number of request directories not yet served.
+	 */
+	int getPendingRequests();
+
+	/**
+	 * @return the number of live pipes created by the server per type, only
+	 *         pipes created while JMX is enabled are counted.
+	 */
+	Map<String, Integer> getLivePipes();
+
+	int getPoolSize();
+
+	void setPoolSize(int poolSize);
+
+	int getAcceptTimeout();
+
+	int getTimeout();
+
+	boolean isFileWatchEnabled();
+
+	/**
+	 * Returns the paths of the live pipes whose peer has closed its end, but
+	 * which have not been closed by the application, see
+	 * {@link JslipcPipeMXBean#isAbandoned()}.
+	 * 
+	 * @return the paths of the abandoned pipes.
+	 */
+	List<String> getAbandonedPipes();
+
+	/**
+	 * Closes the {@link #getAbandonedPipes() abandoned pipes} and cleans up
+	 * their files. Operations of the application still using such a pipe
+	 * fail with a {@link java.nio.channels.ClosedChannelException}.
+	 * 
+	 * @return the number of closed pipes.
+	 */
+	int closeAbandonedPipes();
+
+	/**
+	 * Resets the handshake statistics.
+	 */
+	void resetStatistics();
+
+}
@@ -2,6 +2,7 @@ package org.jslipc.ipc.pipe;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -21,16 +22,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This is an {@link URLConnection} based on a {@link JslipcPipe}.
+ * This is an {@link URLConnection} based on a {@link JslipcPipe}.<br/>
+ * <br/>
+ * By default each connection negotiates a new pipe, and closing the streams
+ * closes the pipe. If the request parameter
+ * {@link JslipcRequest#PARAM_KEEP_ALIVE keep-alive} is <code>true</code>
+ * (passed e.g. as URL query parameter), the pipe is taken from the
+ * {@link #getKeepAlivePool() keep-alive pool} instead, and the request and
+ * response bodies are exchanged over an {@link ExchangePipe}: the request
+ * ends when its output stream is closed or the input stream is requested,
+ * and the pipe is returned to the pool once the response has been read
+ * completely or its stream is closed. The server has to serve such a pipe
+ * with an ExchangePipe as well, see {@link JslipcConnection#isKeepAlive()}.
  */
 public class JslipcPipeURLConnection extends URLConnection {
 
 	private final static Logger LOGGER = LoggerFactory
 			.getLogger(JslipcPipeURLConnection.class);
 
+	private static volatile JslipcPipePool keepAlivePool = new JslipcPipePool();
+
 	protected JslipcPipeClient client;
 	protected InputStream in;
 	protected OutputStream out;
+	protected ExchangePipe exchange;
+	private JslipcPipePool pool;
 
 	/**
 	 * Create an URL connection based on the given pipe.
@@ -65,6 +81,11 @@ public class JslipcPipeURLConnection extends URLConnection {
 		JslipcRequest request = createRequest();
 		client.setTimeout(getConnectTimeout());
 		LOGGER.debug("set connect timeout to {}", getConnectTimeout());
+		if (request.isKeepAlive()) {
+			connectKeepAlive(request);
+			connected = true;
+			return;
+		}
 		JslipcPipe pipe = client.connect(request);
 
 		JslipcChannelInputStream inputStream = new JslipcChannelInputStream(
@@ -81,14 +102,55 @@ public class JslipcPipeURLConnection extends URLConnection {
 		connected = true;
 	}
 
+	private void connectKeepAlive(final JslipcRequest request)
+			throws IOException {
+		pool = getKeepAlivePool();
+		JslipcPipe pipe = pool.acquire(client, request);
+		exchange = new ExchangePipe(pipe);
+		exchange.setTimeout(getReadTimeout());
+		try {
+			out = exchange.nextOutput();
+		} catch (IOException e) {
+			pool.invalidate(pipe);
+			throw e;
+		}
+		LOGGER.debug("sending keep-alive exchange over {}", pipe);
+	}
+
 	@Override
 	public synchronized InputStream getInputStream() throws IOException {
 		if (!connected) {
 			connect();
 		}
+		if (exchange != null && in == null) {
+			in = readResponse();
+		}
 		return in;
 	}
 
+	/**
+	 * Ends the request and waits for the response of the keep-alive exchange.
+	 * 
+	 * @return the response stream.
+	 * @throws IOException
+	 */
+	private InputStream readResponse() throws IOException {
+		JslipcPipe pipe = exchange.getPipe();
+		InputStream body;
+		try {
+			out.close();
+			body = exchange.nextInput();
+		} catch (IOException e) {
+			pool.invalidate(pipe);
+			throw e;
+		}
+		if (body == null) {
+			pool.invalidate(pipe);
+			throw new IOException("pipe " + pipe + " has been closed by peer");
+		}
+		return new ResponseInputStream(body);
+	}
+
 	@Override
 	public synchronized OutputStream getOutputStream() throws IOException {
 		if (!connected) {
@@ -104,7 +166,8 @@ public class JslipcPipeURLConnection extends URLConnection {
 	 * @throws IOException
 	 */
 	protected JslipcRequest createRequest() throws IOException {
-		JslipcRequest request = new JslipcRequest(JslipcCommand.CONNECT);
+		JslipcRequest request = new JslipcRequest(JslipcCommand.CONNECT,
+				client.getProtocolVersion());
 
 		// pass query parameter
 		Map<String, String> parameters = parseParameter(url.getQuery());
@@ -140,4 +203,93 @@ public class JslipcPipeURLConnection extends URLConnection {
 		return result;
 	}
 
+	/**
+	 * @return the pool keep-alive pipes are taken from.
+	 */
+	public static JslipcPipePool getKeepAlivePool() {
+		return keepAlivePool;
+	}
+
+	/**
+	 * Sets the pool keep-alive pipes are taken from. The previous pool is not
+	 * closed.
+	 * 
+	 * @param pool
+	 */
+	public static void setKeepAlivePool(final JslipcPipePool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException(
+					"parameter pool must not be null");
+		}
+		keepAlivePool = pool;
+	}
+
+	/**
+	 * Returns the pipe to the pool once the response has been read or the
+	 * stream is closed, and invalidates it on errors.
+	 */
+	private class ResponseInputStream extends FilterInputStream {
+
+		private boolean done;
+
+		private ResponseInputStream(final InputStream body) {
+			super(body);
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				return checkEnd(super.read());
+			} catch (IOException e) {
+				invalidate();
+				throw e;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			try {
+				return checkEnd(super.read(b, off, len));
+			} catch (IOException e) {
+				invalidate();
+				throw e;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (done) {
+				return;
+			}
+			try {
+				super.close();
+			} catch (IOException e) {
+				invalidate();
+				throw e;
+			}
+			release();
+		}
+
+		private int checkEnd(final int count) {
+			if (count == -1) {
+				release();
+			}
+			return count;
+		}
+
+		private void release() {
+			if (!done) {
+				done = true;
+				pool.release(exchange.getPipe());
+			}
+		}
+
+		private void invalidate() {
+			if (!done) {
+				done = true;
+				pool.invalidate(exchange.getPipe());
+			}
+		}
+	}
+
 }
@@ -1,5 +1,7 @@
 package org.jslipc.ipc.pipe;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,6 +18,12 @@ public class JslipcRequest extends AbstractJslipcMessage {
 		CONNECT;
 	}
 
+	/**
+	 * If <code>true</code>, the pipe carries multiple exchanges, see
+	 * {@link ExchangePipe}.
+	 */
+	public static final String PARAM_KEEP_ALIVE = "keep-alive";
+
 	private JslipcCommand command;
 
 	/**
@@ -23,7 +31,7 @@ public class JslipcRequest extends AbstractJslipcMessage {
 	 * @see #toBytes()
 	 */
 	public JslipcRequest(final byte[] request) throws IOException {
-		super(new String(request, StringUtil.CHARSET_UTF_8));
+		super(request);
 	}
 
 	/**
@@ -38,7 +46,16 @@ public class JslipcRequest extends AbstractJslipcMessage {
 	 * Creates a JslipcRequest with the given commad.
 	 */
 	public JslipcRequest(final JslipcCommand command) throws IOException {
-		super(command + " " + JSLIPC_PROTOCOL_PREFIX + "1.0");
+		super(command + " " + JSLIPC_PROTOCOL_PREFIX + PROTOCOL_VERSION_TEXT);
+	}
+
+	/**
+	 * Creates a JslipcRequest with the given command and protocol version.
+	 */
+	public JslipcRequest(final JslipcCommand command,
+			final String protocolVersion) throws IOException {
+		this(command);
+		setProtocolVersion(protocolVersion);
 	}
 	
 	@Override
@@ -75,6 +92,28 @@ public class JslipcRequest extends AbstractJslipcMessage {
 		return parts[1];
 	}
 
+	@Override
+	protected void parseBinaryHeader(DataInput in) throws IOException {
+		int ordinal = in.readUnsignedByte();
+		if (ordinal >= JslipcCommand.values().length) {
+			throw new IOException("bad command id " + ordinal);
+		}
+		command = JslipcCommand.values()[ordinal];
+	}
+
+	@Override
+	protected void writeBinaryHeader(DataOutput out) throws IOException {
+		out.writeByte(getCommand().ordinal());
+	}
+
+	/**
+	 * @return <code>true</code> if the parameter {@link #PARAM_KEEP_ALIVE} is
+	 *         <code>true</code>.
+	 */
+	public boolean isKeepAlive() {
+		return Boolean.parseBoolean(getParameter(PARAM_KEEP_ALIVE));
+	}
+
 	/**
 	 * @return the command of the request.
 	 */
@@ -1,5 +1,7 @@
 package org.jslipc.ipc.pipe;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 
 import org.jslipc.JslipcRole;
@@ -59,7 +61,8 @@ public class JslipcResponse extends AbstractJslipcMessage {
 	 * Creates a JslipcResponse with the given code and message.
 	 */
 	public JslipcResponse(final JslipcCode code, final String message) throws IOException {
-		super(JSLIPC_PROTOCOL_PREFIX + "1.0 " + code.value() + " " + message);
+		super(JSLIPC_PROTOCOL_PREFIX + PROTOCOL_VERSION_TEXT + " "
+				+ code.value() + " " + message);
 	}
 	
 	@Override
@@ -101,6 +104,23 @@ public class JslipcResponse extends AbstractJslipcMessage {
 		}
 	}
 
+	@Override
+	protected void parseBinaryHeader(DataInput in) throws IOException {
+		int value = in.readUnsignedShort();
+		try {
+			code = JslipcCode.valueOf(value);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("bad code " + value);
+		}
+		message = readString(in);
+	}
+
+	@Override
+	protected void writeBinaryHeader(DataOutput out) throws IOException {
+		out.writeShort(getCode().value());
+		writeString(out, String.valueOf(getMessage()));
+	}
+
 	private JslipcCode getCode(final String value, final String header)
 			throws IOException {
 		try {
@@ -0,0 +1,17 @@
+package org.jslipc.ipc.pipe;
+
+import org.jslipc.JslipcBinman;
+import org.jslipc.JslipcPipe;
+
+/**
+ * A pipe that may be monitored by JMX, see {@link PipeStats#register(ManagedPipe, Object)}.
+ * A registered pipe is unregistered on {@link #close()}.
+ */
+public interface ManagedPipe extends JslipcPipe, JslipcBinman {
+
+	/**
+	 * @return the statistics of this pipe.
+	 */
+	PipeStats getStats();
+
+}
@@ -0,0 +1,129 @@
+package org.jslipc.ipc.pipe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jslipc.JslipcBinman;
+import org.jslipc.JslipcPipe;
+import org.jslipc.channel.MessageChannel;
+import org.jslipc.channel.StreamMessageChannel;
+import org.jslipc.channel.buffer.BbqMessageChannel;
+import org.jslipc.ipc.pipe.file.ChunkFilePipe;
+import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
+import org.jslipc.util.StringUtil;
+import org.jslipc.wait.WaitStrategy;
+
+/**
+ * Wraps any {@link JslipcPipe} in order to transfer whole messages instead of
+ * a raw byte stream, see {@link MessageChannel}. Depending on the pipe, a
+ * specialized channel is used:
+ * <ul>
+ * <li>{@link SharedMemoryPipe}: records never straddle the wrap point of the
+ * buffer, so they are written and read with a single copy, see
+ * {@link BbqMessageChannel}.</li>
+ * <li>{@link ChunkFilePipe}: a batch of messages is written into one chunk
+ * file, see {@link StreamMessageChannel}.</li>
+ * <li>any other pipe: records are streamed.</li>
+ * </ul>
+ * Both ends of the pipe have to use a MessagePipe.
+ */
+public class MessagePipe implements MessageChannel, JslipcBinman {
+
+	private final JslipcPipe pipe;
+	private final MessageChannel channel;
+
+	/**
+	 * Creates a MessagePipe on top of the given pipe.
+	 * 
+	 * @param pipe
+	 * @throws IOException
+	 */
+	public MessagePipe(final JslipcPipe pipe) throws IOException {
+		if (pipe == null) {
+			throw new IllegalArgumentException("parameter pipe must not be null");
+		}
+		this.pipe = pipe;
+		this.channel = createMessageChannel(pipe);
+	}
+
+	protected MessageChannel createMessageChannel(final JslipcPipe pipe)
+			throws IOException {
+		if (pipe instanceof SharedMemoryPipe) {
+			SharedMemoryPipe shmPipe = (SharedMemoryPipe) pipe;
+			return new BbqMessageChannel(shmPipe.source(), shmPipe.sink());
+		}
+		return new StreamMessageChannel(pipe.source(), pipe.sink());
+	}
+
+	/**
+	 * @return the wrapped pipe.
+	 */
+	public JslipcPipe getPipe() {
+		return pipe;
+	}
+
+	protected MessageChannel getChannel() {
+		return channel;
+	}
+
+	@Override
+	public void send(ByteBuffer message) throws IOException {
+		channel.send(message);
+	}
+
+	@Override
+	public void send(ByteBuffer[] messages) throws IOException {
+		channel.send(messages);
+	}
+
+	@Override
+	public ByteBuffer receive() throws IOException {
+		return channel.receive();
+	}
+
+	@Override
+	public int getTimeout() {
+		return channel.getTimeout();
+	}
+
+	@Override
+	public void setTimeout(int timeout) {
+		channel.setTimeout(timeout);
+	}
+
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return channel.getWaitStrategy();
+	}
+
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		channel.setWaitStrategy(waitStrategy);
+	}
+
+	@Override
+	public void cleanUpOnClose() {
+		if (pipe instanceof JslipcBinman) {
+			((JslipcBinman) pipe).cleanUpOnClose();
+		}
+	}
+
+	/**
+	 * Closes the wrapped pipe.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (pipe instanceof Closeable) {
+			((Closeable) pipe).close();
+		} else {
+			channel.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("pipe", pipe).toString();
+	}
+
+}
@@ -0,0 +1,191 @@
+package org.jslipc.ipc.pipe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jslipc.JslipcPipe;
+import org.jslipc.util.FileUtil;
+import org.jslipc.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of pre-created pipes for the {@link JslipcPipeServer}, so the
+ * directories resp. files of a pipe are created (and mapped) before a client
+ * asks for it. Each supported type has its own pool of the configured size,
+ * which is refilled on a background thread whenever a pipe is taken.
+ */
+class PipePool {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(PipePool.class);
+
+	private final JslipcPipeServer server;
+	private final int size;
+	private final Map<Class<? extends JslipcPipe>, BlockingQueue<PooledPipe>> pools = new HashMap<Class<? extends JslipcPipe>, BlockingQueue<PooledPipe>>();
+	private final ExecutorService refiller;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a pool for the given types and starts filling it.
+	 * 
+	 * @param server
+	 *            the server creating the pipes.
+	 * @param types
+	 *            the pipe types to pool.
+	 * @param size
+	 *            the number of pipes to keep per type.
+	 */
+	public PipePool(final JslipcPipeServer server,
+			final Class<? extends JslipcPipe>[] types, final int size) {
+		this.server = server;
+		this.size = size;
+		for (Class<? extends JslipcPipe> type : types) {
+			pools.put(type, new LinkedBlockingQueue<PooledPipe>());
+		}
+		refiller = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "jslipc-pipe-pool");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (Class<? extends JslipcPipe> type : types) {
+			scheduleRefill(type);
+		}
+	}
+
+	/**
+	 * @return the number of pipes kept per type.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @param type
+	 * @return the number of pooled pipes of the given type.
+	 */
+	public int getAvailable(final Class<? extends JslipcPipe> type) {
+		BlockingQueue<PooledPipe> pool = pools.get(type);
+		return pool == null ? 0 : pool.size();
+	}
+
+	/**
+	 * Takes a pooled pipe of the given type and triggers the refill.
+	 * 
+	 * @param type
+	 * @return the pipe, or <code>null</code> if none is available.
+	 */
+	public PooledPipe take(final Class<? extends JslipcPipe> type) {
+		BlockingQueue<PooledPipe> pool = pools.get(type);
+		if (pool == null || closed) {
+			return null;
+		}
+		PooledPipe pipe = pool.poll();
+		scheduleRefill(type);
+		return pipe;
+	}
+
+	/**
+	 * Stops refilling and releases all pooled pipes.
+	 */
+	public void close() {
+		closed = true;
+		refiller.shutdownNow();
+		try {
+			refiller.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (BlockingQueue<PooledPipe> pool : pools.values()) {
+			List<PooledPipe> pipes = new ArrayList<PooledPipe>();
+			pool.drainTo(pipes);
+			for (PooledPipe pipe : pipes) {
+				pipe.release();
+			}
+		}
+	}
+
+	private void scheduleRefill(final Class<? extends JslipcPipe> type) {
+		if (closed) {
+			return;
+		}
+		try {
+			refiller.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					refill(type);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// closed concurrently
+		}
+	}
+
+	private void refill(final Class<? extends JslipcPipe> type) {
+		BlockingQueue<PooledPipe> pool = pools.get(type);
+		while (!closed && pool.size() < size) {
+			try {
+				pool.add(server.createPooledPipe(type));
+			} catch (IOException e) {
+				LOGGER.warn("failed to create pipe for pool", e);
+				return;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("size", size)
+				.add("types", pools.keySet()).toString();
+	}
+
+	/**
+	 * A pre-created pipe and the file resp. directory it is based on.
+	 */
+	static class PooledPipe {
+
+		private final JslipcPipe pipe;
+		private final File file;
+
+		public PooledPipe(final JslipcPipe pipe, final File file) {
+			this.pipe = pipe;
+			this.file = file;
+		}
+
+		public JslipcPipe getPipe() {
+			return pipe;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Closes the unused pipe and deletes its files.
+		 */
+		void release() {
+			if (pipe instanceof Closeable) {
+				FileUtil.closeSilent((Closeable) pipe);
+			}
+			FileUtil.delete(file, true);
+		}
+	}
+
+}
@@ -0,0 +1,329 @@
+package org.jslipc.ipc.pipe;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.jslipc.channel.ChannelMetrics;
+import org.jslipc.channel.JslipcChannel;
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.util.JmxUtil;
+import org.jslipc.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link JslipcPipeMXBean} of a {@link ManagedPipe}. The statistics are
+ * read from the pipe's channels on demand, channels not yet created are not
+ * forced, so monitoring a pipe does not change its behavior.<br/>
+ * <br/>
+ * Pipes are {@link #register(ManagedPipe, Object) registered} as
+ * <code>org.jslipc:type=Pipe,name=&lt;type&gt;-&lt;id&gt;</code> and
+ * {@link #unregister(ManagedPipe) unregistered} when they are closed. The
+ * owner passed on registration, e.g. the {@link JslipcPipeServer} that
+ * created the pipe, may look up its live pipes via
+ * {@link #getRegistered(Object)}.
+ */
+public abstract class PipeStats implements JslipcPipeMXBean {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(PipeStats.class);
+
+	private static final AtomicLong NEXT_ID = new AtomicLong();
+	private static final Map<ManagedPipe, PipeStats> REGISTERED = new ConcurrentHashMap<ManagedPipe, PipeStats>();
+
+	private final ManagedPipe pipe;
+	private final File file;
+	private volatile ObjectName objectName;
+	private volatile Object owner;
+
+	/**
+	 * @param pipe
+	 *            the pipe.
+	 * @param file
+	 *            the file resp. directory of the pipe.
+	 */
+	protected PipeStats(final ManagedPipe pipe, final File file) {
+		this.pipe = pipe;
+		this.file = file;
+	}
+
+	/**
+	 * @return the source channel, or <code>null</code> if it has not yet been
+	 *         created.
+	 */
+	protected abstract JslipcChannel getSource();
+
+	/**
+	 * @return the sink channel, or <code>null</code> if it has not yet been
+	 *         created.
+	 */
+	protected abstract JslipcChannel getSink();
+
+	/**
+	 * @return the pipe.
+	 */
+	public ManagedPipe getPipe() {
+		return pipe;
+	}
+
+	/**
+	 * @return the name the pipe has been registered with, or
+	 *         <code>null</code> if not registered.
+	 */
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	@Override
+	public String getType() {
+		return pipe.getClass().getSimpleName();
+	}
+
+	@Override
+	public String getPath() {
+		return file == null ? null : file.getAbsolutePath();
+	}
+
+	@Override
+	public long getBytesRead() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getBytesRead();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getBytesWritten() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getBytesWritten();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getReadCalls() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getReadCalls();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getWriteCalls() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getWriteCalls();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getEmptyReads() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getEmptyReads();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getFullWrites() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getFullWrites();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getWaitTime() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getWaitNanos();
+		}
+		return TimeUnit.NANOSECONDS.toMillis(sum);
+	}
+
+	@Override
+	public long getChunksCreated() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getChunksCreated();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getChunksConsumed() {
+		long sum = 0;
+		for (ChannelMetrics metrics : getMetrics()) {
+			sum += metrics.getChunksConsumed();
+		}
+		return sum;
+	}
+
+	@Override
+	public int getSourceFillLevel() {
+		return -1;
+	}
+
+	@Override
+	public int getSinkFillLevel() {
+		return -1;
+	}
+
+	@Override
+	public boolean isAbandoned() {
+		JslipcChannel source = getSource();
+		JslipcChannel sink = getSink();
+		if (source == null && sink == null) {
+			return false;
+		}
+		return isClosedByPeer(source) && isClosedByPeer(sink);
+	}
+
+	private boolean isClosedByPeer(final JslipcChannel channel) {
+		return channel == null
+				|| channel.getState() == JslipcChannelState.ClosedByPeer;
+	}
+
+	@Override
+	public void resetMetrics() {
+		for (ChannelMetrics metrics : getMetrics()) {
+			metrics.reset();
+		}
+	}
+
+	private List<ChannelMetrics> getMetrics() {
+		List<ChannelMetrics> result = new ArrayList<ChannelMetrics>(2);
+		ChannelMetrics metrics = ChannelMetrics.of(getSource());
+		if (metrics != null) {
+			result.add(metrics);
+		}
+		metrics = ChannelMetrics.of(getSink());
+		if (metrics != null) {
+			result.add(metrics);
+		}
+		return result;
+	}
+
+	/**
+	 * Registers the statistics of the given pipe at the platform MBean
+	 * server.
+	 * 
+	 * @param pipe
+	 * @param owner
+	 *            the owner of the pipe, may be <code>null</code>.
+	 * @return <code>true</code> if the pipe has been registered.
+	 */
+	public static boolean register(final ManagedPipe pipe, final Object owner) {
+		if (pipe == null) {
+			throw new IllegalArgumentException(
+					"parameter pipe must not be null");
+		}
+		PipeStats stats = pipe.getStats();
+		if (stats.objectName != null) {
+			return true;
+		}
+		ObjectName name = JmxUtil.createName("Pipe", stats.getType() + "-"
+				+ NEXT_ID.incrementAndGet());
+		if (!JmxUtil.register(stats, name)) {
+			return false;
+		}
+		stats.owner = owner;
+		stats.objectName = name;
+		REGISTERED.put(pipe, stats);
+		return true;
+	}
+
+	/**
+	 * Unregisters the statistics of the given pipe, if registered.
+	 * 
+	 * @param pipe
+	 */
+	public static void unregister(final ManagedPipe pipe) {
+		PipeStats stats = REGISTERED.remove(pipe);
+		if (stats != null) {
+			JmxUtil.unregister(stats.objectName);
+			stats.objectName = null;
+			stats.owner = null;
+		}
+	}
+
+	/**
+	 * @param owner
+	 * @return the statistics of all registered pipes of the given owner.
+	 */
+	public static List<PipeStats> getRegistered(final Object owner) {
+		List<PipeStats> result = new ArrayList<PipeStats>();
+		for (PipeStats stats : REGISTERED.values()) {
+			if (stats.owner == owner) {
+				result.add(stats);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the statistics of all registered pipes of the given owner that
+	 * are {@link #isAbandoned() abandoned} by their peer. The pipes are not
+	 * closed, see {@link #closeAbandoned(Object)}.
+	 * 
+	 * @param owner
+	 * @return the statistics of the abandoned pipes.
+	 */
+	public static List<PipeStats> getAbandoned(final Object owner) {
+		List<PipeStats> result = new ArrayList<PipeStats>();
+		for (PipeStats stats : getRegistered(owner)) {
+			if (stats.isAbandoned()) {
+				result.add(stats);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Closes all registered pipes of the given owner that are
+	 * {@link #isAbandoned() abandoned} by their peer. The pipes clean up
+	 * their files on close. Closing is safe while the application still uses
+	 * a pipe, the pipes release their buffers only after the operations in
+	 * progress have finished. Further operations of the application fail with
+	 * a {@link java.nio.channels.ClosedChannelException}.
+	 * 
+	 * @param owner
+	 * @return the number of closed pipes.
+	 */
+	public static int closeAbandoned(final Object owner) {
+		int count = 0;
+		for (PipeStats stats : getAbandoned(owner)) {
+			ManagedPipe pipe = stats.getPipe();
+			try {
+				pipe.cleanUpOnClose();
+				pipe.close();
+				++count;
+			} catch (IOException e) {
+				LOGGER.warn("failed to close abandoned pipe " + pipe, e);
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("type", getType())
+				.add("path", getPath()).add("objectName", objectName)
+				.toString();
+	}
+
+}
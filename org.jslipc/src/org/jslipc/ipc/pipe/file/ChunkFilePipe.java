@@ -6,11 +6,16 @@ import java.io.IOException;
 import org.jslipc.JslipcBinman;
 import org.jslipc.JslipcPipe;
 import org.jslipc.JslipcRole;
+import org.jslipc.channel.JslipcChannel;
 import org.jslipc.channel.file.chunk.ReadableChunkFileChannel;
 import org.jslipc.channel.file.chunk.WritableChunkFileChannel;
+import org.jslipc.ipc.pipe.ManagedPipe;
+import org.jslipc.ipc.pipe.PipeStats;
 import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
 import org.jslipc.util.FileUtil;
 import org.jslipc.util.StringUtil;
+import org.jslipc.util.WatchUtil;
+import org.jslipc.wait.WaitStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,8 +34,11 @@ import org.slf4j.LoggerFactory;
  * {@link JslipcBinman#cleanUpOnClose()} method, which will delete the files on
  * {@link #close()}.<br/>
  * <br/>
+ * A reader waiting for the next chunk polls the directory by sleeping. If you
+ * {@link #enableFileWatch() enable the file watch}, it blocks on file system
+ * events instead and wakes up right after the peer published a chunk.
  */
-public class ChunkFilePipe implements JslipcPipe, JslipcBinman {
+public class ChunkFilePipe implements JslipcPipe, JslipcBinman, ManagedPipe {
 
 	private final static Logger LOGGER = LoggerFactory
 			.getLogger(ChunkFilePipe.class);
@@ -43,6 +51,8 @@ public class ChunkFilePipe implements JslipcPipe, JslipcBinman {
 	private ReadableChunkFileChannel source;
 	private WritableChunkFileChannel sink;
 	private boolean cleanUpOnClose;
+	private WaitStrategy watchStrategy;
+	private PipeStats stats;
 
 	/**
 	 * This is an alternative to {@link #ChunkFilePipe(File, File)} where you do
@@ -123,6 +133,38 @@ public class ChunkFilePipe implements JslipcPipe, JslipcBinman {
 		}
 	}
 
+	/**
+	 * Lets readers of the {@link #source() source} block on file system events
+	 * of the source directory instead of polling, see
+	 * {@link WatchUtil#createWaitStrategy(File)}. Streams inherit the wait
+	 * strategy of the channel, so this should be called before streams are
+	 * created on the source.
+	 * 
+	 * @return <code>true</code> if the file watch has been enabled,
+	 *         <code>false</code> if the pipe keeps polling.
+	 */
+	public boolean enableFileWatch() {
+		if (watchStrategy != null) {
+			return true;
+		}
+		watchStrategy = WatchUtil.createWaitStrategy(sourceDir);
+		if (watchStrategy == null) {
+			return false;
+		}
+		if (source != null) {
+			source.setWaitStrategy(watchStrategy);
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the file watch has been
+	 *         {@link #enableFileWatch() enabled}.
+	 */
+	public boolean isFileWatchEnabled() {
+		return watchStrategy != null;
+	}
+
 	@Override
 	public void cleanUpOnClose() {
 		cleanUpOnClose = true;
@@ -142,6 +184,7 @@ public class ChunkFilePipe implements JslipcPipe, JslipcBinman {
 
 	@Override
 	public void close() throws IOException {
+		PipeStats.unregister(this);
 		if (cleanUpOnClose) {
 			// issue 15: force source() and sink() if cleanUpOnClose
 			source();
@@ -154,6 +197,7 @@ public class ChunkFilePipe implements JslipcPipe, JslipcBinman {
 		if (sink != null) {
 			sink.close();
 		}
+		WatchUtil.closeSilent(watchStrategy);
 		if (cleanUpOnClose && pipeDir != null && !sourceDir.exists()
 				&& !sinkDir.exists()) {
 			LOGGER.debug("deleting pipe directory {}", pipeDir);
@@ -168,6 +212,9 @@ public class ChunkFilePipe implements JslipcPipe, JslipcBinman {
 	public ReadableChunkFileChannel source() throws IOException {
 		if (source == null) {
 			source = new ReadableChunkFileChannel(sourceDir);
+			if (watchStrategy != null) {
+				source.setWaitStrategy(watchStrategy);
+			}
 			checkCleanUpOnClose();
 		}
 		return source;
@@ -182,6 +229,25 @@ public class ChunkFilePipe implements JslipcPipe, JslipcBinman {
 		return sink;
 	}
 
+	@Override
+	public synchronized PipeStats getStats() {
+		if (stats == null) {
+			stats = new PipeStats(this, pipeDir != null ? pipeDir : sourceDir) {
+
+				@Override
+				protected JslipcChannel getSource() {
+					return source;
+				}
+
+				@Override
+				protected JslipcChannel getSink() {
+					return sink;
+				}
+			};
+		}
+		return stats;
+	}
+
 	public static File getSourceDir(final File directory, final JslipcRole role)
 			throws IOException {
 		return getChannelDir(directory, role, JslipcRole.Yang);
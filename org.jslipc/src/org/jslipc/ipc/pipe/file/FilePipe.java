@@ -6,10 +6,19 @@ import java.io.IOException;
 import org.jslipc.JslipcBinman;
 import org.jslipc.JslipcPipe;
 import org.jslipc.JslipcRole;
+import org.jslipc.channel.JslipcChannel;
 import org.jslipc.channel.file.ReadableJslipcFileChannel;
+import org.jslipc.channel.file.ReadableMappedFileChannel;
+import org.jslipc.channel.file.ReadableSegmentedFileChannel;
 import org.jslipc.channel.file.WritableJslipcFileChannel;
+import org.jslipc.channel.file.WritableMappedFileChannel;
+import org.jslipc.channel.file.WritableSegmentedFileChannel;
+import org.jslipc.ipc.pipe.ManagedPipe;
+import org.jslipc.ipc.pipe.PipeStats;
 import org.jslipc.util.FileUtil;
 import org.jslipc.util.StringUtil;
+import org.jslipc.util.WatchUtil;
+import org.jslipc.wait.WaitStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,9 +34,21 @@ import org.slf4j.LoggerFactory;
  * A FilePipe is bound only by the underlying OS' maximum file size and
  * therefore a write will not block until any limit is reached. But be aware
  * that the underlying files always grow (by writes) and do not shrink (by
- * reads).
+ * reads), unless you {@link #setSegmentSize(int) set a segment size}: the
+ * data is then written to a sequence of segment files, and each segment is
+ * deleted as soon as the reader has consumed it, see
+ * {@link WritableSegmentedFileChannel}.<br/>
+ * <br/>
+ * If created {@link #FilePipe(File, File, boolean) memory mapped}, a
+ * {@link ReadableMappedFileChannel} and {@link WritableMappedFileChannel} are
+ * used instead, so writing and polling for new data does not need a system
+ * call. Both ends of the pipe have to use the same mode.<br/>
+ * <br/>
+ * A reader waiting for data polls the file by sleeping. If you
+ * {@link #enableFileWatch() enable the file watch}, it blocks on file system
+ * events instead and wakes up right after the peer wrote.
  */
-public class FilePipe implements JslipcPipe, JslipcBinman {
+public class FilePipe implements JslipcPipe, JslipcBinman, ManagedPipe {
 	
 	private final static Logger LOGGER = LoggerFactory
 			.getLogger(FilePipe.class);
@@ -41,6 +62,10 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 	private ReadableJslipcFileChannel source;
 	private WritableJslipcFileChannel sink;
 	private boolean cleanUpOnClose;
+	private final boolean memoryMapped;
+	private int segmentSize;
+	private WaitStrategy watchStrategy;
+	private PipeStats stats;
 
 	/**
 	 * This is an alternative to {@link #FilePipe(File, File)} where you do not
@@ -77,7 +102,23 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 	 */
 	public FilePipe(final File directory, final JslipcRole role)
 			throws IOException {
-		this(getSourceFile(directory, role), getSinkFile(directory, role));
+		this(directory, role, false);
+	}
+
+	/**
+	 * Same as {@link #FilePipe(File, JslipcRole)}, but lets you choose whether
+	 * the files are memory mapped.
+	 * 
+	 * @param directory
+	 * @param role
+	 * @param memoryMapped
+	 *            whether to use memory mapped channels.
+	 * @throws IOException
+	 */
+	public FilePipe(final File directory, final JslipcRole role,
+			final boolean memoryMapped) throws IOException {
+		this(getSourceFile(directory, role), getSinkFile(directory, role),
+				memoryMapped);
 		pipeDir = directory;
 
 		LOGGER.info("created FilePipe with directory {} and role {}",
@@ -94,6 +135,22 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 	 *            the file to create the {@link WritableJslipcFileChannel} from.
 	 */
 	public FilePipe(final File source, final File sink) {
+		this(source, sink, false);
+	}
+
+	/**
+	 * Same as {@link #FilePipe(File, File)}, but lets you choose whether the
+	 * files are memory mapped.
+	 * 
+	 * @param source
+	 *            the file to create the source channel from.
+	 * @param sink
+	 *            the file to create the sink channel from.
+	 * @param memoryMapped
+	 *            whether to use memory mapped channels.
+	 */
+	public FilePipe(final File source, final File sink,
+			final boolean memoryMapped) {
 		if (source == null) {
 			throw new IllegalArgumentException(
 					"parameter 'source' must not be null");
@@ -104,10 +161,88 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 		}
 		this.sourceFile = source;
 		this.sinkFile = sink;
+		this.memoryMapped = memoryMapped;
 
 		LOGGER.info("created FilePipe with source {} and sink {}", source, sink);
 	}
 
+	/**
+	 * @return <code>true</code> if the files are memory mapped.
+	 */
+	public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+
+	/**
+	 * @return the segment size, or <code>0</code> if the files are not
+	 *         segmented.
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Lets the channels write resp. read the data in segments of the given
+	 * size, so the files do not grow without limit. In memory mapped mode,
+	 * each mapped window is a segment. This must be called before the
+	 * channels are created, and both ends of the pipe have to use the same
+	 * segment size.
+	 * 
+	 * @param segmentSize
+	 *            the segment size, or <code>0</code> to disable segments.
+	 */
+	public void setSegmentSize(final int segmentSize) {
+		if (segmentSize < 0) {
+			throw new IllegalArgumentException("segment size must be >= 0: "
+					+ segmentSize);
+		}
+		if (source != null || sink != null) {
+			throw new IllegalStateException(
+					"channels have already been created");
+		}
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Lets readers of the {@link #source() source} block on file system events
+	 * of the source file's directory instead of polling, see
+	 * {@link WatchUtil#createWaitStrategy(File)}. Streams inherit the wait
+	 * strategy of the channel, so this should be called before streams are
+	 * created on the source. Since writes to a memory mapped file do not
+	 * cause any file system events, this is not supported in memory mapped
+	 * mode.
+	 * 
+	 * @return <code>true</code> if the file watch has been enabled,
+	 *         <code>false</code> if the pipe keeps polling.
+	 */
+	public boolean enableFileWatch() {
+		if (watchStrategy != null) {
+			return true;
+		}
+		if (memoryMapped) {
+			LOGGER.info("file watch not supported for memory mapped {}",
+					sourceFile);
+			return false;
+		}
+		watchStrategy = WatchUtil.createWaitStrategy(sourceFile
+				.getAbsoluteFile().getParentFile());
+		if (watchStrategy == null) {
+			return false;
+		}
+		if (source != null) {
+			source.setWaitStrategy(watchStrategy);
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the file watch has been
+	 *         {@link #enableFileWatch() enabled}.
+	 */
+	public boolean isFileWatchEnabled() {
+		return watchStrategy != null;
+	}
+
 	@Override
 	public void cleanUpOnClose() {
 		cleanUpOnClose = true;
@@ -127,6 +262,7 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 
 	@Override
 	public void close() throws IOException {
+		PipeStats.unregister(this);
 		if (cleanUpOnClose) {
 			// issue 15: force source() and sink() if cleanUpOnClose
 			source();
@@ -139,6 +275,7 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 		if (sink != null) {
 			sink.close();
 		}
+		WatchUtil.closeSilent(watchStrategy);
 		if (cleanUpOnClose && pipeDir != null && !sourceFile.exists()
 				&& !sinkFile.exists()) {
 			LOGGER.debug("deleting pipe directory {}", pipeDir);
@@ -152,7 +289,20 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 	@Override
 	public ReadableJslipcFileChannel source() throws IOException {
 		if (source == null) {
-			source = new ReadableJslipcFileChannel(sourceFile);
+			if (memoryMapped && segmentSize > 0) {
+				source = new ReadableMappedFileChannel(sourceFile, segmentSize,
+						true);
+			} else if (memoryMapped) {
+				source = new ReadableMappedFileChannel(sourceFile);
+			} else if (segmentSize > 0) {
+				source = new ReadableSegmentedFileChannel(sourceFile,
+						segmentSize);
+			} else {
+				source = new ReadableJslipcFileChannel(sourceFile);
+			}
+			if (watchStrategy != null) {
+				source.setWaitStrategy(watchStrategy);
+			}
 			checkCleanUpOnClose();
 		}
 		return source;
@@ -161,12 +311,40 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 	@Override
 	public WritableJslipcFileChannel sink() throws IOException {
 		if (sink == null) {
-			sink = new WritableJslipcFileChannel(sinkFile);
+			if (memoryMapped && segmentSize > 0) {
+				sink = new WritableMappedFileChannel(sinkFile, segmentSize,
+						true);
+			} else if (memoryMapped) {
+				sink = new WritableMappedFileChannel(sinkFile);
+			} else if (segmentSize > 0) {
+				sink = new WritableSegmentedFileChannel(sinkFile, segmentSize);
+			} else {
+				sink = new WritableJslipcFileChannel(sinkFile);
+			}
 			checkCleanUpOnClose();
 		}
 		return sink;
 	}
 
+	@Override
+	public synchronized PipeStats getStats() {
+		if (stats == null) {
+			stats = new PipeStats(this, pipeDir != null ? pipeDir : sourceFile) {
+
+				@Override
+				protected JslipcChannel getSource() {
+					return source;
+				}
+
+				@Override
+				protected JslipcChannel getSink() {
+					return sink;
+				}
+			};
+		}
+		return stats;
+	}
+
 	public static File getSourceFile(final File directory, final JslipcRole role)
 			throws IOException {
 		return getChannelFile(directory, role, JslipcRole.Yang);
@@ -207,6 +385,6 @@ public class FilePipe implements JslipcPipe, JslipcBinman {
 	
 	@Override
 	public String toString() {
-		return StringUtil.build(this).add("source", sourceFile).add("sink", sinkFile).toString();
+		return StringUtil.build(this).add("source", sourceFile).add("sink", sinkFile).add("memoryMapped", memoryMapped).add("segmentSize", segmentSize).toString();
 	}
 }
@@ -0,0 +1,158 @@
+package org.jslipc.ipc.pipe.shm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.jslipc.channel.buffer.Doorbell;
+import org.jslipc.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Doorbell} based on a FIFO (named pipe), so it works between
+ * processes without any sockets. Ringing writes a byte to the FIFO, waiting
+ * blocks on reading it. Both ends open the FIFO for reading and writing, which
+ * never blocks on Linux, so it does not matter which side comes first.<br/>
+ * <br/>
+ * Rings are coalesced: if a ring is still pending in the FIFO, no further byte
+ * is written. So the FIFO never fills up, and a producer does not block even
+ * if the consumer died while waiting.<br/>
+ * <br/>
+ * The FIFO is created using <code>mkfifo</code>, so this doorbell is only
+ * available on systems providing that command. Since reading a FIFO cannot be
+ * interrupted or timed out, a bounded {@link #await(long)} schedules a ring on
+ * a shared daemon timer to wake itself up.
+ */
+public class FifoDoorbell implements Doorbell {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(FifoDoorbell.class);
+
+	private static final Timer TIMER = new Timer("jslipc-doorbell", true);
+
+	private File fifo;
+	private RandomAccessFile file;
+	/** shares the descriptor of the file, used to check for pending rings */
+	private FileInputStream pending;
+	private byte[] drain = new byte[64];
+
+	/**
+	 * Creates a doorbell on the given FIFO, the FIFO is created if it does not
+	 * yet exist.
+	 * 
+	 * @param fifo
+	 * @throws IOException
+	 *             if the FIFO could not be created or opened.
+	 */
+	public FifoDoorbell(final File fifo) throws IOException {
+		if (fifo == null) {
+			throw new IllegalArgumentException(
+					"parameter fifo must not be null");
+		}
+		this.fifo = fifo;
+		createFifo(fifo);
+		file = new RandomAccessFile(fifo, "rw");
+		pending = new FileInputStream(file.getFD());
+		LOGGER.debug("created doorbell on fifo {}", fifo);
+	}
+
+	/**
+	 * Creates a FIFO using <code>mkfifo</code>, if the file does not yet exist.
+	 * 
+	 * @param fifo
+	 * @throws IOException
+	 *             if the FIFO could not be created.
+	 */
+	protected static void createFifo(final File fifo) throws IOException {
+		if (fifo.exists()) {
+			return;
+		}
+		Process process = new ProcessBuilder("mkfifo", fifo.getAbsolutePath())
+				.redirectErrorStream(true).start();
+		try {
+			process.waitFor();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted creating fifo "
+					+ fifo);
+		} finally {
+			process.getInputStream().close();
+			process.getOutputStream().close();
+			process.getErrorStream().close();
+		}
+		// the peer may have created it concurrently, so just check existence
+		if (!fifo.exists()) {
+			throw new IOException("failed to create fifo " + fifo);
+		}
+	}
+
+	public File getFifo() {
+		return fifo;
+	}
+
+	/**
+	 * Writes a byte to the FIFO, unless a ring is already pending.
+	 */
+	@Override
+	public void ring() throws IOException {
+		if (pending.available() > 0) {
+			return;
+		}
+		file.write(1);
+	}
+
+	@Override
+	public void await(final long maxWait) throws IOException {
+		if (maxWait <= 0) {
+			throw new IllegalArgumentException("parameter maxWait must be > 0: "
+					+ maxWait);
+		}
+		TimerTask wakeUp = new TimerTask() {
+
+			@Override
+			public void run() {
+				try {
+					ring();
+				} catch (IOException e) {
+					LOGGER.debug("failed to wake up doorbell on {}: {}", fifo,
+							e.toString());
+				}
+			}
+		};
+		TIMER.schedule(wakeUp, maxWait);
+		try {
+			// drains all pending rings at once
+			if (file.read(drain) < 0) {
+				throw new IOException("not a fifo: " + fifo);
+			}
+		} finally {
+			wakeUp.cancel();
+		}
+	}
+
+	/**
+	 * Closes the FIFO, the FIFO file itself is not deleted. A thread blocked
+	 * in {@link #await(long)} is woken up before.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			ring();
+		} catch (IOException e) {
+			LOGGER.debug("failed to wake up doorbell on {}: {}", fifo,
+					e.toString());
+		}
+		file.close();
+		LOGGER.debug("closed doorbell on fifo {}", fifo);
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("fifo", fifo).toString();
+	}
+
+}
@@ -0,0 +1,157 @@
+package org.jslipc.ipc.pipe.shm;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jslipc.JslipcBinman;
+import org.jslipc.JslipcPipe;
+import org.jslipc.JslipcRole;
+import org.jslipc.channel.ReadableJslipcByteChannel;
+import org.jslipc.channel.WritableJslipcByteChannel;
+import org.jslipc.util.StringUtil;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
+
+/**
+ * A shared memory pipe using the file layout of the {@link SharedMemoryPipe},
+ * but with a backend based on the foreign memory API of Java 22: the file is
+ * mapped as a <code>MemorySegment</code> of a shared <code>Arena</code>, and
+ * the head and tail of the ring buffers are accessed with acquire/release
+ * semantics. In contrast to the SharedMemoryPipe
+ * <ul>
+ * <li>the size may exceed 2 GB,</li>
+ * <li>the memory is unmapped right away on {@link #close()}, a thread still
+ * accessing it gets an exception instead of crashing the VM.</li>
+ * </ul>
+ * The channels do not block, the streams created on top of them wait using
+ * the pipe's {@link WaitStrategy}. Both ends have to use the same size, which
+ * has to be a multiple of 8 and large enough for the padded queue layout of
+ * both halves. The end that locks the file initializes the rings.<br/>
+ * <br/>
+ * The backend is part of the multi-release jar and only used on Java 22 and
+ * later, see {@link #isSegmentBacked()}. On older runtimes this version of
+ * the class is loaded, which falls back to the ring buffers of a
+ * {@link SharedMemoryPipe}, so the size is limited to 2 GB. Since both
+ * backends share the layout, the ends of a pipe may run on different Java
+ * versions.
+ */
+public class SegmentMemoryPipe implements JslipcPipe, JslipcBinman,
+		WaitStrategyAware {
+
+	private static final long DEFAULT_SIZE = SharedMemoryPipe
+			.getFileSize(32 * 1024);
+	/** both halves have to hold the padded queue layout */
+	private static final long MIN_SIZE = 2 * 1024;
+	private final long size;
+	private final SharedMemoryPipe pipe;
+
+	/**
+	 * @return <code>true</code> if the pipe uses the memory segment backend,
+	 *         <code>false</code> if it falls back to a
+	 *         {@link SharedMemoryPipe}.
+	 */
+	public static boolean isSegmentBacked() {
+		return false;
+	}
+
+	/**
+	 * Creates a pipe on the given file with a default size providing a
+	 * capacity of 32k per direction, see
+	 * {@link #SegmentMemoryPipe(File, long, JslipcRole)}.
+	 *
+	 * @param file
+	 * @param role
+	 * @throws IOException
+	 */
+	public SegmentMemoryPipe(final File file, final JslipcRole role)
+			throws IOException {
+		this(file, DEFAULT_SIZE, role);
+	}
+
+	/**
+	 * Creates a pipe on the given file, which is mapped with the given size.
+	 * The role is just needed to distinguish the endpoints of the pipe, so
+	 * one end should have the role yin, the other yang.
+	 *
+	 * @param file
+	 * @param size
+	 *            the size of the mapped file, shared by both directions,
+	 *            see {@link SharedMemoryPipe#getFileSize(int)}.
+	 * @param role
+	 * @throws IOException
+	 */
+	public SegmentMemoryPipe(final File file, final long size,
+			final JslipcRole role) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException(
+					"parameter file must not be null");
+		}
+		if (role == null) {
+			throw new IllegalArgumentException(
+					"parameter role must not be null");
+		}
+		if (size < MIN_SIZE || size % 8 != 0) {
+			throw new IllegalArgumentException(
+					"size must be a multiple of 8 >= " + MIN_SIZE + ": "
+							+ size);
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"sizes above 2 GB require Java 22: " + size);
+		}
+		this.size = size;
+		this.pipe = new SharedMemoryPipe(file, (int) size, role);
+	}
+
+	/**
+	 * @return the size of the mapped file.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public ReadableJslipcByteChannel source() {
+		return pipe.source();
+	}
+
+	@Override
+	public WritableJslipcByteChannel sink() {
+		return pipe.sink();
+	}
+
+	/**
+	 * @return the wait strategy, {@link SleepWaitStrategy#DEFAULT} by default.
+	 */
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return pipe.getWaitStrategy();
+	}
+
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		pipe.setWaitStrategy(waitStrategy);
+	}
+
+	@Override
+	public void cleanUpOnClose() {
+		pipe.cleanUpOnClose();
+	}
+
+	@Override
+	public void close() throws IOException {
+		// force source() and sink(), so channels requested later on are
+		// closed instead of accessing the released buffer
+		pipe.source();
+		pipe.sink();
+		pipe.close();
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("pipe", pipe).add("size", size)
+				.toString();
+	}
+
+}
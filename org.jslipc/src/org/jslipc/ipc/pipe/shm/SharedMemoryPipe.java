@@ -12,13 +12,20 @@ import java.nio.channels.OverlappingFileLockException;
 import org.jslipc.JslipcBinman;
 import org.jslipc.JslipcPipe;
 import org.jslipc.JslipcRole;
+import org.jslipc.channel.JslipcChannel;
 import org.jslipc.channel.JslipcChannel.JslipcChannelState;
 import org.jslipc.channel.buffer.ByteBufferQueue;
+import org.jslipc.channel.buffer.DoorbellWaitStrategy;
 import org.jslipc.channel.buffer.ReadableBbqChannel;
 import org.jslipc.channel.buffer.WritableBbqChannel;
+import org.jslipc.ipc.pipe.ManagedPipe;
+import org.jslipc.ipc.pipe.PipeStats;
 import org.jslipc.util.BufferUtil;
 import org.jslipc.util.FileUtil;
 import org.jslipc.util.StringUtil;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WaitStrategyAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,14 +40,39 @@ import org.slf4j.LoggerFactory;
  * implemented as ring-buffers. So, you can not write if the buffer is full, or
  * read if the buffer is empty. If you are using streams on top of the channel,
  * they will block in this situation. The content of the shared memory is never
- * forced to write back to disk, so the buffer is volatile.
+ * forced to write back to disk, so the buffer is volatile.<br/>
+ * <br/>
+ * Besides the usual channel operations, the {@link #sink() sink} lets you
+ * {@link WritableBbqChannel#claim(int) claim} a region of the buffer and fill
+ * it directly, and the {@link #source() source} lets you
+ * {@link ReadableBbqChannel#acquire(int) acquire} a read-only view of the
+ * buffer and read the data in place, so large payloads need not be copied.<br/>
+ * <br/>
+ * Each half of the buffer holds one queue. If a half is large enough, its
+ * queue places head and tail on separate cache lines to avoid false sharing
+ * between producer and consumer, see {@link ByteBufferQueue}. The capacity of
+ * a queue is the largest power of two that fits into its half behind the
+ * header, so a size slightly larger than twice a power of two uses the memory
+ * best.<br/>
+ * <br/>
+ * How blocking operations wait is determined by the pipe's
+ * {@link WaitStrategy}, which is passed to the channels and the streams
+ * created on top of them. Latency-sensitive pipes may e.g. spin, while the
+ * {@link SleepWaitStrategy#DEFAULT default} keeps CPU usage low.<br/>
+ * <br/>
+ * Alternatively, both ends may {@link #enableDoorbell() enable} a
+ * {@link FifoDoorbell doorbell}: a consumer waiting on an empty buffer then
+ * blocks at zero CPU and is woken up by the producer right after a write.
  */
-public class SharedMemoryPipe implements JslipcPipe, JslipcBinman {
+public class SharedMemoryPipe implements JslipcPipe, JslipcBinman, WaitStrategyAware, ManagedPipe {
 
 	private final static Logger LOGGER = LoggerFactory
 			.getLogger(SharedMemoryPipe.class);
 
-	private static final int DEFAULT_SIZE = 4096;
+	private static final int DEFAULT_CAPACITY = 2048;
+	private static final int DEFAULT_SIZE = getFileSize(DEFAULT_CAPACITY);
+	/** the time to wait for in-flight queue operations on close, in ms */
+	private static final long DETACH_TIMEOUT = 1000;
 	private File file;
 	private RandomAccessFile mappedFile;
 	private ByteBufferQueue inQueue;
@@ -50,11 +82,16 @@ public class SharedMemoryPipe implements JslipcPipe, JslipcBinman {
 	private FileLock lock;
 	private boolean cleanUpOnClose;
 	private MappedByteBuffer buffer;
+	private WaitStrategy waitStrategy = SleepWaitStrategy.DEFAULT;
+	private FifoDoorbell inDoorbell;
+	private FifoDoorbell outDoorbell;
+	private PipeStats stats;
 
 	/**
 	 * Creates a pipe with the given parameter in shared memory. The given file
-	 * is mapped into memory (to create shared memory), where a default size of
-	 * 4k of shared memory is allocated. The role itself does not have any
+	 * is mapped into memory (to create shared memory), where a default size
+	 * providing a capacity of 2k per direction is allocated, see
+	 * {@link #getFileSize(int)}. The role itself does not have any
 	 * special semantics, means: it makes no difference whether you are
 	 * {@link JslipcRole#Yin server} or {@link JslipcRole#Yang yang}. It is just
 	 * needed to distinguish the endpoints of the pipe, so one end should have
@@ -72,7 +109,11 @@ public class SharedMemoryPipe implements JslipcPipe, JslipcBinman {
 	 * any special semantics, means: it makes no difference whether you are
 	 * {@link JslipcRole#Yin server} or {@link JslipcRole#Yang yang}. It is just
 	 * needed to distinguish the endpoints of the pipe, so one end should have
-	 * the role yin, the other yang.
+	 * the role yin, the other yang.<br/>
+	 * <br/>
+	 * The size is split into one queue per direction, each providing the
+	 * largest power of two that fits behind its header as capacity. Use
+	 * {@link #getFileSize(int)} to calculate a size that wastes no memory.
 	 * 
 	 * @param file
 	 * @param size
@@ -98,6 +139,24 @@ public class SharedMemoryPipe implements JslipcPipe, JslipcBinman {
 				file, role, size);
 	}
 
+	/**
+	 * Calculates the size of a pipe providing exactly the given capacity per
+	 * direction.
+	 * 
+	 * @param capacity
+	 *            the capacity of each queue, which has to be a power of two.
+	 * @return the size to pass to
+	 *         {@link #SharedMemoryPipe(File, int, JslipcRole)}.
+	 */
+	public static int getFileSize(final int capacity) {
+		int length = ByteBufferQueue.getLength(capacity);
+		if (length > Integer.MAX_VALUE / 2) {
+			throw new IllegalArgumentException("capacity too large: "
+					+ capacity);
+		}
+		return 2 * length;
+	}
+
 	@Override
 	public void cleanUpOnClose() {
 		cleanUpOnClose = true;
@@ -105,6 +164,7 @@ public class SharedMemoryPipe implements JslipcPipe, JslipcBinman {
 
 	@Override
 	public void close() throws IOException {
+		PipeStats.unregister(this);
 		boolean sourceClosedByPeer = false;
 		boolean sinkClosedByPeer = false;
 		if (cleanUpOnClose) {
@@ -127,16 +187,41 @@ public class SharedMemoryPipe implements JslipcPipe, JslipcBinman {
 		if (mappedFile != null) {
 			mappedFile.close();
 		}
-		BufferUtil.releaseBufferSilently(buffer);
+		// wake up blocked readers before waiting for them to leave the queue
+		closeDoorbells();
+		releaseBuffer();
 
 		if (cleanUpOnClose && sourceClosedByPeer && sinkClosedByPeer) {
 			FileUtil.delete(file);
 			LOGGER.debug("deleting pipe file {}", file);
+			deleteFifo(getFifoFile(inQueue));
+			deleteFifo(getFifoFile(outQueue));
 		}
 
 		LOGGER.info("closed SharedMemoryPipe on file {}", file);
 	}
 
+	/**
+	 * Unmaps the buffer once no thread operates on the queues anymore. If an
+	 * operation does not finish in time, e.g. since a region acquired from
+	 * the source is never released, the buffer is left to the garbage
+	 * collector, since unmapping it would crash the VM.
+	 */
+	private void releaseBuffer() {
+		if (buffer == null) {
+			return;
+		}
+		boolean inIdle = inQueue.detach(DETACH_TIMEOUT);
+		boolean outIdle = outQueue.detach(DETACH_TIMEOUT);
+		if (inIdle && outIdle) {
+			BufferUtil.releaseBufferSilently(buffer);
+		} else {
+			LOGGER.warn("queues of {} still in use, not unmapping the buffer",
+					file);
+		}
+		buffer = null;
+	}
+
 	protected ByteBufferQueue createQueue(final MappedByteBuffer buffer,
 			final int fileSize, final JslipcRole role, final boolean in)
 			throws IOException {
@@ -171,6 +256,7 @@ public class SharedMemoryPipe implements JslipcPipe, JslipcBinman {
 	public ReadableBbqChannel source() {
 		if (source == null) {
 			source = new ReadableBbqChannel(inQueue);
+			source.setWaitStrategy(getSourceWaitStrategy());
 		}
 		return source;
 	}
@@ -179,10 +265,159 @@ public class SharedMemoryPipe implements JslipcPipe, JslipcBinman {
 	public WritableBbqChannel sink() {
 		if (sink == null) {
 			sink = new WritableBbqChannel(outQueue);
+			sink.setWaitStrategy(waitStrategy);
+			sink.setDoorbell(outDoorbell);
 		}
 		return sink;
 	}
 	
+	@Override
+	public synchronized PipeStats getStats() {
+		if (stats == null) {
+			stats = new PipeStats(this, file) {
+
+				@Override
+				protected JslipcChannel getSource() {
+					return source;
+				}
+
+				@Override
+				protected JslipcChannel getSink() {
+					return sink;
+				}
+
+				@Override
+				public int getSourceFillLevel() {
+					return getFillLevel(inQueue);
+				}
+
+				@Override
+				public int getSinkFillLevel() {
+					return getFillLevel(outQueue);
+				}
+			};
+		}
+		return stats;
+	}
+
+	/**
+	 * @return the number of bytes in the given queue, or <code>-1</code> if
+	 *         it is not yet initialized resp. has already been released.
+	 */
+	private int getFillLevel(final ByteBufferQueue queue) {
+		if (!queue.enter()) {
+			return -1;
+		}
+		try {
+			if (!queue.isInitialized()) {
+				return -1;
+			}
+			return queue.size();
+		} finally {
+			queue.leave();
+		}
+	}
+
+	@Override
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * Sets the strategy used by the channels of this pipe, and by all streams
+	 * created afterwards. If the doorbell is enabled, the source keeps waiting
+	 * on the doorbell.
+	 */
+	@Override
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"parameter waitStrategy must not be null");
+		}
+		this.waitStrategy = waitStrategy;
+		if (source != null) {
+			source.setWaitStrategy(getSourceWaitStrategy());
+		}
+		if (sink != null) {
+			sink.setWaitStrategy(waitStrategy);
+		}
+	}
+
+	/**
+	 * Enables the doorbell: a consumer waiting for data blocks on a FIFO that
+	 * is rung by the producer, see {@link FifoDoorbell}. The peer has to
+	 * enable the doorbell as well, otherwise the consumer only notices new
+	 * data after the {@link DoorbellWaitStrategy maximum block time}. The
+	 * doorbell only works with buffers large enough for the padded queue
+	 * layout, see {@link ByteBufferQueue}.
+	 * 
+	 * @return <code>true</code> if the doorbell could be enabled, otherwise
+	 *         the pipe keeps using its wait strategy.
+	 */
+	public boolean enableDoorbell() {
+		if (inDoorbell != null) {
+			return true;
+		}
+		try {
+			inDoorbell = new FifoDoorbell(getFifoFile(inQueue));
+			outDoorbell = new FifoDoorbell(getFifoFile(outQueue));
+		} catch (IOException e) {
+			LOGGER.info("doorbell not available for {}: {}", file, e.toString());
+			closeDoorbells();
+			return false;
+		}
+		if (source != null) {
+			source.setWaitStrategy(getSourceWaitStrategy());
+		}
+		if (sink != null) {
+			sink.setDoorbell(outDoorbell);
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the doorbell has been
+	 *         {@link #enableDoorbell() enabled}.
+	 */
+	public boolean isDoorbellEnabled() {
+		return inDoorbell != null;
+	}
+
+	private WaitStrategy getSourceWaitStrategy() {
+		if (inDoorbell != null) {
+			return new DoorbellWaitStrategy(inQueue, inDoorbell);
+		}
+		return waitStrategy;
+	}
+
+	/**
+	 * @return the FIFO used as doorbell for the given queue. The name is
+	 *         derived from the position of the queue, so both ends agree on
+	 *         it.
+	 */
+	protected File getFifoFile(final ByteBufferQueue queue) {
+		return new File(file.getAbsolutePath() + "." + queue.getStartIndex()
+				+ ".fifo");
+	}
+
+	private void deleteFifo(final File fifo) {
+		if (fifo.exists()) {
+			FileUtil.delete(fifo);
+			LOGGER.debug("deleting fifo {}", fifo);
+		}
+	}
+
+	private void closeDoorbells() {
+		if (inDoorbell != null) {
+			FileUtil.closeSilent(inDoorbell);
+			inDoorbell = null;
+		}
+		if (outDoorbell != null) {
+			FileUtil.closeSilent(outDoorbell);
+			outDoorbell = null;
+		}
+	}
+
 	@Override
 	public String toString() {
 		return StringUtil.build(this).add("file", file).toString();
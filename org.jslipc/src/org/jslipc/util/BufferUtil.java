@@ -1,6 +1,11 @@
 package org.jslipc.util;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 
 import org.slf4j.Logger;
@@ -14,16 +19,65 @@ public final class BufferUtil {
 	private final static Logger LOGGER = LoggerFactory
 			.getLogger(BufferUtil.class);
 	
+	private static final boolean NATIVE_BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+	private static volatile int fence;
+	/** <code>Unsafe.invokeCleaner(ByteBuffer)</code>, available on Java 9+ */
+	private static final Method INVOKE_CLEANER;
+	/** <code>DirectBuffer.cleaner()</code> and <code>Cleaner.clean()</code> up to Java 8 */
+	private static final Method CLEANER;
+	private static final Method CLEAN;
+
+	static {
+		Method invokeCleaner = null;
+		Method cleaner = null;
+		Method clean = null;
+		try {
+			if (UnsafeHolder.UNSAFE != null) {
+				invokeCleaner = UnsafeHolder.UNSAFE.getClass().getMethod(
+						"invokeCleaner", ByteBuffer.class);
+			}
+		} catch (NoSuchMethodException e) {
+			// Java 8 or older
+		}
+		if (invokeCleaner == null) {
+			try {
+				cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod(
+						"cleaner");
+				clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			} catch (Exception e) {
+				LOGGER.info(
+						"unmapping buffers is not supported, mapped buffers are released by the garbage collector: {}",
+						e.toString());
+				cleaner = null;
+				clean = null;
+			}
+		}
+		INVOKE_CLEANER = invokeCleaner;
+		CLEANER = cleaner;
+		CLEAN = clean;
+	}
+
 	private BufferUtil() {
 		// utility classes should have private constructor.
 	}
 
+	/**
+	 * @return <code>true</code> if the runtime supports unmapping buffers by
+	 *         {@link #releaseBuffer(MappedByteBuffer)}.
+	 */
+	public static boolean isUnmapSupported() {
+		return INVOKE_CLEANER != null || CLEANER != null;
+	}
+
 	/**
 	 * Due to a weakness in the implementation in mapped byte buffers on windows, the underlying
 	 * file cannot be deleted even if all channels/files are closed. As a workaround, this method
-	 * tries to call sun.misc.Cleaner.clean() in order to free mapped buffer.
+	 * unmaps the buffer right away: on Java 9+ by <code>Unsafe.invokeCleaner()</code>, on older
+	 * versions by the buffer's <code>sun.misc.Cleaner</code>. The mechanism is looked up once, and
+	 * no garbage collection is forced. If the runtime supports neither, the buffer is left to the
+	 * garbage collector. The buffer must not be accessed afterwards.
 	 * 
-	 * @param buffer
+	 * @param buffer the buffer as returned by <code>FileChannel.map()</code>, not a slice or duplicate.
 	 * @throws Exception
 	 */
 	public static void releaseBuffer(MappedByteBuffer buffer) throws Exception {
@@ -32,13 +86,21 @@ public final class BufferUtil {
 		if (buffer == null) {
 			return;
 		}
-		Method cleaner = buffer.getClass().getMethod("cleaner");
-		cleaner.setAccessible(true);
-		Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
-		clean.setAccessible(true);
-		clean.invoke(cleaner.invoke(buffer));
-		buffer = null;
-		System.gc();
+		try {
+			if (INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UnsafeHolder.UNSAFE, buffer);
+			} else if (CLEANER != null) {
+				Object cleaner = CLEANER.invoke(buffer);
+				if (cleaner != null) {
+					CLEAN.invoke(cleaner);
+				}
+			}
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
 	}
 
 	/**
@@ -53,4 +115,286 @@ public final class BufferUtil {
 		}
 	}
 
+	/**
+	 * Reads the int at the given index with acquire semantics: no subsequent
+	 * read or write is reordered before this read. The value is read in
+	 * {@link ByteOrder#nativeOrder() native} byte order.
+	 *
+	 * @param buffer
+	 * @param index
+	 * @return the int value at the given index.
+	 */
+	public static int getIntVolatile(final ByteBuffer buffer, final int index) {
+		checkIndex(buffer, index, 4);
+		if (buffer.isDirect() && UnsafeHolder.UNSAFE != null) {
+			return UnsafeHolder.UNSAFE.getIntVolatile(null,
+					directAddress(buffer, index));
+		}
+		if (buffer.hasArray() && UnsafeHolder.UNSAFE != null) {
+			return UnsafeHolder.UNSAFE.getIntVolatile(buffer.array(),
+					arrayAddress(buffer, index));
+		}
+		synchronized (buffer) {
+			return toNativeOrder(buffer, buffer.getInt(index));
+		}
+	}
+
+	/**
+	 * Writes the int at the given index with release semantics: no previous
+	 * read or write is reordered after this write. The value is written in
+	 * {@link ByteOrder#nativeOrder() native} byte order.
+	 *
+	 * @param buffer
+	 * @param index
+	 * @param value
+	 */
+	public static void putIntOrdered(final ByteBuffer buffer, final int index,
+			final int value) {
+		checkIndex(buffer, index, 4);
+		if (buffer.isDirect() && UnsafeHolder.UNSAFE != null) {
+			UnsafeHolder.UNSAFE.putOrderedInt(null,
+					directAddress(buffer, index), value);
+			return;
+		}
+		if (buffer.hasArray() && UnsafeHolder.UNSAFE != null) {
+			UnsafeHolder.UNSAFE.putOrderedInt(buffer.array(),
+					arrayAddress(buffer, index), value);
+			return;
+		}
+		synchronized (buffer) {
+			buffer.putInt(index, toNativeOrder(buffer, value));
+		}
+	}
+
+	/**
+	 * Writes the int at the given index with volatile semantics: the write is
+	 * neither reordered with previous nor with subsequent reads and writes.
+	 * The value is written in {@link ByteOrder#nativeOrder() native} byte
+	 * order.
+	 *
+	 * @param buffer
+	 * @param index
+	 * @param value
+	 */
+	public static void putIntVolatile(final ByteBuffer buffer, final int index,
+			final int value) {
+		checkIndex(buffer, index, 4);
+		if (buffer.isDirect() && UnsafeHolder.UNSAFE != null) {
+			UnsafeHolder.UNSAFE.putIntVolatile(null,
+					directAddress(buffer, index), value);
+			return;
+		}
+		if (buffer.hasArray() && UnsafeHolder.UNSAFE != null) {
+			UnsafeHolder.UNSAFE.putIntVolatile(buffer.array(),
+					arrayAddress(buffer, index), value);
+			return;
+		}
+		synchronized (buffer) {
+			buffer.putInt(index, toNativeOrder(buffer, value));
+		}
+	}
+
+	/**
+	 * Issues a full memory fence: no read or write before the fence is
+	 * reordered with any read or write after it. This is needed where an
+	 * ordered write must become visible before a subsequent read, e.g. when
+	 * publishing data and then checking for a waiting peer. Uses
+	 * <code>Unsafe.fullFence()</code>, which is available on Java 8+. On older
+	 * runtimes, a volatile write is issued instead, which acts as a store-load
+	 * barrier on the common JVMs, but is not guaranteed to do so by the memory
+	 * model.
+	 */
+	public static void fullFence() {
+		if (UnsafeHolder.FULL_FENCE) {
+			UnsafeHolder.UNSAFE.fullFence();
+		} else {
+			fence = 0;
+		}
+	}
+
+	/**
+	 * Reads the long at the given index with acquire semantics, see
+	 * {@link #getIntVolatile(ByteBuffer, int)}.
+	 *
+	 * @param buffer
+	 * @param index
+	 * @return the long value at the given index.
+	 */
+	public static long getLongVolatile(final ByteBuffer buffer, final int index) {
+		checkIndex(buffer, index, 8);
+		if (buffer.isDirect() && UnsafeHolder.UNSAFE != null) {
+			return UnsafeHolder.UNSAFE.getLongVolatile(null,
+					directAddress(buffer, index));
+		}
+		if (buffer.hasArray() && UnsafeHolder.UNSAFE != null) {
+			return UnsafeHolder.UNSAFE.getLongVolatile(buffer.array(),
+					arrayAddress(buffer, index));
+		}
+		synchronized (buffer) {
+			return toNativeOrder(buffer, buffer.getLong(index));
+		}
+	}
+
+	/**
+	 * Writes the long at the given index with release semantics, see
+	 * {@link #putIntOrdered(ByteBuffer, int, int)}.
+	 *
+	 * @param buffer
+	 * @param index
+	 * @param value
+	 */
+	public static void putLongOrdered(final ByteBuffer buffer, final int index,
+			final long value) {
+		checkIndex(buffer, index, 8);
+		if (buffer.isDirect() && UnsafeHolder.UNSAFE != null) {
+			UnsafeHolder.UNSAFE.putOrderedLong(null,
+					directAddress(buffer, index), value);
+			return;
+		}
+		if (buffer.hasArray() && UnsafeHolder.UNSAFE != null) {
+			UnsafeHolder.UNSAFE.putOrderedLong(buffer.array(),
+					arrayAddress(buffer, index), value);
+			return;
+		}
+		synchronized (buffer) {
+			buffer.putLong(index, toNativeOrder(buffer, value));
+		}
+	}
+
+	/**
+	 * Reads the byte at the given index with acquire semantics.
+	 *
+	 * @param buffer
+	 * @param index
+	 * @return the byte at the given index.
+	 */
+	public static byte getByteVolatile(final ByteBuffer buffer, final int index) {
+		checkIndex(buffer, index, 1);
+		if (buffer.isDirect() && UnsafeHolder.UNSAFE != null) {
+			return UnsafeHolder.UNSAFE.getByteVolatile(null,
+					directAddress(buffer, index));
+		}
+		if (buffer.hasArray() && UnsafeHolder.UNSAFE != null) {
+			return UnsafeHolder.UNSAFE.getByteVolatile(buffer.array(),
+					arrayAddress(buffer, index));
+		}
+		synchronized (buffer) {
+			return buffer.get(index);
+		}
+	}
+
+	/**
+	 * Writes the byte at the given index with volatile semantics, so all
+	 * previous writes are visible before the byte.
+	 *
+	 * @param buffer
+	 * @param index
+	 * @param value
+	 */
+	public static void putByteVolatile(final ByteBuffer buffer,
+			final int index, final byte value) {
+		checkIndex(buffer, index, 1);
+		if (buffer.isDirect() && UnsafeHolder.UNSAFE != null) {
+			UnsafeHolder.UNSAFE.putByteVolatile(null,
+					directAddress(buffer, index), value);
+			return;
+		}
+		if (buffer.hasArray() && UnsafeHolder.UNSAFE != null) {
+			UnsafeHolder.UNSAFE.putByteVolatile(buffer.array(),
+					arrayAddress(buffer, index), value);
+			return;
+		}
+		synchronized (buffer) {
+			buffer.put(index, value);
+		}
+	}
+
+	/**
+	 * Holds <code>sun.misc.Unsafe</code>, which is looked up reflectively, so
+	 * the type is only referenced here. The instance is <code>null</code> if
+	 * the runtime does not provide it.
+	 */
+	private static final class UnsafeHolder {
+
+		static final sun.misc.Unsafe UNSAFE;
+		static final long ADDRESS_OFFSET;
+		static final long BYTE_ARRAY_OFFSET;
+		/** whether <code>Unsafe.fullFence()</code> is available */
+		static final boolean FULL_FENCE;
+
+		static {
+			sun.misc.Unsafe unsafe = null;
+			long addressOffset = -1;
+			long byteArrayOffset = -1;
+			boolean fullFence = false;
+			try {
+				Field field = Class.forName("sun.misc.Unsafe")
+						.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				unsafe = (sun.misc.Unsafe) field.get(null);
+				addressOffset = unsafe.objectFieldOffset(Buffer.class
+						.getDeclaredField("address"));
+				byteArrayOffset = unsafe.arrayBaseOffset(byte[].class);
+				fullFence = hasMethod(unsafe.getClass(), "fullFence");
+			} catch (Throwable e) {
+				LOGGER.info(
+						"sun.misc.Unsafe is not available, falling back to synchronized buffer access: {}",
+						e.toString());
+				unsafe = null;
+			}
+			UNSAFE = unsafe;
+			ADDRESS_OFFSET = addressOffset;
+			BYTE_ARRAY_OFFSET = byteArrayOffset;
+			FULL_FENCE = fullFence;
+		}
+
+		private static boolean hasMethod(final Class<?> type, final String name) {
+			try {
+				type.getMethod(name);
+				return true;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return the address of the given index of a direct buffer.
+	 */
+	private static long directAddress(final ByteBuffer buffer, final int index) {
+		return UnsafeHolder.UNSAFE.getLong(buffer, UnsafeHolder.ADDRESS_OFFSET)
+				+ index;
+	}
+
+	/**
+	 * @return the offset of the given index of a heap buffer within its
+	 *         array.
+	 */
+	private static long arrayAddress(final ByteBuffer buffer, final int index) {
+		return UnsafeHolder.BYTE_ARRAY_OFFSET + buffer.arrayOffset() + index;
+	}
+
+	private static void checkIndex(final ByteBuffer buffer, final int index,
+			final int size) {
+		if (index < 0 || index > buffer.capacity() - size) {
+			throw new IndexOutOfBoundsException("index " + index
+					+ " is out of bounds [0," + (buffer.capacity() - size)
+					+ "]");
+		}
+	}
+
+	private static int toNativeOrder(final ByteBuffer buffer, final int value) {
+		if ((buffer.order() == ByteOrder.BIG_ENDIAN) == NATIVE_BIG_ENDIAN) {
+			return value;
+		}
+		return Integer.reverseBytes(value);
+	}
+
+	private static long toNativeOrder(final ByteBuffer buffer, final long value) {
+		if ((buffer.order() == ByteOrder.BIG_ENDIAN) == NATIVE_BIG_ENDIAN) {
+			return value;
+		}
+		return Long.reverseBytes(value);
+	}
+
 }
@@ -0,0 +1,31 @@
+package org.jslipc.util;
+
+import java.io.File;
+
+/**
+ * Receives the file system events of a watched directory, see
+ * {@link WatchUtil#createWaitStrategy(File, FileEventListener)}.
+ */
+public interface FileEventListener {
+
+	/**
+	 * Called if a file has been created in the watched directory.
+	 * 
+	 * @param file
+	 */
+	public void created(File file);
+
+	/**
+	 * Called if a file has been deleted from the watched directory.
+	 * 
+	 * @param file
+	 */
+	public void deleted(File file);
+
+	/**
+	 * Called if events have been lost, so the listener has to rescan the
+	 * directory.
+	 */
+	public void overflow();
+
+}
@@ -8,6 +8,8 @@ import java.io.RandomAccessFile;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 
+import javax.management.ObjectName;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,11 +29,13 @@ import org.slf4j.LoggerFactory;
  * Using that mechanism, you can also set up multi-process scenarios where the every process tries
  * {@link #create(File) to be the server}. If it gets an exception, it will know that there is already 
  * an active server and act as a client.</p>
+ * <p>If you {@link #enableJmx() enable JMX}, the HostDir is registered as a
+ * {@link HostDirMXBean} until it is closed.</p>
  * 
  * @author Ralf
  * 
  */
-public class HostDir implements Closeable {
+public class HostDir implements Closeable, HostDirMXBean {
 
 	public final static String HOST_LOCK_FILE = "host.lock";
 
@@ -41,6 +45,7 @@ public class HostDir implements Closeable {
 	private final File directory;
 	private final RandomAccessFile lockFile;
 	private final FileLock lock;
+	private volatile ObjectName objectName;
 
 	protected HostDir(File directory, RandomAccessFile lockFile, FileLock lock) {
 		if (directory == null) {
@@ -67,18 +72,74 @@ public class HostDir implements Closeable {
 		return directory;
 	}
 
+	@Override
+	public String getPath() {
+		return directory.getAbsolutePath();
+	}
+
 	/**
 	 * @return <code>true</code> if the directory represented by this {@link HostDir} is currently active.
 	 */
+	@Override
 	public boolean isActive() {
 		return lock.isValid();
 	}
 
+	@Override
+	public int getPendingRequests() {
+		return PipeUtil.countPendingRequests(new File(directory,
+				PipeUtil.CONNECT_DIR_NAME));
+	}
+
+	@Override
+	public int getPipeFiles() {
+		String[] names = new File(directory, PipeUtil.PIPES_DIR_NAME).list();
+		return names == null ? 0 : names.length;
+	}
+
+	@Override
+	public void deleteOldDirectories() {
+		deleteOldDirectories(directory.getParentFile());
+	}
+
+	/**
+	 * Registers this HostDir at the platform MBean server as
+	 * <code>org.jslipc:type=HostDir,name=&lt;path&gt;</code>. It is
+	 * unregistered on {@link #close()}.
+	 * 
+	 * @return <code>true</code> if the MBean has been registered.
+	 */
+	public synchronized boolean enableJmx() {
+		if (objectName == null) {
+			ObjectName name = JmxUtil.createName("HostDir", getPath());
+			if (JmxUtil.register(this, name)) {
+				objectName = name;
+			}
+		}
+		return objectName != null;
+	}
+
+	/**
+	 * Unregisters the MBean of this HostDir.
+	 */
+	public synchronized void disableJmx() {
+		JmxUtil.unregister(objectName);
+		objectName = null;
+	}
+
+	/**
+	 * @return <code>true</code> if the MBean has been registered.
+	 */
+	public boolean isJmxEnabled() {
+		return objectName != null;
+	}
+
 	/**
 	 * Closes this HostDir and releases the file lock hold on <code>host.lock</code>.
 	 */
 	@Override
 	public void close() throws IOException {
+		disableJmx();
 		try {
 			if (lock.isValid()) {
 				lock.release();
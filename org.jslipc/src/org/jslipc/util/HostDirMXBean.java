@@ -0,0 +1,34 @@
+package org.jslipc.util;
+
+/**
+ * Management interface of a {@link HostDir}, see {@link HostDir#enableJmx()}.
+ */
+public interface HostDirMXBean {
+
+	/**
+	 * @return the absolute path of the host directory.
+	 */
+	String getPath();
+
+	/**
+	 * @return <code>true</code> if the host directory is still active.
+	 */
+	boolean isActive();
+
+	/**
+	 * @return the number of request directories in the connect directory not
+	 *         yet served.
+	 */
+	int getPendingRequests();
+
+	/**
+	 * @return the number of files resp. directories in the pipes directory.
+	 */
+	int getPipeFiles();
+
+	/**
+	 * Deletes the directories of former hosts in the parent directory.
+	 */
+	void deleteOldDirectories();
+
+}
@@ -0,0 +1,96 @@
+package org.jslipc.util;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility methods for registering MBeans at the platform MBean server. All
+ * MBeans of jslipc are registered in the domain {@link #DOMAIN}. Failures are
+ * logged but not propagated, since monitoring must never break a pipe.
+ */
+public final class JmxUtil {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(JmxUtil.class);
+
+	public static final String DOMAIN = "org.jslipc";
+
+	private JmxUtil() {
+		// utility classes should have private constructor.
+	}
+
+	/**
+	 * Creates the name <code>org.jslipc:type=&lt;type&gt;,name=&lt;name&gt;</code>,
+	 * where the name is quoted, so it may be e.g. a path.
+	 * 
+	 * @param type
+	 * @param name
+	 * @return the object name.
+	 */
+	public static ObjectName createName(final String type, final String name) {
+		try {
+			return new ObjectName(DOMAIN + ":type=" + type + ",name="
+					+ ObjectName.quote(name));
+		} catch (JMException e) {
+			throw new IllegalArgumentException("invalid name '" + name + "'",
+					e);
+		}
+	}
+
+	/**
+	 * Registers the given MBean at the platform MBean server. An MBean already
+	 * registered with that name is replaced.
+	 * 
+	 * @param mbean
+	 * @param name
+	 * @return <code>true</code> if the MBean has been registered.
+	 */
+	public static boolean register(final Object mbean, final ObjectName name) {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(mbean, name);
+			return true;
+		} catch (JMException e) {
+			LOGGER.warn("failed to register MBean {}: {}", name, e.toString());
+			return false;
+		}
+	}
+
+	/**
+	 * Unregisters the MBean with the given name, if registered.
+	 * 
+	 * @param name
+	 *            the name, may be <code>null</code>.
+	 */
+	public static void unregister(final ObjectName name) {
+		if (name == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			LOGGER.warn("failed to unregister MBean {}: {}", name, e.toString());
+		}
+	}
+
+	/**
+	 * @param name
+	 * @return <code>true</code> if an MBean with the given name is registered.
+	 */
+	public static boolean isRegistered(final ObjectName name) {
+		return ManagementFactory.getPlatformMBeanServer().isRegistered(name);
+	}
+
+}
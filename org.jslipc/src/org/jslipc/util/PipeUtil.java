@@ -9,6 +9,8 @@ public class PipeUtil {
 
 	public static final String PIPES_DIR_NAME = "pipes";
 	public static final String CONNECT_DIR_NAME = "connect";
+	/** marks a request directory as served by the {@link JslipcPipeServer} */
+	public static final String SERVED_MARKER_NAME = ".served";
 
 	/**
 	 * Creates a directory named <code>connect</code> in the given host
@@ -73,4 +75,27 @@ public class PipeUtil {
 		}
 		return connectDir;
 	}
+
+	/**
+	 * Counts the request directories in the given connect directory that
+	 * have not yet been served.
+	 * 
+	 * @param connectDir
+	 * @return the number of pending requests, <code>0</code> if the directory
+	 *         could not be listed.
+	 */
+	public static int countPendingRequests(final File connectDir) {
+		File[] requests = connectDir.listFiles();
+		if (requests == null) {
+			return 0;
+		}
+		int count = 0;
+		for (File request : requests) {
+			if (request.isDirectory()
+					&& !new File(request, SERVED_MARKER_NAME).exists()) {
+				++count;
+			}
+		}
+		return count;
+	}
 }
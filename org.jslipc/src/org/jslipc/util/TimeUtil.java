@@ -53,7 +53,20 @@ public class TimeUtil {
 			checkForTimeout(timeout, waitingSince);
 	}
 
-	protected static long getTimeToSleep(final long toSleep, final int timeout,
+	/**
+	 * Calculates the time to sleep, which is the given time but at most the
+	 * time left until the timeout occurs.
+	 * 
+	 * @param toSleep
+	 *            the time to sleep in ms.
+	 * @param timeout
+	 *            the ms to wait at all before a timeout occurs, where
+	 *            <code>0</code> means infinity. Must be >= 0.
+	 * @param waitingSince
+	 *            the timestamp since when the blocking method is waiting in ms.
+	 * @return the time to sleep in ms.
+	 */
+	public static long getTimeToSleep(final long toSleep, final int timeout,
 			final long waitingSince) {
 		if (timeout <= 0) {
 			// timeout 0 means infinity
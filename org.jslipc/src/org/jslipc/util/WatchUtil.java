@@ -0,0 +1,98 @@
+package org.jslipc.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WatchServiceWaitStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility methods for waiting on file system events. Since the
+ * {@link java.nio.file.WatchService} needs Java 7, the
+ * {@link WatchServiceWaitStrategy} is loaded only if it is available.
+ */
+public final class WatchUtil {
+
+	private final static Logger LOGGER = LoggerFactory
+			.getLogger(WatchUtil.class);
+
+	private static final String WATCH_SERVICE_CLASS = "java.nio.file.WatchService";
+	private static final String STRATEGY_CLASS = "org.jslipc.wait.WatchServiceWaitStrategy";
+	private static final boolean WATCH_SERVICE_AVAILABLE = isClassAvailable(WATCH_SERVICE_CLASS);
+
+	private WatchUtil() {
+		// utility classes should have private constructor.
+	}
+
+	/**
+	 * @return <code>true</code> if the runtime provides a WatchService.
+	 */
+	public static boolean isWatchServiceAvailable() {
+		return WATCH_SERVICE_AVAILABLE;
+	}
+
+	/**
+	 * Creates a {@link WatchServiceWaitStrategy} for the given directory. If
+	 * the WatchService is not available or the directory could not be
+	 * watched, <code>null</code> is returned, so the caller may keep polling.
+	 * The returned strategy is {@link Closeable} and must be closed by the
+	 * caller.
+	 * 
+	 * @param directory
+	 * @return the strategy, or <code>null</code>.
+	 */
+	public static WaitStrategy createWaitStrategy(final File directory) {
+		return createWaitStrategy(directory, null);
+	}
+
+	/**
+	 * Same as {@link #createWaitStrategy(File)}, but the created strategy
+	 * informs the given listener about created and deleted files.
+	 * 
+	 * @param directory
+	 * @param listener
+	 *            the listener, may be <code>null</code>.
+	 * @return the strategy, or <code>null</code>.
+	 */
+	public static WaitStrategy createWaitStrategy(final File directory,
+			final FileEventListener listener) {
+		if (!isWatchServiceAvailable()) {
+			return null;
+		}
+		try {
+			return (WaitStrategy) Class.forName(STRATEGY_CLASS)
+					.getConstructor(File.class, FileEventListener.class)
+					.newInstance(directory, listener);
+		} catch (InvocationTargetException e) {
+			LOGGER.info("failed to watch {}: {}", directory, e.getCause()
+					.toString());
+		} catch (Exception e) {
+			LOGGER.info("failed to watch {}: {}", directory, e.toString());
+		}
+		return null;
+	}
+
+	/**
+	 * Closes the given strategy if it is {@link Closeable}.
+	 * 
+	 * @param waitStrategy
+	 */
+	public static void closeSilent(final WaitStrategy waitStrategy) {
+		if (waitStrategy instanceof Closeable) {
+			FileUtil.closeSilent((Closeable) waitStrategy);
+		}
+	}
+
+	private static boolean isClassAvailable(final String className) {
+		try {
+			Class.forName(className);
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package org.jslipc.wait;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jslipc.util.StringUtil;
+import org.jslipc.util.TimeUtil;
+
+/**
+ * Spins, then yields, and finally parks the thread with an exponentially
+ * growing park time up to the given maximum. An idle pipe so costs next to no
+ * CPU, while a pipe that becomes busy again reacts within the current park
+ * time.
+ */
+public class BackoffWaitStrategy implements WaitStrategy {
+
+	public static final int DEFAULT_SPINS = 100;
+	public static final int DEFAULT_YIELDS = 100;
+	public static final long DEFAULT_MIN_PARK_NANOS = TimeUnit.MICROSECONDS
+			.toNanos(1);
+	public static final long DEFAULT_MAX_PARK_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(1);
+
+	private final int spins;
+	private final int yields;
+	private final long minParkNanos;
+	private final long maxParkNanos;
+
+	/**
+	 * Creates a strategy using the default spins, yields and park times.
+	 */
+	public BackoffWaitStrategy() {
+		this(DEFAULT_SPINS, DEFAULT_YIELDS, DEFAULT_MIN_PARK_NANOS,
+				DEFAULT_MAX_PARK_NANOS);
+	}
+
+	/**
+	 * Creates a strategy with the given parameters.
+	 * 
+	 * @param spins
+	 *            the number of rounds to spin, must be >= 0.
+	 * @param yields
+	 *            the number of rounds to yield after spinning, must be >= 0.
+	 * @param minParkNanos
+	 *            the park time of the first parking round, must be > 0.
+	 * @param maxParkNanos
+	 *            the upper limit of the park time, must be >= minParkNanos.
+	 */
+	public BackoffWaitStrategy(final int spins, final int yields,
+			final long minParkNanos, final long maxParkNanos) {
+		if (spins < 0) {
+			throw new IllegalArgumentException("parameter spins must be >= 0: "
+					+ spins);
+		}
+		if (yields < 0) {
+			throw new IllegalArgumentException(
+					"parameter yields must be >= 0: " + yields);
+		}
+		if (minParkNanos <= 0) {
+			throw new IllegalArgumentException(
+					"parameter minParkNanos must be > 0: " + minParkNanos);
+		}
+		if (maxParkNanos < minParkNanos) {
+			throw new IllegalArgumentException(
+					"parameter maxParkNanos must be >= minParkNanos: "
+							+ maxParkNanos);
+		}
+		this.spins = spins;
+		this.yields = yields;
+		this.minParkNanos = minParkNanos;
+		this.maxParkNanos = maxParkNanos;
+	}
+
+	@Override
+	public void idle(final int round, final int timeout,
+			final long waitingSince) throws InterruptedException {
+		BusySpinWaitStrategy.checkInterrupted();
+		TimeUtil.checkForTimeout(timeout, waitingSince);
+		if (round < spins) {
+			return;
+		}
+		if (round < spins + yields) {
+			Thread.yield();
+			return;
+		}
+
+		long parkNanos = getParkNanos(round - spins - yields);
+		if (timeout > 0) {
+			long remaining = waitingSince + timeout
+					- System.currentTimeMillis();
+			parkNanos = Math.min(parkNanos,
+					TimeUnit.MILLISECONDS.toNanos(Math.max(remaining, 0)));
+		}
+		if (parkNanos > 0) {
+			LockSupport.parkNanos(parkNanos);
+		}
+		BusySpinWaitStrategy.checkInterrupted();
+		TimeUtil.checkForTimeout(timeout, waitingSince);
+	}
+
+	/**
+	 * @param parkRound
+	 *            the number of parking rounds so far.
+	 * @return the time to park in the given parking round.
+	 */
+	protected long getParkNanos(final int parkRound) {
+		// shift at most until the max is exceeded, avoids overflows
+		long parkNanos = minParkNanos;
+		for (int i = 0; i < parkRound && parkNanos < maxParkNanos; i++) {
+			parkNanos <<= 1;
+		}
+		return Math.min(parkNanos, maxParkNanos);
+	}
+
+	public int getSpins() {
+		return spins;
+	}
+
+	public int getYields() {
+		return yields;
+	}
+
+	public long getMinParkNanos() {
+		return minParkNanos;
+	}
+
+	public long getMaxParkNanos() {
+		return maxParkNanos;
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("spins", spins)
+				.add("yields", yields).add("minParkNanos", minParkNanos)
+				.add("maxParkNanos", maxParkNanos).toString();
+	}
+
+}
@@ -0,0 +1,40 @@
+package org.jslipc.wait;
+
+import org.jslipc.util.StringUtil;
+import org.jslipc.util.TimeUtil;
+
+/**
+ * Returns immediately, so the caller retries in a tight loop. Gives the lowest
+ * latency at the price of burning a whole core while waiting, so only use it
+ * if the waiting thread has a core of its own.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+	public static final BusySpinWaitStrategy INSTANCE = new BusySpinWaitStrategy();
+
+	@Override
+	public void idle(final int round, final int timeout,
+			final long waitingSince) throws InterruptedException {
+		checkInterrupted();
+		TimeUtil.checkForTimeout(timeout, waitingSince);
+	}
+
+	/**
+	 * Throws an InterruptedException if the current thread has been
+	 * interrupted, and clears the interrupted flag like
+	 * {@link Thread#sleep(long)} does.
+	 * 
+	 * @throws InterruptedException
+	 */
+	protected static void checkInterrupted() throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException("interrupted");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).toString();
+	}
+
+}
@@ -0,0 +1,50 @@
+package org.jslipc.wait;
+
+import org.jslipc.util.StringUtil;
+import org.jslipc.util.TimeUtil;
+
+/**
+ * Sleeps a fixed amount of time on every round. Cheap on CPU, but adds up to
+ * the sleep time as latency to every operation that had to wait.
+ */
+public class SleepWaitStrategy implements WaitStrategy {
+
+	/**
+	 * Sleeps the {@link TimeUtil#DEFAULT_SLEEP_TIME default sleep time}. This
+	 * is the default strategy for all blocking operations.
+	 */
+	public static final SleepWaitStrategy DEFAULT = new SleepWaitStrategy(
+			TimeUtil.DEFAULT_SLEEP_TIME);
+
+	private final long sleepTime;
+
+	/**
+	 * Creates a strategy sleeping the given time on every round.
+	 * 
+	 * @param sleepTime
+	 *            the time to sleep in ms, must be > 0.
+	 */
+	public SleepWaitStrategy(final long sleepTime) {
+		if (sleepTime <= 0) {
+			throw new IllegalArgumentException(
+					"parameter sleepTime must be > 0: " + sleepTime);
+		}
+		this.sleepTime = sleepTime;
+	}
+
+	public long getSleepTime() {
+		return sleepTime;
+	}
+
+	@Override
+	public void idle(final int round, final int timeout,
+			final long waitingSince) throws InterruptedException {
+		TimeUtil.sleep(sleepTime, timeout, waitingSince);
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("sleepTime", sleepTime).toString();
+	}
+
+}
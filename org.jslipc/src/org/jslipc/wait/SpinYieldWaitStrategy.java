@@ -0,0 +1,57 @@
+package org.jslipc.wait;
+
+import org.jslipc.util.StringUtil;
+import org.jslipc.util.TimeUtil;
+
+/**
+ * Spins for the given number of rounds, and {@link Thread#yield() yields}
+ * afterwards. Reacts nearly as fast as {@link BusySpinWaitStrategy} on short
+ * waits, but gives other threads a chance to run on longer ones.
+ */
+public class SpinYieldWaitStrategy implements WaitStrategy {
+
+	public static final int DEFAULT_SPINS = 100;
+
+	private final int spins;
+
+	/**
+	 * Creates a strategy spinning for {@link #DEFAULT_SPINS} rounds.
+	 */
+	public SpinYieldWaitStrategy() {
+		this(DEFAULT_SPINS);
+	}
+
+	/**
+	 * Creates a strategy spinning for the given rounds.
+	 * 
+	 * @param spins
+	 *            the number of rounds to spin before yielding, must be >= 0.
+	 */
+	public SpinYieldWaitStrategy(final int spins) {
+		if (spins < 0) {
+			throw new IllegalArgumentException("parameter spins must be >= 0: "
+					+ spins);
+		}
+		this.spins = spins;
+	}
+
+	public int getSpins() {
+		return spins;
+	}
+
+	@Override
+	public void idle(final int round, final int timeout,
+			final long waitingSince) throws InterruptedException {
+		BusySpinWaitStrategy.checkInterrupted();
+		TimeUtil.checkForTimeout(timeout, waitingSince);
+		if (round >= spins) {
+			Thread.yield();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("spins", spins).toString();
+	}
+
+}
@@ -0,0 +1,34 @@
+package org.jslipc.wait;
+
+/**
+ * Decides how a blocking operation waits until the condition it is waiting for
+ * (e.g. data available, space available) may be met. The operation calls
+ * {@link #idle(int, int, long)} each time it finds the condition unmet, and
+ * retries afterwards. Implementations range from cheap on CPU but slow to react
+ * ({@link SleepWaitStrategy}) to fast but burning a core
+ * ({@link BusySpinWaitStrategy}).<br/>
+ * <br/>
+ * Implementations must be stateless (any state has to be derived from the
+ * <code>round</code>), so one instance can be shared by any number of threads.
+ */
+public interface WaitStrategy {
+
+	/**
+	 * Waits for a strategy specific time before the caller retries its
+	 * operation.
+	 * 
+	 * @param round
+	 *            the number of times this method has already been called for
+	 *            the current blocking operation, starting with <code>0</code>.
+	 * @param timeout
+	 *            the ms to wait at all before a timeout occurs, where
+	 *            <code>0</code> means infinity. Must be >= 0.
+	 * @param waitingSince
+	 *            the timestamp since when the blocking method is waiting in ms.
+	 * @throws InterruptedException
+	 *             if the thread has been interrupted or a timeout occurred.
+	 */
+	void idle(int round, int timeout, long waitingSince)
+			throws InterruptedException;
+
+}
@@ -0,0 +1,22 @@
+package org.jslipc.wait;
+
+/**
+ * Implemented by classes that support a configurable {@link WaitStrategy} for
+ * blocking operations.
+ */
+public interface WaitStrategyAware {
+
+	/**
+	 * @return the strategy used to wait on blocking operations.
+	 */
+	public WaitStrategy getWaitStrategy();
+
+	/**
+	 * Sets the strategy used to wait on blocking operations. Must not be
+	 * <code>null</code>.
+	 * 
+	 * @param waitStrategy
+	 */
+	public void setWaitStrategy(WaitStrategy waitStrategy);
+
+}
@@ -0,0 +1,202 @@
+package org.jslipc.wait;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.jslipc.util.FileEventListener;
+import org.jslipc.util.StringUtil;
+import org.jslipc.util.TimeUtil;
+import org.jslipc.util.WatchUtil;
+
+/**
+ * Waits for changes in a directory using a {@link WatchService}, which e.g. on
+ * Linux is backed by inotify: instead of sleeping a fixed time, the waiting
+ * thread blocks until a file in the directory is created or modified, so it
+ * wakes up right after the peer wrote. A single block is limited to the given
+ * maximum time, so the waiting thread notices timeouts and changes the
+ * WatchService does not report (e.g. on network file systems) at the latest
+ * after that time.<br/>
+ * <br/>
+ * An optional {@link FileEventListener} is informed about created and deleted
+ * files, so e.g. new entries of a directory can be tracked without listing
+ * it.<br/>
+ * <br/>
+ * This class needs Java 7, use {@link WatchUtil#createWaitStrategy(File)} to
+ * fall back to polling on older runtimes. The strategy must be
+ * {@link #close() closed} to release the WatchService.
+ */
+public class WatchServiceWaitStrategy implements WaitStrategy, Closeable {
+
+	/**
+	 * The default maximum time to block at once in ms.
+	 */
+	public static final long DEFAULT_MAX_BLOCK_TIME = 1000;
+
+	private final File directory;
+	private final WatchService watchService;
+	private final long maxBlockTime;
+	private final FileEventListener listener;
+
+	/**
+	 * Creates a strategy watching the given directory, blocking at most
+	 * {@link #DEFAULT_MAX_BLOCK_TIME} ms at once.
+	 * 
+	 * @param directory
+	 * @throws IOException
+	 *             if the directory could not be watched.
+	 */
+	public WatchServiceWaitStrategy(final File directory) throws IOException {
+		this(directory, DEFAULT_MAX_BLOCK_TIME);
+	}
+
+	/**
+	 * Creates a strategy watching the given directory.
+	 * 
+	 * @param directory
+	 * @param maxBlockTime
+	 *            the maximum time to block at once in ms, must be > 0.
+	 * @throws IOException
+	 *             if the directory could not be watched.
+	 */
+	public WatchServiceWaitStrategy(final File directory,
+			final long maxBlockTime) throws IOException {
+		this(directory, maxBlockTime, null);
+	}
+
+	/**
+	 * Creates a strategy watching the given directory, blocking at most
+	 * {@link #DEFAULT_MAX_BLOCK_TIME} ms at once, that informs the given
+	 * listener about the events.
+	 * 
+	 * @param directory
+	 * @param listener
+	 * @throws IOException
+	 *             if the directory could not be watched.
+	 */
+	public WatchServiceWaitStrategy(final File directory,
+			final FileEventListener listener) throws IOException {
+		this(directory, DEFAULT_MAX_BLOCK_TIME, listener);
+	}
+
+	/**
+	 * Creates a strategy watching the given directory.
+	 * 
+	 * @param directory
+	 * @param maxBlockTime
+	 *            the maximum time to block at once in ms, must be > 0.
+	 * @param listener
+	 *            the listener to inform about events, may be
+	 *            <code>null</code>.
+	 * @throws IOException
+	 *             if the directory could not be watched.
+	 */
+	public WatchServiceWaitStrategy(final File directory,
+			final long maxBlockTime, final FileEventListener listener)
+			throws IOException {
+		if (directory == null) {
+			throw new IllegalArgumentException(
+					"parameter directory must not be null");
+		}
+		if (maxBlockTime <= 0) {
+			throw new IllegalArgumentException(
+					"parameter maxBlockTime must be > 0: " + maxBlockTime);
+		}
+		this.directory = directory;
+		this.maxBlockTime = maxBlockTime;
+		this.listener = listener;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		try {
+			if (listener == null) {
+				directory.toPath().register(watchService,
+						StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+			} else {
+				directory.toPath().register(watchService,
+						StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY,
+						StandardWatchEventKinds.ENTRY_DELETE);
+			}
+		} catch (IOException e) {
+			watchService.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void idle(final int round, final int timeout,
+			final long waitingSince) throws InterruptedException {
+		TimeUtil.checkForTimeout(timeout, waitingSince);
+		long toBlock = TimeUtil.getTimeToSleep(maxBlockTime, timeout,
+				waitingSince);
+		if (toBlock > 0) {
+			block(toBlock);
+		}
+		if (Thread.interrupted()) {
+			throw new InterruptedException("interrupted");
+		}
+		TimeUtil.checkForTimeout(timeout, waitingSince);
+	}
+
+	private void block(final long toBlock) throws InterruptedException {
+		try {
+			WatchKey key = watchService.poll(toBlock, TimeUnit.MILLISECONDS);
+			if (key != null) {
+				// without listener the events themselves are of no interest,
+				// the caller re-checks its condition anyway
+				for (WatchEvent<?> event : key.pollEvents()) {
+					fireEvent(event);
+				}
+				key.reset();
+			}
+		} catch (ClosedWatchServiceException e) {
+			Thread.sleep(toBlock);
+		}
+	}
+
+	private void fireEvent(final WatchEvent<?> event) {
+		if (listener == null) {
+			return;
+		}
+		if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+			listener.overflow();
+			return;
+		}
+		File file = new File(directory, event.context().toString());
+		if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+			listener.created(file);
+		} else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+			listener.deleted(file);
+		}
+	}
+
+	/**
+	 * @return the watched directory.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Closes the WatchService, afterwards the strategy degrades to sleeping
+	 * the maximum block time.
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	@Override
+	public String toString() {
+		return StringUtil.build(this).add("directory", directory)
+				.add("maxBlockTime", maxBlockTime).toString();
+	}
+
+}
@@ -22,9 +22,12 @@ import org.jslipc.ipc.pipe.JslipcPipeURLConnection;
  * <pre>
  * jslipc:///c:/example/server/connect
  * jslipc:///c:/example/server/connect?accept-types=ChunkFilePipe,FilePipe
+ * jslipc:///c:/example/server/connect?keep-alive=true
  * </pre>
  * 
- * So any parameter can be passed as part of the query.
+ * So any parameter can be passed as part of the query. The parameter
+ * <code>keep-alive=true</code> reuses pooled pipes, see
+ * {@link JslipcPipeURLConnection}.
  */
 public class Handler extends URLStreamHandler {
 
@@ -0,0 +1,90 @@
+package org.jslipc.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.jslipc.TestUtil;
+import org.jslipc.channel.buffer.ReadableBbqChannel;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ChannelMetrics}.
+ */
+public class ChannelMetricsTest {
+
+	@Test
+	public void testRead() throws Exception {
+		ChannelMetrics metrics = new ChannelMetrics();
+		assertEquals(17, metrics.read(17));
+		assertEquals(0, metrics.read(0));
+		assertEquals(-1, metrics.read(-1));
+		assertEquals(3, metrics.getReadCalls());
+		assertEquals(17, metrics.getBytesRead());
+		assertEquals(1, metrics.getEmptyReads());
+	}
+
+	@Test
+	public void testWritten() throws Exception {
+		ChannelMetrics metrics = new ChannelMetrics();
+		assertEquals(17, metrics.written(17));
+		assertEquals(0, metrics.written(0));
+		assertEquals(5L, metrics.written(5L));
+		assertEquals(3, metrics.getWriteCalls());
+		assertEquals(22, metrics.getBytesWritten());
+		assertEquals(1, metrics.getFullWrites());
+	}
+
+	@Test
+	public void testWaitedAndChunks() throws Exception {
+		ChannelMetrics metrics = new ChannelMetrics();
+		metrics.waited(100);
+		metrics.waited(50);
+		metrics.waited(3, 20);
+		metrics.chunkCreated();
+		metrics.chunkCreated();
+		metrics.chunkConsumed();
+		assertEquals(5, metrics.getWaits());
+		assertEquals(170, metrics.getWaitNanos());
+		assertEquals(2, metrics.getChunksCreated());
+		assertEquals(1, metrics.getChunksConsumed());
+	}
+
+	@Test
+	public void testRecordWait() throws Exception {
+		ChannelMetrics metrics = new ChannelMetrics();
+		ChannelMetrics.recordWait(metrics, 0, System.nanoTime());
+		assertEquals(0, metrics.getWaits());
+		ChannelMetrics.recordWait(metrics, 7, System.nanoTime() - 1000);
+		assertEquals(7, metrics.getWaits());
+		assertTrue(metrics.getWaitNanos() >= 1000);
+		// no metrics
+		ChannelMetrics.recordWait(null, 7, System.nanoTime());
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		ChannelMetrics metrics = new ChannelMetrics();
+		metrics.read(17);
+		metrics.written(0);
+		metrics.waited(100);
+		metrics.chunkConsumed();
+		metrics.reset();
+		assertEquals(0, metrics.getReadCalls());
+		assertEquals(0, metrics.getBytesRead());
+		assertEquals(0, metrics.getFullWrites());
+		assertEquals(0, metrics.getWaitNanos());
+		assertEquals(0, metrics.getChunksConsumed());
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void testOf() throws Exception {
+		ReadableBbqChannel channel = new ReadableBbqChannel(
+				TestUtil.createByteBufferQueue(32));
+		assertSame(channel.getMetrics(), ChannelMetrics.of(channel));
+		assertNull(ChannelMetrics.of("no channel"));
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.jslipc.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link FramedOutputStream} and {@link FramedInputStream}.
+ */
+public class FramedStreamTest {
+
+	@Test
+	public void testFrames() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputStream out = new FramedOutputStream(bytes, 4);
+		out.write("herbert".getBytes());
+		out.write(17);
+		out.close();
+		// 2 full frames of 4 bytes and the terminator
+		assertEquals(3 * 4 + 8, bytes.size());
+
+		FramedInputStream in = new FramedInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()));
+		assertTrue(in.awaitBody());
+		assertEquals("herbert", new String(readAll(in, 7)));
+		assertEquals(17, in.read());
+		assertEquals(-1, in.read());
+		assertFalse(in.isEndOfStream());
+	}
+
+	@Test
+	public void testMultipleBodies() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		write(bytes, "herbert");
+		write(bytes, "");
+		write(bytes, "karl");
+		InputStream source = new ByteArrayInputStream(bytes.toByteArray());
+
+		assertEquals("herbert", read(source));
+		assertEquals("", read(source));
+		assertEquals("karl", read(source));
+
+		FramedInputStream in = new FramedInputStream(source);
+		assertFalse(in.awaitBody());
+		assertTrue(in.isEndOfStream());
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void testCloseSkipsBody() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		write(bytes, "herbert");
+		write(bytes, "karl");
+		InputStream source = new ByteArrayInputStream(bytes.toByteArray());
+
+		InputStream in = new FramedInputStream(source);
+		assertEquals('h', in.read());
+		in.close();
+		assertEquals("karl", read(source));
+	}
+
+	@Test
+	public void testFlush() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputStream out = new FramedOutputStream(bytes);
+		out.write("hans".getBytes());
+		assertEquals(0, bytes.size());
+		out.flush();
+		assertEquals(8, bytes.size());
+		out.close();
+		assertEquals(12, bytes.size());
+	}
+
+	@Test(expected = EOFException.class)
+	public void testUnexpectedEnd() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		write(bytes, "herbert");
+		byte[] truncated = new byte[bytes.size() - 6];
+		System.arraycopy(bytes.toByteArray(), 0, truncated, 0,
+				truncated.length);
+		read(new ByteArrayInputStream(truncated));
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterClose() throws Exception {
+		OutputStream out = new FramedOutputStream(new ByteArrayOutputStream());
+		out.close();
+		out.write(17);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidFrameSize() throws Exception {
+		new FramedOutputStream(new ByteArrayOutputStream(), 0);
+	}
+
+	private void write(final OutputStream target, final String body)
+			throws IOException {
+		OutputStream out = new FramedOutputStream(target);
+		out.write(body.getBytes());
+		out.close();
+	}
+
+	private String read(final InputStream source) throws IOException {
+		InputStream in = new FramedInputStream(source);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[3];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			bytes.write(buffer, 0, count);
+		}
+		return new String(bytes.toByteArray());
+	}
+
+	private byte[] readAll(final InputStream in, final int size)
+			throws IOException {
+		byte[] result = new byte[size];
+		int count = 0;
+		while (count < size) {
+			count += in.read(result, count, size - count);
+		}
+		return result;
+	}
+
+}
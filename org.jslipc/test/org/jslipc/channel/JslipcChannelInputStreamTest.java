@@ -1,22 +1,31 @@
 package org.jslipc.channel;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.channel.buffer.ByteBufferQueue;
+import org.jslipc.channel.buffer.ReadableBbqChannel;
+import org.jslipc.wait.BusySpinWaitStrategy;
+import org.jslipc.wait.SleepWaitStrategy;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -55,7 +64,7 @@ public class JslipcChannelInputStreamTest {
 		mockReadByte(67);
 		assertEquals((byte) 67, is.read());
 		mockReadByte(167);
-		assertEquals((byte) 167, is.read());
+		assertEquals(167, is.read());
 	}
 
 	@SuppressWarnings("resource")
@@ -72,6 +81,23 @@ public class JslipcChannelInputStreamTest {
 		assertEquals(-1, is.read());
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testReadWrittenRightBeforeClose() throws Exception {
+		JslipcChannelInputStream is = new JslipcChannelInputStream(channelMock);
+		final byte[] data = createData(10);
+		doReturn(0).when(channelMock).read(any(ByteBuffer.class));
+		// the peer writes and closes between the read and the state check
+		doAnswer(new Answer<JslipcChannelState>() {
+			public JslipcChannelState answer(InvocationOnMock invocation)
+					throws IOException {
+				mockReadData(data, Integer.MAX_VALUE);
+				return JslipcChannelState.ClosedByPeer;
+			}
+		}).when(channelMock).getState();
+		assertArrayEquals(data, is.readAll());
+	}
+
 	@SuppressWarnings("resource")
 	@Test
 	public void testReadMayBlock() throws Exception {
@@ -250,6 +276,27 @@ public class JslipcChannelInputStreamTest {
 		assertEquals(InterruptedIOException.class, caught.get().getClass());
 	}
 	
+	@SuppressWarnings("resource")
+	@Test
+	public void testWaitStrategy() throws Exception {
+		JslipcChannelInputStream stream = new JslipcChannelInputStream(channelMock);
+		assertSame(SleepWaitStrategy.DEFAULT, stream.getWaitStrategy());
+		stream.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		assertSame(BusySpinWaitStrategy.INSTANCE, stream.getWaitStrategy());
+
+		ReadableBbqChannel channel = new ReadableBbqChannel(
+				new ByteBufferQueue(ByteBuffer.allocate(100), 0, 100));
+		channel.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		stream = new JslipcChannelInputStream(channel);
+		assertSame(BusySpinWaitStrategy.INSTANCE, stream.getWaitStrategy());
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetWaitStrategyNull() throws Exception {
+		new JslipcChannelInputStream(channelMock).setWaitStrategy(null);
+	}
+
 	@Test
 	public void testClose() throws Exception {
 		final JslipcChannelInputStream is = new JslipcChannelInputStream(
@@ -258,6 +305,97 @@ public class JslipcChannelInputStreamTest {
 		verify(channelMock).close();
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testWaitMetrics() throws Exception {
+		ByteBufferQueue queue = new ByteBufferQueue(ByteBuffer.allocate(100),
+				0, 100);
+		queue.init();
+		ReadableBbqChannel channel = new ReadableBbqChannel(queue);
+		channel.setWaitStrategy(new SleepWaitStrategy(10));
+		JslipcChannelInputStream is = new JslipcChannelInputStream(channel);
+		is.setTimeout(100);
+		try {
+			is.read();
+		} catch (InterruptedIOException e) {
+			// expected
+		}
+		assertTrue(channel.getMetrics().getWaits() > 0);
+		assertTrue(channel.getMetrics().getWaitNanos() > 0);
+		assertTrue(channel.getMetrics().getEmptyReads() > 0);
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void testReadFully() throws Exception {
+		JslipcChannelInputStream is = new JslipcChannelInputStream(channelMock);
+		mockReadData(createData(10), 3);
+		byte[] b = new byte[12];
+		is.readFully(b, 1, 10);
+		for (int i = 0; i < 10; i++) {
+			assertEquals((byte) i, b[i + 1]);
+		}
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = EOFException.class)
+	public void testReadFullyEndOfStream() throws Exception {
+		JslipcChannelInputStream is = new JslipcChannelInputStream(channelMock);
+		mockReadData(createData(5), 5);
+		is.readFully(new byte[10], 0, 10);
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void testReadAll() throws Exception {
+		JslipcChannelInputStream is = new JslipcChannelInputStream(channelMock);
+		byte[] data = createData(10000);
+		mockReadData(data, Integer.MAX_VALUE);
+		assertArrayEquals(data, is.readAll());
+		// the buffer grows twice, plus the read signaling the end
+		verify(channelMock, times(4)).read(any(ByteBuffer.class));
+	}
+
+	@Test
+	public void testReadAllFromInputStream() throws Exception {
+		byte[] data = createData(10000);
+		assertArrayEquals(data, JslipcChannelInputStream
+				.readAll(new ByteArrayInputStream(data)));
+		assertArrayEquals(new byte[0], JslipcChannelInputStream
+				.readAll(new ByteArrayInputStream(new byte[0])));
+	}
+
+	private byte[] createData(final int size) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) i;
+		}
+		return data;
+	}
+
+	/**
+	 * Serves the given data with at most <code>chunk</code> bytes per read,
+	 * and signals the end of stream afterwards.
+	 */
+	protected void mockReadData(final byte[] data, final int chunk)
+			throws IOException {
+		doAnswer(new Answer<Integer>() {
+			private int position;
+
+			public Integer answer(InvocationOnMock invocation) {
+				ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+				if (position == data.length) {
+					return -1;
+				}
+				int count = Math.min(chunk,
+						Math.min(buffer.remaining(), data.length - position));
+				buffer.put(data, position, count);
+				position += count;
+				return count;
+			}
+		}).when(channelMock).read(any(ByteBuffer.class));
+	}
+
 	protected void mockReadByte(final int date) throws IOException {
 		doAnswer(new Answer<Integer>() {
 			public Integer answer(InvocationOnMock invocation) {
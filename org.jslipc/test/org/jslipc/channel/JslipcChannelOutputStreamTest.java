@@ -1,9 +1,11 @@
 package org.jslipc.channel;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
@@ -13,13 +15,22 @@ import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.jslipc.TestUtil;
 import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.channel.buffer.ByteBufferQueue;
+import org.jslipc.channel.buffer.WritableBbqChannel;
+import org.jslipc.channel.file.chunk.WritableChunkFileChannel;
+import org.jslipc.util.FileUtil;
+import org.jslipc.wait.BusySpinWaitStrategy;
+import org.jslipc.wait.SleepWaitStrategy;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -164,6 +175,36 @@ public class JslipcChannelOutputStreamTest {
 		verifyWriteCalled();
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testWritePartial() throws Exception {
+		JslipcChannelOutputStream os = new JslipcChannelOutputStream(channelMock);
+		os.setWaitStrategy(new BusySpinWaitStrategy());
+		final ByteArrayOutputStream written = new ByteArrayOutputStream();
+		// a bounded channel accepting at most 3 bytes, every other call full
+		doAnswer(new Answer<Integer>() {
+			private int calls;
+
+			public Integer answer(InvocationOnMock invocation) {
+				if (calls++ % 2 == 1) {
+					return 0;
+				}
+				ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+				int count = Math.min(3, buffer.remaining());
+				for (int i = 0; i < count; i++) {
+					written.write(buffer.get());
+				}
+				return count;
+			}
+		}).when(channelMock).write(any(ByteBuffer.class));
+		when(channelMock.getState()).thenReturn(JslipcChannelState.Open);
+
+		byte[] buf = createByteArray(12, 1, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+		os.write(buf, 1, 10);
+		assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 },
+				written.toByteArray());
+	}
+
 	@SuppressWarnings("resource")
 	@Test
 	public void testWriteByteArrayEndOfStream() throws Exception {
@@ -270,6 +311,27 @@ public class JslipcChannelOutputStreamTest {
 	}
 
 	
+	@SuppressWarnings("resource")
+	@Test
+	public void testWaitStrategy() throws Exception {
+		JslipcChannelOutputStream stream = new JslipcChannelOutputStream(channelMock);
+		assertSame(SleepWaitStrategy.DEFAULT, stream.getWaitStrategy());
+		stream.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		assertSame(BusySpinWaitStrategy.INSTANCE, stream.getWaitStrategy());
+
+		WritableBbqChannel channel = new WritableBbqChannel(
+				new ByteBufferQueue(ByteBuffer.allocate(100), 0, 100));
+		channel.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		stream = new JslipcChannelOutputStream(channel);
+		assertSame(BusySpinWaitStrategy.INSTANCE, stream.getWaitStrategy());
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetWaitStrategyNull() throws Exception {
+		new JslipcChannelOutputStream(channelMock).setWaitStrategy(null);
+	}
+
 	@Test
 	public void testClose() throws Exception {
 		final JslipcChannelOutputStream is = new JslipcChannelOutputStream(
@@ -278,6 +340,25 @@ public class JslipcChannelOutputStreamTest {
 		verify(channelMock).close();
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testFlush() throws Exception {
+		File directory = TestUtil.createDirectory();
+		try {
+			WritableChunkFileChannel channel = new WritableChunkFileChannel(
+					directory);
+			channel.setBatchSize(100);
+			JslipcChannelOutputStream os = new JslipcChannelOutputStream(
+					channel);
+			os.write("herbert".getBytes());
+			assertEquals(0, directory.list().length);
+			os.flush();
+			assertEquals(1, directory.list().length);
+		} finally {
+			FileUtil.delete(directory, true);
+		}
+	}
+
 
 	protected void mockWriteByte(final int date) throws IOException {
 		doAnswer(new Answer<Integer>() {
@@ -0,0 +1,184 @@
+package org.jslipc.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+import org.jslipc.TestUtil;
+import org.jslipc.channel.buffer.ByteBufferQueue;
+import org.jslipc.channel.buffer.ReadableBbqChannel;
+import org.jslipc.channel.buffer.WritableBbqChannel;
+import org.jslipc.channel.file.chunk.ReadableChunkFileChannel;
+import org.jslipc.channel.file.chunk.WritableChunkFileChannel;
+import org.jslipc.util.FileUtil;
+import org.jslipc.wait.BusySpinWaitStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamMessageChannelTest {
+
+	private ByteBufferQueue queue;
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = TestUtil.createByteBufferQueue(1000);
+		queue.init();
+		directory = TestUtil.createDirectory();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtil.delete(directory, true);
+	}
+
+	/**
+	 * @return a channel reading the messages it has sent itself.
+	 */
+	protected StreamMessageChannel createLoopback() {
+		return new StreamMessageChannel(new ReadableBbqChannel(queue),
+				new WritableBbqChannel(queue));
+	}
+
+	protected StreamMessageChannel createChunkLoopback() {
+		return new StreamMessageChannel(new ReadableChunkFileChannel(
+				directory), new WritableChunkFileChannel(directory));
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testStreamMessageChannelWithNullSource() {
+		new StreamMessageChannel(null, new WritableBbqChannel(queue));
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testStreamMessageChannelWithNullSink() {
+		new StreamMessageChannel(new ReadableBbqChannel(queue), null);
+	}
+
+	@Test
+	public void testSendAndReceive() throws Exception {
+		StreamMessageChannel channel = createLoopback();
+		channel.send(TestUtil.toBuffer("herbert"));
+		channel.send(TestUtil.toBuffer(""));
+		channel.send(TestUtil.toBuffer("karl"));
+		assertEquals(4 + 7 + 4 + 0 + 4 + 4, queue.size());
+
+		assertMessage("herbert", channel.receive());
+		assertMessage("", channel.receive());
+		assertMessage("karl", channel.receive());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testSendBatch() throws Exception {
+		StreamMessageChannel channel = createLoopback();
+		channel.send(new ByteBuffer[] { TestUtil.toBuffer("herbert"),
+				TestUtil.toBuffer("karl") });
+		assertMessage("herbert", channel.receive());
+		assertMessage("karl", channel.receive());
+	}
+
+	@Test
+	public void testSendBatchIntoOneChunk() throws Exception {
+		StreamMessageChannel channel = createChunkLoopback();
+		channel.send(new ByteBuffer[] { TestUtil.toBuffer("herbert"),
+				TestUtil.toBuffer("karl") });
+		assertEquals(1, directory.listFiles().length);
+
+		assertMessage("herbert", channel.receive());
+		assertMessage("karl", channel.receive());
+	}
+
+	@Test
+	public void testEndOfStream() throws Exception {
+		StreamMessageChannel channel = createLoopback();
+		channel.send(TestUtil.toBuffer("herbert"));
+		queue.close();
+		assertMessage("herbert", channel.receive());
+		assertNull(channel.receive());
+	}
+
+	@Test(expected = EOFException.class)
+	public void testEndOfStreamWithinMessage() throws Exception {
+		StreamMessageChannel channel = createLoopback();
+		ByteBuffer record = ByteBuffer.allocate(6);
+		record.putInt(10).put((byte) 1).put((byte) 2).flip();
+		queue.put(record);
+		queue.close();
+		channel.receive();
+	}
+
+	@Test(expected = IOException.class)
+	public void testReceiveInvalidLength() throws Exception {
+		StreamMessageChannel channel = createLoopback();
+		channel.setMaxMessageSize(10);
+		ByteBuffer header = ByteBuffer.allocate(4);
+		header.putInt(11).flip();
+		queue.put(header);
+		channel.receive();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSendTooLarge() throws Exception {
+		StreamMessageChannel channel = createLoopback();
+		channel.setMaxMessageSize(3);
+		channel.send(TestUtil.toBuffer("karl"));
+	}
+
+	@Test
+	public void testReceiveTimeout() throws Exception {
+		StreamMessageChannel channel = createLoopback();
+		channel.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		channel.setTimeout(200);
+		long start = System.currentTimeMillis();
+		try {
+			channel.receive();
+			assertFalse("expected timeout", true);
+		} catch (InterruptedIOException e) {
+			assertTrue(System.currentTimeMillis() - start >= 200);
+		}
+	}
+
+	@Test
+	public void testSendBlocksIfFull() throws Exception {
+		final StreamMessageChannel channel = createLoopback();
+		final ByteBuffer message = ByteBuffer.allocate(queue.getCapacity());
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					channel.send(message);
+				} catch (IOException e) {
+					// checked below
+				}
+			}
+		};
+		thread.start();
+		thread.join(300);
+		assertTrue(thread.isAlive());
+
+		// reading the header makes room for the rest of the message
+		ByteBuffer header = ByteBuffer.allocate(4);
+		assertEquals(4, queue.get(header));
+		thread.join(1000);
+		assertFalse(thread.isAlive());
+		assertFalse(message.hasRemaining());
+	}
+
+	protected static void assertMessage(final String expected,
+			final ByteBuffer message) {
+		byte[] bytes = new byte[message.remaining()];
+		message.get(bytes);
+		assertEquals(expected, new String(bytes));
+	}
+
+}
@@ -2,12 +2,15 @@ package org.jslipc.channel.buffer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.jslipc.TestUtil;
 import org.jslipc.channel.JslipcChannel.JslipcChannelState;
 import org.jslipc.channel.buffer.AbstractBbqChannel;
 import org.jslipc.channel.buffer.ByteBufferQueue;
+import org.jslipc.wait.BusySpinWaitStrategy;
+import org.jslipc.wait.SleepWaitStrategy;
 import org.junit.Test;
 
 public abstract class AbstractBbqChannelTest {
@@ -52,4 +55,19 @@ public abstract class AbstractBbqChannelTest {
 		assertEquals(JslipcChannelState.Closed, channel.getState());
 	}
 
+	@Test
+	public void testWaitStrategy() throws Exception {
+		final ByteBufferQueue queue = TestUtil.createByteBufferQueue(SIZE);
+		AbstractBbqChannel channel = createAbstractBbqChannel(queue);
+		assertSame(SleepWaitStrategy.DEFAULT, channel.getWaitStrategy());
+		channel.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		assertSame(BusySpinWaitStrategy.INSTANCE, channel.getWaitStrategy());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetWaitStrategyNull() throws Exception {
+		final ByteBufferQueue queue = TestUtil.createByteBufferQueue(SIZE);
+		createAbstractBbqChannel(queue).setWaitStrategy(null);
+	}
+
 }
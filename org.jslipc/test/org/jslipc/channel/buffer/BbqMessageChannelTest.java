@@ -0,0 +1,158 @@
+package org.jslipc.channel.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jslipc.TestUtil;
+import org.jslipc.wait.SpinYieldWaitStrategy;
+import org.junit.Test;
+
+public class BbqMessageChannelTest {
+
+	protected BbqMessageChannel createLoopback(final ByteBufferQueue queue) {
+		return new BbqMessageChannel(new ReadableBbqChannel(queue),
+				new WritableBbqChannel(queue));
+	}
+
+	@Test
+	public void testSendAndReceive() throws Exception {
+		ByteBufferQueue queue = TestUtil.createByteBufferQueue(100);
+		queue.init();
+		BbqMessageChannel channel = createLoopback(queue);
+		channel.send(TestUtil.toBuffer("herbert"));
+		channel.send(TestUtil.toBuffer(""));
+		assertMessage("herbert", channel.receive());
+		assertMessage("", channel.receive());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		ByteBufferQueue queue = TestUtil.createByteBufferQueue(100);
+		queue.init();
+		ReadableBbqChannel source = new ReadableBbqChannel(queue);
+		BbqMessageChannel channel = new BbqMessageChannel(source,
+				new WritableBbqChannel(queue));
+		channel.send(TestUtil.toBuffer("herbert"));
+		assertMessage("herbert", channel.receive());
+		// one read per message, counting header and payload once
+		assertEquals(1, source.getMetrics().getReadCalls());
+		assertEquals(11, source.getMetrics().getBytesRead());
+		assertEquals(0, source.getMetrics().getEmptyReads());
+	}
+
+	@Test
+	public void testRecordsDoNotStraddleWrapPoint() throws Exception {
+		ByteBufferQueue queue = TestUtil.createByteBufferQueue(100);
+		queue.init();
+		BbqMessageChannel channel = createLoopback(queue);
+		Random random = new Random(17);
+		// exercises padding records as well as silent padding, the padding
+		// of a record is smaller than the record itself, so a record of at
+		// most half the capacity fits without a concurrent reader
+		for (int i = 0; i < 1000; i++) {
+			byte[] message = new byte[random.nextInt(queue.getCapacity() / 2 - 4)];
+			random.nextBytes(message);
+			channel.send(ByteBuffer.wrap(message));
+			ByteBuffer received = channel.acquireMessage();
+			assertTrue(received.isReadOnly());
+			assertEquals(ByteBuffer.wrap(message), received);
+			channel.releaseMessage();
+			assertTrue(queue.isEmpty());
+		}
+	}
+
+	@Test
+	public void testSilentPadding() throws Exception {
+		ByteBufferQueue queue = TestUtil.createByteBufferQueue(100);
+		queue.init();
+		BbqMessageChannel channel = createLoopback(queue);
+		// leave 2 bytes up to the wrap point
+		int toWrap = queue.getTailToWrap();
+		channel.send(ByteBuffer.allocate(toWrap - 4 - 2));
+		channel.receive();
+		assertEquals(2, queue.getTailToWrap());
+
+		channel.send(TestUtil.toBuffer("herbert"));
+		assertEquals(2 + 4 + 7, queue.size());
+		assertMessage("herbert", channel.receive());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testEndOfStream() throws Exception {
+		ByteBufferQueue queue = TestUtil.createByteBufferQueue(100);
+		queue.init();
+		BbqMessageChannel channel = createLoopback(queue);
+		channel.send(TestUtil.toBuffer("herbert"));
+		queue.close();
+		assertMessage("herbert", channel.receive());
+		assertNull(channel.receive());
+	}
+
+	@Test(timeout = 20000)
+	public void testConcurrentSendAndReceive() throws Exception {
+		ByteBufferQueue queue = TestUtil
+				.createByteBufferQueue(ByteBufferQueue.MIN_PADDED_LENGTH);
+		queue.init();
+		final BbqMessageChannel sender = createLoopback(queue);
+		final BbqMessageChannel receiver = createLoopback(queue);
+		sender.setWaitStrategy(new SpinYieldWaitStrategy(0));
+		receiver.setWaitStrategy(new SpinYieldWaitStrategy(0));
+		// includes messages larger than the capacity
+		final int maxSize = 2 * queue.getCapacity();
+		final int count = 1000;
+
+		final AtomicReference<Exception> caught = new AtomicReference<Exception>();
+		Thread producer = new Thread() {
+			public void run() {
+				try {
+					Random random = new Random(42);
+					for (int i = 0; i < count; i++) {
+						byte[] message = new byte[random.nextInt(maxSize)];
+						random.nextBytes(message);
+						sender.send(ByteBuffer.wrap(message));
+					}
+				} catch (Exception e) {
+					caught.set(e);
+				}
+			}
+		};
+		producer.start();
+
+		Random random = new Random(42);
+		for (int i = 0; i < count; i++) {
+			byte[] message = new byte[random.nextInt(maxSize)];
+			random.nextBytes(message);
+			assertEquals("message " + i, ByteBuffer.wrap(message),
+					receiver.receive());
+		}
+		producer.join();
+		assertNull(caught.get());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAcquireWithoutRelease() throws Exception {
+		ByteBufferQueue queue = TestUtil.createByteBufferQueue(100);
+		queue.init();
+		BbqMessageChannel channel = createLoopback(queue);
+		channel.send(TestUtil.toBuffer("herbert"));
+		channel.send(TestUtil.toBuffer("karl"));
+		channel.acquireMessage();
+		channel.acquireMessage();
+	}
+
+	protected static void assertMessage(final String expected,
+			final ByteBuffer message) {
+		byte[] bytes = new byte[message.remaining()];
+		message.get(bytes);
+		assertEquals(expected, new String(bytes));
+	}
+
+}
@@ -0,0 +1,119 @@
+package org.jslipc.channel.buffer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jslipc.TestUtil;
+import org.jslipc.wait.AbstractWaitStrategyTest;
+import org.jslipc.wait.WaitStrategy;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class DoorbellWaitStrategyTest extends AbstractWaitStrategyTest {
+
+	@Override
+	protected WaitStrategy createWaitStrategy() {
+		ByteBufferQueue queue = TestUtil
+				.createByteBufferQueue(ByteBufferQueue.MIN_PADDED_LENGTH);
+		queue.init();
+		return new DoorbellWaitStrategy(queue, new SleepingDoorbell(), 2, 50);
+	}
+
+	@Test
+	public void testRegistersWaiter() throws Exception {
+		final ByteBufferQueue queue = TestUtil
+				.createByteBufferQueue(ByteBufferQueue.MIN_PADDED_LENGTH);
+		queue.init();
+		final AtomicBoolean waiting = new AtomicBoolean();
+		Doorbell doorbell = mock(Doorbell.class);
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				waiting.set(queue.isWaiting());
+				return null;
+			}
+		}).when(doorbell).await(anyLong());
+
+		DoorbellWaitStrategy strategy = new DoorbellWaitStrategy(queue,
+				doorbell, 0, 50);
+		strategy.idle(0, 0, System.currentTimeMillis());
+		assertTrue(waiting.get());
+		assertFalse(queue.isWaiting());
+	}
+
+	@Test
+	public void testDoesNotBlockIfDataArrived() throws Exception {
+		ByteBufferQueue queue = TestUtil
+				.createByteBufferQueue(ByteBufferQueue.MIN_PADDED_LENGTH);
+		queue.init();
+		queue.put(ByteBuffer.wrap(new byte[] { 1 }));
+		Doorbell doorbell = mock(Doorbell.class);
+
+		DoorbellWaitStrategy strategy = new DoorbellWaitStrategy(queue,
+				doorbell, 0, 50);
+		strategy.idle(0, 0, System.currentTimeMillis());
+		verify(doorbell, never()).await(anyLong());
+	}
+
+	@Test
+	public void testSpinsBeforeBlocking() throws Exception {
+		ByteBufferQueue queue = TestUtil
+				.createByteBufferQueue(ByteBufferQueue.MIN_PADDED_LENGTH);
+		queue.init();
+		Doorbell doorbell = mock(Doorbell.class);
+
+		DoorbellWaitStrategy strategy = new DoorbellWaitStrategy(queue,
+				doorbell, 2, 50);
+		long waitingSince = System.currentTimeMillis();
+		strategy.idle(0, 0, waitingSince);
+		strategy.idle(1, 0, waitingSince);
+		verify(doorbell, never()).await(anyLong());
+		strategy.idle(2, 0, waitingSince);
+		verify(doorbell).await(50);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDoorbellWaitStrategyWithNullQueue() throws Exception {
+		new DoorbellWaitStrategy(null, new SleepingDoorbell());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDoorbellWaitStrategyWithNullDoorbell() throws Exception {
+		new DoorbellWaitStrategy(
+				TestUtil.createByteBufferQueue(ByteBufferQueue.MIN_PADDED_LENGTH),
+				null);
+	}
+
+	/**
+	 * A doorbell that is never rung, so awaiting it just sleeps.
+	 */
+	private static class SleepingDoorbell implements Doorbell {
+
+		@Override
+		public void ring() {
+		}
+
+		@Override
+		public void await(long maxWait) {
+			try {
+				Thread.sleep(maxWait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
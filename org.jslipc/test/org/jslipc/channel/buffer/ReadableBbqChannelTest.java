@@ -67,6 +67,24 @@ public class ReadableBbqChannelTest extends AbstractBbqChannelTest {
 
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testMetrics() throws Exception {
+		final ByteBufferQueue queue = TestUtil.createByteBufferQueue(SIZE);
+		ReadableBbqChannel channel = new ReadableBbqChannel(queue);
+		queue.init();
+		for (int i = 0; i < 10; i++) {
+			assertTrue(queue.offer((byte) i));
+		}
+
+		ByteBuffer dest = TestUtil.createByteBuffer(SIZE, (byte) 0);
+		assertEquals(10, channel.read(dest));
+		assertEquals(0, channel.read(dest));
+		assertEquals(2, channel.getMetrics().getReadCalls());
+		assertEquals(10, channel.getMetrics().getBytesRead());
+		assertEquals(1, channel.getMetrics().getEmptyReads());
+	}
+
 	@SuppressWarnings("resource")
 	@Test()
 	public void testReadOnNonInitializedQueueBlocks() throws Exception {
@@ -128,6 +146,41 @@ public class ReadableBbqChannelTest extends AbstractBbqChannelTest {
 		assertEquals(-1, channel.read(dest));
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testAcquireAndRelease() throws Exception {
+		final ByteBufferQueue queue = TestUtil.createByteBufferQueue(SIZE);
+		ReadableBbqChannel channel = new ReadableBbqChannel(queue);
+		queue.init();
+		assertEquals(0, channel.acquire(10).remaining());
+		channel.release(0);
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(queue.offer((byte) i));
+		}
+		// a region given back unconsumed is not counted as read
+		assertEquals(10, channel.acquire(SIZE).remaining());
+		channel.release(0);
+		ByteBuffer region = channel.acquire(SIZE);
+		assertEquals(10, region.remaining());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, region.get(i));
+		}
+		channel.release(10);
+		assertTrue(queue.isEmpty());
+		assertEquals(2, channel.getMetrics().getReadCalls());
+		assertEquals(10, channel.getMetrics().getBytesRead());
+		assertEquals(1, channel.getMetrics().getEmptyReads());
+
+		// end of stream
+		assertTrue(queue.offer((byte) 17));
+		queue.close();
+		region = channel.acquire(SIZE);
+		assertEquals(1, region.remaining());
+		channel.release(1);
+		assertNull(channel.acquire(SIZE));
+	}
+
 	@Test
 	public void testInputStream() throws Exception {
 		final ByteBufferQueue queue = TestUtil.createByteBufferQueue(SIZE);
@@ -5,6 +5,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
@@ -73,6 +77,61 @@ public class WritableBbqChannelTest extends AbstractBbqChannelTest {
 		assertEquals(2, channel.write(src));
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testClaimAndCommit() throws Exception {
+		ByteBufferQueue queue = TestUtil.createByteBufferQueue(SIZE);
+		WritableBbqChannel channel = new WritableBbqChannel(queue);
+		queue.init();
+
+		ByteBuffer region = channel.claim(10);
+		assertEquals(10, region.remaining());
+		for (int i = 0; i < 10; i++) {
+			region.put((byte) i);
+		}
+		assertTrue(queue.isEmpty());
+		channel.commit(10);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(new Byte((byte) i), queue.poll());
+		}
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = ClosedChannelException.class)
+	public void testClaimOnClosedChannel() throws Exception {
+		ByteBufferQueue queue = TestUtil.createByteBufferQueue(SIZE);
+		WritableBbqChannel channel = new WritableBbqChannel(queue);
+		queue.init();
+		channel.close();
+		channel.claim(10);
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void testRingDoorbellIfWaiting() throws Exception {
+		ByteBufferQueue queue = TestUtil
+				.createByteBufferQueue(ByteBufferQueue.MIN_PADDED_LENGTH);
+		WritableBbqChannel channel = new WritableBbqChannel(queue);
+		Doorbell doorbell = mock(Doorbell.class);
+		channel.setDoorbell(doorbell);
+		queue.init();
+
+		// nobody waiting
+		channel.write(ByteBuffer.wrap(new byte[] { 1, 2 }));
+		verify(doorbell, never()).ring();
+
+		queue.setWaiting(true);
+		channel.write(ByteBuffer.wrap(new byte[] { 3 }));
+		verify(doorbell, times(1)).ring();
+
+		// nothing written, nothing to ring for
+		channel.write(ByteBuffer.allocate(0));
+		verify(doorbell, times(1)).ring();
+
+		channel.close();
+		verify(doorbell, times(2)).ring();
+	}
+
 	@SuppressWarnings("resource")
 	@Test()
 	public void testWriteToNonInitializedQueueBlocks() throws Exception {
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 
 import org.jslipc.TestUtil;
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
 import org.jslipc.channel.file.ReadableJslipcFileChannel;
 import org.junit.Test;
 
@@ -64,6 +65,30 @@ public class ReadableJslipcFileChannelTest extends AbstractJslipcFileChannelTest
 		assertEquals(-1, channel.read(buffer));
 	}
 
+	@Test
+	public void testEndOfStreamWrittenRightBeforeClose() throws Exception {
+		ReadableJslipcFileChannel channel = new ReadableJslipcFileChannel(file) {
+			@Override
+			public JslipcChannelState getState() {
+				// simulate a writer writing and closing right after the
+				// reader hit the end of the file
+				try {
+					if (!closedMarker.exists()) {
+						TestUtil.appendToFile(file, "karl");
+						assertTrue(closedMarker.createNewFile());
+					}
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+				return super.getState();
+			}
+		};
+
+		assertEquals(4, channel.read(buffer));
+		TestUtil.assertEquals("karl", buffer);
+		assertEquals(-1, channel.read(buffer));
+	}
+
 	@Test(expected = ClosedChannelException.class)
 	public void testCheckClosed() throws Exception {
 		ReadableJslipcFileChannel channel = createChannel(file);
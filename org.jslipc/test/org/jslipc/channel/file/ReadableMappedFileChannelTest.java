@@ -0,0 +1,142 @@
+package org.jslipc.channel.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jslipc.TestUtil;
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.junit.Test;
+
+public class ReadableMappedFileChannelTest extends AbstractJslipcFileChannelTest {
+
+	private final static int WINDOW_SIZE = 8;
+
+	@Override
+	protected ReadableMappedFileChannel createChannel(File file)
+			throws IOException {
+		return new ReadableMappedFileChannel(file, WINDOW_SIZE);
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testReadableMappedFileChannelInvalidWindowSize()
+			throws Exception {
+		new ReadableMappedFileChannel(file, 0);
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		ReadableMappedFileChannel channel = createChannel(file);
+		WritableMappedFileChannel writer = new WritableMappedFileChannel(file,
+				WINDOW_SIZE);
+		assertEquals(0, channel.read(buffer));
+
+		writer.write(TestUtil.toBuffer("herbert"));
+		assertEquals(7, channel.read(buffer));
+		TestUtil.assertEquals("herbert", buffer);
+
+		buffer.clear();
+		assertEquals(0, channel.read(buffer));
+		TestUtil.assertEquals("", buffer);
+
+		// spans multiple windows
+		writer.write(TestUtil.toBuffer("karl-heinz und hans"));
+		assertEquals(19, channel.read(buffer));
+		TestUtil.assertEquals("karl-heinz und hans", buffer);
+	}
+
+	@Test
+	public void testReadManyWindows() throws Exception {
+		ReadableMappedFileChannel channel = createChannel(file);
+		WritableMappedFileChannel writer = new WritableMappedFileChannel(file,
+				WINDOW_SIZE);
+		// previous windows are unmapped as reader and writer move on
+		for (int i = 0; i < 500; i++) {
+			writer.write(TestUtil.toBuffer("karl-heinz und hans"));
+			buffer.clear();
+			assertEquals(19, channel.read(buffer));
+			TestUtil.assertEquals("karl-heinz und hans", buffer);
+		}
+		writer.close();
+		channel.close();
+	}
+
+	@Test
+	public void testReadIntoSmallBuffer() throws Exception {
+		ReadableMappedFileChannel channel = createChannel(file);
+		WritableMappedFileChannel writer = new WritableMappedFileChannel(file,
+				WINDOW_SIZE);
+		writer.write(TestUtil.toBuffer("herbert"));
+
+		buffer = TestUtil.createByteBuffer(4);
+		assertEquals(4, channel.read(buffer));
+		TestUtil.assertEquals("herb", buffer);
+		buffer.clear();
+		assertEquals(3, channel.read(buffer));
+		TestUtil.assertEquals("ert", buffer);
+	}
+
+	@Test
+	public void testEndOfStream() throws Exception {
+		ReadableMappedFileChannel channel = createChannel(file);
+		WritableMappedFileChannel writer = new WritableMappedFileChannel(file,
+				WINDOW_SIZE);
+		writer.write(TestUtil.toBuffer("herbert"));
+		assertEquals(JslipcChannelState.Open, channel.getState());
+		writer.close();
+		assertEquals(JslipcChannelState.ClosedByPeer, channel.getState());
+
+		assertEquals(7, channel.read(buffer));
+		TestUtil.assertEquals("herbert", buffer);
+		assertEquals(-1, channel.read(buffer));
+	}
+
+	@Test(timeout = 20000)
+	public void testCloseWhileReading() throws Exception {
+		final ReadableMappedFileChannel channel = createChannel(file);
+		WritableMappedFileChannel writer = new WritableMappedFileChannel(file,
+				WINDOW_SIZE);
+		writer.write(TestUtil.toBuffer("herbert"));
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread thread = new Thread() {
+			public void run() {
+				ByteBuffer buffer = TestUtil.createByteBuffer(1);
+				try {
+					// polls the header until the channel is closed
+					while (channel.getState() == JslipcChannelState.Open) {
+						buffer.clear();
+						channel.read(buffer);
+					}
+				} catch (ClosedChannelException e) {
+					// expected
+				} catch (Exception e) {
+					failure.set(e);
+				}
+			}
+		};
+		thread.start();
+		Thread.sleep(100);
+
+		channel.close();
+		thread.join(5000);
+		assertFalse(thread.isAlive());
+		assertNull(failure.get());
+		assertEquals(JslipcChannelState.Closed, channel.getState());
+		writer.close();
+	}
+
+	@Test(expected = ClosedChannelException.class)
+	public void testCheckClosed() throws Exception {
+		ReadableMappedFileChannel channel = createChannel(file);
+		channel.close();
+		channel.read(buffer);
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.jslipc.channel.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+
+import org.jslipc.TestUtil;
+import org.junit.After;
+import org.junit.Test;
+
+public class ReadableSegmentedFileChannelTest extends
+		AbstractJslipcFileChannelTest {
+
+	private final static int SEGMENT_SIZE = 8;
+
+	@Override
+	protected ReadableSegmentedFileChannel createChannel(File file)
+			throws IOException {
+		return new ReadableSegmentedFileChannel(file, SEGMENT_SIZE);
+	}
+
+	@After
+	public void deleteSegments() throws Exception {
+		AbstractJslipcFileChannel.deleteSegmentFiles(file);
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testReadableSegmentedFileChannelInvalidSegmentSize()
+			throws Exception {
+		new ReadableSegmentedFileChannel(file, -1);
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		ReadableSegmentedFileChannel channel = createChannel(file);
+		assertEquals(0, channel.read(buffer));
+
+		TestUtil.appendToFile(segment(0), "herbert");
+		assertEquals(7, channel.read(buffer));
+		TestUtil.assertEquals("herbert", buffer);
+
+		buffer.clear();
+		assertEquals(0, channel.read(buffer));
+
+		TestUtil.appendToFile(segment(0), "k");
+		TestUtil.appendToFile(segment(1), "arl");
+		// reads are bound by the segment
+		assertEquals(1, channel.read(buffer));
+		TestUtil.assertEquals("k", buffer);
+		assertTrue(segment(0).exists());
+
+		buffer.clear();
+		assertEquals(3, channel.read(buffer));
+		TestUtil.assertEquals("arl", buffer);
+		// consumed segments are deleted
+		assertFalse(segment(0).exists());
+	}
+
+	@Test
+	public void testSegmentsAreOpenedReadOnly() throws Exception {
+		ReadableSegmentedFileChannel channel = createChannel(file);
+		assertEquals(0, channel.read(buffer));
+		// the reader does not create missing segments
+		assertFalse(segment(0).exists());
+
+		TestUtil.appendToFile(segment(0), "herbertk");
+		assertEquals(8, channel.read(buffer));
+		assertEquals(0, channel.read(buffer));
+		assertFalse(segment(1).exists());
+
+		TestUtil.appendToFile(segment(1), "arl");
+		assertTrue(segment(1).setReadOnly());
+		buffer.clear();
+		assertEquals(3, channel.read(buffer));
+		TestUtil.assertEquals("arl", buffer);
+	}
+
+	@Test
+	public void testEndOfStreamAtSegmentBoundary() throws Exception {
+		ReadableSegmentedFileChannel channel = createChannel(file);
+		TestUtil.appendToFile(segment(0), "herbertk");
+		assertTrue(closedMarker.createNewFile());
+		assertEquals(8, channel.read(buffer));
+		assertEquals(-1, channel.read(buffer));
+	}
+
+	@Test
+	public void testReadWrittenSegments() throws Exception {
+		ReadableSegmentedFileChannel channel = createChannel(file);
+		WritableSegmentedFileChannel writer = new WritableSegmentedFileChannel(
+				file, SEGMENT_SIZE);
+
+		for (int i = 0; i < 10; ++i) {
+			assertEquals(5, writer.write(TestUtil.toBuffer("hello")));
+			buffer.clear();
+			int count = 0;
+			while (count < 5) {
+				count += channel.read(buffer);
+			}
+			TestUtil.assertEquals("hello", buffer);
+		}
+		// only the current segments are left
+		assertFalse(segment(4).exists());
+		assertTrue(segment(6).exists());
+	}
+
+	@Test
+	public void testEndOfStream() throws Exception {
+		ReadableSegmentedFileChannel channel = createChannel(file);
+		assertEquals(0, channel.read(buffer));
+
+		TestUtil.appendToFile(segment(0), "herbertk");
+		TestUtil.appendToFile(segment(1), "arl");
+		// simulate close by writer
+		assertTrue(closedMarker.createNewFile());
+
+		assertEquals(8, channel.read(buffer));
+		buffer.clear();
+		assertEquals(3, channel.read(buffer));
+		TestUtil.assertEquals("arl", buffer);
+		assertEquals(-1, channel.read(buffer));
+	}
+
+	@Test(expected = ClosedChannelException.class)
+	public void testCheckClosed() throws Exception {
+		ReadableSegmentedFileChannel channel = createChannel(file);
+		channel.close();
+		channel.read(buffer);
+	}
+
+	protected File segment(final int index) {
+		return AbstractJslipcFileChannel.getSegmentFile(file, index);
+	}
+
+}
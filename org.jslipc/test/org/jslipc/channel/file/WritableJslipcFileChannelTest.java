@@ -39,6 +39,16 @@ public class WritableJslipcFileChannelTest extends AbstractJslipcFileChannelTest
 		TestUtil.assertEquals("herbertkarl", file);
 	}
 
+	@Test
+	public void testMetrics() throws Exception {
+		WritableJslipcFileChannel channel = createChannel(file);
+		assertEquals(7, channel.write(TestUtil.toBuffer("herbert")));
+		assertEquals(0, channel.write(TestUtil.toBuffer("")));
+		assertEquals(2, channel.getMetrics().getWriteCalls());
+		assertEquals(7, channel.getMetrics().getBytesWritten());
+		assertEquals(1, channel.getMetrics().getFullWrites());
+	}
+
 	@Test
 	public void testEndOfStream() throws Exception {
 		WritableJslipcFileChannel channel = createChannel(file);
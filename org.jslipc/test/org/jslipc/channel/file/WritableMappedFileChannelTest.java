@@ -0,0 +1,104 @@
+package org.jslipc.channel.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+
+import org.jslipc.TestUtil;
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.junit.Test;
+
+public class WritableMappedFileChannelTest extends AbstractJslipcFileChannelTest {
+
+	private final static int WINDOW_SIZE = 8;
+
+	@Override
+	protected WritableMappedFileChannel createChannel(File file)
+			throws IOException {
+		return new WritableMappedFileChannel(file, WINDOW_SIZE);
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testWritableMappedFileChannelInvalidWindowSize()
+			throws Exception {
+		new WritableMappedFileChannel(file, -1);
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		WritableMappedFileChannel channel = createChannel(file);
+		ReadableMappedFileChannel reader = new ReadableMappedFileChannel(file,
+				WINDOW_SIZE);
+
+		assertEquals(7, channel.write(TestUtil.toBuffer("herbert")));
+		assertEquals(0, channel.write(TestUtil.toBuffer("")));
+		assertEquals(4, channel.write(TestUtil.toBuffer("karl")));
+		// the file grows by windows
+		assertEquals(MappedChannelFile.HEADER_SIZE + 2 * WINDOW_SIZE,
+				file.length());
+
+		assertEquals(11, reader.read(buffer));
+		TestUtil.assertEquals("herbertkarl", buffer);
+	}
+
+	@Test
+	public void testSegmented() throws Exception {
+		WritableMappedFileChannel channel = new WritableMappedFileChannel(
+				file, WINDOW_SIZE, true);
+		ReadableMappedFileChannel reader = new ReadableMappedFileChannel(file,
+				WINDOW_SIZE, true);
+		File segment0 = AbstractJslipcFileChannel.getSegmentFile(file, 0);
+		File segment1 = AbstractJslipcFileChannel.getSegmentFile(file, 1);
+		try {
+			assertEquals(11, channel.write(TestUtil.toBuffer("herbertkarl")));
+			assertEquals(MappedChannelFile.HEADER_SIZE, file.length());
+			assertEquals(WINDOW_SIZE, segment0.length());
+			assertEquals(WINDOW_SIZE, segment1.length());
+
+			buffer = TestUtil.createByteBuffer(WINDOW_SIZE);
+			assertEquals(8, reader.read(buffer));
+			TestUtil.assertEquals("herbertk", buffer);
+			assertTrue(segment0.exists());
+
+			buffer.clear();
+			assertEquals(3, reader.read(buffer));
+			TestUtil.assertEquals("arl", buffer);
+			// the reader deletes consumed segments
+			assertFalse(segment0.exists());
+		} finally {
+			channel.cleanUpOnClose();
+			reader.cleanUpOnClose();
+			channel.close();
+			reader.close();
+		}
+		assertFalse(segment1.exists());
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void testEndOfStream() throws Exception {
+		WritableMappedFileChannel channel = createChannel(file);
+		ReadableMappedFileChannel reader = new ReadableMappedFileChannel(file,
+				WINDOW_SIZE);
+
+		assertEquals(7, channel.write(TestUtil.toBuffer("herbert")));
+		assertEquals(JslipcChannelState.Open, channel.getState());
+
+		reader.close();
+		assertEquals(JslipcChannelState.ClosedByPeer, channel.getState());
+		assertEquals(0, channel.write(TestUtil.toBuffer("karl")));
+	}
+
+	@Test(expected = ClosedChannelException.class)
+	public void testCheckClosed() throws Exception {
+		WritableMappedFileChannel channel = createChannel(file);
+		channel.close();
+		channel.write(buffer);
+	}
+
+}
@@ -0,0 +1,95 @@
+package org.jslipc.channel.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+
+import org.jslipc.TestUtil;
+import org.junit.After;
+import org.junit.Test;
+
+public class WritableSegmentedFileChannelTest extends
+		AbstractJslipcFileChannelTest {
+
+	private final static int SEGMENT_SIZE = 8;
+
+	@Override
+	protected WritableSegmentedFileChannel createChannel(File file)
+			throws IOException {
+		return new WritableSegmentedFileChannel(file, SEGMENT_SIZE);
+	}
+
+	@After
+	public void deleteSegments() throws Exception {
+		AbstractJslipcFileChannel.deleteSegmentFiles(file);
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testWritableSegmentedFileChannelInvalidSegmentSize()
+			throws Exception {
+		new WritableSegmentedFileChannel(file, 0);
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		WritableSegmentedFileChannel channel = createChannel(file);
+
+		assertEquals(7, channel.write(TestUtil.toBuffer("herbert")));
+		TestUtil.assertEquals("herbert", segment(0));
+
+		assertEquals(0, channel.write(TestUtil.toBuffer("")));
+		assertEquals(12, channel.write(TestUtil.toBuffer("karl-heinz x")));
+		TestUtil.assertEquals("herbertk", segment(0));
+		TestUtil.assertEquals("arl-hein", segment(1));
+		TestUtil.assertEquals("z x", segment(2));
+		assertEquals(0, file.length());
+	}
+
+	@Test
+	public void testRollOverEagerly() throws Exception {
+		WritableSegmentedFileChannel channel = createChannel(file);
+
+		assertEquals(8, channel.write(TestUtil.toBuffer("herbertk")));
+		assertTrue(segment(1).exists());
+		assertFalse(segment(2).exists());
+	}
+
+	@Test
+	public void testEndOfStream() throws Exception {
+		WritableSegmentedFileChannel channel = createChannel(file);
+
+		assertEquals(7, channel.write(TestUtil.toBuffer("herbert")));
+
+		// simulate close by reader
+		assertTrue(closedMarker.createNewFile());
+		assertEquals(0, channel.write(TestUtil.toBuffer("karl")));
+	}
+
+	@Test
+	public void testCleanUpOnCloseDeletesSegments() throws Exception {
+		WritableSegmentedFileChannel channel = createChannel(file);
+		channel.write(TestUtil.toBuffer("karl-heinz x"));
+		channel.cleanUpOnClose();
+		assertTrue(closedMarker.createNewFile());
+		channel.close();
+		assertFalse(segment(0).exists());
+		assertFalse(segment(1).exists());
+	}
+
+	@Test(expected = ClosedChannelException.class)
+	public void testCheckClosed() throws Exception {
+		WritableSegmentedFileChannel channel = createChannel(file);
+		channel.close();
+		channel.write(buffer);
+	}
+
+	protected File segment(final int index) {
+		return AbstractJslipcFileChannel.getSegmentFile(file, index);
+	}
+
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
@@ -94,6 +95,17 @@ public abstract class AbstractChunkFileChannelTest {
 		return Arrays.asList(array).toString();
 	}
 
+	protected File createSkipRecord(final int index, final int next)
+			throws Exception {
+		File skip = new File(directory, AbstractChunkFileChannel.SKIP_FILE_NAME
+				+ "_" + index);
+		RandomAccessFile raf = new RandomAccessFile(skip, "rw");
+		raf.writeInt(next);
+		raf.close();
+		skip.deleteOnExit();
+		return skip;
+	}
+
 	protected File createChunkFile(final int index) throws Exception {
 		return createChunkFile(index, null);
 	}
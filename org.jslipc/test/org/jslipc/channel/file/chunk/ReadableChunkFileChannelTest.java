@@ -49,10 +49,18 @@ public class ReadableChunkFileChannelTest extends AbstractChunkFileChannelTest {
 		File chunk2 = createChunkFile(2);
 		File chunk5 = createChunkFile(5);
 		File chunk8 = createChunkFile(8);
+		// without a gap-skip record, missing chunks are waited for
+		assertNull(channel.getNextChunk());
+
+		File skip0 = createSkipRecord(0, 2);
+		createSkipRecord(3, 5);
+		createSkipRecord(6, 8);
 
 		assertEquals(chunk2, channel.getNextChunk());
+		assertFalse(skip0.exists());
 		assertEquals(chunk5, channel.getNextChunk());
 		assertEquals(chunk8, channel.getNextChunk());
+		assertNull(channel.getNextChunk());
 	}
 
 	@SuppressWarnings("resource")
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 
 import org.jslipc.TestUtil;
@@ -34,6 +35,19 @@ public class WritableChunkFileChannelTest extends AbstractChunkFileChannelTest {
 		assertChunkExists(2, "karl");
 	}
 	
+	@Test
+	public void testGatheringWrite() throws Exception {
+		WritableChunkFileChannel channel = createChannel(directory);
+
+		assertEquals(11, channel.write(new ByteBuffer[] {
+				TestUtil.toBuffer("herbert"), TestUtil.toBuffer("karl") }));
+		assertChunkExists(0, "herbertkarl");
+
+		assertEquals(4, channel.write(new ByteBuffer[] {
+				TestUtil.toBuffer("herbert"), TestUtil.toBuffer("karl") }, 1, 1));
+		assertChunkExists(1, "karl");
+	}
+
 	@Test
 	public void testEndOfStream() throws Exception {
 		WritableChunkFileChannel channel = createChannel(directory);
@@ -47,6 +61,90 @@ public class WritableChunkFileChannelTest extends AbstractChunkFileChannelTest {
 		assertChunkNotExists(1, "");
 	}
 
+	@Test
+	public void testSkipStaleChunks() throws Exception {
+		// an incomplete chunk of a previous writer
+		assertTrue(new File(directory, AbstractChunkFileChannel.CHUNK_FILE_NAME
+				+ "_0.tmp").createNewFile());
+		createChunkFile(1, "stale");
+
+		WritableChunkFileChannel channel = createChannel(directory);
+		assertEquals(7, channel.write(TestUtil.toBuffer("herbert")));
+		assertChunkExists(2, "herbert");
+
+		ReadableChunkFileChannel reader = new ReadableChunkFileChannel(
+				directory);
+		assertEquals(12, reader.read(buffer));
+		TestUtil.assertEquals("staleherbert", buffer);
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		WritableChunkFileChannel channel = createChannel(directory);
+		assertEquals(7, channel.write(TestUtil.toBuffer("herbert")));
+		assertEquals(4, channel.write(TestUtil.toBuffer("karl")));
+		assertEquals(2, channel.getMetrics().getChunksCreated());
+		assertEquals(11, channel.getMetrics().getBytesWritten());
+
+		ReadableChunkFileChannel reader = new ReadableChunkFileChannel(
+				directory);
+		assertEquals(11, reader.read(buffer));
+		assertEquals(0, reader.read(buffer));
+		assertEquals(2, reader.getMetrics().getChunksConsumed());
+		assertEquals(11, reader.getMetrics().getBytesRead());
+		assertEquals(1, reader.getMetrics().getEmptyReads());
+	}
+
+	@Test
+	public void testBatchSize() throws Exception {
+		WritableChunkFileChannel channel = createChannel(directory);
+		assertEquals(0, channel.getBatchSize());
+		channel.setBatchSize(10);
+		assertEquals(10, channel.getBatchSize());
+
+		assertEquals(4, channel.write(TestUtil.toBuffer("hans")));
+		assertEquals(4, channel.write(TestUtil.toBuffer("karl")));
+		assertChunkNotExists(0, "");
+
+		// fills the batch
+		assertEquals(7, channel.write(TestUtil.toBuffer("herbert")));
+		assertChunkExists(0, "hanskarlhe");
+		assertChunkNotExists(1, "");
+
+		// large writes are published directly if nothing is pending
+		channel.flush();
+		assertChunkExists(1, "rbert");
+		assertEquals(11, channel.write(TestUtil.toBuffer("herbertkarl")));
+		assertChunkExists(2, "herbertkarl");
+
+		assertEquals(4, channel.write(TestUtil.toBuffer("hans")));
+		channel.close();
+		assertChunkExists(3, "hans");
+	}
+
+	@Test
+	public void testBatchDelay() throws Exception {
+		WritableChunkFileChannel channel = createChannel(directory);
+		channel.setBatchSize(100);
+		channel.setBatchDelay(100);
+		assertEquals(100, channel.getBatchDelay());
+
+		assertEquals(4, channel.write(TestUtil.toBuffer("hans")));
+		assertChunkNotExists(0, "");
+		Thread.sleep(1000);
+		assertChunkExists(0, "hans");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetBatchSizeNegative() throws Exception {
+		createChannel(directory).setBatchSize(-1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetBatchDelayNegative() throws Exception {
+		createChannel(directory).setBatchDelay(-1);
+	}
+
 	@Test(expected = ClosedChannelException.class)
 	public void testCheckClosed() throws Exception {
 		WritableChunkFileChannel channel = createChannel(directory);
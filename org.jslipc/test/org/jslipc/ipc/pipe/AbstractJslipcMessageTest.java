@@ -112,6 +112,24 @@ public abstract class AbstractJslipcMessageTest {
 		assertEquals(null, req.getIntParameter("param2"));
 	}
 
+	@Test
+	public void testSetLongParameter() throws Exception {
+		AbstractJslipcMessage req = createMessage();
+		req.setLongParameter("param2", 5000000000L);
+		assertEquals("5000000000", req.getParameter("param2"));
+		assertEquals(Long.valueOf(5000000000L), req.getLongParameter("param2"));
+
+		req.setLongParameter("param2", null);
+		assertEquals(null, req.getParameter("param2"));
+		assertEquals(null, req.getLongParameter("param2"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testGetLongParameterFails() throws Exception {
+		AbstractJslipcMessage req = createMessageWithParameter();
+		req.getLongParameter("param1");
+	}
+
 	@Test
 	public void testHasParameter() throws Exception {
 		AbstractJslipcMessage req = createMessageWithParameter();
@@ -137,6 +155,21 @@ public abstract class AbstractJslipcMessageTest {
 		return new HashSet<String>(Arrays.asList(text.split("\n")));
 	}
 
+	@Test
+	public void testSetProtocolVersion() throws Exception {
+		AbstractJslipcMessage req = createMessage();
+		assertFalse(req.isBinary());
+		req.setProtocolVersion(AbstractJslipcMessage.PROTOCOL_VERSION_BINARY);
+		assertEquals("2.0", req.getProtocolVersion());
+		assertTrue(req.isBinary());
+		assertEquals(AbstractJslipcMessage.BINARY_MARKER, req.toBytes()[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetUnsupportedProtocolVersion() throws Exception {
+		createMessage().setProtocolVersion("3.0");
+	}
+
 	@Test
 	public void testToBytes() throws Exception {
 		AbstractJslipcMessage req = createMessageWithParameter();
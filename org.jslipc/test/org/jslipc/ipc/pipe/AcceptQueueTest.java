@@ -0,0 +1,120 @@
+package org.jslipc.ipc.pipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.jslipc.TestUtil;
+import org.jslipc.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link AcceptQueue}.
+ */
+public class AcceptQueueTest {
+
+	private File directory;
+	private AcceptQueue queue;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = TestUtil.createDirectory();
+		queue = new AcceptQueue(directory);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtil.delete(directory, true);
+	}
+
+	@Test
+	public void testPollInArrivalOrder() throws Exception {
+		File first = createDir("b", 1000);
+		File second = createDir("a", 2000);
+		File third = createDir("c", 3000);
+
+		assertEquals(first, queue.poll());
+		assertEquals(second, queue.poll());
+		assertEquals(third, queue.poll());
+		assertNull(queue.poll());
+		assertTrue(new File(first, ".served").exists());
+	}
+
+	@Test
+	public void testPollSkipsServed() throws Exception {
+		File served = createDir("served", 1000);
+		assertTrue(new File(served, ".served").createNewFile());
+		assertTrue(new File(directory, "file").createNewFile());
+		File dir = createDir("dir", 2000);
+
+		assertEquals(dir, queue.poll());
+		assertNull(queue.poll());
+
+		// known entries are not checked again
+		FileUtil.delete(new File(served, ".served"));
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testPollForgetsRemoved() throws Exception {
+		File dir = createDir("dir", 1000);
+		assertEquals(dir, queue.poll());
+		FileUtil.delete(dir, true);
+		assertNull(queue.poll());
+
+		dir = createDir("dir", 2000);
+		assertEquals(dir, queue.poll());
+	}
+
+	@Test
+	public void testWatched() throws Exception {
+		File initial = createDir("initial", 1000);
+		queue.setWatched(true);
+		assertTrue(queue.hasPending());
+		assertEquals(initial, queue.poll());
+		assertFalse(queue.hasPending());
+
+		// not listed anymore, only taken from events
+		File second = createDir("second", 2000);
+		File first = createDir("first", 3000);
+		assertNull(queue.poll());
+		queue.created(first);
+		queue.created(second);
+		queue.created(first);
+		assertTrue(queue.hasPending());
+		assertEquals(first, queue.poll());
+		assertEquals(second, queue.poll());
+		assertNull(queue.poll());
+
+		// a removed entry may come again
+		queue.deleted(first);
+		queue.created(first);
+		FileUtil.delete(new File(first, ".served"));
+		assertEquals(first, queue.poll());
+	}
+
+	@Test
+	public void testWatchedOverflow() throws Exception {
+		queue.setWatched(true);
+		assertNull(queue.poll());
+		File dir = createDir("dir", 1000);
+		assertNull(queue.poll());
+
+		queue.overflow();
+		assertTrue(queue.hasPending());
+		assertEquals(dir, queue.poll());
+	}
+
+	private File createDir(final String name, final long modified) {
+		File dir = new File(directory, name);
+		assertTrue(dir.mkdir());
+		dir.setLastModified(modified);
+		return dir;
+	}
+
+}
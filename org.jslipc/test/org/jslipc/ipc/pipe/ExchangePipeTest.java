@@ -0,0 +1,180 @@
+package org.jslipc.ipc.pipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jslipc.JslipcPipe;
+import org.jslipc.TestUtil;
+import org.jslipc.ipc.pipe.file.ChunkFilePipe;
+import org.jslipc.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ExchangePipe} and its use by the
+ * {@link JslipcPipeURLConnection}.
+ */
+public class ExchangePipeTest {
+
+	private File serverConnectDir;
+	private File serverPipeDir;
+	private JslipcPipeAcceptor acceptor;
+	private LinkedBlockingQueue<JslipcConnection> accepted;
+	private JslipcPipeClient client;
+	private JslipcPipePool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		serverConnectDir = TestUtil.createDirectory();
+		serverPipeDir = TestUtil.createDirectory();
+		JslipcPipeServer server = new JslipcPipeServer(serverConnectDir,
+				serverPipeDir);
+		server.setTimeout(5000);
+		accepted = new LinkedBlockingQueue<JslipcConnection>();
+		acceptor = new JslipcPipeAcceptor(server);
+		acceptor.setListener(new JslipcConnectionListener() {
+
+			@Override
+			public void accepted(JslipcConnection connection) {
+				accepted.add(connection);
+				startEchoServer(connection);
+			}
+		});
+		acceptor.start();
+		client = new JslipcPipeClient(serverConnectDir);
+		client.setTimeout(5000);
+		pool = new JslipcPipePool();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.close();
+		acceptor.close();
+		FileUtil.delete(serverConnectDir, true);
+		FileUtil.delete(serverPipeDir, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testExchange() throws Exception {
+		JslipcPipe pipe = client.connect(client
+				.createRequest(ChunkFilePipe.class));
+		ExchangePipe clientEnd = new ExchangePipe(pipe);
+		clientEnd.setTimeout(5000);
+		JslipcConnection connection = accepted.poll(5, TimeUnit.SECONDS);
+		ExchangePipe serverEnd = new ExchangePipe(connection.getPipe());
+		serverEnd.setTimeout(5000);
+
+		for (String text : new String[] { "herbert", "", "karl" }) {
+			send(clientEnd, text);
+			assertEquals(text, receive(serverEnd));
+			send(serverEnd, text.toUpperCase());
+			assertEquals(text.toUpperCase(), receive(clientEnd));
+		}
+
+		clientEnd.close();
+		assertNull(serverEnd.nextInput());
+		serverEnd.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testKeepAliveURLConnection() throws Exception {
+		JslipcPipePool previous = JslipcPipeURLConnection.getKeepAlivePool();
+		JslipcPipeURLConnection.setKeepAlivePool(pool);
+		try {
+			URL url = new URL("jslipc://" + serverConnectDir.getAbsolutePath()
+					+ "?keep-alive=true&accept-types=ChunkFilePipe");
+			assertEquals("herbert", send(url, "herbert"));
+			assertEquals(1, pool.getIdleCount());
+			assertEquals("karl", send(url, "karl"));
+			assertEquals(1, pool.getIdleCount());
+
+			// only one pipe has been established
+			assertTrue(accepted.poll(5, TimeUnit.SECONDS).isKeepAlive());
+			assertNull(accepted.poll());
+		} finally {
+			JslipcPipeURLConnection.setKeepAlivePool(previous);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetKeepAlivePoolNull() throws Exception {
+		JslipcPipeURLConnection.setKeepAlivePool(null);
+	}
+
+	private String send(final URL url, final String text) throws IOException {
+		JslipcPipeURLConnection connection = new JslipcPipeURLConnection(url,
+				client);
+		connection.setReadTimeout(5000);
+		OutputStream out = connection.getOutputStream();
+		out.write(text.getBytes());
+		InputStream in = connection.getInputStream();
+		String result = readAll(in);
+		in.close();
+		return result;
+	}
+
+	private void send(final ExchangePipe exchange, final String text)
+			throws IOException {
+		OutputStream out = exchange.nextOutput();
+		out.write(text.getBytes());
+		out.close();
+	}
+
+	private String receive(final ExchangePipe exchange) throws IOException {
+		InputStream in = exchange.nextInput();
+		String result = readAll(in);
+		in.close();
+		return result;
+	}
+
+	private static String readAll(final InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[100];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			bytes.write(buffer, 0, count);
+		}
+		return new String(bytes.toByteArray());
+	}
+
+	private static void startEchoServer(final JslipcConnection connection) {
+		if (!connection.isKeepAlive()) {
+			return;
+		}
+		Thread thread = new Thread() {
+
+			@Override
+			public void run() {
+				ExchangePipe exchange = new ExchangePipe(connection.getPipe());
+				exchange.setTimeout(5000);
+				try {
+					InputStream in;
+					while ((in = exchange.nextInput()) != null) {
+						String request = readAll(in);
+						in.close();
+						OutputStream out = exchange.nextOutput();
+						out.write(request.getBytes());
+						out.close();
+					}
+				} catch (IOException e) {
+					// closed
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+}
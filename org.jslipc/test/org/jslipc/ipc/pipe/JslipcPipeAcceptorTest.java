@@ -0,0 +1,215 @@
+package org.jslipc.ipc.pipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jslipc.JslipcPipe;
+import org.jslipc.JslipcRole;
+import org.jslipc.TestUtil;
+import org.jslipc.ipc.pipe.file.ChunkFilePipe;
+import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link JslipcPipeAcceptor}.
+ */
+public class JslipcPipeAcceptorTest {
+
+	private File serverConnectDir;
+	private File serverPipeDir;
+	private JslipcPipeServer server;
+	private JslipcPipeAcceptor acceptor;
+
+	@Before
+	public void setUp() throws Exception {
+		serverConnectDir = TestUtil.createDirectory();
+		serverPipeDir = TestUtil.createDirectory();
+		server = new JslipcPipeServer(serverConnectDir, serverPipeDir);
+		server.setTimeout(5000);
+		acceptor = new JslipcPipeAcceptor(server);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		acceptor.close();
+		FileUtil.delete(serverConnectDir, true);
+		FileUtil.delete(serverPipeDir, true);
+	}
+
+	@Test(timeout = 10000)
+	public void testAcceptWhileOtherClientStalls() throws Exception {
+		acceptor.start();
+		// a client that never sends its request
+		FilePipe stalled = new FilePipe(
+				FileUtil.createDirectory(serverConnectDir), JslipcRole.Yang);
+		Thread.sleep(300);
+
+		AtomicReference<JslipcPipe> clientPipe = connect();
+		acceptor.setTimeout(3000);
+		JslipcConnection connection = acceptor.accept();
+		assertNotNull(connection);
+		assertEquals(ChunkFilePipe.class, connection.getPipe().getClass());
+		waitFor(clientPipe);
+
+		stalled.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testListener() throws Exception {
+		final LinkedBlockingQueue<JslipcConnection> accepted = new LinkedBlockingQueue<JslipcConnection>();
+		acceptor.setListener(new JslipcConnectionListener() {
+
+			@Override
+			public void accepted(JslipcConnection connection) {
+				accepted.add(connection);
+			}
+		});
+		acceptor.start();
+
+		for (int i = 0; i < 3; i++) {
+			waitFor(connect());
+		}
+		for (int i = 0; i < 3; i++) {
+			assertNotNull(accepted.poll(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testSetListenerPassesQueued() throws Exception {
+		acceptor.start();
+		waitFor(connect());
+		Thread.sleep(300);
+
+		final AtomicReference<JslipcConnection> accepted = new AtomicReference<JslipcConnection>();
+		JslipcConnectionListener listener = new JslipcConnectionListener() {
+
+			@Override
+			public void accepted(JslipcConnection connection) {
+				accepted.set(connection);
+			}
+		};
+		acceptor.setListener(listener);
+		assertSame(listener, acceptor.getListener());
+		assertNotNull(accepted.get());
+	}
+
+	@Test(timeout = 10000)
+	public void testCustomExecutor() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		JslipcPipeAcceptor custom = new JslipcPipeAcceptor(server, executor);
+		custom.start();
+		waitFor(connect());
+		custom.setTimeout(3000);
+		assertNotNull(custom.accept());
+		custom.close();
+		assertTrue(!executor.isShutdown());
+		executor.shutdown();
+	}
+
+	@Test(timeout = 10000)
+	public void testAcceptTimeout() throws Exception {
+		acceptor.start();
+		acceptor.setTimeout(300);
+		long waitingSince = System.currentTimeMillis();
+		try {
+			acceptor.accept();
+		} catch (InterruptedIOException e) {
+			assertTrue(System.currentTimeMillis() - waitingSince >= 300);
+			return;
+		}
+		throw new AssertionError("expected timeout");
+	}
+
+	@Test(timeout = 10000, expected = IOException.class)
+	public void testAcceptClosed() throws Exception {
+		acceptor.start();
+		acceptor.close();
+		acceptor.accept();
+	}
+
+	@Test(timeout = 10000)
+	public void testAcceptFailed() throws Exception {
+		final IOException cause = new IOException("connect dir is gone");
+		JslipcPipeServer failing = new JslipcPipeServer(serverConnectDir,
+				serverPipeDir) {
+
+			@Override
+			protected File waitForDirectory() throws IOException {
+				throw cause;
+			}
+		};
+		JslipcPipeAcceptor custom = new JslipcPipeAcceptor(failing);
+		try {
+			custom.start();
+			// all waiters get the failure
+			for (int i = 0; i < 2; ++i) {
+				try {
+					custom.accept();
+					throw new AssertionError("expected IOException");
+				} catch (InterruptedIOException e) {
+					throw e;
+				} catch (IOException e) {
+					assertSame(cause, e.getCause());
+				}
+			}
+		} finally {
+			custom.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testStartClosed() throws Exception {
+		acceptor.close();
+		acceptor.start();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullServer() throws Exception {
+		new JslipcPipeAcceptor(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullExecutor() throws Exception {
+		new JslipcPipeAcceptor(server, null);
+	}
+
+	private AtomicReference<JslipcPipe> connect() {
+		final AtomicReference<JslipcPipe> pipeRef = new AtomicReference<JslipcPipe>();
+		Thread thread = new Thread() {
+			@SuppressWarnings("unchecked")
+			public void run() {
+				try {
+					JslipcPipeClient client = new JslipcPipeClient(
+							serverConnectDir);
+					pipeRef.set(client.connect(ChunkFilePipe.class));
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		thread.start();
+		return pipeRef;
+	}
+
+	private void waitFor(final AtomicReference<JslipcPipe> pipeRef)
+			throws InterruptedException {
+		while (pipeRef.get() == null) {
+			Thread.sleep(10);
+		}
+	}
+
+}
@@ -27,6 +27,7 @@ import org.jslipc.ipc.pipe.JslipcRequest.JslipcCommand;
 import org.jslipc.ipc.pipe.JslipcResponse.JslipcCode;
 import org.jslipc.ipc.pipe.file.ChunkFilePipe;
 import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.ipc.pipe.shm.SegmentMemoryPipe;
 import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
 import org.jslipc.util.FileUtil;
 import org.jslipc.util.HostDir;
@@ -181,6 +182,22 @@ public class JslipcPipeClientTest {
 		return dir;
 	}
 
+	@Test
+	public void testProtocolVersion() throws Exception {
+		JslipcPipeClient client = new JslipcPipeClient(directory);
+		assertEquals(JslipcRequest.PROTOCOL_VERSION_TEXT,
+				client.getProtocolVersion());
+		client.setProtocolVersion(JslipcRequest.PROTOCOL_VERSION_BINARY);
+		@SuppressWarnings("unchecked")
+		JslipcRequest request = client.createRequest(FilePipe.class);
+		assertTrue(request.isBinary());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetUnsupportedProtocolVersion() throws Exception {
+		new JslipcPipeClient(directory).setProtocolVersion("0.9");
+	}
+
 	@Test
 	public void testSendRequest() throws Exception {
 		JslipcPipeClient client = new JslipcPipeClient(directory);
@@ -222,6 +239,7 @@ public class JslipcPipeClientTest {
 		checkReadResponseFilePipe(client);
 		checkReadResponseChunkFilePipe(client);
 		checkReadResponseSharedMemoryPipe(client);
+		checkReadResponseSegmentMemoryPipe(client);
 	}
 
 	private void checkReadResponseFilePipe(JslipcPipeClient client)
@@ -284,6 +302,25 @@ public class JslipcPipeClientTest {
 		assertEquals(SharedMemoryPipe.class, pipe.getClass());
 	}
 
+	private void checkReadResponseSegmentMemoryPipe(JslipcPipeClient client)
+			throws Exception {
+
+		File file = File.createTempFile("xxx", ".tmp");
+		file.deleteOnExit();
+		JslipcResponse response = new JslipcResponse(JslipcCode.PipeCreated,
+				"ok");
+		response.setTypeParameter(SegmentMemoryPipe.class);
+		response.setParameter(JslipcResponse.PARAM_ROLE,
+				JslipcRole.Yang.toString());
+		response.setFileParameter(JslipcResponse.PARAM_FILE, file);
+		response.setLongParameter(JslipcResponse.PARAM_SIZE, 8192L);
+
+		JslipcPipe pipe = readResponse(client, response);
+		assertNotNull(pipe);
+		assertEquals(SegmentMemoryPipe.class, pipe.getClass());
+		assertEquals(8192, ((SegmentMemoryPipe) pipe).getSize());
+	}
+
 	private JslipcPipe readResponse(JslipcPipeClient client,
 			JslipcResponse response) throws IOException {
 		InputStream in = new ByteArrayInputStream(response.toBytes());
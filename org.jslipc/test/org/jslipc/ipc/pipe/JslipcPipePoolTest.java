@@ -0,0 +1,182 @@
+package org.jslipc.ipc.pipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jslipc.JslipcBinman;
+import org.jslipc.JslipcPipe;
+import org.jslipc.TestUtil;
+import org.jslipc.ipc.pipe.file.ChunkFilePipe;
+import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link JslipcPipePool}.
+ */
+public class JslipcPipePoolTest {
+
+	private File serverConnectDir;
+	private File serverPipeDir;
+	private JslipcPipeAcceptor acceptor;
+	private LinkedBlockingQueue<JslipcConnection> accepted;
+	private JslipcPipeClient client;
+	private JslipcPipePool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		serverConnectDir = TestUtil.createDirectory();
+		serverPipeDir = TestUtil.createDirectory();
+		JslipcPipeServer server = new JslipcPipeServer(serverConnectDir,
+				serverPipeDir);
+		server.setTimeout(5000);
+		accepted = new LinkedBlockingQueue<JslipcConnection>();
+		acceptor = new JslipcPipeAcceptor(server);
+		acceptor.setListener(new JslipcConnectionListener() {
+
+			@Override
+			public void accepted(JslipcConnection connection) {
+				accepted.add(connection);
+			}
+		});
+		acceptor.start();
+		client = new JslipcPipeClient(serverConnectDir);
+		client.setTimeout(5000);
+		pool = new JslipcPipePool();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.close();
+		acceptor.close();
+		FileUtil.delete(serverConnectDir, true);
+		FileUtil.delete(serverPipeDir, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testReuse() throws Exception {
+		JslipcPipe pipe = pool.acquire(client, ChunkFilePipe.class);
+		assertEquals(ChunkFilePipe.class, pipe.getClass());
+		assertEquals(1, pool.getLeasedCount());
+		pool.release(pipe);
+		assertEquals(0, pool.getLeasedCount());
+		assertEquals(1, pool.getIdleCount());
+
+		assertSame(pipe, pool.acquire(client, ChunkFilePipe.class));
+		assertEquals(0, pool.getIdleCount());
+		pool.release(pipe);
+
+		// other types use other pipes
+		JslipcPipe other = pool.acquire(client, FilePipe.class);
+		assertEquals(FilePipe.class, other.getClass());
+		pool.release(other);
+		assertEquals(2, pool.getIdleCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testClosedByPeer() throws Exception {
+		JslipcPipe pipe = pool.acquire(client, ChunkFilePipe.class);
+		pool.release(pipe);
+		closeServerEnd();
+
+		JslipcPipe next = pool.acquire(client, ChunkFilePipe.class);
+		assertNotSame(pipe, next);
+		assertEquals(0, pool.getIdleCount());
+
+		// not returned to the pool if closed by peer
+		closeServerEnd();
+		pool.release(next);
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testMaxIdleTime() throws Exception {
+		assertEquals(JslipcPipePool.DEFAULT_MAX_IDLE_TIME,
+				pool.getMaxIdleTime());
+		pool.setMaxIdleTime(100);
+		pool.release(pool.acquire(client, ChunkFilePipe.class));
+		assertEquals(1, pool.getIdleCount());
+		Thread.sleep(200);
+		pool.evictIdle();
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testMaxIdle() throws Exception {
+		pool.setMaxIdle(1);
+		JslipcPipe first = pool.acquire(client, ChunkFilePipe.class);
+		JslipcPipe second = pool.acquire(client, ChunkFilePipe.class);
+		pool.release(first);
+		pool.release(second);
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testInvalidate() throws Exception {
+		JslipcPipe pipe = pool.acquire(client, ChunkFilePipe.class);
+		pool.invalidate(pipe);
+		assertEquals(0, pool.getLeasedCount());
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000, expected = IOException.class)
+	public void testAcquireClosed() throws Exception {
+		pool.close();
+		pool.acquire(client, ChunkFilePipe.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testClose() throws Exception {
+		JslipcPipe idlePipe = pool.acquire(client, ChunkFilePipe.class);
+		JslipcPipe leasedPipe = pool.acquire(client, ChunkFilePipe.class);
+		pool.release(idlePipe);
+		pool.close();
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(0, pool.getLeasedCount());
+		assertFalse(idlePipe.source().isOpen());
+		assertFalse(leasedPipe.source().isOpen());
+
+		// closing again and invalidating are harmless
+		pool.close();
+		pool.invalidate(leasedPipe);
+		try {
+			pool.release(leasedPipe);
+			fail("expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReleaseUnknown() throws Exception {
+		pool.release(new ChunkFilePipe(serverPipeDir, serverPipeDir));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetMaxIdleTimeNegative() throws Exception {
+		pool.setMaxIdleTime(-1);
+	}
+
+	private void closeServerEnd() throws Exception {
+		JslipcConnection connection = accepted.poll(5, TimeUnit.SECONDS);
+		((JslipcBinman) connection.getPipe()).close();
+	}
+
+}
@@ -12,8 +12,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.jslipc.JslipcPipe;
 import org.jslipc.JslipcRole;
 import org.jslipc.TestUtil;
@@ -23,9 +28,11 @@ import org.jslipc.ipc.pipe.JslipcRequest.JslipcCommand;
 import org.jslipc.ipc.pipe.JslipcResponse.JslipcCode;
 import org.jslipc.ipc.pipe.file.ChunkFilePipe;
 import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.ipc.pipe.shm.SegmentMemoryPipe;
 import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
 import org.jslipc.util.FileUtil;
 import org.jslipc.util.HostDir;
+import org.jslipc.util.JmxUtil;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -39,6 +46,9 @@ public class JslipcPipeServerTest {
 	private File serverPipeDir;
 	private File hostDirParent;
 	private HostDir hostDir;
+	private boolean fileWatch;
+	private int poolSize;
+	private String protocolVersion = JslipcRequest.PROTOCOL_VERSION_TEXT;
 
 	@Before
 	public void setUp() throws Exception {
@@ -138,6 +148,174 @@ public class JslipcPipeServerTest {
 		checkAccept(SharedMemoryPipe.class, SharedMemoryPipe.class);
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 600000)
+	public void testAcceptWithSegmentMemoryPipe() throws Exception {
+		checkAccept(SegmentMemoryPipe.class, SegmentMemoryPipe.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 600000)
+	public void testAcceptWithFileWatch() throws Exception {
+		fileWatch = true;
+		checkAccept(FilePipe.class, FilePipe.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 600000)
+	public void testAcceptWithBinaryProtocol() throws Exception {
+		protocolVersion = JslipcRequest.PROTOCOL_VERSION_BINARY;
+		checkAccept(SharedMemoryPipe.class, SharedMemoryPipe.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 600000)
+	public void testAcceptWithPipePool() throws Exception {
+		poolSize = 2;
+		checkAccept(SharedMemoryPipe.class, SharedMemoryPipe.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testPipePool() throws Exception {
+		JslipcPipeServer server = new JslipcPipeServer(serverConnectDir,
+				serverPipeDir);
+		assertEquals(0, server.getPoolSize());
+		server.setPoolSize(2);
+		assertEquals(2, server.getPoolSize());
+		waitForPool(server, 2, ChunkFilePipe.class, FilePipe.class,
+				SharedMemoryPipe.class, SegmentMemoryPipe.class);
+		assertEquals(8, serverPipeDir.list().length);
+
+		JslipcRequest request = new JslipcRequest(JslipcCommand.CONNECT);
+		request.setAcceptTypes(FilePipe.class);
+		JslipcResponse response = new JslipcResponse(JslipcCode.PipeCreated,
+				"ok");
+		JslipcPipe pipe = server.createPipe(request, response);
+		assertEquals(FilePipe.class, pipe.getClass());
+		assertEquals(serverPipeDir,
+				response.getFileParameter(JslipcResponse.PARAM_DIRECTORY)
+						.getParentFile());
+		waitForPool(server, 2, FilePipe.class);
+		assertEquals(9, serverPipeDir.list().length);
+
+		// specific sizes are not pooled
+		request.setAcceptTypes(SharedMemoryPipe.class);
+		request.setIntParameter(JslipcResponse.PARAM_SIZE, 8192);
+		response = new JslipcResponse(JslipcCode.PipeCreated, "ok");
+		pipe = server.createPipe(request, response);
+		assertEquals(Integer.valueOf(8192),
+				response.getIntParameter(JslipcResponse.PARAM_SIZE));
+		assertEquals(2, server.getPooledPipes(SharedMemoryPipe.class));
+		((SharedMemoryPipe) pipe).close();
+		FileUtil.delete(response.getFileParameter(JslipcResponse.PARAM_FILE));
+
+		// releases the pooled pipes
+		server.setPoolSize(0);
+		assertEquals(0, server.getPoolSize());
+		assertEquals(1, serverPipeDir.list().length);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout = 10000)
+	public void testJmx() throws Exception {
+		final JslipcPipeServer server = new JslipcPipeServer(serverConnectDir,
+				serverPipeDir, SharedMemoryPipe.class);
+		assertFalse(server.isJmxEnabled());
+		assertTrue(server.enableJmx());
+		assertTrue(server.isJmxEnabled());
+		server.setTimeout(500);
+
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = JmxUtil.createName("JslipcPipeServer",
+				serverConnectDir.getAbsolutePath());
+		assertTrue(mbeanServer.isRegistered(name));
+		assertEquals(0, server.getPendingRequests());
+		FileUtil.createDirectory(serverConnectDir);
+		assertEquals(1, mbeanServer.getAttribute(name, "PendingRequests"));
+
+		final AtomicReference<JslipcConnection> connectionRef = new AtomicReference<JslipcConnection>();
+		Thread thread = new Thread() {
+			public void run() {
+				// the stale request fails, the order of the requests depends
+				// on their timestamps
+				for (int i = 0; i < 2; i++) {
+					try {
+						JslipcConnection connection = server.accept();
+						if (connection != null) {
+							connectionRef.set(connection);
+						}
+					} catch (IOException e) {
+						// the stale request
+					}
+				}
+			}
+		};
+		thread.start();
+		JslipcPipeClient client = new JslipcPipeClient(serverConnectDir);
+		client.setTimeout(5000);
+		SharedMemoryPipe clientPipe = (SharedMemoryPipe) client.connect();
+		thread.join();
+
+		assertEquals(0, server.getPendingRequests());
+		assertEquals(1L, mbeanServer.getAttribute(name, "AcceptedConnections"));
+		assertEquals(1L, mbeanServer.getAttribute(name, "FailedHandshakes"));
+		assertTrue(server.getMaxHandshakeTime() > 0);
+		assertTrue(server.getAverageHandshakeTime() <= server
+				.getMaxHandshakeTime());
+		assertEquals(Collections.singletonMap("SharedMemoryPipe", 1),
+				server.getLivePipes());
+
+		SharedMemoryPipe pipe = (SharedMemoryPipe) connectionRef.get()
+				.getPipe();
+		ObjectName pipeName = pipe.getStats().getObjectName();
+		assertNotNull(pipeName);
+		pipe.sink().write(TestUtil.toBuffer("herbert"));
+		assertEquals(7L, mbeanServer.getAttribute(pipeName, "BytesWritten"));
+		assertEquals(7, mbeanServer.getAttribute(pipeName, "SinkFillLevel"));
+		// open type of a list
+		assertEquals(0, ((String[]) mbeanServer.getAttribute(name,
+				"AbandonedPipes")).length);
+
+		// the client goes away without the server closing its end
+		clientPipe.source();
+		clientPipe.close();
+		assertTrue(pipe.getStats().isAbandoned());
+		assertEquals(Collections.singletonList(pipe.getStats().getPath()),
+				server.getAbandonedPipes());
+		// reported only, the pipe is still open
+		assertTrue(mbeanServer.isRegistered(pipeName));
+		File pipeFile = new File(pipe.getStats().getPath());
+		assertEquals(1, mbeanServer.invoke(name, "closeAbandonedPipes", null,
+				null));
+		assertFalse(mbeanServer.isRegistered(pipeName));
+		assertFalse(pipe.source().isOpen());
+		assertFalse(pipeFile.exists());
+		assertEquals(Collections.singletonMap("SharedMemoryPipe", 0),
+				server.getLivePipes());
+
+		server.resetStatistics();
+		assertEquals(0, server.getAcceptedConnections());
+		server.disableJmx();
+		assertFalse(server.isJmxEnabled());
+		assertFalse(mbeanServer.isRegistered(name));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetPoolSizeNegative() throws Exception {
+		new JslipcPipeServer(serverConnectDir, serverPipeDir).setPoolSize(-1);
+	}
+
+	private void waitForPool(final JslipcPipeServer server, final int size,
+			final Class<? extends JslipcPipe>... types)
+			throws InterruptedException {
+		for (Class<? extends JslipcPipe> type : types) {
+			while (server.getPooledPipes(type) < size) {
+				Thread.sleep(10);
+			}
+		}
+	}
+
 	public void checkAccept(Class<? extends JslipcPipe> expectedPipeClass,
 			Class<? extends JslipcPipe>... acceptTypes) throws IOException,
 			InterruptedException {
@@ -147,7 +325,12 @@ public class JslipcPipeServerTest {
 				JslipcPipeServer server;
 				try {
 					server = new JslipcPipeServer(serverConnectDir, serverPipeDir);
+					if (fileWatch) {
+						assertTrue(server.enableFileWatch());
+					}
+					server.setPoolSize(poolSize);
 					pipeRef.set(server.accept());
+					server.disableFileWatch();
 				} catch (IOException e) {
 					e.printStackTrace();
 				}
@@ -159,15 +342,18 @@ public class JslipcPipeServerTest {
 		FilePipe connectPipe = new FilePipe(connectDir, JslipcRole.Yang);
 		connectPipe.cleanUpOnClose();
 
-		JslipcRequest request = new JslipcRequest(JslipcCommand.CONNECT);
+		JslipcRequest request = new JslipcRequest(JslipcCommand.CONNECT,
+				protocolVersion);
 		request.setAcceptTypes(acceptTypes);
 		writeRequest(connectPipe, request);
 
 		JslipcResponse response = readResponse(connectPipe);
 		assertEquals(response.getMessage(), JslipcCode.PipeCreated, response.getCode());
+		assertEquals(protocolVersion, response.getProtocolVersion());
 		assertEquals(expectedPipeClass, response.getTypeParameter());
 		File pipeDir = response.getFileParameter(JslipcResponse.PARAM_DIRECTORY);
-		if (SharedMemoryPipe.class.equals(expectedPipeClass)) {
+		if (SharedMemoryPipe.class.equals(expectedPipeClass)
+				|| SegmentMemoryPipe.class.equals(expectedPipeClass)) {
 			pipeDir = response.getFileParameter(JslipcResponse.PARAM_FILE);
 		}
 		assertNotNull(pipeDir);
@@ -211,6 +397,60 @@ public class JslipcPipeServerTest {
 		assertFalse(thread.isAlive());
 	}
 
+	@Test(timeout = 10000)
+	public void testWaitForDirectoryWithFileWatch() throws Exception {
+		final JslipcPipeServer server = new JslipcPipeServer(serverConnectDir,
+				serverPipeDir);
+		assertFalse(server.isFileWatchEnabled());
+		assertTrue(server.enableFileWatch());
+		assertTrue(server.isFileWatchEnabled());
+
+		final AtomicReference<File> fileRef = new AtomicReference<File>();
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					fileRef.set(server.waitForDirectory());
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		thread.start();
+		Thread.sleep(200);
+		File dir = FileUtil.createDirectory(serverConnectDir);
+
+		thread.join(2000);
+		assertFalse(thread.isAlive());
+		assertEquals(dir, fileRef.get());
+
+		server.disableFileWatch();
+		assertFalse(server.isFileWatchEnabled());
+	}
+
+	@Test(timeout = 10000)
+	public void testWaitForDirectoryInArrivalOrder() throws Exception {
+		JslipcPipeServer server = new JslipcPipeServer(serverConnectDir,
+				serverPipeDir);
+		assertTrue(server.enableFileWatch());
+		File[] dirs = new File[10];
+		for (int i = 0; i < dirs.length; i++) {
+			dirs[i] = FileUtil.createDirectory(serverConnectDir);
+			// directories created before the first wait are ordered by time
+			dirs[i].setLastModified(1000 * (i + 1));
+		}
+		for (File dir : dirs) {
+			assertEquals(dir, server.waitForDirectory());
+		}
+
+		for (int i = 0; i < dirs.length; i++) {
+			dirs[i] = FileUtil.createDirectory(serverConnectDir);
+		}
+		for (File dir : dirs) {
+			assertEquals(dir, server.waitForDirectory());
+		}
+		server.disableFileWatch();
+	}
+
 	@Test(timeout = 10000)
 	public void testAccessTimeout() throws Exception {
 		final AtomicReference<IOException> exceptionRef = new AtomicReference<IOException>();
@@ -58,6 +58,8 @@ public class JslipcPipeURLConnectionTest {
 		when(pipeMock.sink()).thenReturn(writableChannelMock);
 		when(pipeMock.source()).thenReturn(readableChannelMock);
 		when(clientMock.connect(any(JslipcRequest.class))).thenReturn(pipeMock);
+		when(clientMock.getProtocolVersion()).thenReturn(
+				JslipcRequest.PROTOCOL_VERSION_TEXT);
 
 		url = new URL("jslipc:///c:temp");
 	}
@@ -1,13 +1,19 @@
 package org.jslipc.ipc.pipe;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.jslipc.ipc.pipe.JslipcRequest.JslipcCommand;
 import org.jslipc.ipc.pipe.file.ChunkFilePipe;
 import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
 import org.jslipc.util.StringUtil;
 import org.junit.After;
 import org.junit.Before;
@@ -109,4 +115,92 @@ public class JslipcRequestTest extends AbstractJslipcMessageTest {
 		assertEquals(Arrays.asList(ChunkFilePipe.class, FilePipe.class), req.getAcceptTypes() );
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testBinary() throws Exception {
+		JslipcRequest req = new JslipcRequest(requestWithParameter);
+		req.setProtocolVersion(JslipcRequest.PROTOCOL_VERSION_BINARY);
+		req.setAcceptTypes(SharedMemoryPipe.class, FilePipe.class);
+		req.setTypeParameter(ChunkFilePipe.class);
+		req.setIntParameter(JslipcRequest.PARAM_SIZE, -1);
+		req.setParameter(JslipcRequest.PARAM_ROLE, "Yin");
+		req.setParameter(JslipcRequest.PARAM_FILE, "/tmp/\u00e4");
+		req.setParameter("empty", null);
+		byte[] bytes = req.toBytes();
+		assertTrue(bytes.length < req.toString().length());
+
+		JslipcRequest parsed = new JslipcRequest(bytes);
+		assertEquals(JslipcCommand.CONNECT, parsed.getCommand());
+		assertEquals("2.0", parsed.getProtocolVersion());
+		assertEquals(Arrays.asList(SharedMemoryPipe.class, FilePipe.class),
+				parsed.getAcceptTypes());
+		assertEquals(ChunkFilePipe.class, parsed.getTypeParameter());
+		assertEquals(Integer.valueOf(-1),
+				parsed.getIntParameter(JslipcRequest.PARAM_SIZE));
+		assertEquals("Yin", parsed.getParameter(JslipcRequest.PARAM_ROLE));
+		assertEquals("/tmp/\u00e4",
+				parsed.getParameter(JslipcRequest.PARAM_FILE));
+		assertEquals("value1", parsed.getParameter("param1"));
+		assertEquals(req.getParameter("param3"), parsed.getParameter("param3"));
+		assertFalse(parsed.hasParameter("empty"));
+	}
+
+	@Test
+	public void testBinaryLongSize() throws Exception {
+		JslipcRequest req = new JslipcRequest(JslipcCommand.CONNECT,
+				JslipcRequest.PROTOCOL_VERSION_BINARY);
+		req.setLongParameter(JslipcRequest.PARAM_SIZE, 5L * 1024 * 1024 * 1024);
+
+		JslipcRequest parsed = new JslipcRequest(req.toBytes());
+		assertEquals(Long.valueOf(5L * 1024 * 1024 * 1024),
+				parsed.getLongParameter(JslipcRequest.PARAM_SIZE));
+		// sizes in the int range keep the compact encoding
+		req.setLongParameter(JslipcRequest.PARAM_SIZE, 8192L);
+		parsed = new JslipcRequest(req.toBytes());
+		assertEquals(Integer.valueOf(8192),
+				parsed.getIntParameter(JslipcRequest.PARAM_SIZE));
+	}
+
+	@Test
+	public void testBinaryWithUnknownValues() throws Exception {
+		// values that can not be encoded by id are sent as strings
+		JslipcRequest req = new JslipcRequest(JslipcCommand.CONNECT,
+				JslipcRequest.PROTOCOL_VERSION_BINARY);
+		req.setParameter(JslipcRequest.PARAM_ACCEPT_TYPES, "FilePipe,HttpPipe");
+		req.setParameter(JslipcRequest.PARAM_SIZE, "large");
+		req.setParameter(JslipcRequest.PARAM_ROLE, "Tao");
+
+		JslipcRequest parsed = new JslipcRequest(req.toBytes());
+		assertEquals(req.getParameters(), parsed.getParameters());
+	}
+
+	@Test(expected = IOException.class)
+	public void testBinaryTruncated() throws Exception {
+		JslipcRequest req = new JslipcRequest(JslipcCommand.CONNECT,
+				JslipcRequest.PROTOCOL_VERSION_BINARY);
+		req.setParameter("param1", "value1");
+		byte[] bytes = req.toBytes();
+		byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		new JslipcRequest(truncated);
+	}
+
+	@Test
+	public void testBinaryBadStringLength() throws Exception {
+		JslipcRequest req = new JslipcRequest(JslipcCommand.CONNECT,
+				JslipcRequest.PROTOCOL_VERSION_BINARY);
+		req.setParameter("param1", "value1");
+		byte[] bytes = req.toBytes();
+		// the length prefix of the key
+		int index = new String(bytes, "ISO-8859-1").indexOf("param1") - 4;
+		ByteBuffer.wrap(bytes).putInt(index, Integer.MAX_VALUE);
+		try {
+			new JslipcRequest(bytes);
+			fail("IOException expected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("exceeds"));
+			assertNotNull(e.getCause());
+		}
+	}
+
 }
@@ -135,4 +135,18 @@ public class JslipcResponseTest extends AbstractJslipcMessageTest {
 	}
 
 
+	@Test
+	public void testBinary() throws Exception {
+		JslipcResponse res = new JslipcResponse(responseWithParameter);
+		res.setProtocolVersion(JslipcResponse.PROTOCOL_VERSION_BINARY);
+		res.setRoleParameter(JslipcRole.Yang);
+
+		JslipcResponse parsed = new JslipcResponse(res.toBytes());
+		assertEquals("2.0", parsed.getProtocolVersion());
+		assertEquals(JslipcCode.PipeCreated, parsed.getCode());
+		assertEquals(successMessage, parsed.getMessage());
+		assertEquals(JslipcRole.Yang, parsed.getRoleParameter());
+		assertEquals(res.getParameters(), parsed.getParameters());
+	}
+
 }
@@ -0,0 +1,105 @@
+package org.jslipc.ipc.pipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.jslipc.JslipcPipe;
+import org.jslipc.JslipcRole;
+import org.jslipc.TestUtil;
+import org.jslipc.channel.StreamMessageChannel;
+import org.jslipc.channel.buffer.BbqMessageChannel;
+import org.jslipc.ipc.pipe.file.ChunkFilePipe;
+import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
+import org.jslipc.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MessagePipeTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = TestUtil.createDirectory();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtil.delete(directory, true);
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testMessagePipeWithNull() throws Exception {
+		new MessagePipe(null);
+	}
+
+	@Test
+	public void testSharedMemoryPipe() throws Exception {
+		File file = new File(directory, "shm");
+		MessagePipe yang = new MessagePipe(new SharedMemoryPipe(file,
+				JslipcRole.Yang));
+		MessagePipe yin = new MessagePipe(new SharedMemoryPipe(file,
+				JslipcRole.Yin));
+		assertEquals(BbqMessageChannel.class, yang.getChannel().getClass());
+		checkRoundTrip(yang, yin);
+	}
+
+	@Test
+	public void testChunkFilePipe() throws Exception {
+		MessagePipe yang = new MessagePipe(new ChunkFilePipe(directory,
+				JslipcRole.Yang));
+		MessagePipe yin = new MessagePipe(new ChunkFilePipe(directory,
+				JslipcRole.Yin));
+		assertEquals(StreamMessageChannel.class, yang.getChannel().getClass());
+		checkRoundTrip(yang, yin);
+	}
+
+	@Test
+	public void testFilePipe() throws Exception {
+		MessagePipe yang = new MessagePipe(new FilePipe(directory,
+				JslipcRole.Yang));
+		MessagePipe yin = new MessagePipe(new FilePipe(directory,
+				JslipcRole.Yin));
+		checkRoundTrip(yang, yin);
+	}
+
+	@Test
+	public void testGetPipe() throws Exception {
+		JslipcPipe pipe = new ChunkFilePipe(directory, JslipcRole.Yang);
+		MessagePipe messagePipe = new MessagePipe(pipe);
+		assertSame(pipe, messagePipe.getPipe());
+		messagePipe.close();
+	}
+
+	protected void checkRoundTrip(final MessagePipe yang, final MessagePipe yin)
+			throws Exception {
+		yang.send(TestUtil.toBuffer("herbert"));
+		yang.send(new ByteBuffer[] { TestUtil.toBuffer(""),
+				TestUtil.toBuffer("karl") });
+		assertMessage("herbert", yin.receive());
+		assertMessage("", yin.receive());
+		assertMessage("karl", yin.receive());
+
+		yin.send(TestUtil.toBuffer("hans"));
+		assertMessage("hans", yang.receive());
+
+		yang.close();
+		assertNull(yin.receive());
+		yin.close();
+	}
+
+	protected static void assertMessage(final String expected,
+			final ByteBuffer message) {
+		byte[] bytes = new byte[message.remaining()];
+		message.get(bytes);
+		assertEquals(expected, new String(bytes));
+	}
+
+}
@@ -12,8 +12,10 @@ import java.util.Arrays;
 import org.jslipc.JslipcPipe;
 import org.jslipc.JslipcRole;
 import org.jslipc.TestUtil;
+import org.jslipc.channel.JslipcChannelInputStream;
 import org.jslipc.ipc.pipe.AbstractTestProducer;
 import org.jslipc.ipc.pipe.file.ChunkFilePipe;
+import org.jslipc.wait.WatchServiceWaitStrategy;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -228,6 +230,36 @@ public class ChunkFilePipeTest {
 		assertTrue(new File(directory, ".closed").createNewFile());
 	}
 
+	@Test(timeout = 5000)
+	public void testFileWatch() throws Exception {
+		final ChunkFilePipe yang = new ChunkFilePipe(directory, JslipcRole.Yang);
+		ChunkFilePipe yin = new ChunkFilePipe(directory, JslipcRole.Yin);
+		assertTrue(yin.enableFileWatch());
+		assertTrue(yin.isFileWatchEnabled());
+		assertEquals(WatchServiceWaitStrategy.class, yin.source()
+				.getWaitStrategy().getClass());
+
+		Thread writer = new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(200);
+					yang.sink().write(TestUtil.toBuffer("herbert"));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		writer.start();
+		JslipcChannelInputStream in = new JslipcChannelInputStream(
+				yin.source());
+		byte[] data = new byte[7];
+		assertEquals(7, in.read(data));
+		assertEquals("herbert", new String(data));
+
+		yang.close();
+		yin.close();
+	}
+
 	@Test(timeout = 20000)
 	public void testIpcWithChannels() throws Exception {
 		File consumerToProducer = TestUtil.createDirectory();
@@ -7,12 +7,20 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.jslipc.JslipcPipe;
 import org.jslipc.JslipcRole;
 import org.jslipc.TestUtil;
+import org.jslipc.channel.JslipcChannelInputStream;
+import org.jslipc.channel.file.ReadableMappedFileChannel;
+import org.jslipc.channel.file.ReadableSegmentedFileChannel;
+import org.jslipc.channel.file.WritableMappedFileChannel;
+import org.jslipc.channel.file.WritableSegmentedFileChannel;
 import org.jslipc.ipc.pipe.AbstractTestProducer;
 import org.jslipc.ipc.pipe.file.FilePipe;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WatchServiceWaitStrategy;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -202,6 +210,126 @@ public class FilePipeTest {
 		assertFalse(directory.exists());
 	}
 
+	@Test
+	public void testMemoryMapped() throws Exception {
+		FilePipe yang = new FilePipe(directory, JslipcRole.Yang, true);
+		FilePipe yin = new FilePipe(directory, JslipcRole.Yin, true);
+		assertTrue(yang.isMemoryMapped());
+		assertFalse(new FilePipe(directory, JslipcRole.Yang).isMemoryMapped());
+		assertEquals(WritableMappedFileChannel.class, yang.sink().getClass());
+		assertEquals(ReadableMappedFileChannel.class, yin.source().getClass());
+
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		assertEquals(7, yang.sink().write(TestUtil.toBuffer("herbert")));
+		assertEquals(7, yin.source().read(buffer));
+		TestUtil.assertEquals("herbert", buffer);
+
+		yang.cleanUpOnClose();
+		yin.cleanUpOnClose();
+		yang.close();
+		assertEquals(-1, yin.source().read(buffer));
+		yin.close();
+		assertFalse(directory.exists());
+	}
+
+	@Test(timeout = 5000)
+	public void testFileWatch() throws Exception {
+		final FilePipe yang = new FilePipe(directory, JslipcRole.Yang);
+		FilePipe yin = new FilePipe(directory, JslipcRole.Yin);
+		assertEquals(SleepWaitStrategy.DEFAULT, yin.source().getWaitStrategy());
+		assertFalse(yin.isFileWatchEnabled());
+		assertTrue(yin.enableFileWatch());
+		assertTrue(yin.isFileWatchEnabled());
+		assertEquals(WatchServiceWaitStrategy.class, yin.source()
+				.getWaitStrategy().getClass());
+
+		Thread writer = new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(200);
+					yang.sink().write(TestUtil.toBuffer("herbert"));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		writer.start();
+		JslipcChannelInputStream in = new JslipcChannelInputStream(
+				yin.source());
+		byte[] data = new byte[7];
+		assertEquals(7, in.read(data));
+		assertEquals("herbert", new String(data));
+
+		yang.close();
+		yin.close();
+	}
+
+	@Test
+	public void testFileWatchMemoryMapped() throws Exception {
+		FilePipe yin = new FilePipe(directory, JslipcRole.Yin, true);
+		assertFalse(yin.enableFileWatch());
+		assertFalse(yin.isFileWatchEnabled());
+		yin.close();
+	}
+
+	@Test
+	public void testSegmentSize() throws Exception {
+		FilePipe yang = new FilePipe(directory, JslipcRole.Yang);
+		FilePipe yin = new FilePipe(directory, JslipcRole.Yin);
+		assertEquals(0, yang.getSegmentSize());
+		yang.setSegmentSize(4);
+		yin.setSegmentSize(4);
+		assertEquals(4, yang.getSegmentSize());
+		assertEquals(WritableSegmentedFileChannel.class, yang.sink().getClass());
+		assertEquals(ReadableSegmentedFileChannel.class, yin.source().getClass());
+
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		assertEquals(7, yang.sink().write(TestUtil.toBuffer("herbert")));
+		assertEquals(4, yin.source().read(buffer));
+		assertEquals(3, yin.source().read(buffer));
+		TestUtil.assertEquals("herbert", buffer);
+
+		yang.cleanUpOnClose();
+		yin.cleanUpOnClose();
+		yang.close();
+		assertEquals(-1, yin.source().read(buffer));
+		yin.close();
+		assertFalse(directory.exists());
+	}
+
+	@Test
+	public void testSegmentSizeMemoryMapped() throws Exception {
+		FilePipe yang = new FilePipe(directory, JslipcRole.Yang, true);
+		FilePipe yin = new FilePipe(directory, JslipcRole.Yin, true);
+		yang.setSegmentSize(4);
+		yin.setSegmentSize(4);
+
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		assertEquals(7, yang.sink().write(TestUtil.toBuffer("herbert")));
+		assertEquals(7, yin.source().read(buffer));
+		TestUtil.assertEquals("herbert", buffer);
+
+		yang.cleanUpOnClose();
+		yin.cleanUpOnClose();
+		yang.close();
+		yin.close();
+		assertFalse(directory.exists());
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalStateException.class)
+	public void testSetSegmentSizeAfterChannelsCreated() throws Exception {
+		FilePipe pipe = new FilePipe(directory, JslipcRole.Yang);
+		pipe.sink();
+		pipe.setSegmentSize(4);
+	}
+
+	@SuppressWarnings("resource")
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetSegmentSizeNegative() throws Exception {
+		new FilePipe(directory, JslipcRole.Yang).setSegmentSize(-1);
+	}
+
 	private void createClosedMarker(final File file) throws IOException {
 		assertTrue(new File(file.getAbsolutePath() + ".closed").createNewFile());
 	}
@@ -0,0 +1,109 @@
+package org.jslipc.ipc.pipe.shm;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jslipc.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FifoDoorbellTest {
+
+	private File fifo;
+
+	@Before
+	public void setUp() throws Exception {
+		File file = File.createTempFile("test", ".fifo");
+		file.delete();
+		fifo = file;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtil.delete(fifo);
+	}
+
+	protected FifoDoorbell createDoorbell() throws IOException {
+		try {
+			return new FifoDoorbell(fifo);
+		} catch (IOException e) {
+			// mkfifo is not available on this platform
+			assumeNoException(e);
+			return null;
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testRingBeforeAwait() throws Exception {
+		FifoDoorbell doorbell = createDoorbell();
+		assertTrue(fifo.exists());
+		doorbell.ring();
+		doorbell.ring();
+		long start = System.currentTimeMillis();
+		doorbell.await(2000);
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		doorbell.close();
+	}
+
+	@Test(timeout = 5000)
+	public void testRingsAreCoalesced() throws Exception {
+		FifoDoorbell doorbell = createDoorbell();
+		// way more than the kernel buffers, would block if not coalesced
+		for (int i = 0; i < 1000000; i++) {
+			doorbell.ring();
+		}
+		doorbell.await(2000);
+		// all rings have been drained at once
+		long start = System.currentTimeMillis();
+		doorbell.await(200);
+		assertTrue(System.currentTimeMillis() - start >= 190);
+		doorbell.close();
+	}
+
+	@Test(timeout = 5000)
+	public void testAwaitTimesOut() throws Exception {
+		FifoDoorbell doorbell = createDoorbell();
+		long start = System.currentTimeMillis();
+		doorbell.await(200);
+		assertTrue(System.currentTimeMillis() - start >= 190);
+		doorbell.close();
+	}
+
+	@Test(timeout = 5000)
+	public void testRingWakesUpPeer() throws Exception {
+		final FifoDoorbell waiter = createDoorbell();
+		FifoDoorbell ringer = new FifoDoorbell(fifo);
+
+		final AtomicReference<Exception> caught = new AtomicReference<Exception>();
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					waiter.await(60000);
+				} catch (Exception e) {
+					caught.set(e);
+				}
+			}
+		};
+		thread.start();
+		thread.join(300);
+		assertTrue(thread.isAlive());
+
+		ringer.ring();
+		thread.join(1000);
+		assertFalse(thread.isAlive());
+		waiter.close();
+		ringer.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFifoDoorbellWithNull() throws Exception {
+		new FifoDoorbell(null);
+	}
+
+}
@@ -25,7 +25,7 @@ public class SMPipeTestConsumer extends AbstractTestConsumer {
 	}
 
 	public JslipcPipe createPipe(File file) throws IOException {
-		return new SharedMemoryPipe(file, 30, JslipcRole.Yang);
+		return new SharedMemoryPipe(file, 60, JslipcRole.Yang);
 	}
 
 }
@@ -20,7 +20,7 @@ public class SMPipeTestProducer extends AbstractTestProducer {
 		if (args.length > 0) {
 			file = new File(args[0]);
 		}
-		return new SharedMemoryPipe(file, 30,
+		return new SharedMemoryPipe(file, 60,
 				JslipcRole.Yin);
 	}
 
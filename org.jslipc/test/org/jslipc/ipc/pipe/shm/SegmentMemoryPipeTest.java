@@ -0,0 +1,266 @@
+package org.jslipc.ipc.pipe.shm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jslipc.JslipcRole;
+import org.jslipc.TestUtil;
+import org.jslipc.channel.ChannelMetrics;
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.channel.JslipcChannelInputStream;
+import org.jslipc.channel.JslipcChannelOutputStream;
+import org.jslipc.wait.BusySpinWaitStrategy;
+import org.junit.Test;
+
+/**
+ * Tests the {@link SegmentMemoryPipe}. The Java 22 implementation is only
+ * tested if the tests run against the multi-release jar on Java 22+, see
+ * profile <code>java22</code> in the pom, otherwise the fallback to the
+ * {@link SharedMemoryPipe} is tested.
+ */
+public class SegmentMemoryPipeTest {
+
+	private static final int SIZE = 2 * 1024;
+
+	protected File createFile() throws Exception {
+		File file = File.createTempFile("test", ".segment");
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testReadWrite() throws Exception {
+		File file = createFile();
+		SegmentMemoryPipe yin = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yin);
+		SegmentMemoryPipe yang = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yang);
+		assertEquals(SIZE, yin.getSize());
+
+		ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+		assertEquals(0, yang.source().read(buffer));
+		assertEquals(7, yin.sink().write(TestUtil.toBuffer("herbert")));
+		assertEquals(4, yang.sink().write(TestUtil.toBuffer("karl")));
+
+		assertEquals(7, yang.source().read(buffer));
+		TestUtil.assertEquals("herbert", buffer);
+		buffer.clear();
+		assertEquals(4, yin.source().read(buffer));
+		TestUtil.assertEquals("karl", buffer);
+
+		yin.close();
+		yang.close();
+	}
+
+	@Test
+	public void testWrapAround() throws Exception {
+		File file = createFile();
+		SegmentMemoryPipe yin = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yin);
+		SegmentMemoryPipe yang = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yang);
+
+		byte[] data = new byte[300];
+		ByteBuffer dst = ByteBuffer.allocate(data.length);
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < data.length; i++) {
+				data[i] = (byte) (round + i);
+			}
+			ByteBuffer src = ByteBuffer.wrap(data);
+			assertEquals(data.length, yin.sink().write(src));
+			dst.clear();
+			assertEquals(data.length, yang.source().read(dst));
+			assertTrue(java.util.Arrays.equals(data, dst.array()));
+		}
+
+		// fill the ring up to its capacity
+		ByteBuffer src = ByteBuffer.allocate(SIZE);
+		int capacity = yin.sink().write(src);
+		assertTrue(capacity > 0 && capacity < SIZE / 2);
+		assertEquals(0, yin.sink().write(ByteBuffer.allocate(1)));
+		assertEquals(1, ChannelMetrics.of(yin.sink()).getFullWrites());
+
+		yin.close();
+		yang.close();
+	}
+
+	@Test
+	public void testDefaultCapacity() throws Exception {
+		SegmentMemoryPipe pipe = new SegmentMemoryPipe(createFile(),
+				JslipcRole.Yin);
+		assertEquals(SharedMemoryPipe.getFileSize(32 * 1024), pipe.getSize());
+		assertEquals(32 * 1024,
+				pipe.sink().write(ByteBuffer.allocate(64 * 1024)));
+		pipe.close();
+	}
+
+	@Test(timeout = 60000)
+	public void testStreams() throws Exception {
+		File file = createFile();
+		final SegmentMemoryPipe yin = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yin);
+		SegmentMemoryPipe yang = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yang);
+		yin.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		yang.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+
+		final byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		Thread producer = new Thread() {
+			public void run() {
+				try {
+					OutputStream out = new JslipcChannelOutputStream(yin
+							.sink());
+					out.write(data);
+					out.close();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		producer.start();
+
+		InputStream in = new JslipcChannelInputStream(yang.source());
+		byte[] read = JslipcChannelInputStream.readAll(in);
+		producer.join();
+		assertTrue(java.util.Arrays.equals(data, read));
+		yin.close();
+		yang.close();
+	}
+
+	@Test
+	public void testCleanUpOnClose() throws Exception {
+		File file = createFile();
+		SegmentMemoryPipe yin = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yin);
+		SegmentMemoryPipe yang = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yang);
+		yin.cleanUpOnClose();
+		yang.cleanUpOnClose();
+
+		yang.close();
+		assertEquals(JslipcChannelState.ClosedByPeer, yin.source()
+				.getState());
+		assertEquals(-1, yin.source().read(ByteBuffer.allocate(10)));
+		assertTrue(file.exists());
+		yin.close();
+		assertFalse(file.exists());
+	}
+
+	@Test(timeout = 20000)
+	public void testCloseWhileReading() throws Exception {
+		SegmentMemoryPipe pipe = new SegmentMemoryPipe(createFile(), SIZE,
+				JslipcRole.Yin);
+		pipe.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		final InputStream in = new JslipcChannelInputStream(pipe.source());
+		final AtomicReference<Object> result = new AtomicReference<Object>();
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					result.set(in.read());
+				} catch (Exception e) {
+					result.set(e);
+				}
+			}
+		};
+		thread.start();
+		Thread.sleep(100);
+		assertTrue(thread.isAlive());
+
+		pipe.close();
+		thread.join(5000);
+		assertFalse(thread.isAlive());
+		assertTrue("unexpected result " + result.get(),
+				result.get() instanceof IOException
+						|| Integer.valueOf(-1).equals(result.get()));
+		assertEquals(JslipcChannelState.Closed, pipe.source().getState());
+	}
+
+	@Test(expected = ClosedChannelException.class)
+	public void testCheckClosed() throws Exception {
+		SegmentMemoryPipe pipe = new SegmentMemoryPipe(createFile(), SIZE,
+				JslipcRole.Yin);
+		pipe.close();
+		pipe.sink().write(TestUtil.toBuffer("herbert"));
+	}
+
+	@Test
+	public void testSharedMemoryPipePeer() throws Exception {
+		File file = createFile();
+		SegmentMemoryPipe yin = new SegmentMemoryPipe(file, SIZE,
+				JslipcRole.Yin);
+		SharedMemoryPipe yang = new SharedMemoryPipe(file, SIZE,
+				JslipcRole.Yang);
+
+		byte[] data = new byte[300];
+		ByteBuffer dst = ByteBuffer.allocate(data.length);
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < data.length; i++) {
+				data[i] = (byte) (round + i);
+			}
+			assertEquals(data.length, yin.sink().write(ByteBuffer.wrap(data)));
+			dst.clear();
+			assertEquals(data.length, yang.source().read(dst));
+			assertTrue(java.util.Arrays.equals(data, dst.array()));
+
+			assertEquals(data.length, yang.sink().write(ByteBuffer.wrap(data)));
+			dst.clear();
+			assertEquals(data.length, yin.source().read(dst));
+			assertTrue(java.util.Arrays.equals(data, dst.array()));
+		}
+
+		yang.close();
+		assertEquals(JslipcChannelState.ClosedByPeer, yin.source()
+				.getState());
+		assertEquals(-1, yin.source().read(ByteBuffer.allocate(10)));
+		yin.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSizeNotMultipleOf8() throws Exception {
+		new SegmentMemoryPipe(createFile(), SIZE + 4, JslipcRole.Yin);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLargerThan2GBRequiresJava22() throws Exception {
+		assumeFalse(SegmentMemoryPipe.isSegmentBacked());
+		new SegmentMemoryPipe(createFile(), 5L * 1024 * 1024 * 1024,
+				JslipcRole.Yin);
+	}
+
+	@Test
+	public void testLargerThan2GB() throws Exception {
+		assumeTrue(SegmentMemoryPipe.isSegmentBacked());
+		File file = createFile();
+		long size = 5L * 1024 * 1024 * 1024;
+		SegmentMemoryPipe yin = new SegmentMemoryPipe(file, size,
+				JslipcRole.Yin);
+		SegmentMemoryPipe yang = new SegmentMemoryPipe(file, size,
+				JslipcRole.Yang);
+		try {
+			// the yang to yin ring starts beyond 2 GB
+			assertEquals(7, yang.sink().write(TestUtil.toBuffer("herbert")));
+			ByteBuffer buffer = ByteBuffer.allocate(10);
+			assertEquals(7, yin.source().read(buffer));
+			TestUtil.assertEquals("herbert", buffer);
+		} finally {
+			yin.close();
+			yang.close();
+			file.delete();
+		}
+	}
+
+}
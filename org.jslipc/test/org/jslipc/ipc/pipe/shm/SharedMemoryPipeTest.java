@@ -3,19 +3,35 @@ package org.jslipc.ipc.pipe.shm;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jslipc.JslipcPipe;
 import org.jslipc.JslipcRole;
 import org.jslipc.TestUtil;
 import org.jslipc.ipc.pipe.AbstractTestProducer;
+import org.jslipc.ipc.pipe.PipeStats;
+import org.jslipc.channel.JslipcChannel.JslipcChannelState;
+import org.jslipc.channel.JslipcChannelInputStream;
+import org.jslipc.channel.buffer.DoorbellWaitStrategy;
 import org.jslipc.ipc.pipe.shm.SharedMemoryPipe;
+import org.jslipc.util.JmxUtil;
+import org.jslipc.wait.BackoffWaitStrategy;
+import org.jslipc.wait.BusySpinWaitStrategy;
+import org.jslipc.wait.SleepWaitStrategy;
+import org.jslipc.wait.WaitStrategy;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -35,10 +51,38 @@ public class SharedMemoryPipeTest {
 	public void testSharedMemoryPipeFile() throws Exception {
 		SharedMemoryPipe pipe = new SharedMemoryPipe(createFile(),
 				JslipcRole.Yang);
-		checkQueueBounds(pipe, 4096, JslipcRole.Yang);
+		checkQueueBounds(pipe, 4864, JslipcRole.Yang);
 
 		pipe = new SharedMemoryPipe(createFile(), JslipcRole.Yin);
-		checkQueueBounds(pipe, 4096, JslipcRole.Yin);
+		checkQueueBounds(pipe, 4864, JslipcRole.Yin);
+	}
+
+	@Test
+	public void testCapacity() throws Exception {
+		SharedMemoryPipe pipe = new SharedMemoryPipe(createFile(),
+				JslipcRole.Yin);
+		assertEquals(2048, pipe.getInQueue().getCapacity());
+		assertEquals(2048, pipe.getOutQueue().getCapacity());
+		pipe.close();
+
+		// the size of 4k used to waste almost half of each queue
+		pipe = new SharedMemoryPipe(createFile(), 4096, JslipcRole.Yin);
+		assertEquals(1024, pipe.getInQueue().getCapacity());
+		assertEquals(1024, pipe.getOutQueue().getCapacity());
+		pipe.close();
+
+		for (int capacity : new int[] { 8, 512, 1024, 65536 }) {
+			int size = SharedMemoryPipe.getFileSize(capacity);
+			pipe = new SharedMemoryPipe(createFile(), size, JslipcRole.Yin);
+			assertEquals(capacity, pipe.getInQueue().getCapacity());
+			assertEquals(capacity, pipe.getOutQueue().getCapacity());
+			pipe.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFileSizeNoPowerOfTwo() throws Exception {
+		SharedMemoryPipe.getFileSize(1000);
 	}
 
 	@Test
@@ -63,6 +107,53 @@ public class SharedMemoryPipeTest {
 		assertFalse(pipe.sink().isOpen());
 	}
 	
+	@Test
+	public void testStats() throws Exception {
+		File file = createFile();
+		SharedMemoryPipe pipe = new SharedMemoryPipe(file, 8192,
+				JslipcRole.Yang);
+		SharedMemoryPipe peer = new SharedMemoryPipe(file, 8192,
+				JslipcRole.Yin);
+		PipeStats stats = pipe.getStats();
+		assertSame(stats, pipe.getStats());
+		assertEquals("SharedMemoryPipe", stats.getType());
+		assertEquals(file.getAbsolutePath(), stats.getPath());
+		assertEquals(0, stats.getBytesWritten());
+		assertFalse(stats.isAbandoned());
+
+		assertEquals(7, pipe.sink().write(TestUtil.toBuffer("herbert")));
+		assertEquals(7, stats.getBytesWritten());
+		assertEquals(1, stats.getWriteCalls());
+		assertEquals(7, stats.getSinkFillLevel());
+		assertEquals(7, peer.getStats().getSourceFillLevel());
+
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		assertEquals(7, peer.source().read(buffer));
+		assertEquals(0, stats.getSinkFillLevel());
+		assertEquals(7, peer.getStats().getBytesRead());
+		peer.getStats().resetMetrics();
+		assertEquals(0, peer.getStats().getBytesRead());
+
+		Object owner = new Object();
+		assertTrue(PipeStats.register(pipe, owner));
+		assertTrue(JmxUtil.isRegistered(stats.getObjectName()));
+		assertEquals(1, PipeStats.getRegistered(owner).size());
+
+		peer.cleanUpOnClose();
+		peer.close();
+		assertTrue(stats.isAbandoned());
+		assertEquals(Collections.singletonList(stats),
+				PipeStats.getAbandoned(owner));
+		// abandoned pipes are only reported, closing is up to the owner
+		assertTrue(JmxUtil.isRegistered(stats.getObjectName()));
+		pipe.cleanUpOnClose();
+		pipe.close();
+		assertNull(stats.getObjectName());
+		assertEquals(0, PipeStats.getRegistered(owner).size());
+		assertEquals(-1, stats.getSinkFillLevel());
+		assertFalse(file.exists());
+	}
+
 	@Test
 	public void testCleanUpOnCloseStillUsedByPeer() throws Exception {
 		File file = createFile();
@@ -187,6 +278,143 @@ public class SharedMemoryPipeTest {
 		assertNotNull(pipe.sink());
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testWaitStrategy() throws Exception {
+		SharedMemoryPipe pipe = new SharedMemoryPipe(createFile(),
+				1789, JslipcRole.Yang);
+		assertSame(SleepWaitStrategy.DEFAULT, pipe.getWaitStrategy());
+		assertSame(SleepWaitStrategy.DEFAULT, pipe.source().getWaitStrategy());
+
+		WaitStrategy strategy = new BackoffWaitStrategy();
+		pipe.setWaitStrategy(strategy);
+		assertSame(strategy, pipe.getWaitStrategy());
+		assertSame(strategy, pipe.source().getWaitStrategy());
+		assertSame(strategy, pipe.sink().getWaitStrategy());
+		assertSame(strategy, ((JslipcChannelInputStream) pipe.source()
+				.newInputStream()).getWaitStrategy());
+	}
+
+	@Test
+	public void testClaimAndAcquire() throws Exception {
+		File file = createFile();
+		SharedMemoryPipe pipe = new SharedMemoryPipe(file, JslipcRole.Yang);
+		SharedMemoryPipe peer = new SharedMemoryPipe(file, JslipcRole.Yin);
+
+		ByteBuffer region = pipe.sink().claim(100);
+		assertEquals(100, region.remaining());
+		for (int i = 0; i < 100; i++) {
+			region.put((byte) i);
+		}
+		pipe.sink().commit(100);
+
+		region = peer.source().acquire(1000);
+		assertEquals(100, region.remaining());
+		for (int i = 0; i < 100; i++) {
+			assertEquals((byte) i, region.get());
+		}
+		peer.source().release(100);
+		assertTrue(peer.getInQueue().isEmpty());
+
+		pipe.close();
+		peer.close();
+	}
+
+	@Test(timeout = 20000)
+	public void testDoorbell() throws Exception {
+		File file = createFile();
+		final SharedMemoryPipe pipe = new SharedMemoryPipe(file,
+				JslipcRole.Yang);
+		SharedMemoryPipe peer = new SharedMemoryPipe(file, JslipcRole.Yin);
+		assumeTrue(pipe.enableDoorbell());
+		assertTrue(peer.enableDoorbell());
+		assertTrue(pipe.isDoorbellEnabled());
+		assertTrue(pipe.source().getWaitStrategy() instanceof DoorbellWaitStrategy);
+
+		final InputStream in = pipe.source().newInputStream();
+		final AtomicReference<Integer> byteRead = new AtomicReference<Integer>();
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					byteRead.set(in.read());
+				} catch (IOException e) {
+					// checked below
+				}
+			}
+		};
+		thread.start();
+		// wait until the consumer blocks on the doorbell
+		long start = System.currentTimeMillis();
+		while (!pipe.getInQueue().isWaiting()
+				&& System.currentTimeMillis() - start < 5000) {
+			Thread.sleep(10);
+		}
+		assertTrue(pipe.getInQueue().isWaiting());
+
+		peer.sink().newOutputStream().write(17);
+		thread.join(5000);
+		assertFalse(thread.isAlive());
+		assertEquals(Integer.valueOf(17), byteRead.get());
+
+		pipe.cleanUpOnClose();
+		peer.cleanUpOnClose();
+		peer.close();
+		pipe.close();
+		assertFalse(file.exists());
+		assertFalse(pipe.getFifoFile(pipe.getInQueue()).exists());
+		assertFalse(pipe.getFifoFile(pipe.getOutQueue()).exists());
+	}
+
+	@Test(timeout = 20000)
+	public void testCloseWhileReading() throws Exception {
+		File file = createFile();
+		SharedMemoryPipe pipe = new SharedMemoryPipe(file, JslipcRole.Yang);
+		pipe.setWaitStrategy(BusySpinWaitStrategy.INSTANCE);
+		checkCloseWhileReading(pipe);
+	}
+
+	@Test(timeout = 20000)
+	public void testCloseWhileWaitingOnDoorbell() throws Exception {
+		File file = createFile();
+		SharedMemoryPipe pipe = new SharedMemoryPipe(file, JslipcRole.Yang);
+		assumeTrue(pipe.enableDoorbell());
+		checkCloseWhileReading(pipe);
+	}
+
+	private void checkCloseWhileReading(final SharedMemoryPipe pipe)
+			throws Exception {
+		final InputStream in = pipe.source().newInputStream();
+		final AtomicReference<Object> result = new AtomicReference<Object>();
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					result.set(in.read());
+				} catch (IOException e) {
+					result.set(e);
+				}
+			}
+		};
+		thread.start();
+		// wait until the reader is blocked
+		long start = System.currentTimeMillis();
+		while (thread.getState() == Thread.State.NEW
+				|| System.currentTimeMillis() - start < 100) {
+			Thread.sleep(10);
+		}
+		assertTrue(thread.isAlive());
+
+		pipe.close();
+		assertTrue(pipe.getInQueue().isDetached());
+		assertTrue(pipe.getOutQueue().isDetached());
+		thread.join(5000);
+		assertFalse(thread.isAlive());
+		assertTrue("unexpected result " + result.get(),
+				result.get() instanceof IOException
+						|| Integer.valueOf(-1).equals(result.get()));
+		assertEquals(-1, pipe.getStats().getSourceFillLevel());
+		assertEquals(JslipcChannelState.Closed, pipe.source().getState());
+	}
+
 	@Test(timeout=20000)
 	public void testIpc() throws Exception {
 		File file = createFile();
@@ -0,0 +1,113 @@
+package org.jslipc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link BufferUtil} class.
+ */
+public class BufferUtilTest {
+
+	@Test
+	public void testIntAccessOnHeapBuffer() throws Exception {
+		checkIntAccess(ByteBuffer.allocate(32));
+	}
+
+	@Test
+	public void testIntAccessOnDirectBuffer() throws Exception {
+		checkIntAccess(ByteBuffer.allocateDirect(32));
+	}
+
+	@Test
+	public void testIntAccessOnSlicedBuffer() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		buffer.position(16);
+		checkIntAccess(buffer.slice());
+	}
+
+	@Test
+	public void testIntAccessUsesNativeOrder() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(32);
+		BufferUtil.putIntOrdered(buffer, 4, 0x01020304);
+		buffer.order(ByteOrder.nativeOrder());
+		assertEquals(0x01020304, buffer.getInt(4));
+	}
+
+	@Test
+	public void testByteAccess() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+		BufferUtil.putByteVolatile(buffer, 31, (byte) 17);
+		assertEquals((byte) 17, buffer.get(31));
+		assertEquals((byte) 17, BufferUtil.getByteVolatile(buffer, 31));
+	}
+
+	@Test
+	public void testLongAccess() throws Exception {
+		checkLongAccess(ByteBuffer.allocate(32));
+		checkLongAccess(ByteBuffer.allocateDirect(32));
+
+		ByteBuffer buffer = ByteBuffer.allocate(32);
+		BufferUtil.putLongOrdered(buffer, 8, 0x0102030405060708L);
+		buffer.order(ByteOrder.nativeOrder());
+		assertEquals(0x0102030405060708L, buffer.getLong(8));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetLongVolatileOutOfBounds() throws Exception {
+		BufferUtil.getLongVolatile(ByteBuffer.allocateDirect(32), 25);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetIntVolatileOutOfBounds() throws Exception {
+		BufferUtil.getIntVolatile(ByteBuffer.allocateDirect(32), 29);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testPutIntOrderedOutOfBounds() throws Exception {
+		BufferUtil.putIntOrdered(ByteBuffer.allocate(32), -1, 17);
+	}
+
+	@Test
+	public void testReleaseBuffer() throws Exception {
+		assertTrue(BufferUtil.isUnmapSupported());
+		BufferUtil.releaseBuffer(null);
+
+		File file = File.createTempFile("test", ".mapped");
+		file.deleteOnExit();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		MappedByteBuffer buffer = raf.getChannel().map(MapMode.READ_WRITE, 0,
+				4096);
+		buffer.put(0, (byte) 17);
+		raf.close();
+
+		BufferUtil.releaseBuffer(buffer);
+		assertTrue(file.delete());
+	}
+
+	private void checkIntAccess(final ByteBuffer buffer) {
+		BufferUtil.putIntOrdered(buffer, 0, 17);
+		BufferUtil.putIntOrdered(buffer, 8, -123456);
+		BufferUtil.putIntOrdered(buffer, buffer.capacity() - 4, 42);
+		assertEquals(17, BufferUtil.getIntVolatile(buffer, 0));
+		assertEquals(-123456, BufferUtil.getIntVolatile(buffer, 8));
+		assertEquals(42,
+				BufferUtil.getIntVolatile(buffer, buffer.capacity() - 4));
+	}
+
+	private void checkLongAccess(final ByteBuffer buffer) {
+		BufferUtil.putLongOrdered(buffer, 0, Long.MAX_VALUE);
+		BufferUtil.putLongOrdered(buffer, buffer.capacity() - 8, -17L);
+		assertEquals(Long.MAX_VALUE, BufferUtil.getLongVolatile(buffer, 0));
+		assertEquals(-17L,
+				BufferUtil.getLongVolatile(buffer, buffer.capacity() - 8));
+	}
+}
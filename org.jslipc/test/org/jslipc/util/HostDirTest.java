@@ -11,8 +11,12 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
 import java.nio.channels.FileLock;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.jslipc.TestUtil;
 import org.junit.After;
 import org.junit.Before;
@@ -43,6 +47,34 @@ public class HostDirTest {
 		FileUtil.delete(dir);
 	}
 	
+	@Test
+	public void testJmx() throws Exception {
+		hostDir = HostDir.create(dir);
+		File connectDir = PipeUtil.createConnectDir(hostDir);
+		PipeUtil.createPipesDir(hostDir);
+		assertFalse(hostDir.isJmxEnabled());
+		assertTrue(hostDir.enableJmx());
+		assertTrue(hostDir.isJmxEnabled());
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = JmxUtil.createName("HostDir", hostDir.getPath());
+		assertTrue(server.isRegistered(name));
+		assertEquals(Boolean.TRUE, server.getAttribute(name, "Active"));
+		assertEquals(0, server.getAttribute(name, "PendingRequests"));
+		assertEquals(0, server.getAttribute(name, "PipeFiles"));
+
+		File request = FileUtil.createDirectory(connectDir);
+		FileUtil.createDirectory(connectDir);
+		assertEquals(2, server.getAttribute(name, "PendingRequests"));
+		assertTrue(new File(request, PipeUtil.SERVED_MARKER_NAME)
+				.createNewFile());
+		assertEquals(1, server.getAttribute(name, "PendingRequests"));
+
+		hostDir.close();
+		assertFalse(hostDir.isJmxEnabled());
+		assertFalse(server.isRegistered(name));
+	}
+
 	private void setupLock() throws Exception {
 		File lockFile = new File(dir, HostDir.HOST_LOCK_FILE);
 		raf = new RandomAccessFile(lockFile, "rw");
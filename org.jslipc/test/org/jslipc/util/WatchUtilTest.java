@@ -0,0 +1,38 @@
+package org.jslipc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.jslipc.TestUtil;
+import org.jslipc.wait.WaitStrategy;
+import org.jslipc.wait.WatchServiceWaitStrategy;
+import org.junit.Test;
+
+/**
+ * Tests the {@link WatchUtil} class.
+ */
+public class WatchUtilTest {
+
+	@Test
+	public void testCreateWaitStrategy() throws Exception {
+		assertTrue(WatchUtil.isWatchServiceAvailable());
+		File directory = TestUtil.createDirectory();
+		WaitStrategy strategy = WatchUtil.createWaitStrategy(directory);
+		assertEquals(WatchServiceWaitStrategy.class, strategy.getClass());
+		assertEquals(directory,
+				((WatchServiceWaitStrategy) strategy).getDirectory());
+		WatchUtil.closeSilent(strategy);
+		FileUtil.delete(directory, true);
+	}
+
+	@Test
+	public void testCreateWaitStrategyMissingDirectory() throws Exception {
+		File directory = TestUtil.createDirectory();
+		assertNull(WatchUtil.createWaitStrategy(new File(directory, "missing")));
+		FileUtil.delete(directory, true);
+	}
+
+}
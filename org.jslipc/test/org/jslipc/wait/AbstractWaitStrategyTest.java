@@ -0,0 +1,68 @@
+package org.jslipc.wait;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public abstract class AbstractWaitStrategyTest {
+
+	protected abstract WaitStrategy createWaitStrategy();
+
+	@Test
+	public void testIdleReturns() throws Exception {
+		WaitStrategy strategy = createWaitStrategy();
+		long waitingSince = System.currentTimeMillis();
+		for (int round = 0; round < 3; round++) {
+			strategy.idle(round, 0, waitingSince);
+		}
+		assertTrue(System.currentTimeMillis() - waitingSince < 1000);
+	}
+
+	@Test(timeout = 5000)
+	public void testTimeout() throws Exception {
+		WaitStrategy strategy = createWaitStrategy();
+		long waitingSince = System.currentTimeMillis();
+		try {
+			for (int round = 0;; round++) {
+				strategy.idle(round, 300, waitingSince);
+			}
+		} catch (InterruptedException e) {
+			assertTrue("expected timeout, but is: " + e.getMessage(), e
+					.getMessage().contains("timeout"));
+		}
+		assertTrue(System.currentTimeMillis() - waitingSince >= 300);
+	}
+
+	@Test
+	public void testInterrupt() throws Exception {
+		final WaitStrategy strategy = createWaitStrategy();
+		final AtomicReference<Exception> caught = new AtomicReference<Exception>();
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					long waitingSince = System.currentTimeMillis();
+					for (int round = 0;; round++) {
+						strategy.idle(round, 0, waitingSince);
+					}
+				} catch (Exception e) {
+					caught.set(e);
+				}
+			}
+		};
+		thread.start();
+		thread.join(300);
+		assertTrue(thread.isAlive());
+
+		thread.interrupt();
+		thread.join(1000);
+		assertFalse(thread.isAlive());
+		assertNotNull("expected InterruptedException", caught.get());
+		assertEquals(InterruptedException.class, caught.get().getClass());
+	}
+
+}
@@ -0,0 +1,45 @@
+package org.jslipc.wait;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BackoffWaitStrategyTest extends AbstractWaitStrategyTest {
+
+	@Override
+	protected WaitStrategy createWaitStrategy() {
+		return new BackoffWaitStrategy(2, 2, 1000, 1000000);
+	}
+
+	@Test
+	public void testGetParkNanos() throws Exception {
+		BackoffWaitStrategy strategy = new BackoffWaitStrategy(2, 2, 1000,
+				5000);
+		assertEquals(1000, strategy.getParkNanos(0));
+		assertEquals(2000, strategy.getParkNanos(1));
+		assertEquals(4000, strategy.getParkNanos(2));
+		assertEquals(5000, strategy.getParkNanos(3));
+		assertEquals(5000, strategy.getParkNanos(Integer.MAX_VALUE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSpins() throws Exception {
+		new BackoffWaitStrategy(-1, 0, 1, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeYields() throws Exception {
+		new BackoffWaitStrategy(0, -1, 1, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMinParkNanos() throws Exception {
+		new BackoffWaitStrategy(0, 0, 0, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxParkNanos() throws Exception {
+		new BackoffWaitStrategy(0, 0, 2, 1);
+	}
+
+}
@@ -0,0 +1,10 @@
+package org.jslipc.wait;
+
+public class BusySpinWaitStrategyTest extends AbstractWaitStrategyTest {
+
+	@Override
+	protected WaitStrategy createWaitStrategy() {
+		return BusySpinWaitStrategy.INSTANCE;
+	}
+
+}
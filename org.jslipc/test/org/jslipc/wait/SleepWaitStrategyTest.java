@@ -0,0 +1,34 @@
+package org.jslipc.wait;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jslipc.util.TimeUtil;
+import org.junit.Test;
+
+public class SleepWaitStrategyTest extends AbstractWaitStrategyTest {
+
+	@Override
+	protected WaitStrategy createWaitStrategy() {
+		return new SleepWaitStrategy(10);
+	}
+
+	@Test
+	public void testDefault() throws Exception {
+		assertEquals(TimeUtil.DEFAULT_SLEEP_TIME,
+				SleepWaitStrategy.DEFAULT.getSleepTime());
+	}
+
+	@Test
+	public void testIdleSleeps() throws Exception {
+		long waitingSince = System.currentTimeMillis();
+		new SleepWaitStrategy(200).idle(0, 0, waitingSince);
+		assertTrue(System.currentTimeMillis() - waitingSince >= 190);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSleepTime() throws Exception {
+		new SleepWaitStrategy(0);
+	}
+
+}
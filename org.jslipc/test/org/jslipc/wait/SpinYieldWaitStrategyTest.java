@@ -0,0 +1,26 @@
+package org.jslipc.wait;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SpinYieldWaitStrategyTest extends AbstractWaitStrategyTest {
+
+	@Override
+	protected WaitStrategy createWaitStrategy() {
+		return new SpinYieldWaitStrategy(2);
+	}
+
+	@Test
+	public void testSpinYieldWaitStrategy() throws Exception {
+		assertEquals(SpinYieldWaitStrategy.DEFAULT_SPINS,
+				new SpinYieldWaitStrategy().getSpins());
+		assertEquals(7, new SpinYieldWaitStrategy(7).getSpins());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSpins() throws Exception {
+		new SpinYieldWaitStrategy(-1);
+	}
+
+}
@@ -0,0 +1,122 @@
+package org.jslipc.wait;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jslipc.TestUtil;
+import org.jslipc.util.FileEventListener;
+import org.jslipc.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WatchServiceWaitStrategyTest extends AbstractWaitStrategyTest {
+
+	private File directory;
+	private WatchServiceWaitStrategy strategy;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = TestUtil.createDirectory();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (strategy != null) {
+			strategy.close();
+		}
+		FileUtil.delete(directory, true);
+	}
+
+	@Override
+	protected WaitStrategy createWaitStrategy() {
+		try {
+			strategy = new WatchServiceWaitStrategy(directory, 100);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return strategy;
+	}
+
+	@Test(timeout = 5000)
+	public void testWakeUpOnCreate() throws Exception {
+		strategy = new WatchServiceWaitStrategy(directory, 3000);
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(200);
+					new File(directory, "herbert").createNewFile();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		long waitingSince = System.currentTimeMillis();
+		thread.start();
+		strategy.idle(0, 0, waitingSince);
+		long waited = System.currentTimeMillis() - waitingSince;
+		assertTrue("waited " + waited, waited >= 150 && waited < 2000);
+	}
+
+	@Test(timeout = 5000)
+	public void testListener() throws Exception {
+		final List<String> events = new ArrayList<String>();
+		strategy = new WatchServiceWaitStrategy(directory, 100,
+				new FileEventListener() {
+
+					@Override
+					public void created(File file) {
+						events.add("created " + file.getName());
+					}
+
+					@Override
+					public void deleted(File file) {
+						events.add("deleted " + file.getName());
+					}
+
+					@Override
+					public void overflow() {
+						events.add("overflow");
+					}
+				});
+		File file = new File(directory, "herbert");
+		assertTrue(file.createNewFile());
+		assertTrue(file.delete());
+		long waitingSince = System.currentTimeMillis();
+		for (int round = 0; events.size() < 2; round++) {
+			strategy.idle(round, 0, waitingSince);
+		}
+		assertEquals("created herbert", events.get(0));
+		assertEquals("deleted herbert", events.get(1));
+	}
+
+	@Test(timeout = 5000)
+	public void testIdleAfterClose() throws Exception {
+		strategy = new WatchServiceWaitStrategy(directory, 100);
+		strategy.close();
+		long waitingSince = System.currentTimeMillis();
+		strategy.idle(0, 0, waitingSince);
+		assertTrue(System.currentTimeMillis() - waitingSince >= 90);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullDirectory() throws Exception {
+		new WatchServiceWaitStrategy(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveMaxBlockTime() throws Exception {
+		new WatchServiceWaitStrategy(directory, 0);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingDirectory() throws Exception {
+		new WatchServiceWaitStrategy(new File(directory, "missing"));
+	}
+
+}